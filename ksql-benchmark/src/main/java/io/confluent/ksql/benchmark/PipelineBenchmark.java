@@ -0,0 +1,457 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.benchmark;
+
+import static io.confluent.ksql.datagen.DataGenSchemaUtil.getOptionalSchema;
+
+import com.google.common.collect.ImmutableMap;
+import io.confluent.avro.random.generator.Generator;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.KsqlEngineTestUtil;
+import io.confluent.ksql.datagen.RowGenerator;
+import io.confluent.ksql.datagen.SessionManager;
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.logging.processing.ProcessingLogContext;
+import io.confluent.ksql.metastore.MetaStoreImpl;
+import io.confluent.ksql.serde.KsqlTopicSerDe;
+import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
+import io.confluent.ksql.serde.delimited.KsqlDelimitedTopicSerDe;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.services.ServiceContext;
+import io.confluent.ksql.services.TestServiceContext;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.Pair;
+import io.confluent.ksql.util.QueryMetadata;
+import io.confluent.ksql.util.SchemaUtil;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.serialization.ByteArraySerializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.TopologyTestDriver;
+import org.apache.kafka.streams.test.ConsumerRecordFactory;
+import org.apache.kafka.test.TestUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *  Runs JMH benchmarks of whole KSQL queries, from the source topic to the sink topic.
+ *  Each query is built by a real engine and driven with Kafka Streams' TopologyTestDriver.
+ *  See `ksql-benchmark/README.md` for more info, including how to run the benchmarks.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(1)
+@Fork(3)
+public class PipelineBenchmark {
+
+  private static final Path SCHEMA_DIR = Paths.get("schemas");
+  private static final String SCHEMA_FILE_SUFFIX = ".avro";
+  private static final String SOURCE_TOPIC = "source";
+  private static final String LOOKUP_TOPIC = "lookup";
+  private static final String OUTPUT_TOPIC = "OUTPUT";
+  private static final int DISTINCT_RECORDS = 1000;
+
+  @State(Scope.Thread)
+  public static class PipelineState {
+
+    @Param({"FILTER", "PROJECT", "STREAM_TABLE_JOIN", "WINDOWED_AGGREGATE", "GROUP_BY"})
+    public String query;
+
+    @Param({"impressions", "metrics"})
+    public String schemaName;
+
+    @Param({"JSON", "Avro", "Delimited"})
+    public String serializationFormat;
+
+    // The number of times the columns of the schema are repeated in each row:
+    @Param({"1", "4"})
+    public int rowWidth;
+
+    TopologyTestDriver testDriver;
+    List<ConsumerRecord<byte[], byte[]>> records;
+    private int nextRecord;
+
+    private ServiceContext serviceContext;
+    private KsqlEngine ksqlEngine;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+      final Generator generator = new Generator(getSchemaStream(), new Random(0));
+      final org.apache.avro.Schema avroSchema = generator.schema();
+      final AvroData avroData = new AvroData(1);
+      final Schema generatedSchema = getOptionalSchema(avroData.toConnectSchema(avroSchema));
+
+      // The delimited format only supports primitive columns:
+      final boolean primitivesOnly = serializationFormat.equals("Delimited");
+      final Schema schema = widenSchema(generatedSchema, rowWidth, primitivesOnly);
+      final String keyColumn = firstPrimitiveColumn(schema).name();
+
+      final SchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
+      final KsqlConfig ksqlConfig = new KsqlConfig(getConfigs());
+      serviceContext = TestServiceContext.create(() -> schemaRegistryClient);
+      serviceContext.getTopicClient().createTopic(SOURCE_TOPIC, 1, (short) 1);
+      serviceContext.getTopicClient().createTopic(LOOKUP_TOPIC, 1, (short) 1);
+      ksqlEngine = KsqlEngineTestUtil.createKsqlEngine(
+          serviceContext,
+          new MetaStoreImpl(new InternalFunctionRegistry()));
+
+      final String sql = sourceStatement(schema) + buildQuery(schema, keyColumn);
+      final List<QueryMetadata> queries = KsqlEngineTestUtil
+          .execute(ksqlEngine, sql, ksqlConfig, Collections.emptyMap());
+      final QueryMetadata queryMetadata = queries.get(queries.size() - 1);
+
+      final Properties streamsProperties = new Properties();
+      streamsProperties.putAll(queryMetadata.getStreamsProperties());
+      testDriver = new TopologyTestDriver(queryMetadata.getTopology(), streamsProperties, 0);
+
+      final Serializer<GenericRow> serializer = getSerde(
+          getTopicSerDe(serializationFormat), schema, ksqlConfig, schemaRegistryClient)
+          .serializer();
+
+      final ConsumerRecordFactory<byte[], byte[]> recordFactory =
+          new ConsumerRecordFactory<>(new ByteArraySerializer(), new ByteArraySerializer());
+
+      final SessionManager sessionManager = new SessionManager();
+      final RowGenerator rowGenerator = new RowGenerator(
+          generator,
+          avroData,
+          avroSchema,
+          generatedSchema,
+          sessionManager,
+          generatedSchema.fields().get(0).name());
+
+      final Set<Object> keyValues = new LinkedHashSet<>();
+      records = new ArrayList<>(DISTINCT_RECORDS);
+      for (int i = 0; i < DISTINCT_RECORDS; i++) {
+        final Pair<String, GenericRow> generated = rowGenerator.generateRow();
+        final GenericRow row =
+            widenRow(generated.getRight(), generatedSchema, schema, primitivesOnly);
+        keyValues.add(row.getColumns().get(schema.field(keyColumn).index()));
+
+        records.add(recordFactory.create(
+            SOURCE_TOPIC,
+            generated.getLeft().getBytes(StandardCharsets.UTF_8),
+            serializer.serialize(SOURCE_TOPIC, row),
+            i * 1000L));
+      }
+
+      if (query.equals("STREAM_TABLE_JOIN")) {
+        populateLookupTable(schema.field(keyColumn).schema(), keyValues, ksqlConfig);
+      }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      testDriver.close();
+      ksqlEngine.close();
+      serviceContext.close();
+    }
+
+    ConsumerRecord<byte[], byte[]> nextRecord() {
+      final ConsumerRecord<byte[], byte[]> record = records.get(nextRecord);
+      nextRecord = (nextRecord + 1) % records.size();
+      return record;
+    }
+
+    private InputStream getSchemaStream() {
+      return PipelineBenchmark.class.getClassLoader().getResourceAsStream(
+          SCHEMA_DIR.resolve(schemaName + SCHEMA_FILE_SUFFIX).toString());
+    }
+
+    private String sourceStatement(final Schema schema) {
+      return "CREATE STREAM SOURCE ("
+          + schema.fields().stream()
+              .map(field -> field.name() + " " + SchemaUtil.getSqlTypeName(field.schema()))
+              .collect(Collectors.joining(", "))
+          + ") WITH (KAFKA_TOPIC='" + SOURCE_TOPIC + "', VALUE_FORMAT='"
+          + serializationFormat.toUpperCase() + "');\n"
+          + "CREATE TABLE LOOKUP (ID " + SchemaUtil.getSqlTypeName(
+              schema.field(firstPrimitiveColumn(schema).name()).schema())
+          + ", NAME VARCHAR) WITH (KAFKA_TOPIC='" + LOOKUP_TOPIC
+          + "', VALUE_FORMAT='JSON', KEY='ID');\n";
+    }
+
+    private String buildQuery(final Schema schema, final String keyColumn) {
+      switch (query) {
+        case "FILTER":
+          return "CREATE STREAM OUTPUT AS SELECT * FROM SOURCE"
+              + " WHERE " + keyColumn + " IS NOT NULL;";
+        case "PROJECT":
+          return "CREATE STREAM OUTPUT AS SELECT "
+              + schema.fields().stream()
+                  .map(PipelineBenchmark::projection)
+                  .collect(Collectors.joining(", "))
+              + " FROM SOURCE;";
+        case "STREAM_TABLE_JOIN":
+          return "CREATE STREAM OUTPUT AS SELECT "
+              + schema.fields().stream()
+                  .filter(field -> field.schema().type().isPrimitive())
+                  .map(field -> "S." + field.name())
+                  .collect(Collectors.joining(", "))
+              + ", T.NAME FROM SOURCE S JOIN LOOKUP T ON S." + keyColumn + " = T.ID;";
+        case "WINDOWED_AGGREGATE":
+          return "CREATE TABLE OUTPUT AS SELECT " + keyColumn + ", COUNT(*) AS CNT FROM SOURCE"
+              + " WINDOW TUMBLING (SIZE 1 MINUTE) GROUP BY " + keyColumn + ";";
+        case "GROUP_BY":
+          return "CREATE TABLE OUTPUT AS SELECT " + keyColumn + ", COUNT(*) AS CNT FROM SOURCE"
+              + " GROUP BY " + keyColumn + ";";
+        default:
+          throw new RuntimeException("Invalid query: " + query);
+      }
+    }
+
+    private void populateLookupTable(
+        final Schema keySchema,
+        final Set<Object> keyValues,
+        final KsqlConfig ksqlConfig
+    ) {
+      final Schema lookupSchema = SchemaBuilder.struct()
+          .field("ID", keySchema)
+          .field("NAME", Schema.OPTIONAL_STRING_SCHEMA)
+          .build();
+
+      final Serializer<GenericRow> serializer =
+          getSerde(new KsqlJsonTopicSerDe(), lookupSchema, ksqlConfig, null).serializer();
+      final ConsumerRecordFactory<byte[], byte[]> recordFactory =
+          new ConsumerRecordFactory<>(new ByteArraySerializer(), new ByteArraySerializer());
+
+      for (final Object keyValue : keyValues) {
+        final GenericRow row = new GenericRow(keyValue, "name_" + keyValue);
+        testDriver.pipeInput(recordFactory.create(
+            LOOKUP_TOPIC,
+            String.valueOf(keyValue).getBytes(StandardCharsets.UTF_8),
+            serializer.serialize(LOOKUP_TOPIC, row),
+            0L));
+      }
+    }
+  }
+
+  @Benchmark
+  public int processRecord(final PipelineState state) {
+    state.testDriver.pipeInput(state.nextRecord());
+
+    // Drain the output, so the test driver does not accumulate it:
+    int outputs = 0;
+    while (state.testDriver.readOutput(OUTPUT_TOPIC) != null) {
+      outputs++;
+    }
+    return outputs;
+  }
+
+  private static Map<String, Object> getConfigs() {
+    return ImmutableMap.<String, Object>builder()
+        .put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:0")
+        .put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest")
+        .put(StreamsConfig.CACHE_MAX_BYTES_BUFFERING_CONFIG, 0)
+        .put(StreamsConfig.STATE_DIR_CONFIG, TestUtils.tempDirectory().getPath())
+        .put(StreamsConfig.APPLICATION_ID_CONFIG, "pipeline.benchmark")
+        .put(KsqlConfig.KSQL_SERVICE_ID_CONFIG, "pipeline.benchmark")
+        .put(
+            KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS,
+            KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS_ON)
+        .put(StreamsConfig.TOPOLOGY_OPTIMIZATION, StreamsConfig.OPTIMIZE)
+        .build();
+  }
+
+  private static KsqlTopicSerDe getTopicSerDe(final String serializationFormat) {
+    switch (serializationFormat) {
+      case "JSON":
+        return new KsqlJsonTopicSerDe();
+      case "Avro":
+        return new KsqlAvroTopicSerDe("benchmarkSchema");
+      case "Delimited":
+        return new KsqlDelimitedTopicSerDe();
+      default:
+        throw new RuntimeException("Invalid format: " + serializationFormat);
+    }
+  }
+
+  private static Serde<GenericRow> getSerde(
+      final KsqlTopicSerDe topicSerDe,
+      final Schema schema,
+      final KsqlConfig ksqlConfig,
+      final SchemaRegistryClient schemaRegistryClient
+  ) {
+    return topicSerDe.getGenericRowSerde(
+        schema,
+        ksqlConfig,
+        false,
+        () -> schemaRegistryClient,
+        "benchmark",
+        ProcessingLogContext.create());
+  }
+
+  private static String projection(final Field field) {
+    if (field.schema().type() == Schema.Type.STRUCT) {
+      return field.name() + "->" + field.schema().fields().get(0).name()
+          + " AS " + field.name() + "_0";
+    }
+    return field.name();
+  }
+
+  private static Field firstPrimitiveColumn(final Schema schema) {
+    return schema.fields().stream()
+        .filter(field -> field.schema().type().isPrimitive())
+        .findFirst()
+        .orElseThrow(() -> new RuntimeException("Schema has no primitive columns: " + schema));
+  }
+
+  /**
+   * Build a schema that repeats the columns of {@code schema} {@code width} times.
+   *
+   * <p>Columns are renamed C0, C1, ... and struct fields F0, F1, ..., so that the generated
+   * field names never clash with each other or with KSQL keywords.
+   */
+  private static Schema widenSchema(
+      final Schema schema,
+      final int width,
+      final boolean primitivesOnly
+  ) {
+    final SchemaBuilder builder = SchemaBuilder.struct();
+    int column = 0;
+    for (int copy = 0; copy < width; copy++) {
+      for (final Field field : schema.fields()) {
+        if (!primitivesOnly || field.schema().type().isPrimitive()) {
+          builder.field("C" + column++, renameFields(field.schema()));
+        }
+      }
+    }
+    return builder.build();
+  }
+
+  private static Schema renameFields(final Schema schema) {
+    switch (schema.type()) {
+      case STRUCT: {
+        final SchemaBuilder builder = SchemaBuilder.struct().optional();
+        for (final Field field : schema.fields()) {
+          builder.field("F" + field.index(), renameFields(field.schema()));
+        }
+        return builder.build();
+      }
+      case ARRAY:
+        return SchemaBuilder.array(renameFields(schema.valueSchema())).optional().build();
+      case MAP:
+        return SchemaBuilder
+            .map(schema.keySchema(), renameFields(schema.valueSchema()))
+            .optional()
+            .build();
+      default:
+        return schema;
+    }
+  }
+
+  private static GenericRow widenRow(
+      final GenericRow row,
+      final Schema rowSchema,
+      final Schema widenedSchema,
+      final boolean primitivesOnly
+  ) {
+    final List<Field> widenedFields = widenedSchema.fields();
+    final List<Object> columns = new ArrayList<>(widenedFields.size());
+    while (columns.size() < widenedFields.size()) {
+      for (final Field field : rowSchema.fields()) {
+        if (!primitivesOnly || field.schema().type().isPrimitive()) {
+          final Schema targetSchema = widenedFields.get(columns.size()).schema();
+          columns.add(convertValue(row.getColumns().get(field.index()), targetSchema));
+        }
+      }
+    }
+    return new GenericRow(columns);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object convertValue(final Object value, final Schema targetSchema) {
+    if (value == null) {
+      return null;
+    }
+
+    switch (targetSchema.type()) {
+      case STRUCT: {
+        final Struct source = (Struct) value;
+        final Struct struct = new Struct(targetSchema);
+        final List<Field> sourceFields = source.schema().fields();
+        for (final Field field : targetSchema.fields()) {
+          final Object fieldValue = source.get(sourceFields.get(field.index()));
+          struct.put(field, convertValue(fieldValue, field.schema()));
+        }
+        return struct;
+      }
+      case ARRAY:
+        return ((List<Object>) value).stream()
+            .map(element -> convertValue(element, targetSchema.valueSchema()))
+            .collect(Collectors.toList());
+      case MAP: {
+        final Map<Object, Object> map = new HashMap<>();
+        ((Map<Object, Object>) value).forEach((k, v) ->
+            map.put(k, convertValue(v, targetSchema.valueSchema())));
+        return map;
+      }
+      default:
+        return value;
+    }
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    final Options opt = new OptionsBuilder()
+        .include(PipelineBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -26,13 +26,16 @@ import io.confluent.ksql.datagen.RowGenerator;
 import io.confluent.ksql.datagen.SessionManager;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
+import io.confluent.ksql.serde.delimited.KsqlDelimitedTopicSerDe;
 import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.Pair;
 import java.io.InputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
 import org.apache.avro.Schema;
@@ -118,12 +121,13 @@ public class SerdeBenchmark {
     GenericRow row;
     byte[] bytes;
 
-    @Param({"JSON", "Avro"})
+    @Param({"JSON", "Avro", "Delimited"})
     public String serializationFormat;
 
     @Setup(Level.Iteration)
     public void setUp(final SchemaAndGenericRowState rowState) {
       final Serde<GenericRow> serde;
+      row = rowState.row;
       switch (serializationFormat) {
         case "JSON":
           serde = getJsonSerde(rowState.schema);
@@ -131,12 +135,18 @@ public class SerdeBenchmark {
         case "Avro":
           serde = getAvroSerde(rowState.schema);
           break;
+        case "Delimited": {
+          // The delimited format only supports primitive columns:
+          final List<Integer> primitiveColumns = getPrimitiveColumns(rowState.schema);
+          serde = getDelimitedSerde(selectFields(rowState.schema, primitiveColumns));
+          row = selectColumns(rowState.row, primitiveColumns);
+          break;
+        }
         default:
           throw new RuntimeException("Invalid format: " + serializationFormat);
       }
       serializer = serde.serializer();
       deserializer = serde.deserializer();
-      row = rowState.row;
       bytes = serializer.serialize(TOPIC_NAME, row);
     }
 
@@ -169,6 +179,47 @@ public class SerdeBenchmark {
           ProcessingLogContext.create());
     }
 
+    private static Serde<GenericRow> getDelimitedSerde(
+        final org.apache.kafka.connect.data.Schema schema) {
+      return new KsqlDelimitedTopicSerDe().getGenericRowSerde(
+          schema,
+          new KsqlConfig(Collections.emptyMap()),
+          false,
+          () -> null,
+          "benchmark",
+          ProcessingLogContext.create());
+    }
+
+    private static List<Integer> getPrimitiveColumns(
+        final org.apache.kafka.connect.data.Schema schema) {
+      final List<Integer> columns = new ArrayList<>();
+      for (int i = 0; i < schema.fields().size(); i++) {
+        if (schema.fields().get(i).schema().type().isPrimitive()) {
+          columns.add(i);
+        }
+      }
+      return columns;
+    }
+
+    private static org.apache.kafka.connect.data.Schema selectFields(
+        final org.apache.kafka.connect.data.Schema schema,
+        final List<Integer> columns) {
+      SchemaBuilder builder = SchemaBuilder.struct();
+      for (final int column : columns) {
+        final Field field = schema.fields().get(column);
+        builder = builder.field(field.name(), field.schema());
+      }
+      return builder.build();
+    }
+
+    private static GenericRow selectColumns(final GenericRow row, final List<Integer> columns) {
+      final List<Object> values = new ArrayList<>(columns.size());
+      for (final int column : columns) {
+        values.add(row.getColumns().get(column));
+      }
+      return new GenericRow(values);
+    }
+
     private static Serde<GenericRow> getAvroSerde(
         final org.apache.kafka.connect.data.Schema schema) {
       final SchemaRegistryClient schemaRegistryClient = new MockSchemaRegistryClient();
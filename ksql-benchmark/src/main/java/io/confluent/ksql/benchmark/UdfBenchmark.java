@@ -0,0 +1,95 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.benchmark;
+
+import io.confluent.ksql.function.UdfInvoker;
+import io.confluent.ksql.function.udf.PluggableUdf;
+import io.confluent.ksql.security.ExtensionSecurityManager;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ *  Runs JMH microbenchmarks of invoking UDFs, with and without the UDF security sandbox.
+ *  Run with different thread counts, e.g. `-t 1` and `-t 8`, to see how invocation scales.
+ *  See `ksql-benchmark/README.md` for more info.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Threads(4)
+@Fork(3)
+public class UdfBenchmark {
+
+  private static final UdfInvoker ADD_ONE = (udf, args) -> (Long) args[0] + 1;
+
+  @State(Scope.Benchmark)
+  public static class UdfState {
+
+    @Param({"true", "false"})
+    public boolean sandboxed;
+
+    PluggableUdf udf;
+    private SecurityManager previousSecurityManager;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+      previousSecurityManager = System.getSecurityManager();
+      System.setSecurityManager(ExtensionSecurityManager.INSTANCE);
+      udf = new PluggableUdf(ADD_ONE, new Object(), sandboxed);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      System.setSecurityManager(previousSecurityManager);
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class ArgState {
+    Long value = 1000L;
+  }
+
+  @Benchmark
+  public Object evaluate(final UdfState udfState, final ArgState argState) {
+    return udfState.udf.evaluate(argState.value);
+  }
+
+  public static void main(final String[] args) throws RunnerException {
+    final Options opt = new OptionsBuilder()
+        .include(UdfBenchmark.class.getSimpleName())
+        .build();
+
+    new Runner(opt).run();
+  }
+}
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.benchmark;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import io.confluent.ksql.benchmark.PipelineBenchmark.PipelineState;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+@RunWith(Parameterized.class)
+public class PipelineBenchmarkTest {
+
+  private static final List<String> QUERIES = ImmutableList.of(
+      "FILTER", "PROJECT", "STREAM_TABLE_JOIN", "WINDOWED_AGGREGATE", "GROUP_BY");
+  private static final List<String> FORMATS = ImmutableList.of("JSON", "Avro", "Delimited");
+
+  private final String query;
+  private final String serializationFormat;
+
+  private PipelineState state;
+
+  public PipelineBenchmarkTest(final String query, final String serializationFormat) {
+    this.query = query;
+    this.serializationFormat = serializationFormat;
+  }
+
+  @Parameterized.Parameters(name = "{0} - {1}")
+  public static Iterable<Object[]> data() {
+    return Lists.cartesianProduct(QUERIES, FORMATS)
+        .stream()
+        .map(List::toArray)
+        .collect(Collectors.toList());
+  }
+
+  @Before
+  public void setUp() throws Exception {
+    state = new PipelineState();
+    state.query = query;
+    state.schemaName = "metrics";
+    state.serializationFormat = serializationFormat;
+    state.rowWidth = 2;
+    state.setUp();
+  }
+
+  @After
+  public void tearDown() {
+    state.tearDown();
+  }
+
+  @Test
+  public void shouldProduceOutputForEachRecord() {
+    final PipelineBenchmark benchmark = new PipelineBenchmark();
+    for (int i = 0; i < 10; i++) {
+      assertThat(benchmark.processRecord(state), greaterThan(0));
+    }
+  }
+}
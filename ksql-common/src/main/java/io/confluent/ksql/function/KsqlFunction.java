@@ -19,8 +19,10 @@ import com.google.common.collect.ImmutableList;
 import io.confluent.ksql.function.udf.Kudf;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import javax.annotation.concurrent.Immutable;
@@ -38,6 +40,7 @@ public final class KsqlFunction {
   private final Function<KsqlConfig, Kudf> udfFactory;
   private final String description;
   private final String pathLoadedFrom;
+  private final Optional<Method> udfMethod;
 
   /**
    * Create built in / legacy function.
@@ -74,11 +77,35 @@ public final class KsqlFunction {
       final Function<KsqlConfig, Kudf> udfFactory,
       final String description,
       final String pathLoadedFrom
+  ) {
+    return create(
+        returnType, arguments, functionName, kudfClass, udfFactory, description, pathLoadedFrom,
+        Optional.empty());
+  }
+
+  /**
+   * Create udf that generated code can invoke directly.
+   *
+   * @param udfMethod the {@code @Udf} method wrapped by the {@code PluggableUdf} instances the
+   *                  {@code udfFactory} creates, if generated code can call it directly.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  static KsqlFunction create(
+      final Schema returnType,
+      final List<Schema> arguments,
+      final String functionName,
+      final Class<? extends Kudf> kudfClass,
+      final Function<KsqlConfig, Kudf> udfFactory,
+      final String description,
+      final String pathLoadedFrom,
+      final Optional<Method> udfMethod
   ) {
     return new KsqlFunction(
-        returnType, arguments, functionName, kudfClass, udfFactory, description, pathLoadedFrom);
+        returnType, arguments, functionName, kudfClass, udfFactory, description, pathLoadedFrom,
+        udfMethod);
   }
 
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   private KsqlFunction(
       final Schema returnType,
       final List<Schema> arguments,
@@ -86,7 +113,8 @@ public final class KsqlFunction {
       final Class<? extends Kudf> kudfClass,
       final Function<KsqlConfig, Kudf> udfFactory,
       final String description,
-      final String pathLoadedFrom
+      final String pathLoadedFrom,
+      final Optional<Method> udfMethod
   ) {
     this.returnType = Objects.requireNonNull(returnType, "returnType");
     this.arguments = ImmutableList.copyOf(Objects.requireNonNull(arguments, "arguments"));
@@ -95,6 +123,7 @@ public final class KsqlFunction {
     this.udfFactory = Objects.requireNonNull(udfFactory, "udfFactory");
     this.description = Objects.requireNonNull(description, "description");
     this.pathLoadedFrom  = Objects.requireNonNull(pathLoadedFrom, "pathLoadedFrom");
+    this.udfMethod = Objects.requireNonNull(udfMethod, "udfMethod");
 
     if (arguments.stream().anyMatch(Objects::isNull)) {
       throw new IllegalArgumentException("KSQL Function can't have null argument types");
@@ -125,6 +154,15 @@ public final class KsqlFunction {
     return pathLoadedFrom;
   }
 
+  /**
+   * @return the method generated code can call directly on the UDF wrapped by the
+   *         {@code PluggableUdf} returned from {@link #newInstance}, rather than going through
+   *         {@link Kudf#evaluate}, if any.
+   */
+  public Optional<Method> getUdfMethod() {
+    return udfMethod;
+  }
+
   @Override
   public boolean equals(final Object o) {
     if (this == o) {
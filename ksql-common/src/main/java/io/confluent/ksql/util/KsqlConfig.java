@@ -127,6 +127,23 @@ public class KsqlConfig extends AbstractConfig implements Cloneable {
       + "in interactive mode. Once this limit is reached, any further persistent queries will not "
       + "be accepted.";
 
+  public static final String KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG =
+      "ksql.query.persistent.active.stream.threads.limit";
+  private static final int KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_DEFAULT =
+      Integer.MAX_VALUE;
+  private static final String KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_DOC =
+      "An upper limit on the total number of stream threads used by the active, persistent "
+      + "queries, in interactive mode. Each query uses as many threads as its "
+      + "'num.stream.threads' setting. Once this limit is reached, any further persistent "
+      + "queries will not be accepted.";
+
+  public static final String KSQL_SHARED_PRODUCERS_ENABLED_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "query.shared.producers.enable";
+  private static final String KSQL_SHARED_PRODUCERS_ENABLED_DOC =
+      "If true, queries share Kafka producers, rather than each stream thread of each query "
+      + "having its own. This reduces the threads, memory and connections used per query. "
+      + "Producers are not shared by queries using exactly-once processing.";
+
   public static final String KSQL_USE_NAMED_INTERNAL_TOPICS = "ksql.named.internal.topics";
   private static final String KSQL_USE_NAMED_INTERNAL_TOPICS_DOC = "";
   public static final String KSQL_USE_NAMED_INTERNAL_TOPICS_ON = "on";
@@ -143,6 +160,50 @@ public class KsqlConfig extends AbstractConfig implements Cloneable {
   public static final String KSQL_COLLECT_UDF_METRICS = "ksql.udf.collect.metrics";
   public static final String KSQL_UDF_SECURITY_MANAGER_ENABLED = "ksql.udf.enable.security.manager";
 
+  public static final String KSQL_UDF_METRICS_SAMPLE_INTERVAL_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "udf.metrics.sample.interval";
+  private static final String KSQL_UDF_METRICS_SAMPLE_INTERVAL_DOC =
+      "If greater than zero, and " + KSQL_COLLECT_UDF_METRICS + " is enabled, the latency of "
+      + "one in every this many invocations of each udf on each thread is recorded, without "
+      + "locking, and reported as the p50, p99 and p999 of each udf. If zero, every invocation "
+      + "is recorded, and reported as the avg, max, count and rate of each udf.";
+
+  public static final String KSQL_CODEGEN_FUSED_PROJECTION_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "codegen.fused.projection.enabled";
+  private static final String KSQL_CODEGEN_FUSED_PROJECTION_DOC =
+      "If enabled, the select expressions of a query, along with any WHERE clause applied "
+      + "directly before them, are compiled into a single generated class that reads each "
+      + "input column once, rather than one evaluator per expression.";
+
+  public static final String KSQL_CODEGEN_CACHE_ENABLED_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "codegen.cache.enabled";
+  private static final String KSQL_CODEGEN_CACHE_ENABLED_DOC =
+      "If enabled, compiled expressions are cached in memory and reused by any query, "
+      + "statement validation or command replay that generates the same code.";
+
+  public static final String KSQL_TRANSIENT_SHARED_SCAN_ENABLED_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "query.transient.shared.scan.enabled";
+  private static final String KSQL_TRANSIENT_SHARED_SCAN_ENABLED_DOC =
+      "If enabled, transient queries that only filter and project a stream, and that don't "
+      + "override any properties, share a single consumer of the stream per server, rather "
+      + "than each consuming and deserializing it. Only applies when "
+      + "auto.offset.reset is 'latest'.";
+
+  public static final String KSQL_TRANSIENT_QUEUE_CAPACITY_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "query.transient.queue.capacity";
+  private static final String KSQL_TRANSIENT_QUEUE_CAPACITY_DOC =
+      "The maximum number of result rows a transient query buffers for its client.";
+
+  public static final String KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_CONFIG =
+      KSQL_CONFIG_PROPERTY_PREFIX + "query.transient.queue.overflow.policy";
+  public static final String KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_BLOCK = "block";
+  public static final String KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_DROP_OLDEST = "drop_oldest";
+  public static final String KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_TERMINATE = "terminate";
+  private static final String KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_DOC =
+      "What a transient query does with a result row when its client is too slow to keep its "
+      + "queue from filling: 'block' waits for space, stalling the query; 'drop_oldest' drops "
+      + "the oldest queued row; 'terminate' fails the query.";
+
   public static final String DEFAULT_EXT_DIR = "ext";
 
   private static final Collection<CompatibilityBreakingConfigDef> COMPATIBLY_BREAKING_CONFIG_DEFS
@@ -355,6 +416,13 @@ public class KsqlConfig extends AbstractConfig implements Cloneable {
             "Whether or not metrics should be collected for custom udfs. Default is false. Note: "
                 + "this will add some overhead to udf invocation. It is recommended that this "
                 + " be set to false in production."
+        ).define(
+            KSQL_UDF_METRICS_SAMPLE_INTERVAL_CONFIG,
+            ConfigDef.Type.INT,
+            0,
+            ConfigDef.Range.atLeast(0),
+            ConfigDef.Importance.LOW,
+            KSQL_UDF_METRICS_SAMPLE_INTERVAL_DOC
         ).define(
             KSQL_EXT_DIR,
             ConfigDef.Type.STRING,
@@ -368,6 +436,54 @@ public class KsqlConfig extends AbstractConfig implements Cloneable {
             ConfigDef.Importance.LOW,
             "Enable the security manager for UDFs. Default is true and will stop UDFs from"
                + " calling System.exit or executing processes"
+        ).define(
+            KSQL_CODEGEN_FUSED_PROJECTION_CONFIG,
+            ConfigDef.Type.BOOLEAN,
+            false,
+            ConfigDef.Importance.LOW,
+            KSQL_CODEGEN_FUSED_PROJECTION_DOC
+        ).define(
+            KSQL_CODEGEN_CACHE_ENABLED_CONFIG,
+            ConfigDef.Type.BOOLEAN,
+            true,
+            ConfigDef.Importance.LOW,
+            KSQL_CODEGEN_CACHE_ENABLED_DOC
+        ).define(
+            KSQL_TRANSIENT_SHARED_SCAN_ENABLED_CONFIG,
+            ConfigDef.Type.BOOLEAN,
+            false,
+            ConfigDef.Importance.LOW,
+            KSQL_TRANSIENT_SHARED_SCAN_ENABLED_DOC
+        ).define(
+            KSQL_TRANSIENT_QUEUE_CAPACITY_CONFIG,
+            ConfigDef.Type.INT,
+            100,
+            ConfigDef.Range.atLeast(1),
+            ConfigDef.Importance.LOW,
+            KSQL_TRANSIENT_QUEUE_CAPACITY_DOC
+        ).define(
+            KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_CONFIG,
+            ConfigDef.Type.STRING,
+            KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_BLOCK,
+            ValidString.in(
+                KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_BLOCK,
+                KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_DROP_OLDEST,
+                KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_TERMINATE),
+            ConfigDef.Importance.LOW,
+            KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_DOC
+        ).define(
+            KSQL_SHARED_PRODUCERS_ENABLED_CONFIG,
+            ConfigDef.Type.BOOLEAN,
+            false,
+            ConfigDef.Importance.LOW,
+            KSQL_SHARED_PRODUCERS_ENABLED_DOC
+        ).define(
+            KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG,
+            ConfigDef.Type.INT,
+            KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_DEFAULT,
+            ConfigDef.Range.atLeast(1),
+            ConfigDef.Importance.LOW,
+            KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_DOC
         )
         .withClientSslSupport();
     for (final CompatibilityBreakingConfigDef compatibilityBreakingConfigDef
@@ -45,6 +45,10 @@ public class StringTimestampExtractionPolicy implements TimestampExtractionPolic
     return timestampField;
   }
 
+  public String getFormat() {
+    return format;
+  }
+
   @Override
   public int hashCode() {
     return Objects.hash(timestampField, format);
@@ -554,4 +554,24 @@ public class KsqlConfigTest {
         )
     );
   }
+
+  @Test
+  public void shouldDefaultStreamThreadLimitToUnlimited() {
+    final KsqlConfig config = new KsqlConfig(Collections.emptyMap());
+
+    assertThat(
+        config.getInt(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG),
+        is(Integer.MAX_VALUE));
+  }
+
+  @Test
+  public void shouldRaiseOnStreamThreadLimitBelowOne() {
+    expectedException.expect(ConfigException.class);
+    new KsqlConfig(
+        Collections.singletonMap(
+            KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG,
+            0
+        )
+    );
+  }
 }
@@ -15,8 +15,9 @@
 
 package io.confluent.ksql;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
 import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
 import io.confluent.ksql.ddl.DdlConfig;
 import io.confluent.ksql.ddl.commands.CommandFactories;
@@ -50,6 +51,7 @@ import io.confluent.ksql.parser.tree.QueryContainer;
 import io.confluent.ksql.parser.tree.QuerySpecification;
 import io.confluent.ksql.parser.tree.StringLiteral;
 import io.confluent.ksql.parser.tree.Table;
+import io.confluent.ksql.physical.SharedSourceScans;
 import io.confluent.ksql.planner.LogicalPlanNode;
 import io.confluent.ksql.query.QueryId;
 import io.confluent.ksql.schema.registry.SchemaRegistryUtil;
@@ -57,6 +59,7 @@ import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.serde.DataSource.DataSourceType;
 import io.confluent.ksql.services.SandboxedServiceContext;
 import io.confluent.ksql.services.ServiceContext;
+import io.confluent.ksql.services.SharedProducerKafkaClientSupplier;
 import io.confluent.ksql.util.AvroUtil;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
@@ -79,9 +82,11 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.stream.Collectors;
+import org.apache.kafka.streams.KafkaClientSupplier;
 import org.apache.kafka.streams.StreamsConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -164,12 +169,32 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
     return primaryContext.getPersistentQuery(queryId);
   }
 
+  @Override
   public List<PersistentQueryMetadata> getPersistentQueries() {
-    return ImmutableList.copyOf(primaryContext.persistentQueries.values());
+    return primaryContext.getPersistentQueries();
+  }
+
+  /**
+   * @return the number the id of the next persistent query will end with.
+   */
+  public long peekNextQueryId() {
+    return primaryContext.queryIdGenerator.peekNextId();
+  }
+
+  /**
+   * Set the number the id of the next persistent query will end with.
+   *
+   * <p>Used when restoring queries from a snapshot, so that they keep the ids they had, and so
+   * their consumer groups and state, even though the queries before them are not restored.
+   *
+   * @param nextQueryId the number.
+   */
+  public void setNextQueryId(final long nextQueryId) {
+    primaryContext.queryIdGenerator.setNextId(nextQueryId);
   }
 
   public boolean hasActiveQueries() {
-    return !primaryContext.persistentQueries.isEmpty();
+    return primaryContext.numberOfPersistentQueries() > 0;
   }
 
   @Override
@@ -230,6 +255,7 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
   @Override
   public void close() {
     allLiveQueries.forEach(QueryMetadata::close);
+    primaryContext.sharedProducers.close();
     engineMetrics.close();
     aggregateMetricsCollector.shutdown();
   }
@@ -299,7 +325,11 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
     private final ProcessingLogContext processingLogContext;
     private final KsqlParser parser = new DefaultKsqlParser();
     private final Consumer<QueryMetadata> outerOnQueryCloseCallback;
-    private final Map<QueryId, PersistentQueryMetadata> persistentQueries;
+    // Held in immutable snapshots, like the metastore, so that sandboxes can share them:
+    private final AtomicReference<ImmutableMap<QueryId, PersistentQueryMetadata>>
+        persistentQueries;
+    private final SharedSourceScans sharedSourceScans = new SharedSourceScans();
+    private final SharedProducerKafkaClientSupplier sharedProducers;
 
     private EngineContext(
         final ServiceContext serviceContext,
@@ -315,9 +345,11 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
       this.outerOnQueryCloseCallback = Objects
           .requireNonNull(onQueryCloseCallback, "onQueryCloseCallback");
       this.ddlCommandExec = new DdlCommandExec(metaStore);
-      this.persistentQueries = new ConcurrentHashMap<>();
+      this.persistentQueries = new AtomicReference<>(ImmutableMap.of());
       this.processingLogContext = Objects
           .requireNonNull(processingLogContext, "processingLogContext");
+      this.sharedProducers =
+          new SharedProducerKafkaClientSupplier(serviceContext.getKafkaClientSupplier());
     }
 
     static EngineContext create(
@@ -340,6 +372,7 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
           serviceContext,
           processingLogContext,
           queryIdGenerator,
+          sharedSourceScans,
           this::unregisterQuery);
     }
 
@@ -451,9 +484,15 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
         final PersistentQueryMetadata persistentQuery = (PersistentQueryMetadata) query;
         final QueryId queryId = persistentQuery.getQueryId();
 
-        if (persistentQueries.putIfAbsent(queryId, persistentQuery) != null) {
-          throw new IllegalStateException("Query already registered:" + queryId);
-        }
+        persistentQueries.updateAndGet(current -> {
+          if (current.containsKey(queryId)) {
+            throw new IllegalStateException("Query already registered:" + queryId);
+          }
+          return ImmutableMap.<QueryId, PersistentQueryMetadata>builder()
+              .putAll(current)
+              .put(queryId, persistentQuery)
+              .build();
+        });
 
         metaStore.updateForPersistentQuery(
             queryId.getId(),
@@ -465,7 +504,9 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
     private void unregisterQuery(final QueryMetadata query) {
       if (query instanceof PersistentQueryMetadata) {
         final PersistentQueryMetadata persistentQuery = (PersistentQueryMetadata) query;
-        persistentQueries.remove(persistentQuery.getQueryId());
+        final QueryId queryId = persistentQuery.getQueryId();
+        persistentQueries.updateAndGet(current -> ImmutableMap.copyOf(
+            Maps.filterKeys(current, id -> !id.equals(queryId))));
         metaStore.removePersistentQuery(persistentQuery.getQueryId().getId());
       }
 
@@ -473,11 +514,21 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
     }
 
     int numberOfPersistentQueries() {
-      return persistentQueries.size();
+      return persistentQueries.get().size();
     }
 
     Optional<PersistentQueryMetadata> getPersistentQuery(final QueryId queryId) {
-      return Optional.ofNullable(persistentQueries.get(queryId));
+      return Optional.ofNullable(persistentQueries.get().get(queryId));
+    }
+
+    List<PersistentQueryMetadata> getPersistentQueries() {
+      return persistentQueries.get().values().asList();
+    }
+
+    KafkaClientSupplier getKafkaClientSupplier(final KsqlConfig ksqlConfig) {
+      return ksqlConfig.getBoolean(KsqlConfig.KSQL_SHARED_PRODUCERS_ENABLED_CONFIG)
+          ? sharedProducers
+          : serviceContext.getKafkaClientSupplier();
     }
 
     List<ParsedStatement> parse(final String sql) {
@@ -551,7 +602,8 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
             logicalPlan,
             ksqlConfig,
             overriddenProperties,
-            engineContext.serviceContext.getKafkaClientSupplier(),
+            engineContext.getKafkaClientSupplier(
+                ksqlConfig.cloneWithPropertyOverwrite(overriddenProperties)),
             engineContext.metaStore
         );
 
@@ -714,10 +766,13 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
           }
       );
 
-      sourceContext.persistentQueries.forEach((queryId, query) ->
-          engineContext.persistentQueries.put(
-              query.getQueryId(),
-              query.copyWith(engineContext::unregisterQuery)));
+      // Share the source's snapshot of queries rather than copying each one. Each is bound to
+      // this sandbox as it is read, so closing it here leaves the source untouched:
+      engineContext.persistentQueries.set(sourceContext.persistentQueries.get());
+    }
+
+    private PersistentQueryMetadata bindToSandbox(final PersistentQueryMetadata query) {
+      return query.copyWith(engineContext::unregisterQuery);
     }
 
     @Override
@@ -737,7 +792,14 @@ public class KsqlEngine implements KsqlExecutionContext, Closeable {
 
     @Override
     public Optional<PersistentQueryMetadata> getPersistentQuery(final QueryId queryId) {
-      return engineContext.getPersistentQuery(queryId);
+      return engineContext.getPersistentQuery(queryId).map(this::bindToSandbox);
+    }
+
+    @Override
+    public List<PersistentQueryMetadata> getPersistentQueries() {
+      return engineContext.getPersistentQueries().stream()
+          .map(this::bindToSandbox)
+          .collect(Collectors.toList());
     }
 
     @Override
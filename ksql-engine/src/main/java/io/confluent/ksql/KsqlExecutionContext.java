@@ -60,6 +60,13 @@ public interface KsqlExecutionContext {
    */
   Optional<PersistentQueryMetadata> getPersistentQuery(QueryId queryId);
 
+  /**
+   * Retrieves the details of all the persistent queries.
+   *
+   * @return the details of all the persistent queries.
+   */
+  List<PersistentQueryMetadata> getPersistentQueries();
+
   /**
    * Parse the statement(s) in supplied {@code sql}.
    *
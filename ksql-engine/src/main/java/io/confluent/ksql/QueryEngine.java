@@ -31,6 +31,7 @@ import io.confluent.ksql.parser.tree.SelectItem;
 import io.confluent.ksql.parser.tree.SingleColumn;
 import io.confluent.ksql.physical.KafkaStreamsBuilderImpl;
 import io.confluent.ksql.physical.PhysicalPlanBuilder;
+import io.confluent.ksql.physical.SharedSourceScans;
 import io.confluent.ksql.planner.LogicalPlanNode;
 import io.confluent.ksql.planner.LogicalPlanner;
 import io.confluent.ksql.planner.plan.PlanNode;
@@ -59,11 +60,13 @@ class QueryEngine {
   private final ProcessingLogContext processingLogContext;
   private final Consumer<QueryMetadata> queryCloseCallback;
   private final QueryIdGenerator queryIdGenerator;
+  private final SharedSourceScans sharedSourceScans;
 
   QueryEngine(
       final ServiceContext serviceContext,
       final ProcessingLogContext processingLogContext,
       final QueryIdGenerator queryIdGenerator,
+      final SharedSourceScans sharedSourceScans,
       final Consumer<QueryMetadata> queryCloseCallback
   ) {
     this.serviceContext = Objects.requireNonNull(serviceContext, "serviceContext");
@@ -72,6 +75,7 @@ class QueryEngine {
         "processingLogContext");
     this.queryCloseCallback = Objects.requireNonNull(queryCloseCallback, "queryCloseCallback");
     this.queryIdGenerator = Objects.requireNonNull(queryIdGenerator, "queryIdGenerator");
+    this.sharedSourceScans = Objects.requireNonNull(sharedSourceScans, "sharedSourceScans");
   }
 
   @SuppressWarnings("MethodMayBeStatic") // To allow action to be mocked.
@@ -117,6 +121,7 @@ class QueryEngine {
         metaStore,
         queryIdGenerator,
         new KafkaStreamsBuilderImpl(clientSupplier),
+        sharedSourceScans,
         queryCloseCallback
     );
 
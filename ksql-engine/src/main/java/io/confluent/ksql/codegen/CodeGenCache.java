@@ -0,0 +1,243 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.CompilerFactoryFactory;
+import org.codehaus.commons.compiler.IClassBodyEvaluator;
+import org.codehaus.commons.compiler.IExpressionEvaluator;
+
+/**
+ * JVM wide cache of cooked Janino evaluators.
+ *
+ * <p>Entries are keyed on the generated Java source together with the parameter names, the
+ * parameter classes and the result class. The parameter classes include the UDF classes
+ * resolved from the function registry, so the key changes whenever the schema, the expression
+ * or the function backing a call changes. Cooked evaluators are stateless once compiled, so a
+ * cached instance can be shared by any number of queries, sandboxes and replayed statements.
+ */
+public final class CodeGenCache {
+
+  private static final int MAX_ENTRIES = 10_000;
+
+  private static final Cache<ExpressionKey, IExpressionEvaluator> EXPRESSIONS =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENTRIES)
+          .build();
+
+  private static final Cache<ClassBodyKey, Class<?>> CLASS_BODIES =
+      CacheBuilder.newBuilder()
+          .maximumSize(MAX_ENTRIES)
+          .build();
+
+  private CodeGenCache() {
+  }
+
+  /**
+   * Get, or cook and cache, an expression evaluator.
+   */
+  public static IExpressionEvaluator cookExpression(
+      final String javaCode,
+      final List<String> imports,
+      final String[] parameterNames,
+      final Class[] parameterTypes,
+      final Class expressionType,
+      final boolean useCache
+  ) throws CompileException {
+    if (!useCache) {
+      return doCookExpression(javaCode, imports, parameterNames, parameterTypes, expressionType);
+    }
+
+    final ExpressionKey key =
+        new ExpressionKey(javaCode, imports, parameterNames, parameterTypes, expressionType);
+    try {
+      return EXPRESSIONS.get(key, () ->
+          doCookExpression(javaCode, imports, parameterNames, parameterTypes, expressionType));
+    } catch (final ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  /**
+   * Get, or cook and cache, the class generated from a class body.
+   */
+  public static Class<?> cookClassBody(
+      final String classBody,
+      final List<String> imports,
+      final Class<?> implementedInterface,
+      final boolean useCache
+  ) throws CompileException {
+    if (!useCache) {
+      return doCookClassBody(classBody, imports, implementedInterface);
+    }
+
+    final ClassBodyKey key = new ClassBodyKey(classBody, imports, implementedInterface);
+    try {
+      return CLASS_BODIES.get(key, () ->
+          doCookClassBody(classBody, imports, implementedInterface));
+    } catch (final ExecutionException e) {
+      throw unwrap(e);
+    }
+  }
+
+  @VisibleForTesting
+  static long size() {
+    return EXPRESSIONS.size() + CLASS_BODIES.size();
+  }
+
+  @VisibleForTesting
+  static void clear() {
+    EXPRESSIONS.invalidateAll();
+    CLASS_BODIES.invalidateAll();
+  }
+
+  private static IExpressionEvaluator doCookExpression(
+      final String javaCode,
+      final List<String> imports,
+      final String[] parameterNames,
+      final Class[] parameterTypes,
+      final Class expressionType
+  ) throws CompileException {
+    final IExpressionEvaluator ee;
+    try {
+      ee = CompilerFactoryFactory.getDefaultCompilerFactory().newExpressionEvaluator();
+    } catch (final Exception e) {
+      throw new IllegalStateException("Failed to create expression evaluator", e);
+    }
+    ee.setDefaultImports(imports.toArray(new String[0]));
+    ee.setParameters(parameterNames, parameterTypes);
+    ee.setExpressionType(expressionType);
+    ee.cook(javaCode);
+    return ee;
+  }
+
+  private static Class<?> doCookClassBody(
+      final String classBody,
+      final List<String> imports,
+      final Class<?> implementedInterface
+  ) throws CompileException {
+    final IClassBodyEvaluator cbe;
+    try {
+      cbe = CompilerFactoryFactory.getDefaultCompilerFactory().newClassBodyEvaluator();
+    } catch (final Exception e) {
+      throw new IllegalStateException("Failed to create class body evaluator", e);
+    }
+    cbe.setDefaultImports(imports.toArray(new String[0]));
+    cbe.setImplementedInterfaces(new Class[]{implementedInterface});
+    cbe.cook(classBody);
+    return cbe.getClazz();
+  }
+
+  private static CompileException unwrap(final ExecutionException e) {
+    final Throwable cause = e.getCause();
+    if (cause instanceof CompileException) {
+      return (CompileException) cause;
+    }
+    if (cause instanceof RuntimeException) {
+      throw (RuntimeException) cause;
+    }
+    throw new IllegalStateException(cause);
+  }
+
+  private static final class ExpressionKey {
+
+    private final String javaCode;
+    private final List<String> imports;
+    private final List<String> parameterNames;
+    private final List<Class> parameterTypes;
+    private final Class expressionType;
+
+    private ExpressionKey(
+        final String javaCode,
+        final List<String> imports,
+        final String[] parameterNames,
+        final Class[] parameterTypes,
+        final Class expressionType
+    ) {
+      this.javaCode = Objects.requireNonNull(javaCode, "javaCode");
+      this.imports = ImmutableList.copyOf(imports);
+      this.parameterNames = ImmutableList.copyOf(Arrays.asList(parameterNames));
+      this.parameterTypes = ImmutableList.copyOf(Arrays.asList(parameterTypes));
+      this.expressionType = Objects.requireNonNull(expressionType, "expressionType");
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final ExpressionKey that = (ExpressionKey) o;
+      return Objects.equals(javaCode, that.javaCode)
+          && Objects.equals(imports, that.imports)
+          && Objects.equals(parameterNames, that.parameterNames)
+          && Objects.equals(parameterTypes, that.parameterTypes)
+          && Objects.equals(expressionType, that.expressionType);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(javaCode, imports, parameterNames, parameterTypes, expressionType);
+    }
+  }
+
+  private static final class ClassBodyKey {
+
+    private final String classBody;
+    private final List<String> imports;
+    private final Class<?> implementedInterface;
+
+    private ClassBodyKey(
+        final String classBody,
+        final List<String> imports,
+        final Class<?> implementedInterface
+    ) {
+      this.classBody = Objects.requireNonNull(classBody, "classBody");
+      this.imports = ImmutableList.copyOf(imports);
+      this.implementedInterface =
+          Objects.requireNonNull(implementedInterface, "implementedInterface");
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final ClassBodyKey that = (ClassBodyKey) o;
+      return Objects.equals(classBody, that.classBody)
+          && Objects.equals(imports, that.imports)
+          && Objects.equals(implementedInterface, that.implementedInterface);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(classBody, imports, implementedInterface);
+    }
+  }
+}
@@ -18,22 +18,28 @@ package io.confluent.ksql.codegen;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.function.KsqlFunction;
 import io.confluent.ksql.function.UdfFactory;
+import io.confluent.ksql.function.udf.ConstantArgsAware;
 import io.confluent.ksql.function.udf.Kudf;
 import io.confluent.ksql.parser.tree.ArithmeticBinaryExpression;
 import io.confluent.ksql.parser.tree.AstVisitor;
 import io.confluent.ksql.parser.tree.BetweenPredicate;
+import io.confluent.ksql.parser.tree.BooleanLiteral;
 import io.confluent.ksql.parser.tree.Cast;
 import io.confluent.ksql.parser.tree.ComparisonExpression;
 import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.DoubleLiteral;
 import io.confluent.ksql.parser.tree.Expression;
 import io.confluent.ksql.parser.tree.FunctionCall;
+import io.confluent.ksql.parser.tree.IntegerLiteral;
 import io.confluent.ksql.parser.tree.IsNotNullPredicate;
 import io.confluent.ksql.parser.tree.IsNullPredicate;
 import io.confluent.ksql.parser.tree.LikePredicate;
 import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.LongLiteral;
 import io.confluent.ksql.parser.tree.NotExpression;
 import io.confluent.ksql.parser.tree.QualifiedNameReference;
 import io.confluent.ksql.parser.tree.SearchedCaseExpression;
+import io.confluent.ksql.parser.tree.StringLiteral;
 import io.confluent.ksql.parser.tree.SubscriptExpression;
 import io.confluent.ksql.util.ExpressionMetadata;
 import io.confluent.ksql.util.ExpressionTypeManager;
@@ -42,8 +48,11 @@ import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.SchemaUtil;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -52,7 +61,6 @@ import java.util.stream.Stream;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.codehaus.commons.compiler.CompileException;
-import org.codehaus.commons.compiler.CompilerFactoryFactory;
 import org.codehaus.commons.compiler.IExpressionEvaluator;
 
 public class CodeGenRunner {
@@ -60,6 +68,7 @@ public class CodeGenRunner {
   private final Schema schema;
   private final FunctionRegistry functionRegistry;
   private final ExpressionTypeManager expressionTypeManager;
+  private final ExpressionOptimizer expressionOptimizer;
   private final KsqlConfig ksqlConfig;
 
   public static List<ExpressionMetadata> compileExpressions(
@@ -70,10 +79,15 @@ public class CodeGenRunner {
       final FunctionRegistry functionRegistry
   ) {
     final CodeGenRunner codeGen = new CodeGenRunner(schema, ksqlConfig, functionRegistry);
+    final SharedJsonExtractors jsonExtractors = new SharedJsonExtractors();
 
-    return expressions
-        .map(exp -> codeGen.buildCodeGenFromParseTree(exp, type))
+    final List<ExpressionMetadata> compiled = expressions
+        .map(exp -> codeGen.buildCodeGenFromParseTree(exp, type, jsonExtractors))
         .collect(Collectors.toList());
+
+    // Shared across all the expressions, as they are evaluated against the same row:
+    jsonExtractors.share();
+    return compiled;
   }
 
   public CodeGenRunner(
@@ -84,6 +98,7 @@ public class CodeGenRunner {
     this.schema = schema;
     this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
     this.expressionTypeManager = new ExpressionTypeManager(schema, functionRegistry);
+    this.expressionOptimizer = new ExpressionOptimizer(schema, functionRegistry);
   }
 
   public Set<ParameterType> getParameterInfo(final Expression expression) {
@@ -97,9 +112,21 @@ public class CodeGenRunner {
   public ExpressionMetadata buildCodeGenFromParseTree(
       final Expression expression,
       final String type
+  ) {
+    final SharedJsonExtractors jsonExtractors = new SharedJsonExtractors();
+    final ExpressionMetadata compiled = buildCodeGenFromParseTree(expression, type, jsonExtractors);
+    jsonExtractors.share();
+    return compiled;
+  }
+
+  private ExpressionMetadata buildCodeGenFromParseTree(
+      final Expression expression,
+      final String type,
+      final SharedJsonExtractors jsonExtractors
   ) {
     try {
-      final Set<ParameterType> parameters = getParameterInfo(expression);
+      final Expression optimizedExpression = expressionOptimizer.optimize(expression);
+      final Set<ParameterType> parameters = getParameterInfo(optimizedExpression);
 
       final String[] parameterNames = new String[parameters.size()];
       final Class[] parameterTypes = new Class[parameters.size()];
@@ -111,22 +138,24 @@ public class CodeGenRunner {
         parameterNames[index] = param.name;
         parameterTypes[index] = param.type;
         columnIndexes.add(SchemaUtil.getFieldIndexByName(schema, param.name));
-        kudfObjects.add(param.getKudf());
+        final Kudf kudf = param.getKudf();
+        kudfObjects.add(kudf);
+        jsonExtractors.add(param, kudf);
         index++;
       }
 
-      final String javaCode = new SqlToJavaVisitor(schema, functionRegistry).process(expression);
-
-      final IExpressionEvaluator ee =
-          CompilerFactoryFactory.getDefaultCompilerFactory().newExpressionEvaluator();
-      ee.setDefaultImports(SqlToJavaVisitor.JAVA_IMPORTS.toArray(new String[0]));
-      ee.setParameters(parameterNames, parameterTypes);
+      final String javaCode = new SqlToJavaVisitor(schema, functionRegistry)
+          .process(optimizedExpression);
 
       final Schema expressionType = expressionTypeManager.getExpressionSchema(expression);
 
-      ee.setExpressionType(SchemaUtil.getJavaType(expressionType));
-
-      ee.cook(javaCode);
+      final IExpressionEvaluator ee = CodeGenCache.cookExpression(
+          javaCode,
+          SqlToJavaVisitor.JAVA_IMPORTS,
+          parameterNames,
+          parameterTypes,
+          SchemaUtil.getJavaType(expressionType),
+          ksqlConfig.getBoolean(KsqlConfig.KSQL_CODEGEN_CACHE_ENABLED_CONFIG));
 
       return new ExpressionMetadata(
           ee,
@@ -189,7 +218,7 @@ public class CodeGenRunner {
 
       final UdfFactory holder = functionRegistry.getUdfFactory(functionName);
       final KsqlFunction function = holder.getFunction(argumentTypes);
-      parameters.add(new ParameterType(function,
+      parameters.add(new ParameterType(function, node,
           node.getName().getSuffix() + "_" + functionNumber, ksqlConfig));
       return null;
     }
@@ -319,28 +348,34 @@ public class CodeGenRunner {
     private final Class type;
     @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
     private final Optional<KsqlFunction> function;
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+    private final Optional<FunctionCall> functionCall;
     private final String name;
     private final KsqlConfig ksqlConfig;
 
     private ParameterType(final Class type, final String name, final KsqlConfig ksqlConfig) {
-      this(null, Objects.requireNonNull(type, "type can't be null"), name, ksqlConfig);
+      this(null, null, Objects.requireNonNull(type, "type can't be null"), name, ksqlConfig);
     }
 
     private ParameterType(
         final KsqlFunction function,
+        final FunctionCall functionCall,
         final String name,
         final KsqlConfig ksqlConfig) {
       this(Objects.requireNonNull(function, "function can't be null"),
+          Objects.requireNonNull(functionCall, "functionCall can't be null"),
           function.getKudfClass(),
           name, ksqlConfig);
     }
 
     private ParameterType(
         final KsqlFunction function,
+        final FunctionCall functionCall,
         final Class type,
         final String name,
         final KsqlConfig ksqlConfig) {
       this.function = Optional.ofNullable(function);
+      this.functionCall = Optional.ofNullable(functionCall);
       this.type = Objects.requireNonNull(type, "type");
       this.name = Objects.requireNonNull(name, "name");
       this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
@@ -354,8 +389,39 @@ public class CodeGenRunner {
       return name;
     }
 
+    Optional<FunctionCall> getFunctionCall() {
+      return functionCall;
+    }
+
     public Kudf getKudf() {
-      return function.map(f -> f.newInstance(ksqlConfig)).orElse(null);
+      return function.map(f -> {
+        final Kudf kudf = f.newInstance(ksqlConfig);
+        if (kudf instanceof ConstantArgsAware) {
+          functionCall.ifPresent(call ->
+              ((ConstantArgsAware) kudf).initConstantArgs(constantArgs(call)));
+        }
+        return kudf;
+      }).orElse(null);
+    }
+
+    private static Map<Integer, Object> constantArgs(final FunctionCall functionCall) {
+      final Map<Integer, Object> constantArgs = new HashMap<>();
+      final List<Expression> arguments = functionCall.getArguments();
+      for (int i = 0; i < arguments.size(); i++) {
+        final Expression argument = arguments.get(i);
+        if (argument instanceof StringLiteral) {
+          constantArgs.put(i, ((StringLiteral) argument).getValue());
+        } else if (argument instanceof IntegerLiteral) {
+          constantArgs.put(i, ((IntegerLiteral) argument).getValue());
+        } else if (argument instanceof LongLiteral) {
+          constantArgs.put(i, ((LongLiteral) argument).getValue());
+        } else if (argument instanceof DoubleLiteral) {
+          constantArgs.put(i, ((DoubleLiteral) argument).getValue());
+        } else if (argument instanceof BooleanLiteral) {
+          constantArgs.put(i, ((BooleanLiteral) argument).getValue());
+        }
+      }
+      return Collections.unmodifiableMap(constantArgs);
     }
 
     @Override
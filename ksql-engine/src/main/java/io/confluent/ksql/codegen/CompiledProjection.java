@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.function.udf.Kudf;
+import java.util.List;
+
+/**
+ * A whole projection, and optional filter, compiled into a single generated class.
+ *
+ * <p>Implementations are generated by {@link ProjectionCompiler}; each input column that is
+ * referenced is read and type-enforced once per row and shared by all output columns.
+ */
+public interface CompiledProjection {
+
+  /**
+   * Evaluate the projection against the supplied {@code row}.
+   *
+   * @param row the input row.
+   * @param context supplies column values and UDF instances, and receives errors.
+   * @param output the list to append the projected columns to.
+   * @return {@code false} if the row was filtered out, {@code true} otherwise.
+   */
+  boolean project(GenericRow row, Context context, List<Object> output);
+
+  interface Context {
+
+    /**
+     * @return the type-enforced value of the column at {@code index}.
+     */
+    Object column(GenericRow row, int index);
+
+    /**
+     * @return the UDF instance registered at {@code index}.
+     */
+    Kudf udf(int index);
+
+    void onColumnReadError(int columnIndex, Exception e, GenericRow row);
+
+    void onExpressionError(int outputIndex, Exception e, GenericRow row);
+
+    void onFilterError(Exception e, GenericRow row);
+  }
+}
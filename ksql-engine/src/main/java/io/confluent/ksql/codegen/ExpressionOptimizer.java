@@ -0,0 +1,670 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import io.confluent.ksql.function.FunctionRegistry;
+import io.confluent.ksql.parser.tree.ArithmeticBinaryExpression;
+import io.confluent.ksql.parser.tree.ArithmeticUnaryExpression;
+import io.confluent.ksql.parser.tree.BetweenPredicate;
+import io.confluent.ksql.parser.tree.BooleanLiteral;
+import io.confluent.ksql.parser.tree.Cast;
+import io.confluent.ksql.parser.tree.ComparisonExpression;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.DoubleLiteral;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.ExpressionRewriter;
+import io.confluent.ksql.parser.tree.ExpressionTreeRewriter;
+import io.confluent.ksql.parser.tree.IntegerLiteral;
+import io.confluent.ksql.parser.tree.IsNotNullPredicate;
+import io.confluent.ksql.parser.tree.IsNullPredicate;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.LongLiteral;
+import io.confluent.ksql.parser.tree.NotExpression;
+import io.confluent.ksql.parser.tree.NullLiteral;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
+import io.confluent.ksql.parser.tree.SearchedCaseExpression;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.WhenClause;
+import io.confluent.ksql.util.ExpressionTypeManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Simplifies expressions before code is generated for them, so that work that is the same for
+ * every row is done once, when the query is built.
+ *
+ * <p>The optimizer folds arithmetic, comparisons, casts and null checks whose operands are all
+ * literals, short-circuits boolean logic with literal operands, drops {@code CASE} branches that
+ * can never be taken, and replaces comparisons of a column with itself. It also moves literals
+ * to the right of comparisons, so equivalent expressions compare equal.
+ *
+ * <p>Each rewrite gives the result the generated code would have computed for every row, with
+ * Java's semantics for overflow, rounding and string conversion. Expressions that would fail,
+ * e.g. integer division by zero or a cast of an unparsable string, are left to fail for each row,
+ * as before. A rewrite that would change the type of an expression is discarded.
+ */
+// CHECKSTYLE_RULES.OFF: ClassDataAbstractionCoupling
+public final class ExpressionOptimizer {
+  // CHECKSTYLE_RULES.ON: ClassDataAbstractionCoupling
+
+  private final ExpressionTypeManager expressionTypeManager;
+
+  public ExpressionOptimizer(final Schema schema, final FunctionRegistry functionRegistry) {
+    this.expressionTypeManager = new ExpressionTypeManager(schema, functionRegistry);
+  }
+
+  /**
+   * @param expression the expression to optimize.
+   * @return the optimized expression, which may be {@code expression} itself.
+   */
+  public Expression optimize(final Expression expression) {
+    return ExpressionTreeRewriter.rewriteWith(new Optimizer(), expression);
+  }
+
+  private final class Optimizer extends ExpressionRewriter<Void> {
+
+    @Override
+    public Expression rewriteArithmeticUnary(
+        final ArithmeticUnaryExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression value = treeRewriter.rewrite(node.getValue(), context);
+      final Expression rewritten = value == node.getValue()
+          ? node
+          : new ArithmeticUnaryExpression(node.getSign(), value);
+
+      final Object operand = literalValue(value);
+      if (!(operand instanceof Number)) {
+        return rewritten;
+      }
+
+      if (node.getSign() == ArithmeticUnaryExpression.Sign.PLUS) {
+        return replace(rewritten, value);
+      }
+
+      final Object negated;
+      if (operand instanceof Integer) {
+        negated = -(Integer) operand;
+      } else if (operand instanceof Long) {
+        negated = -(Long) operand;
+      } else {
+        negated = -(Double) operand;
+      }
+      return replace(rewritten, toLiteral(negated));
+    }
+
+    @Override
+    public Expression rewriteArithmeticBinary(
+        final ArithmeticBinaryExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression left = treeRewriter.rewrite(node.getLeft(), context);
+      final Expression right = treeRewriter.rewrite(node.getRight(), context);
+      final Expression rewritten = left == node.getLeft() && right == node.getRight()
+          ? node
+          : new ArithmeticBinaryExpression(node.getType(), left, right);
+
+      return replace(
+          rewritten,
+          toLiteral(arithmetic(node.getType(), literalValue(left), literalValue(right))));
+    }
+
+    @Override
+    public Expression rewriteComparisonExpression(
+        final ComparisonExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression left = treeRewriter.rewrite(node.getLeft(), context);
+      final Expression right = treeRewriter.rewrite(node.getRight(), context);
+      final ComparisonExpression rewritten = left == node.getLeft() && right == node.getRight()
+          ? node
+          : new ComparisonExpression(node.getType(), left, right);
+
+      final Object leftValue = literalValue(left);
+      final Object rightValue = literalValue(right);
+      if (leftValue != null && rightValue != null) {
+        return replace(rewritten, toLiteral(compare(node.getType(), leftValue, rightValue)));
+      }
+
+      if (isColumn(left) && left.equals(right)) {
+        return replace(rewritten, compareWithItself(node.getType(), left));
+      }
+
+      if (leftValue != null && !(right instanceof NullLiteral) && sameType(left, right)) {
+        return new ComparisonExpression(node.getType().flip(), right, left);
+      }
+
+      return rewritten;
+    }
+
+    @Override
+    public Expression rewriteBetweenPredicate(
+        final BetweenPredicate node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression value = treeRewriter.rewrite(node.getValue(), context);
+      final Expression min = treeRewriter.rewrite(node.getMin(), context);
+      final Expression max = treeRewriter.rewrite(node.getMax(), context);
+      final Expression rewritten =
+          value == node.getValue() && min == node.getMin() && max == node.getMax()
+              ? node
+              : new BetweenPredicate(value, min, max);
+
+      final Object lower = compare(
+          ComparisonExpression.Type.LESS_THAN_OR_EQUAL, literalValue(min), literalValue(value));
+      final Object upper = compare(
+          ComparisonExpression.Type.LESS_THAN_OR_EQUAL, literalValue(value), literalValue(max));
+      if (lower == null || upper == null) {
+        return rewritten;
+      }
+
+      return replace(rewritten, toLiteral((Boolean) lower && (Boolean) upper));
+    }
+
+    @Override
+    public Expression rewriteLogicalBinaryExpression(
+        final LogicalBinaryExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression left = treeRewriter.rewrite(node.getLeft(), context);
+      final Expression right = treeRewriter.rewrite(node.getRight(), context);
+      final Expression rewritten = left == node.getLeft() && right == node.getRight()
+          ? node
+          : new LogicalBinaryExpression(node.getType(), left, right);
+
+      // The value that decides the result on its own, i.e. FALSE for AND and TRUE for OR:
+      final boolean decisive = node.getType() == LogicalBinaryExpression.Type.OR;
+
+      if (isBoolean(left, decisive) || isBoolean(right, decisive)) {
+        return replace(rewritten, toLiteral(decisive));
+      }
+      if (isBoolean(left, !decisive)) {
+        return replace(rewritten, right);
+      }
+      if (isBoolean(right, !decisive)) {
+        return replace(rewritten, left);
+      }
+      return rewritten;
+    }
+
+    @Override
+    public Expression rewriteNotExpression(
+        final NotExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression value = treeRewriter.rewrite(node.getValue(), context);
+      final Expression rewritten = value == node.getValue() ? node : new NotExpression(value);
+
+      if (value instanceof BooleanLiteral) {
+        return replace(rewritten, toLiteral(!((BooleanLiteral) value).getValue()));
+      }
+      if (value instanceof NotExpression) {
+        return replace(rewritten, ((NotExpression) value).getValue());
+      }
+      return rewritten;
+    }
+
+    @Override
+    public Expression rewriteIsNullPredicate(
+        final IsNullPredicate node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression value = treeRewriter.rewrite(node.getValue(), context);
+      final Expression rewritten = value == node.getValue() ? node : new IsNullPredicate(value);
+
+      if (value instanceof NullLiteral) {
+        return replace(rewritten, toLiteral(true));
+      }
+      if (literalValue(value) != null) {
+        return replace(rewritten, toLiteral(false));
+      }
+      return rewritten;
+    }
+
+    @Override
+    public Expression rewriteIsNotNullPredicate(
+        final IsNotNullPredicate node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression value = treeRewriter.rewrite(node.getValue(), context);
+      final Expression rewritten = value == node.getValue() ? node : new IsNotNullPredicate(value);
+
+      if (value instanceof NullLiteral) {
+        return replace(rewritten, toLiteral(false));
+      }
+      if (literalValue(value) != null) {
+        return replace(rewritten, toLiteral(true));
+      }
+      return rewritten;
+    }
+
+    @Override
+    public Expression rewriteSearchedCaseExpression(
+        final SearchedCaseExpression node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final List<WhenClause> whenClauses = new ArrayList<>();
+      boolean changed = false;
+      for (final WhenClause whenClause : node.getWhenClauses()) {
+        final Expression operand = treeRewriter.rewrite(whenClause.getOperand(), context);
+        final Expression result = treeRewriter.rewrite(whenClause.getResult(), context);
+        final boolean clauseChanged =
+            operand != whenClause.getOperand() || result != whenClause.getResult();
+        whenClauses.add(clauseChanged ? new WhenClause(operand, result) : whenClause);
+        changed |= clauseChanged;
+      }
+
+      final Optional<Expression> defaultValue = node.getDefaultValue()
+          .map(value -> treeRewriter.rewrite(value, context));
+      changed |= !defaultValue.equals(node.getDefaultValue());
+
+      final Expression rewritten = changed
+          ? new SearchedCaseExpression(whenClauses, defaultValue)
+          : node;
+
+      final List<WhenClause> reachable = reachableClauses(whenClauses);
+      if (reachable.size() == whenClauses.size()) {
+        return rewritten;
+      }
+      if (reachable.isEmpty()) {
+        return defaultValue.map(value -> replace(rewritten, value)).orElse(rewritten);
+      }
+      if (isBoolean(reachable.get(0).getOperand(), true)) {
+        return replace(rewritten, reachable.get(0).getResult());
+      }
+      return replace(rewritten, new SearchedCaseExpression(reachable, defaultValue));
+    }
+
+    @Override
+    public Expression rewriteCast(
+        final Cast node,
+        final Void context,
+        final ExpressionTreeRewriter<Void> treeRewriter
+    ) {
+      final Expression expression = treeRewriter.rewrite(node.getExpression(), context);
+      final Expression rewritten = expression == node.getExpression()
+          ? node
+          : new Cast(expression, node.getType(), node.isTypeOnly());
+
+      final Object value = literalValue(expression);
+      if (value != null) {
+        return replace(rewritten, toLiteral(cast(node.getType(), value)));
+      }
+
+      // Casting a string to a string turns null into "null", so isn't a no-op:
+      final Schema type = typeOf(expression);
+      if (type != null && type.type().isPrimitive() && type.type() != Schema.Type.STRING) {
+        return replace(rewritten, expression);
+      }
+      return rewritten;
+    }
+  }
+
+  /**
+   * @return {@code replacement} if it is non-null and has the same type as {@code original},
+   *         otherwise {@code original}.
+   */
+  private Expression replace(final Expression original, final Expression replacement) {
+    if (replacement == null) {
+      return original;
+    }
+    return sameType(original, replacement) ? replacement : original;
+  }
+
+  private boolean sameType(final Expression first, final Expression second) {
+    final Schema firstType = typeOf(first);
+    final Schema secondType = typeOf(second);
+    if (firstType == null || secondType == null || firstType.type() != secondType.type()) {
+      return false;
+    }
+    return firstType.type().isPrimitive() || firstType.equals(secondType);
+  }
+
+  /**
+   * @return the type of the expression, or {@code null} if it can't be determined.
+   */
+  private Schema typeOf(final Expression expression) {
+    if (expression instanceof LogicalBinaryExpression) {
+      return Schema.OPTIONAL_BOOLEAN_SCHEMA;
+    }
+    if (expression instanceof ArithmeticUnaryExpression) {
+      return typeOf(((ArithmeticUnaryExpression) expression).getValue());
+    }
+    try {
+      return expressionTypeManager.getExpressionSchema(expression);
+    } catch (final RuntimeException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Comparing a column with itself only depends on whether it is null. Doubles are excluded, as
+   * {@code NaN} isn't equal to itself.
+   */
+  private Expression compareWithItself(
+      final ComparisonExpression.Type type,
+      final Expression column
+  ) {
+    final Schema schema = typeOf(column);
+    if (schema == null || !canCompareWithItself(schema.type(), type)) {
+      return null;
+    }
+
+    switch (type) {
+      case EQUAL:
+      case LESS_THAN_OR_EQUAL:
+      case GREATER_THAN_OR_EQUAL:
+        return new IsNotNullPredicate(column);
+      default:
+        return toLiteral(false);
+    }
+  }
+
+  private static boolean canCompareWithItself(
+      final Schema.Type columnType,
+      final ComparisonExpression.Type type
+  ) {
+    switch (columnType) {
+      case INT32:
+      case INT64:
+      case STRING:
+        return true;
+      case BOOLEAN:
+        return type == ComparisonExpression.Type.EQUAL
+            || type == ComparisonExpression.Type.NOT_EQUAL
+            || type == ComparisonExpression.Type.IS_DISTINCT_FROM;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * @return the clauses, less those that are never taken, or that follow one that always is.
+   */
+  private static List<WhenClause> reachableClauses(final List<WhenClause> whenClauses) {
+    final List<WhenClause> reachable = new ArrayList<>();
+    for (final WhenClause whenClause : whenClauses) {
+      if (isBoolean(whenClause.getOperand(), false)) {
+        continue;
+      }
+      reachable.add(whenClause);
+      if (isBoolean(whenClause.getOperand(), true)) {
+        break;
+      }
+    }
+    return reachable;
+  }
+
+  private static boolean isColumn(final Expression expression) {
+    return expression instanceof QualifiedNameReference
+        || expression instanceof DereferenceExpression;
+  }
+
+  private static boolean isBoolean(final Expression expression, final boolean value) {
+    return expression instanceof BooleanLiteral
+        && ((BooleanLiteral) expression).getValue() == value;
+  }
+
+  /**
+   * @return the value of a non-null literal, or {@code null} if the expression isn't one.
+   */
+  private static Object literalValue(final Expression expression) {
+    if (expression instanceof IntegerLiteral) {
+      return ((IntegerLiteral) expression).getValue();
+    }
+    if (expression instanceof LongLiteral) {
+      return ((LongLiteral) expression).getValue();
+    }
+    if (expression instanceof DoubleLiteral) {
+      return ((DoubleLiteral) expression).getValue();
+    }
+    if (expression instanceof StringLiteral) {
+      return ((StringLiteral) expression).getValue();
+    }
+    if (expression instanceof BooleanLiteral) {
+      return ((BooleanLiteral) expression).getValue();
+    }
+    return null;
+  }
+
+  /**
+   * @return a literal for the value, or {@code null} if it can't be written as one.
+   */
+  private static Expression toLiteral(final Object value) {
+    if (value instanceof Integer) {
+      return new IntegerLiteral((Integer) value);
+    }
+    if (value instanceof Long) {
+      return new LongLiteral((Long) value);
+    }
+    if (value instanceof Double) {
+      final double doubleValue = (Double) value;
+      return Double.isNaN(doubleValue) || Double.isInfinite(doubleValue)
+          ? null
+          : new DoubleLiteral(Double.toString(doubleValue));
+    }
+    if (value instanceof String) {
+      return new StringLiteral((String) value);
+    }
+    if (value instanceof Boolean) {
+      return new BooleanLiteral(value.toString());
+    }
+    return null;
+  }
+
+  private static Object arithmetic(
+      final ArithmeticBinaryExpression.Type type,
+      final Object left,
+      final Object right
+  ) {
+    if (left instanceof String && right instanceof String) {
+      return type == ArithmeticBinaryExpression.Type.ADD ? left + (String) right : null;
+    }
+    if (!(left instanceof Number) || !(right instanceof Number)) {
+      return null;
+    }
+    if (left instanceof Double || right instanceof Double) {
+      return doubleArithmetic(type, ((Number) left).doubleValue(), ((Number) right).doubleValue());
+    }
+    if (left instanceof Long || right instanceof Long) {
+      return longArithmetic(type, ((Number) left).longValue(), ((Number) right).longValue());
+    }
+    return intArithmetic(type, (Integer) left, (Integer) right);
+  }
+
+  private static Object doubleArithmetic(
+      final ArithmeticBinaryExpression.Type type,
+      final double left,
+      final double right
+  ) {
+    switch (type) {
+      case ADD:
+        return left + right;
+      case SUBTRACT:
+        return left - right;
+      case MULTIPLY:
+        return left * right;
+      case DIVIDE:
+        return left / right;
+      default:
+        return left % right;
+    }
+  }
+
+  private static Object longArithmetic(
+      final ArithmeticBinaryExpression.Type type,
+      final long left,
+      final long right
+  ) {
+    switch (type) {
+      case ADD:
+        return left + right;
+      case SUBTRACT:
+        return left - right;
+      case MULTIPLY:
+        return left * right;
+      case DIVIDE:
+        return right == 0 ? null : left / right;
+      default:
+        return right == 0 ? null : left % right;
+    }
+  }
+
+  private static Object intArithmetic(
+      final ArithmeticBinaryExpression.Type type,
+      final int left,
+      final int right
+  ) {
+    switch (type) {
+      case ADD:
+        return left + right;
+      case SUBTRACT:
+        return left - right;
+      case MULTIPLY:
+        return left * right;
+      case DIVIDE:
+        return right == 0 ? null : left / right;
+      default:
+        return right == 0 ? null : left % right;
+    }
+  }
+
+  private static Boolean compare(
+      final ComparisonExpression.Type type,
+      final Object left,
+      final Object right
+  ) {
+    if (left instanceof String && right instanceof String) {
+      final int result = ((String) left).compareTo((String) right);
+      return compareResult(type, result < 0, result > 0);
+    }
+
+    if (left instanceof Boolean && right instanceof Boolean) {
+      return compareBooleans(type, (Boolean) left, (Boolean) right);
+    }
+
+    if (!(left instanceof Number) || !(right instanceof Number)) {
+      return null;
+    }
+
+    if (left instanceof Double || right instanceof Double) {
+      final double l = ((Number) left).doubleValue();
+      final double r = ((Number) right).doubleValue();
+      return compareResult(type, l < r, l > r);
+    }
+
+    final long l = ((Number) left).longValue();
+    final long r = ((Number) right).longValue();
+    return compareResult(type, l < r, l > r);
+  }
+
+  private static Boolean compareBooleans(
+      final ComparisonExpression.Type type,
+      final boolean left,
+      final boolean right
+  ) {
+    switch (type) {
+      case EQUAL:
+        return left == right;
+      case NOT_EQUAL:
+      case IS_DISTINCT_FROM:
+        return left != right;
+      default:
+        return null;
+    }
+  }
+
+  private static Boolean compareResult(
+      final ComparisonExpression.Type type,
+      final boolean less,
+      final boolean greater
+  ) {
+    switch (type) {
+      case EQUAL:
+        return !less && !greater;
+      case NOT_EQUAL:
+      case IS_DISTINCT_FROM:
+        return less || greater;
+      case LESS_THAN:
+        return less;
+      case LESS_THAN_OR_EQUAL:
+        return !greater;
+      case GREATER_THAN:
+        return greater;
+      case GREATER_THAN_OR_EQUAL:
+        return !less;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * Casts a literal value as {@link SqlToJavaVisitor} does.
+   *
+   * @return the cast value, or {@code null} if the cast fails, or isn't supported.
+   */
+  private static Object cast(final String type, final Object value) {
+    switch (type) {
+      case "VARCHAR":
+      case "STRING":
+        return String.valueOf(value);
+      case "BOOLEAN":
+        if (value instanceof String) {
+          return Boolean.parseBoolean((String) value);
+        }
+        return value instanceof Boolean ? value : null;
+      case "INTEGER":
+        return castNumber(value, Number::intValue, Integer::parseInt);
+      case "BIGINT":
+        return castNumber(value, Number::longValue, Long::parseLong);
+      case "DOUBLE":
+        return castNumber(value, Number::doubleValue, Double::parseDouble);
+      default:
+        return null;
+    }
+  }
+
+  private static Object castNumber(
+      final Object value,
+      final Function<Number, Object> converter,
+      final Function<String, Object> parser
+  ) {
+    if (value instanceof Number) {
+      return converter.apply((Number) value);
+    }
+    if (!(value instanceof String)) {
+      return null;
+    }
+    try {
+      return parser.apply((String) value);
+    } catch (final NumberFormatException e) {
+      // Left to fail for each row:
+      return null;
+    }
+  }
+}
@@ -0,0 +1,307 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.function.FunctionRegistry;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.util.ExpressionTypeManager;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.ProjectionMetadata;
+import io.confluent.ksql.util.SchemaUtil;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import org.apache.kafka.connect.data.Schema;
+import org.codehaus.commons.compiler.CompileException;
+
+/**
+ * Compiles a list of select expressions, and an optional filter, into a single
+ * {@link CompiledProjection}.
+ *
+ * <p>Each expression is still translated by {@link SqlToJavaVisitor}, but rather than cooking
+ * one {@code IExpressionEvaluator} per expression, each becomes a private static method of one
+ * generated class. The generated {@code project} method reads every referenced column once,
+ * evaluates the filter before touching the columns only the projection needs, and evaluates
+ * duplicate select expressions only once.
+ */
+public final class ProjectionCompiler {
+
+  private static final String KUDF_TYPE = Kudf.class.getCanonicalName();
+  private static final String CONTEXT_TYPE = CompiledProjection.Context.class.getCanonicalName();
+
+  private static final List<String> IMPORTS = ImmutableList.<String>builder()
+      .addAll(SqlToJavaVisitor.JAVA_IMPORTS)
+      .add(GenericRow.class.getCanonicalName())
+      .build();
+
+  private final Schema schema;
+  private final KsqlConfig ksqlConfig;
+  private final FunctionRegistry functionRegistry;
+  private final CodeGenRunner codeGenRunner;
+  private final ExpressionTypeManager expressionTypeManager;
+  private final ExpressionOptimizer expressionOptimizer;
+
+  public ProjectionCompiler(
+      final Schema schema,
+      final KsqlConfig ksqlConfig,
+      final FunctionRegistry functionRegistry
+  ) {
+    this.schema = Objects.requireNonNull(schema, "schema");
+    this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
+    this.functionRegistry = Objects.requireNonNull(functionRegistry, "functionRegistry");
+    this.codeGenRunner = new CodeGenRunner(schema, ksqlConfig, functionRegistry);
+    this.expressionTypeManager = new ExpressionTypeManager(schema, functionRegistry);
+    this.expressionOptimizer = new ExpressionOptimizer(schema, functionRegistry);
+  }
+
+  public ProjectionMetadata compile(
+      final List<Expression> selectExpressions,
+      final Optional<Expression> filterExpression
+  ) {
+    try {
+      final Generator generator = new Generator();
+      final String classBody = generator.generate(selectExpressions, filterExpression);
+
+      final Class<?> projectionClass = CodeGenCache.cookClassBody(
+          classBody,
+          IMPORTS,
+          CompiledProjection.class,
+          ksqlConfig.getBoolean(KsqlConfig.KSQL_CODEGEN_CACHE_ENABLED_CONFIG));
+
+      final CompiledProjection projection = (CompiledProjection) projectionClass.newInstance();
+
+      final List<Schema> expressionTypes = selectExpressions.stream()
+          .map(expressionTypeManager::getExpressionSchema)
+          .collect(Collectors.toList());
+
+      return new ProjectionMetadata(
+          projection,
+          generator.udfs,
+          expressionTypes,
+          selectExpressions,
+          filterExpression);
+    } catch (final KsqlException | CompileException e) {
+      throw new KsqlException("Code generation failed for projection"
+          + ": " + e.getMessage()
+          + ". expressions:" + selectExpressions
+          + ", filter:" + filterExpression.map(Object::toString).orElse("<none>")
+          + ", schema:" + schema, e);
+    } catch (final Exception e) {
+      throw new RuntimeException("Unexpected error generating code for projection"
+          + ". expressions:" + selectExpressions, e);
+    }
+  }
+
+  private final class Generator {
+
+    private final List<Kudf> udfs = new ArrayList<>();
+    private final SharedJsonExtractors jsonExtractors = new SharedJsonExtractors();
+    private final Map<Integer, String> columnTypes = new TreeMap<>();
+    private final StringBuilder methods = new StringBuilder();
+
+    private String generate(
+        final List<Expression> selectExpressions,
+        final Optional<Expression> filterExpression
+    ) {
+      final StringBuilder body = new StringBuilder();
+      final Set<Integer> columnsRead = new TreeSet<>();
+
+      final Optional<Method> filter = filterExpression
+          .map(expression -> buildMethod("filter", expression, "boolean"));
+
+      final Map<Expression, Integer> distinctExpressions = new HashMap<>();
+      final List<Method> selects = new ArrayList<>();
+      for (int i = 0; i < selectExpressions.size(); i++) {
+        final Expression expression = selectExpressions.get(i);
+        if (distinctExpressions.containsKey(expression)) {
+          selects.add(null);
+          continue;
+        }
+
+        distinctExpressions.put(expression, i);
+        final String returnType = SchemaUtil
+            .getJavaType(expressionTypeManager.getExpressionSchema(expression))
+            .getCanonicalName();
+        selects.add(buildMethod("select" + i, expression, returnType));
+      }
+
+      jsonExtractors.share();
+
+      body.append("public boolean project(final GenericRow row, final ")
+          .append(CONTEXT_TYPE).append(" context, final List output) {\n");
+
+      for (int i = 0; i < udfs.size(); i++) {
+        body.append("  final ").append(KUDF_TYPE).append(' ').append(udfVariable(i))
+            .append(" = context.udf(").append(i).append(");\n");
+      }
+
+      if (filter.isPresent()) {
+        appendColumnReads(body, filter.get().columns, columnsRead);
+        body.append("  if (!").append(validityCheck(filter.get().columns)).append(") {\n")
+            .append("    return false;\n")
+            .append("  }\n")
+            .append("  try {\n")
+            .append("    if (!").append(filter.get().invocation()).append(") {\n")
+            .append("      return false;\n")
+            .append("    }\n")
+            .append("  } catch (final Exception e) {\n")
+            .append("    context.onFilterError(e, row);\n")
+            .append("    return false;\n")
+            .append("  }\n");
+      }
+
+      for (int i = 0; i < selects.size(); i++) {
+        final Method select = selects.get(i);
+        if (select == null) {
+          final int original = distinctExpressions.get(selectExpressions.get(i));
+          body.append("  output.add(output.get(").append(original).append("));\n");
+          continue;
+        }
+
+        appendColumnReads(body, select.columns, columnsRead);
+        body.append("  if (").append(validityCheck(select.columns)).append(") {\n")
+            .append("    try {\n")
+            .append("      output.add(").append(select.invocation()).append(");\n")
+            .append("    } catch (final Exception e) {\n")
+            .append("      context.onExpressionError(").append(i).append(", e, row);\n")
+            .append("      output.add(null);\n")
+            .append("    }\n")
+            .append("  } else {\n")
+            .append("    output.add(null);\n")
+            .append("  }\n");
+      }
+
+      body.append("  return true;\n")
+          .append("}\n");
+
+      return methods.toString() + body;
+    }
+
+    private Method buildMethod(
+        final String name,
+        final Expression expression,
+        final String returnType
+    ) {
+      final Expression optimizedExpression = expressionOptimizer.optimize(expression);
+      final Set<CodeGenRunner.ParameterType> parameters =
+          codeGenRunner.getParameterInfo(optimizedExpression);
+
+      final List<String> declarations = new ArrayList<>(parameters.size());
+      final List<String> arguments = new ArrayList<>(parameters.size());
+      final Set<Integer> columns = new TreeSet<>();
+
+      for (final CodeGenRunner.ParameterType param : parameters) {
+        final int columnIndex = SchemaUtil.getFieldIndexByName(schema, param.getName());
+        if (columnIndex < 0) {
+          declarations.add("final " + KUDF_TYPE + " " + param.getName());
+          arguments.add(udfVariable(udfs.size()));
+          final Kudf udf = param.getKudf();
+          udfs.add(udf);
+          jsonExtractors.add(param, udf);
+        } else {
+          final String type = param.getType().getCanonicalName();
+          declarations.add("final " + type + " " + param.getName());
+          arguments.add(columnVariable(columnIndex));
+          columns.add(columnIndex);
+          columnTypes.put(columnIndex, type);
+        }
+      }
+
+      final String javaCode = new SqlToJavaVisitor(schema, functionRegistry)
+          .process(optimizedExpression);
+
+      methods.append("private static ").append(returnType).append(' ').append(name)
+          .append('(').append(String.join(", ", declarations)).append(") {\n")
+          .append("  return ").append(javaCode).append(";\n")
+          .append("}\n\n");
+
+      return new Method(name, arguments, columns);
+    }
+
+    private void appendColumnReads(
+        final StringBuilder body,
+        final Set<Integer> columns,
+        final Set<Integer> columnsRead
+    ) {
+      for (final int columnIndex : columns) {
+        if (!columnsRead.add(columnIndex)) {
+          continue;
+        }
+
+        final String type = columnTypes.get(columnIndex);
+        final String variable = columnVariable(columnIndex);
+        body.append("  ").append(type).append(' ').append(variable).append(" = null;\n")
+            .append("  boolean ").append(validityVariable(columnIndex)).append(" = true;\n")
+            .append("  try {\n")
+            .append("    ").append(variable).append(" = (").append(type)
+            .append(") context.column(row, ").append(columnIndex).append(");\n")
+            .append("  } catch (final Exception e) {\n")
+            .append("    context.onColumnReadError(").append(columnIndex).append(", e, row);\n")
+            .append("    ").append(validityVariable(columnIndex)).append(" = false;\n")
+            .append("  }\n");
+      }
+    }
+  }
+
+  private static String validityCheck(final Set<Integer> columns) {
+    if (columns.isEmpty()) {
+      return "true";
+    }
+    return columns.stream()
+        .map(ProjectionCompiler::validityVariable)
+        .collect(Collectors.joining(" && ", "(", ")"));
+  }
+
+  private static String columnVariable(final int columnIndex) {
+    return "c" + columnIndex;
+  }
+
+  private static String validityVariable(final int columnIndex) {
+    return "v" + columnIndex;
+  }
+
+  private static String udfVariable(final int udfIndex) {
+    return "u" + udfIndex;
+  }
+
+  private static final class Method {
+
+    private final String name;
+    private final List<String> arguments;
+    private final Set<Integer> columns;
+
+    private Method(final String name, final List<String> arguments, final Set<Integer> columns) {
+      this.name = name;
+      this.arguments = arguments;
+      this.columns = columns;
+    }
+
+    private String invocation() {
+      return name + "(" + String.join(", ", arguments) + ")";
+    }
+  }
+}
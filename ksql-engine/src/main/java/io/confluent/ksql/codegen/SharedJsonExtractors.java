@@ -0,0 +1,113 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.function.udf.json.JsonExtractStringKudf;
+import io.confluent.ksql.function.udf.json.JsonPathExtractor;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.json.JsonPathTokenizer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups the {@code EXTRACTJSONFIELD} calls of generated code by the column they read, and has
+ * the calls in each group share a single {@link JsonPathExtractor}, so that the column's JSON is
+ * parsed once per row, rather than once per call.
+ *
+ * <p>Only calls with a literal path on a plain column are shared: the extractor recognises the
+ * row by the identity of the column value, which other expressions re-create on every call.
+ */
+final class SharedJsonExtractors {
+
+  private final Map<Expression, List<Call>> callsByColumn = new LinkedHashMap<>();
+
+  /**
+   * @param param the parameter the udf is bound to.
+   * @param udf the udf instance the generated code will call.
+   */
+  void add(final CodeGenRunner.ParameterType param, final Kudf udf) {
+    if (!(udf instanceof JsonExtractStringKudf) || !param.getFunctionCall().isPresent()) {
+      return;
+    }
+
+    final List<Expression> arguments = param.getFunctionCall().get().getArguments();
+    if (arguments.size() != 2) {
+      return;
+    }
+
+    final Expression column = arguments.get(0);
+    if (!(column instanceof QualifiedNameReference || column instanceof DereferenceExpression)
+        || !(arguments.get(1) instanceof StringLiteral)) {
+      return;
+    }
+
+    final String path = ((StringLiteral) arguments.get(1)).getValue();
+    if (!isValidPath(path)) {
+      // Leave it to fail when evaluated, as it always has:
+      return;
+    }
+
+    callsByColumn.computeIfAbsent(column, k -> new ArrayList<>())
+        .add(new Call((JsonExtractStringKudf) udf, path));
+  }
+
+  /**
+   * Share an extractor between the calls added for each column read more than once.
+   */
+  void share() {
+    for (final List<Call> calls : callsByColumn.values()) {
+      if (calls.size() < 2) {
+        continue;
+      }
+
+      final List<String> paths = new ArrayList<>(calls.size());
+      calls.forEach(call -> paths.add(call.path));
+
+      final JsonPathExtractor extractor = new JsonPathExtractor(paths);
+      for (int i = 0; i < calls.size(); i++) {
+        calls.get(i).udf.shareExtractor(extractor, i);
+      }
+    }
+  }
+
+  private static boolean isValidPath(final String path) {
+    try {
+      ImmutableList.copyOf(new JsonPathTokenizer(path));
+      return true;
+    } catch (final KsqlException e) {
+      return false;
+    }
+  }
+
+  private static final class Call {
+
+    private final JsonExtractStringKudf udf;
+    private final String path;
+
+    private Call(final JsonExtractStringKudf udf, final String path) {
+      this.udf = udf;
+      this.path = path;
+    }
+  }
+}
@@ -20,9 +20,13 @@ import static java.lang.String.format;
 import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.primitives.Primitives;
 import io.confluent.ksql.function.FunctionRegistry;
+import io.confluent.ksql.function.KsqlFunction;
 import io.confluent.ksql.function.KsqlFunctionException;
 import io.confluent.ksql.function.UdfFactory;
+import io.confluent.ksql.function.UdfTemplate;
+import io.confluent.ksql.function.udf.PluggableUdf;
 import io.confluent.ksql.function.udf.caseexpression.SearchedCaseFunction;
 import io.confluent.ksql.function.udf.structfieldextractor.FetchFieldFromStruct;
 import io.confluent.ksql.parser.tree.AllColumns;
@@ -60,6 +64,7 @@ import io.confluent.ksql.util.ExpressionTypeManager;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.Pair;
 import io.confluent.ksql.util.SchemaUtil;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
@@ -243,14 +248,14 @@ public class SqlToJavaVisitor {
 
     protected Pair<String, Schema> visitLongLiteral(
         final LongLiteral node, final Boolean unmangleNames) {
-      return new Pair<>("Long.parseLong(\"" + node.getValue() + "\")",
+      return new Pair<>(numericLiteral(node.getValue() + "L", node.getValue() < 0),
           Schema.OPTIONAL_INT64_SCHEMA);
     }
 
     @Override
     protected Pair<String, Schema> visitIntegerLiteral(final IntegerLiteral node,
         final Boolean context) {
-      return new Pair<>("Integer.parseInt(\"" + node.getValue() + "\")",
+      return new Pair<>(numericLiteral(String.valueOf(node.getValue()), node.getValue() < 0),
           Schema.OPTIONAL_INT32_SCHEMA);
     }
 
@@ -261,28 +266,86 @@ public class SqlToJavaVisitor {
       final String functionName = node.getName().getSuffix();
 
       final String instanceName = functionName + "_" + functionCounter++;
-      final Schema functionReturnSchema = getFunctionReturnSchema(node, functionName);
-      final String javaReturnType = SchemaUtil.getJavaType(functionReturnSchema).getSimpleName();
-      final String arguments = node.getArguments().stream()
+      final List<String> arguments = node.getArguments().stream()
           .map(arg -> process(arg, unmangleNames).getLeft())
-          .collect(Collectors.joining(", "));
-      final String codeString = "((" + javaReturnType + ") " + instanceName
-          + ".evaluate(" + arguments + "))";
+          .collect(Collectors.toList());
+
+      if (functionName.equalsIgnoreCase(FetchFieldFromStruct.FUNCTION_NAME)) {
+        final Schema functionReturnSchema = expressionTypeManager.getExpressionSchema(node);
+        return new Pair<>(
+            evaluateFunction(instanceName, functionReturnSchema, arguments),
+            functionReturnSchema);
+      }
+
+      final KsqlFunction function = getFunction(node, functionName);
+      final Schema functionReturnSchema = function.getReturnType();
+      final String codeString = function.getUdfMethod()
+          .map(method -> invokeUdfMethod(method, instanceName, functionReturnSchema, arguments))
+          .orElseGet(() -> evaluateFunction(instanceName, functionReturnSchema, arguments));
       return new Pair<>(codeString, functionReturnSchema);
     }
 
-    private Schema getFunctionReturnSchema(
+    private KsqlFunction getFunction(
         final FunctionCall node,
         final String functionName) {
-      if (functionName.equalsIgnoreCase(FetchFieldFromStruct.FUNCTION_NAME)) {
-        return expressionTypeManager.getExpressionSchema(node);
-      }
       final UdfFactory udfFactory = functionRegistry.getUdfFactory(functionName);
       final List<Schema> argumentSchemas = node.getArguments().stream()
           .map(expressionTypeManager::getExpressionSchema)
           .collect(Collectors.toList());
 
-      return udfFactory.getFunction(argumentSchemas).getReturnType();
+      return udfFactory.getFunction(argumentSchemas);
+    }
+
+    private String evaluateFunction(
+        final String instanceName,
+        final Schema functionReturnSchema,
+        final List<String> arguments) {
+      final String javaReturnType = SchemaUtil.getJavaType(functionReturnSchema).getSimpleName();
+      return "((" + javaReturnType + ") " + instanceName
+          + ".evaluate(" + String.join(", ", arguments) + "))";
+    }
+
+    /**
+     * Call the UDF method on the instance wrapped by the {@link PluggableUdf}, avoiding the
+     * varargs array, the boxing of primitives and the {@code UdfInvoker} of {@code evaluate}.
+     * Each argument is cast to its parameter's type, so that overload resolution can't pick a
+     * different method.
+     */
+    private String invokeUdfMethod(
+        final Method method,
+        final String instanceName,
+        final Schema functionReturnSchema,
+        final List<String> arguments) {
+      final Class<?>[] parameterTypes = method.getParameterTypes();
+      final StringBuilder call = new StringBuilder()
+          .append("((").append(method.getDeclaringClass().getCanonicalName()).append(") ((")
+          .append(PluggableUdf.class.getCanonicalName()).append(") ").append(instanceName)
+          .append(").getActualUdf()).").append(method.getName()).append('(');
+
+      for (int i = 0; i < parameterTypes.length; i++) {
+        if (i != 0) {
+          call.append(", ");
+        }
+
+        final Class<?> parameterType = parameterTypes[i];
+        if (parameterType.isPrimitive()) {
+          call.append(UdfTemplate.class.getCanonicalName()).append('.')
+              .append(parameterType.getName()).append("Arg(")
+              .append(arguments.get(i)).append(", ").append(i).append(')');
+        } else {
+          call.append("((").append(parameterType.getCanonicalName()).append(") (")
+              .append(arguments.get(i)).append("))");
+        }
+      }
+      call.append(')');
+
+      final Class<?> returnType = method.getReturnType();
+      if (returnType.isPrimitive()) {
+        return Primitives.wrap(returnType).getSimpleName() + ".valueOf(" + call + ")";
+      }
+
+      final String javaReturnType = SchemaUtil.getJavaType(functionReturnSchema).getSimpleName();
+      return "((" + javaReturnType + ") " + call + ")";
     }
 
     @Override
@@ -699,6 +762,11 @@ public class SqlToJavaVisitor {
       return s.substring(1, s.length() - 1);
     }
 
+    private String numericLiteral(final String literal, final boolean negative) {
+      // Brackets keep a negative literal from merging with a preceding operator:
+      return negative ? "(" + literal + ")" : literal;
+    }
+
     private String getCastToBooleanString(final Schema schema, final String exprStr) {
       if (schema.type() == Schema.Type.BOOLEAN) {
         return exprStr;
@@ -0,0 +1,151 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of latencies, recorded without locks and aggregated when read.
+ *
+ * <p>Each thread records into its own {@link Recorder}, so recording is a plain increment of a
+ * counter only that thread writes. Reading sums the counters of every recorder.
+ *
+ * <p>Like HdrHistogram, buckets are log-linear: each power of two is split into
+ * {@value #SUB_BUCKET_COUNT} sub-buckets, so any value is reported to within about 6%.
+ * Values above {@code 2^40} nanoseconds, around 18 minutes, are counted in the last bucket.
+ */
+final class LatencyHistogram {
+
+  private static final int SUB_BUCKET_BITS = 4;
+  private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int MAX_EXPONENT = 39;
+  private static final long MAX_VALUE = (1L << (MAX_EXPONENT + 1)) - 1;
+  private static final int BUCKET_COUNT = bucketIndex(MAX_VALUE) + 1;
+
+  private final int sampleInterval;
+  private final List<Recorder> recorders = new CopyOnWriteArrayList<>();
+  private final ThreadLocal<Recorder> recorder = ThreadLocal.withInitial(this::newRecorder);
+
+  /**
+   * @param sampleInterval record one in every {@code sampleInterval} values on each thread.
+   */
+  LatencyHistogram(final int sampleInterval) {
+    if (sampleInterval < 1) {
+      throw new IllegalArgumentException("sampleInterval must be positive: " + sampleInterval);
+    }
+    this.sampleInterval = sampleInterval;
+  }
+
+  /**
+   * @return the recorder of the calling thread.
+   */
+  Recorder recorder() {
+    return recorder.get();
+  }
+
+  /**
+   * @param percentile the percentile, between 0 and 100.
+   * @return the highest value equivalent to the value at {@code percentile} of those recorded,
+   *         or zero if none have been.
+   */
+  long valueAtPercentile(final double percentile) {
+    final long[] counts = new long[BUCKET_COUNT];
+    long total = 0;
+    for (final Recorder threadRecorder : recorders) {
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        final long count = threadRecorder.counts.get(i);
+        counts[i] += count;
+        total += count;
+      }
+    }
+
+    if (total == 0) {
+      return 0;
+    }
+
+    final long target = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= target) {
+        return highestEquivalentValue(i);
+      }
+    }
+    return highestEquivalentValue(BUCKET_COUNT - 1);
+  }
+
+  private Recorder newRecorder() {
+    final Recorder threadRecorder = new Recorder(sampleInterval);
+    recorders.add(threadRecorder);
+    return threadRecorder;
+  }
+
+  static int bucketIndex(final long value) {
+    final long clamped = Math.min(Math.max(value, 0), MAX_VALUE);
+    if (clamped < SUB_BUCKET_COUNT) {
+      return (int) clamped;
+    }
+
+    final int exponent = 63 - Long.numberOfLeadingZeros(clamped);
+    final int subBucket = (int) (clamped >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+  }
+
+  static long highestEquivalentValue(final int bucketIndex) {
+    if (bucketIndex < SUB_BUCKET_COUNT) {
+      return bucketIndex;
+    }
+
+    final int exponent = bucketIndex / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+    final int subBucket = bucketIndex % SUB_BUCKET_COUNT;
+    final int shift = exponent - SUB_BUCKET_BITS;
+    return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+  }
+
+  /**
+   * Records the values of a single thread.
+   */
+  static final class Recorder {
+
+    private final int sampleInterval;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private int untilNextSample;
+
+    private Recorder(final int sampleInterval) {
+      this.sampleInterval = sampleInterval;
+      this.untilNextSample = 1;
+    }
+
+    /**
+     * @return true if the next value should be recorded.
+     */
+    boolean sample() {
+      if (--untilNextSample > 0) {
+        return false;
+      }
+      untilNextSample = sampleInterval;
+      return true;
+    }
+
+    void record(final long value) {
+      final int index = bucketIndex(value);
+      // Only the owning thread writes, so there's no need for an atomic increment:
+      counts.lazySet(index, counts.get(index) + 1);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function;
+
+import io.confluent.ksql.function.udf.ConstantArgsAware;
+import io.confluent.ksql.function.udf.Kudf;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.kafka.common.utils.Time;
+
+/**
+ * Capture the latency of a sample of the invocations of a given Kudf.
+ *
+ * <p>Unlike {@link UdfMetricProducer}, invocations that are not sampled aren't timed at all,
+ * and sampled ones are recorded into a {@link LatencyHistogram} without taking any locks.
+ */
+class SampledUdfMetricProducer implements Kudf, ConstantArgsAware {
+
+  private final LatencyHistogram histogram;
+  private final Kudf kudf;
+  private final Time time;
+
+  SampledUdfMetricProducer(final LatencyHistogram histogram,
+                           final Kudf kudf,
+                           final Time time) {
+    this.histogram = Objects.requireNonNull(histogram, "histogram can't be null");
+    this.kudf = Objects.requireNonNull(kudf, "kudf can't be null");
+    this.time = Objects.requireNonNull(time, "time can't be null");
+  }
+
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    if (kudf instanceof ConstantArgsAware) {
+      ((ConstantArgsAware) kudf).initConstantArgs(constantArgs);
+    }
+  }
+
+  @Override
+  public Object evaluate(final Object... args) {
+    final LatencyHistogram.Recorder recorder = histogram.recorder();
+    if (!recorder.sample()) {
+      return kudf.evaluate(args);
+    }
+
+    final long start = time.nanoseconds();
+    try {
+      return kudf.evaluate(args);
+    } finally {
+      recorder.record(time.nanoseconds() - start);
+    }
+  }
+}
@@ -43,12 +43,16 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
 import org.apache.kafka.common.metrics.Metrics;
 import org.apache.kafka.common.metrics.Sensor;
 import org.apache.kafka.common.metrics.stats.Avg;
@@ -75,6 +79,8 @@ public class UdfLoader {
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
   private final Optional<Metrics> metrics;
   private final boolean loadCustomerUdfs;
+  private final int metricsSampleInterval;
+  private final Map<String, LatencyHistogram> latencyHistograms = new ConcurrentHashMap<>();
 
 
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
@@ -85,6 +91,24 @@ public class UdfLoader {
                    final UdfCompiler compiler,
                    final Optional<Metrics> metrics,
                    final boolean loadCustomerUdfs) {
+    this(functionRegistry, pluginDir, parentClassLoader, blacklist, compiler, metrics,
+        loadCustomerUdfs, 0);
+  }
+
+  /**
+   * @param metricsSampleInterval if positive, the latency of one in every this many invocations
+   *                              of each UDF is recorded into a histogram. Otherwise, every
+   *                              invocation is recorded by a sensor.
+   */
+  @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+  public UdfLoader(final MutableFunctionRegistry functionRegistry,
+                   final File pluginDir,
+                   final ClassLoader parentClassLoader,
+                   final Predicate<String> blacklist,
+                   final UdfCompiler compiler,
+                   final Optional<Metrics> metrics,
+                   final boolean loadCustomerUdfs,
+                   final int metricsSampleInterval) {
     this.functionRegistry = Objects
         .requireNonNull(functionRegistry, "functionRegistry can't be null");
     this.pluginDir = Objects.requireNonNull(pluginDir, "pluginDir can't be null");
@@ -94,6 +118,7 @@ public class UdfLoader {
     this.compiler = Objects.requireNonNull(compiler, "compiler can't be null");
     this.metrics = Objects.requireNonNull(metrics, "metrics can't be null");
     this.loadCustomerUdfs = loadCustomerUdfs;
+    this.metricsSampleInterval = metricsSampleInterval;
   }
 
   public void load() {
@@ -238,9 +263,16 @@ public class UdfLoader {
 
     @SuppressWarnings("unchecked")
     final Class<? extends Kudf> udfClass = metrics
-        .map(m -> (Class)UdfMetricProducer.class)
+        .map(m -> (Class)(metricsSampleInterval > 0
+            ? SampledUdfMetricProducer.class
+            : UdfMetricProducer.class))
         .orElse(PluggableUdf.class);
-    addSensor(sensorName, functionName);
+    final Optional<LatencyHistogram> latencyHistogram = metricsSampleInterval > 0
+        ? metrics.map(m -> addLatencyHistogram(m, sensorName, functionName))
+        : Optional.empty();
+    if (!latencyHistogram.isPresent()) {
+      addSensor(sensorName, functionName);
+    }
 
     LOGGER.info("Adding function " + functionName + " for method " + method);
     functionRegistry.ensureFunctionFactory(new UdfFactory(udfClass,
@@ -267,6 +299,9 @@ public class UdfLoader {
       return SchemaUtil.getSchemaFromType(type, name, doc);
     }).collect(Collectors.toList());
 
+    // UDFs packaged as part of ksql are trusted, so skip the security manager checks:
+    final boolean sandboxed = !KsqlFunction.INTERNAL_PATH.equals(path);
+
     functionRegistry.addFunction(KsqlFunction.create(
         SchemaUtil.getSchemaFromType(method.getGenericReturnType()),
         parameters,
@@ -278,12 +313,28 @@ public class UdfLoader {
             ((Configurable)actualUdf)
                 .configure(ksqlConfig.getKsqlFunctionsConfigProps(functionName));
           }
-          final PluggableUdf theUdf = new PluggableUdf(udf, actualUdf);
+          final PluggableUdf theUdf = new PluggableUdf(udf, actualUdf, sandboxed);
+          if (latencyHistogram.isPresent()) {
+            return new SampledUdfMetricProducer(latencyHistogram.get(), theUdf, Time.SYSTEM);
+          }
           return metrics.<Kudf>map(m -> new UdfMetricProducer(m.getSensor(sensorName),
               theUdf,
               Time.SYSTEM)).orElse(theUdf);
         }, udfAnnotation.description(),
-        path));
+        path,
+        canInvokeDirectly(method, sandboxed) ? Optional.of(method) : Optional.empty()));
+  }
+
+  /**
+   * Generated code can skip the {@link UdfInvoker} and call the UDF method directly when the UDF
+   * needs neither sandboxing nor metrics, and generated code can see the method.
+   */
+  private boolean canInvokeDirectly(final Method method, final boolean sandboxed) {
+    return !sandboxed
+        && !metrics.isPresent()
+        && Modifier.isPublic(method.getModifiers())
+        && Modifier.isPublic(method.getDeclaringClass().getModifiers())
+        && method.getDeclaringClass().getCanonicalName() != null;
   }
 
   private static Object instantiateUdfClass(final Method method,
@@ -319,12 +370,44 @@ public class UdfLoader {
     });
   }
 
+  private LatencyHistogram addLatencyHistogram(
+      final Metrics metrics,
+      final String sensorName,
+      final String udfName
+  ) {
+    return latencyHistograms.computeIfAbsent(sensorName, name -> {
+      final LatencyHistogram histogram = new LatencyHistogram(metricsSampleInterval);
+      addPercentileGauge(metrics, histogram, name + "-p50", 50, udfName);
+      addPercentileGauge(metrics, histogram, name + "-p99", 99, udfName);
+      addPercentileGauge(metrics, histogram, name + "-p999", 99.9, udfName);
+      return histogram;
+    });
+  }
+
+  private static void addPercentileGauge(
+      final Metrics metrics,
+      final LatencyHistogram histogram,
+      final String gaugeName,
+      final double percentile,
+      final String udfName
+  ) {
+    final MetricName metricName = metrics.metricName(gaugeName, UDF_METRIC_GROUP,
+        "The " + percentile + "th percentile of the time in nanoseconds taken by a sampled "
+            + "invocation of " + udfName + " udf");
+    final Gauge<Long> gauge = (config, now) -> histogram.valueAtPercentile(percentile);
+    // Replace any gauge left by a previous loader:
+    metrics.removeMetric(metricName);
+    metrics.addMetric(metricName, gauge);
+  }
+
   public static UdfLoader newInstance(final KsqlConfig config,
                                       final MutableFunctionRegistry metaStore,
                                       final String ksqlInstallDir
   ) {
     final Boolean loadCustomerUdfs = config.getBoolean(KsqlConfig.KSQL_ENABLE_UDFS);
     final Boolean collectMetrics = config.getBoolean(KsqlConfig.KSQL_COLLECT_UDF_METRICS);
+    final int metricsSampleInterval =
+        config.getInt(KsqlConfig.KSQL_UDF_METRICS_SAMPLE_INTERVAL_CONFIG);
     final String extDirName = config.getString(KsqlConfig.KSQL_EXT_DIR);
     final File pluginDir = KsqlConfig.DEFAULT_EXT_DIR.equals(extDirName)
         ? new File(ksqlInstallDir, extDirName)
@@ -343,7 +426,8 @@ public class UdfLoader {
         new Blacklist(new File(pluginDir, "resource-blacklist.txt")),
         new UdfCompiler(metrics),
         metrics,
-        loadCustomerUdfs
+        loadCustomerUdfs,
+        metricsSampleInterval
     );
   }
 }
@@ -15,7 +15,9 @@
 
 package io.confluent.ksql.function;
 
+import io.confluent.ksql.function.udf.ConstantArgsAware;
 import io.confluent.ksql.function.udf.Kudf;
+import java.util.Map;
 import java.util.Objects;
 import org.apache.kafka.common.metrics.Sensor;
 import org.apache.kafka.common.utils.Time;
@@ -23,7 +25,7 @@ import org.apache.kafka.common.utils.Time;
 /**
  * Capture metrics for a given Kudf
  */
-class UdfMetricProducer implements Kudf {
+class UdfMetricProducer implements Kudf, ConstantArgsAware {
 
   private final Sensor sensor;
   private final Kudf kudf;
@@ -37,6 +39,13 @@ class UdfMetricProducer implements Kudf {
     this.time = Objects.requireNonNull(time, "time can't be null");
   }
 
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    if (kudf instanceof ConstantArgsAware) {
+      ((ConstantArgsAware) kudf).initConstantArgs(constantArgs);
+    }
+  }
+
   @Override
   public Object evaluate(final Object... args) {
     final long start = time.nanoseconds();
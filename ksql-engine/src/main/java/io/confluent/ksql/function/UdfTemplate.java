@@ -64,9 +64,7 @@ public final class UdfTemplate {
     final Object arg = args[index];
     if (arg == null) {
       if (clazz.isPrimitive()) {
-        throw new KsqlFunctionException(
-            String.format(
-                "Can't coerce argument at index %d from null to a primitive type", index));
+        throw nullPrimitiveArg(index);
       }
       return null;
     }
@@ -102,6 +100,44 @@ public final class UdfTemplate {
         String.format("Impossible to coerce (%s) %s into %s", arg.getClass(), arg, clazz));
   }
 
+  /*
+   * The xxxArg methods unbox the arguments generated code passes to primitive parameters when it
+   * invokes a UDF method directly, failing the same way coerce does on null.
+   */
+
+  public static boolean booleanArg(final Boolean arg, final int index) {
+    if (arg == null) {
+      throw nullPrimitiveArg(index);
+    }
+    return arg;
+  }
+
+  public static int intArg(final Integer arg, final int index) {
+    if (arg == null) {
+      throw nullPrimitiveArg(index);
+    }
+    return arg;
+  }
+
+  public static long longArg(final Long arg, final int index) {
+    if (arg == null) {
+      throw nullPrimitiveArg(index);
+    }
+    return arg;
+  }
+
+  public static double doubleArg(final Double arg, final int index) {
+    if (arg == null) {
+      throw nullPrimitiveArg(index);
+    }
+    return arg;
+  }
+
+  private static KsqlFunctionException nullPrimitiveArg(final int index) {
+    return new KsqlFunctionException(
+        String.format("Can't coerce argument at index %d from null to a primitive type", index));
+  }
+
   private static <T> T fromNumber(final Number arg, final Class<? extends T> boxedType) {
     if (Integer.class.isAssignableFrom(boxedType)) {
       return boxedType.cast(arg.intValue());
@@ -17,40 +17,61 @@ package io.confluent.ksql.function.udaf;
 
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.function.TableAggregationFunction;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import org.apache.kafka.streams.kstream.Aggregator;
 
 public class KudafUndoAggregator implements Aggregator<String, GenericRow, GenericRow> {
-  private Map<Integer, TableAggregationFunction> aggValToAggFunctionMap;
-  private Map<Integer, Integer> aggValToValColumnMap;
+  private final int[] nonAggIndexes;
+  private final int[] nonAggValueIndexes;
+  private final int[] aggIndexes;
+  private final int[] aggArgIndexes;
+  private final TableAggregationFunction[] aggFunctions;
 
   public KudafUndoAggregator(
       final Map<Integer, TableAggregationFunction> aggValToAggFunctionMap,
       final Map<Integer, Integer> aggValToValColumnMap) {
     Objects.requireNonNull(aggValToAggFunctionMap);
     Objects.requireNonNull(aggValToValColumnMap);
-    this.aggValToAggFunctionMap = Collections.unmodifiableMap(
-        new HashMap<>(aggValToAggFunctionMap));
-    this.aggValToValColumnMap = Collections.unmodifiableMap(new HashMap<>(aggValToValColumnMap));
+    this.nonAggIndexes = new int[aggValToValColumnMap.size()];
+    this.nonAggValueIndexes = new int[aggValToValColumnMap.size()];
+    int i = 0;
+    for (final Map.Entry<Integer, Integer> e : aggValToValColumnMap.entrySet()) {
+      nonAggIndexes[i] = e.getKey();
+      nonAggValueIndexes[i] = e.getValue();
+      i++;
+    }
+
+    this.aggIndexes = new int[aggValToAggFunctionMap.size()];
+    this.aggArgIndexes = new int[aggValToAggFunctionMap.size()];
+    this.aggFunctions = new TableAggregationFunction[aggValToAggFunctionMap.size()];
+    i = 0;
+    for (final Map.Entry<Integer, TableAggregationFunction> e
+        : aggValToAggFunctionMap.entrySet()) {
+      aggIndexes[i] = e.getKey();
+      aggArgIndexes[i] = e.getValue().getArgIndexInValue();
+      aggFunctions[i] = e.getValue();
+      i++;
+    }
   }
 
   @SuppressWarnings("unchecked")
   @Override
   public GenericRow apply(final String s, final GenericRow rowValue, final GenericRow aggRowValue) {
-    aggValToValColumnMap.forEach(
-        (aggRowIndex, rowIndex) ->
-            aggRowValue.getColumns().set(aggRowIndex, rowValue.getColumns().get(rowIndex)));
-
-    aggValToAggFunctionMap.forEach(
-        (aggRowIndex, function) ->
-            aggRowValue.getColumns().set(
-                aggRowIndex,
-                function.undo(
-                    rowValue.getColumns().get(function.getArgIndexInValue()),
-                    aggRowValue.getColumns().get(aggRowIndex))));
+    final List<Object> columns = rowValue.getColumns();
+    final List<Object> aggColumns = aggRowValue.getColumns();
+
+    for (int i = 0; i < nonAggIndexes.length; i++) {
+      aggColumns.set(nonAggIndexes[i], columns.get(nonAggValueIndexes[i]));
+    }
+
+    for (int i = 0; i < aggIndexes.length; i++) {
+      final int aggIndex = aggIndexes[i];
+      aggColumns.set(
+          aggIndex,
+          aggFunctions[i].undo(columns.get(aggArgIndexes[i]), aggColumns.get(aggIndex)));
+    }
     return aggRowValue;
   }
 }
@@ -36,7 +36,8 @@ public class IntegerMaxKudaf extends BaseAggregateFunction<Integer, Integer> {
     if (currentValue == null) {
       return aggregateValue;
     }
-    return Math.max(currentValue, aggregateValue);
+    // Return whichever boxed value wins, rather than boxing the result again:
+    return currentValue > aggregateValue ? currentValue : aggregateValue;
   }
 
   @Override
@@ -36,7 +36,8 @@ public class LongMaxKudaf extends BaseAggregateFunction<Long, Long> {
     if (currentValue == null) {
       return aggregateValue;
     }
-    return Math.max(currentValue, aggregateValue);
+    // Return whichever boxed value wins, rather than boxing the result again:
+    return currentValue > aggregateValue ? currentValue : aggregateValue;
   }
 
   @Override
@@ -36,7 +36,8 @@ public class LongMinKudaf extends BaseAggregateFunction<Long, Long> {
     if (currentValue == null) {
       return aggregateValue;
     }
-    return Math.min(currentValue, aggregateValue);
+    // Return whichever boxed value wins, rather than boxing the result again:
+    return currentValue < aggregateValue ? currentValue : aggregateValue;
   }
 
   @Override
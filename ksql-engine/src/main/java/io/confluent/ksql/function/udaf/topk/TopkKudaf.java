@@ -19,6 +19,7 @@ import io.confluent.ksql.function.AggregateFunctionArguments;
 import io.confluent.ksql.function.BaseAggregateFunction;
 import io.confluent.ksql.function.KsqlAggregateFunction;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import org.apache.kafka.connect.data.Schema;
@@ -63,21 +64,17 @@ public class TopkKudaf<T extends Comparable<? super T>>
     }
 
     final int currentSize = aggregateValue.size();
-    if (!aggregateValue.isEmpty()) {
-      final T last = aggregateValue.get(currentSize - 1);
-      if (currentValue.compareTo(last) <= 0
-          && currentSize == topKSize) {
-        return aggregateValue;
-      }
+    if (currentSize == topKSize
+        && currentValue.compareTo(aggregateValue.get(currentSize - 1)) <= 0) {
+      return aggregateValue;
     }
 
-    if (currentSize == topKSize) {
-      aggregateValue.set(currentSize - 1, currentValue);
-    } else {
-      aggregateValue.add(currentValue);
-    }
+    // The list is kept in descending order, so insert in place rather than re-sorting:
+    final int found = Collections.binarySearch(
+        aggregateValue, currentValue, Comparator.reverseOrder());
+    final int insertAt = found < 0 ? -found - 1 : found;
 
-    aggregateValue.sort(Comparator.reverseOrder());
+    TopkUtil.insert(aggregateValue, insertAt, currentValue, topKSize);
     return aggregateValue;
   }
 
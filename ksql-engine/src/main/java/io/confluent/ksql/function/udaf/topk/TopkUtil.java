@@ -0,0 +1,52 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function.udaf.topk;
+
+import java.util.List;
+
+public final class TopkUtil {
+
+  private TopkUtil() {
+  }
+
+  /**
+   * Inserts a value into a list of top values, held in descending order.
+   *
+   * <p>If the list is full, its smallest value is dropped to make room. A full list is only
+   * updated with {@link List#set}, so fixed size lists are supported.
+   *
+   * @param topValues the top values, in descending order.
+   * @param index the index to insert the value at.
+   * @param value the value to insert.
+   * @param maxSize the maximum number of values the list holds.
+   */
+  public static <T> void insert(
+      final List<T> topValues,
+      final int index,
+      final T value,
+      final int maxSize
+  ) {
+    if (topValues.size() < maxSize) {
+      topValues.add(index, value);
+      return;
+    }
+
+    for (int i = topValues.size() - 1; i > index; i--) {
+      topValues.set(i, topValues.get(i - 1));
+    }
+    topValues.set(index, value);
+  }
+}
@@ -18,6 +18,7 @@ package io.confluent.ksql.function.udaf.topkdistinct;
 import io.confluent.ksql.function.AggregateFunctionArguments;
 import io.confluent.ksql.function.BaseAggregateFunction;
 import io.confluent.ksql.function.KsqlAggregateFunction;
+import io.confluent.ksql.function.udaf.topk.TopkUtil;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -66,17 +67,16 @@ public class TopkDistinctKudaf<T extends Comparable<? super T>>
       return aggregateValue;
     }
 
-    if (aggregateValue.contains(currentValue)) {
+    // The list is kept in descending order, so a binary search both finds duplicates and
+    // where to insert, without a linear scan or re-sorting:
+    final int found = Collections.binarySearch(
+        aggregateValue, currentValue, Comparator.reverseOrder());
+    if (found >= 0) {
       return aggregateValue;
     }
 
-    if (currentSize == tkVal) {
-      aggregateValue.set(currentSize - 1, currentValue);
-    } else {
-      aggregateValue.add(currentValue);
-    }
-
-    aggregateValue.sort(Comparator.reverseOrder());
+    final int insertAt = -found - 1;
+    TopkUtil.insert(aggregateValue, insertAt, currentValue, tkVal);
     return aggregateValue;
   }
 
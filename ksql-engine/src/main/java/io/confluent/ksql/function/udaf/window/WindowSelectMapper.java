@@ -40,12 +40,32 @@ public final class WindowSelectMapper
 
   public WindowSelectMapper(
       final Map<Integer, KsqlAggregateFunction> aggFunctionsByIndex) {
-    this.windowSelects = aggFunctionsByIndex.entrySet().stream()
-        .filter(e ->
-            WINDOW_FUNCTION_NAMES.containsKey(e.getValue().getFunctionName().toUpperCase()))
+    this(ImmutableMap.copyOf(windowSelects(aggFunctionsByIndex.entrySet().stream()
         .collect(Collectors.toMap(
             Map.Entry::getKey,
-            e -> WINDOW_FUNCTION_NAMES.get(e.getValue().getFunctionName().toUpperCase())));
+            e -> e.getValue().getFunctionName())))));
+  }
+
+  private WindowSelectMapper(final ImmutableMap<Integer, Type> windowSelects) {
+    this.windowSelects = windowSelects;
+  }
+
+  /**
+   * @param functionNamesByIndex the names of the aggregate functions, by their index in the row.
+   * @return the mapper for the supplied functions.
+   */
+  public static WindowSelectMapper forFunctionNames(
+      final Map<Integer, String> functionNamesByIndex) {
+    return new WindowSelectMapper(ImmutableMap.copyOf(windowSelects(functionNamesByIndex)));
+  }
+
+  private static Map<Integer, Type> windowSelects(
+      final Map<Integer, String> functionNamesByIndex) {
+    return functionNamesByIndex.entrySet().stream()
+        .filter(e -> WINDOW_FUNCTION_NAMES.containsKey(e.getValue().toUpperCase()))
+        .collect(Collectors.toMap(
+            Map.Entry::getKey,
+            e -> WINDOW_FUNCTION_NAMES.get(e.getValue().toUpperCase())));
   }
 
   public boolean hasSelects() {
@@ -17,6 +17,7 @@ package io.confluent.ksql.function.udf;
 
 import io.confluent.ksql.function.UdfInvoker;
 import io.confluent.ksql.security.ExtensionSecurityManager;
+import java.util.Map;
 import java.util.Objects;
 
 /**
@@ -25,24 +26,48 @@ import java.util.Objects;
  * to do a conversion from custom UDF -> Kudf so we can support stong
  * typing etc.
  */
-public class PluggableUdf implements Kudf {
+public class PluggableUdf implements Kudf, ConstantArgsAware {
 
   private final UdfInvoker udf;
   private final Object actualUdf;
+  private final boolean sandboxed;
 
   public PluggableUdf(final UdfInvoker udfInvoker,
                       final Object actualUdf) {
+    this(udfInvoker, actualUdf, true);
+  }
+
+  /**
+   * @param sandboxed whether the UDF should be blocked from calling System.exit or executing
+   *                  processes. Only UDFs packaged as part of KSQL are trusted to skip this.
+   */
+  public PluggableUdf(final UdfInvoker udfInvoker,
+                      final Object actualUdf,
+                      final boolean sandboxed) {
     this.udf = Objects.requireNonNull(udfInvoker, "udfInvoker can't be null");
     this.actualUdf = Objects.requireNonNull(actualUdf, "actualUdf can't be null");
+    this.sandboxed = sandboxed;
+  }
+
+  /**
+   * @return the instance of the UDF class, for generated code that invokes it directly.
+   */
+  public Object getActualUdf() {
+    return actualUdf;
+  }
+
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    if (actualUdf instanceof ConstantArgsAware) {
+      ((ConstantArgsAware) actualUdf).initConstantArgs(constantArgs);
+    }
   }
 
   @Override
   public Object evaluate(final Object... args) {
-    try {
-      ExtensionSecurityManager.INSTANCE.pushInUdf();
+    if (!sandboxed) {
       return udf.eval(actualUdf, args);
-    } finally {
-      ExtensionSecurityManager.INSTANCE.popOutUdf();
     }
+    return ExtensionSecurityManager.INSTANCE.evaluateUdf(udf, actualUdf, args);
   }
 }
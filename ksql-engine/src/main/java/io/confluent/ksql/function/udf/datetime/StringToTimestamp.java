@@ -19,23 +19,46 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import io.confluent.ksql.function.KsqlFunctionException;
+import io.confluent.ksql.function.udf.ConstantArgsAware;
 import io.confluent.ksql.function.udf.Udf;
 import io.confluent.ksql.function.udf.UdfDescription;
 import io.confluent.ksql.function.udf.UdfParameter;
 import io.confluent.ksql.util.timestamp.StringToTimestampParser;
 import java.time.ZoneId;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @UdfDescription(name = "stringtotimestamp", author = "Confluent",
     description = "Converts a string representation of a date in the given format"
         + " into the BIGINT value that represents the millisecond timestamp.")
-public class StringToTimestamp {
+public class StringToTimestamp implements ConstantArgsAware {
 
   private final LoadingCache<String, StringToTimestampParser> parsers =
       CacheBuilder.newBuilder()
           .maximumSize(1000)
           .build(CacheLoader.from(StringToTimestampParser::new));
 
+  // Set when the call's format pattern, or time zone, is a literal:
+  private StringToTimestampParser constantParser = null;
+  private ZoneId constantZoneId = null;
+
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    try {
+      final Object formatPattern = constantArgs.get(1);
+      if (formatPattern instanceof String) {
+        constantParser = new StringToTimestampParser((String) formatPattern);
+      }
+
+      final Object timeZone = constantArgs.get(2);
+      if (timeZone instanceof String) {
+        constantZoneId = ZoneId.of((String) timeZone);
+      }
+    } catch (final RuntimeException e) {
+      // Reported by each invocation
+    }
+  }
+
   @Udf(description = "Converts a string representation of a date in the given format"
       + " into the BIGINT value that represents the millisecond timestamp."
       + " Single quotes in the timestamp format can be escaped with '',"
@@ -47,7 +70,7 @@ public class StringToTimestamp {
           description = "The format pattern should be in the format expected by"
               + " java.time.format.DateTimeFormatter.") final String formatPattern) {
     try {
-      final StringToTimestampParser timestampParser = parsers.get(formatPattern);
+      final StringToTimestampParser timestampParser = getParser(formatPattern);
       return timestampParser.parse(formattedTimestamp);
     } catch (final ExecutionException | RuntimeException e) {
       throw new KsqlFunctionException("Failed to parse timestamp '" + formattedTimestamp
@@ -70,8 +93,8 @@ public class StringToTimestamp {
           description =  " timeZone is a java.util.TimeZone ID format, for example: \"UTC\","
               + " \"America/Los_Angeles\", \"PDT\", \"Europe/London\"") final String timeZone) {
     try {
-      final StringToTimestampParser timestampParser = parsers.get(formatPattern);
-      final ZoneId zoneId = ZoneId.of(timeZone);
+      final StringToTimestampParser timestampParser = getParser(formatPattern);
+      final ZoneId zoneId = constantZoneId != null ? constantZoneId : ZoneId.of(timeZone);
       return timestampParser.parse(formattedTimestamp, zoneId);
     } catch (final ExecutionException | RuntimeException e) {
       throw new KsqlFunctionException("Failed to parse timestamp '" + formattedTimestamp
@@ -80,4 +103,8 @@ public class StringToTimestamp {
     }
   }
 
+  private StringToTimestampParser getParser(final String formatPattern)
+      throws ExecutionException {
+    return constantParser != null ? constantParser : parsers.get(formatPattern);
+  }
 }
@@ -19,24 +19,47 @@ import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import io.confluent.ksql.function.KsqlFunctionException;
+import io.confluent.ksql.function.udf.ConstantArgsAware;
 import io.confluent.ksql.function.udf.Udf;
 import io.confluent.ksql.function.udf.UdfDescription;
 import io.confluent.ksql.function.udf.UdfParameter;
 import java.sql.Timestamp;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.concurrent.ExecutionException;
 
 @UdfDescription(name = "timestamptostring", author = "Confluent",
     description = "Converts a BIGINT millisecond timestamp value into"
         + " the string representation of the timestamp in the given format.")
-public class TimestampToString {
+public class TimestampToString implements ConstantArgsAware {
 
   private final LoadingCache<String, DateTimeFormatter> formatters =
       CacheBuilder.newBuilder()
           .maximumSize(1000)
           .build(CacheLoader.from(DateTimeFormatter::ofPattern));
 
+  // Set when the call's format pattern, or time zone, is a literal:
+  private DateTimeFormatter constantFormatter = null;
+  private ZoneId constantZoneId = null;
+
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    try {
+      final Object formatPattern = constantArgs.get(1);
+      if (formatPattern instanceof String) {
+        constantFormatter = DateTimeFormatter.ofPattern((String) formatPattern);
+      }
+
+      final Object timeZone = constantArgs.get(2);
+      if (timeZone instanceof String) {
+        constantZoneId = ZoneId.of((String) timeZone);
+      }
+    } catch (final RuntimeException e) {
+      // Reported by each invocation
+    }
+  }
+
   @Udf(description = "Converts a BIGINT millisecond timestamp value into the"
       + " string representation of the timestamp in the given format. Single quotes in the"
       + " timestamp format can be escaped with '', for example: 'yyyy-MM-dd''T''HH:mm:ssX'"
@@ -52,7 +75,7 @@ public class TimestampToString {
               + " java.time.format.DateTimeFormatter.") final String formatPattern) {
     try {
       final Timestamp timestamp = new Timestamp(epochMilli);
-      final DateTimeFormatter formatter = formatters.get(formatPattern);
+      final DateTimeFormatter formatter = getFormatter(formatPattern);
       return timestamp.toInstant()
           .atZone(ZoneId.systemDefault())
           .format(formatter);
@@ -79,8 +102,8 @@ public class TimestampToString {
               + " \"America/Los_Angeles\", \"PDT\", \"Europe/London\"") final String timeZone) {
     try {
       final Timestamp timestamp = new Timestamp(epochMilli);
-      final DateTimeFormatter formatter = formatters.get(formatPattern);
-      final ZoneId zoneId = ZoneId.of(timeZone);
+      final DateTimeFormatter formatter = getFormatter(formatPattern);
+      final ZoneId zoneId = constantZoneId != null ? constantZoneId : ZoneId.of(timeZone);
       return timestamp.toInstant()
           .atZone(zoneId)
           .format(formatter);
@@ -92,4 +115,7 @@ public class TimestampToString {
 
   }
 
+  private DateTimeFormatter getFormatter(final String formatPattern) throws ExecutionException {
+    return constantFormatter != null ? constantFormatter : formatters.get(formatPattern);
+  }
 }
@@ -15,24 +15,53 @@
 
 package io.confluent.ksql.function.udf.json;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ObjectReader;
-import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
-import io.confluent.ksql.function.KsqlFunctionException;
 import io.confluent.ksql.function.UdfUtil;
+import io.confluent.ksql.function.udf.ConstantArgsAware;
 import io.confluent.ksql.function.udf.Kudf;
 import io.confluent.ksql.util.KsqlException;
-import io.confluent.ksql.util.json.JsonPathTokenizer;
-import java.io.IOException;
-import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-public class JsonExtractStringKudf implements Kudf {
-  private static final ObjectReader OBJECT_READER = new ObjectMapper().reader();
+public class JsonExtractStringKudf implements Kudf, ConstantArgsAware {
   public static final String NAME = "EXTRACTJSONFIELD";
 
-  private List<String> tokens = null;
+  private JsonPathExtractor extractor = null;
+  private int pathIndex = 0;
+
+  @Override
+  public void initConstantArgs(final Map<Integer, Object> constantArgs) {
+    final Object path = constantArgs.get(1);
+    if (!(path instanceof String)) {
+      return;
+    }
+
+    try {
+      extractor = new JsonPathExtractor(ImmutableList.of((String) path));
+    } catch (final KsqlException e) {
+      // Reported by each invocation
+    }
+  }
+
+  /**
+   * Have this instance extract its path via an extractor shared with other instances reading
+   * the same document, so that the document is only parsed once per row.
+   *
+   * <p>Must be called before the first call to {@link #evaluate}.
+   *
+   * @param extractor the shared extractor.
+   * @param pathIndex the index of this instance's path within the extractor's paths.
+   */
+  public void shareExtractor(final JsonPathExtractor extractor, final int pathIndex) {
+    this.extractor = Objects.requireNonNull(extractor, "extractor");
+    this.pathIndex = pathIndex;
+  }
+
+  @VisibleForTesting
+  public JsonPathExtractor getExtractor() {
+    return extractor;
+  }
 
   @Override
   public Object evaluate(final Object... args) {
@@ -44,33 +73,11 @@ public class JsonExtractStringKudf implements Kudf {
       return null;
     }
 
-    JsonNode currentNode = parseJsonDoc(args[0]);
-    for (final String token : tokens) {
-      if (currentNode instanceof ArrayNode) {
-        try {
-          final int index = Integer.parseInt(token);
-          currentNode = currentNode.get(index);
-        } catch (final NumberFormatException e) {
-          return null;
-        }
-      } else {
-        currentNode = currentNode.get(token);
-      }
-
-      if (currentNode == null) {
-        return null;
-      }
-    }
-
-    if (currentNode.isTextual()) {
-      return currentNode.asText();
-    } else {
-      return currentNode.toString();
-    }
+    return extractor.extract(args[0].toString(), pathIndex);
   }
 
   private void ensureInitialized(final Object[] args) {
-    if (tokens != null) {
+    if (extractor != null) {
       return;
     }
 
@@ -78,17 +85,6 @@ public class JsonExtractStringKudf implements Kudf {
       throw new KsqlException("Path can not be null");
     }
 
-    final String path = args[1].toString();
-    final JsonPathTokenizer tokenizer = new JsonPathTokenizer(path);
-    tokens = ImmutableList.copyOf(tokenizer);
-  }
-
-  private static JsonNode parseJsonDoc(final Object arg) {
-    final String jsonString = arg.toString();
-    try {
-      return OBJECT_READER.readTree(jsonString);
-    } catch (final IOException e) {
-      throw new KsqlFunctionException("Invalid JSON format:" + jsonString, e);
-    }
+    extractor = new JsonPathExtractor(ImmutableList.of(args[1].toString()));
   }
 }
@@ -0,0 +1,245 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function.udf.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.function.KsqlFunctionException;
+import io.confluent.ksql.util.json.JsonPathTokenizer;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Extracts the values at a fixed set of JSON paths from a document in a single pass.
+ *
+ * <p>Rather than reading the whole document into a tree, the paths are compiled into a trie
+ * and the document is streamed, descending only into the fields and array elements some path
+ * passes through, and skipping everything else. Only values a path ends at are materialized.
+ * The whole document is still tokenized, so malformed JSON is rejected as before.
+ *
+ * <p>The values extracted from the last document seen are cached, keyed on the identity of
+ * that document. This lets several {@code EXTRACTJSONFIELD} calls on the same column share a
+ * single parse per row: the first call parses, the rest are served from the cache.
+ *
+ * <p>Instances are thread safe.
+ */
+public final class JsonPathExtractor {
+
+  private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+  private static final ObjectReader OBJECT_READER = OBJECT_MAPPER.reader();
+  private static final JsonFactory JSON_FACTORY = OBJECT_MAPPER.getFactory();
+
+  private final List<List<String>> paths;
+  private final Node root;
+  private volatile Extraction last;
+
+  /**
+   * @param paths the JSON paths to extract, e.g. {@code $.thing1.thing2}.
+   */
+  public JsonPathExtractor(final List<String> paths) {
+    final ImmutableList.Builder<List<String>> tokenized = ImmutableList.builder();
+    this.root = new Node(0);
+
+    for (int i = 0; i < paths.size(); i++) {
+      final List<String> tokens = ImmutableList.copyOf(
+          new JsonPathTokenizer(Objects.requireNonNull(paths.get(i), "path")));
+      tokenized.add(tokens);
+
+      Node node = root;
+      node.pathsBelow.add(i);
+      for (final String token : tokens) {
+        final int depth = node.depth + 1;
+        node = node.children.computeIfAbsent(token, t -> new Node(depth));
+        node.pathsBelow.add(i);
+      }
+      node.terminals.add(i);
+    }
+
+    this.paths = tokenized.build();
+    this.root.indexElements();
+  }
+
+  /**
+   * @param json the JSON document.
+   * @param pathIndex the index of the path to extract.
+   * @return the text of the value at the path, or {@code null} if there is none.
+   */
+  public String extract(final String json, final int pathIndex) {
+    final Extraction cached = last;
+    if (cached != null && cached.json == json) {
+      return cached.values[pathIndex];
+    }
+
+    final String[] values = extractAll(json);
+    last = new Extraction(json, values);
+    return values[pathIndex];
+  }
+
+  private String[] extractAll(final String json) {
+    final String[] values = new String[paths.size()];
+
+    try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+      if (parser.nextToken() != null) {
+        extractValue(parser, Collections.singletonList(root), values);
+      }
+    } catch (final IOException e) {
+      throw new KsqlFunctionException("Invalid JSON format:" + json, e);
+    }
+
+    return values;
+  }
+
+  /**
+   * Extracts the paths below {@code nodes} from the value the parser is positioned at.
+   *
+   * <p>On return the parser is positioned at the last token of the value.
+   */
+  private void extractValue(
+      final JsonParser parser,
+      final List<Node> nodes,
+      final String[] values
+  ) throws IOException {
+    // A later duplicate field replaces an earlier one, as it does when reading a tree:
+    for (final Node node : nodes) {
+      node.pathsBelow.forEach(i -> values[i] = null);
+    }
+
+    final Node node = nodes.get(0);
+    if (nodes.size() > 1 || (!node.terminals.isEmpty() && !node.children.isEmpty())) {
+      final JsonNode tree = readTree(parser);
+      nodes.forEach(n -> n.pathsBelow.forEach(i -> values[i] = walk(tree, n.depth, i)));
+      return;
+    }
+
+    if (!node.terminals.isEmpty()) {
+      final String value = parser.getCurrentToken() == JsonToken.VALUE_STRING
+          ? parser.getText()
+          : readTree(parser).toString();
+      node.terminals.forEach(i -> values[i] = value);
+      return;
+    }
+
+    switch (parser.getCurrentToken()) {
+      case START_OBJECT:
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final Node child = node.children.get(parser.getCurrentName());
+          parser.nextToken();
+          if (child == null) {
+            parser.skipChildren();
+          } else {
+            extractValue(parser, Collections.singletonList(child), values);
+          }
+        }
+        break;
+      case START_ARRAY:
+        for (int index = 0; parser.nextToken() != JsonToken.END_ARRAY; index++) {
+          final List<Node> matched =
+              node.elements.getOrDefault(index, Collections.emptyList());
+          if (matched.isEmpty()) {
+            parser.skipChildren();
+          } else {
+            extractValue(parser, matched, values);
+          }
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  private static JsonNode readTree(final JsonParser parser) throws IOException {
+    final JsonNode tree = OBJECT_READER.readTree(parser);
+    return tree == null ? NullNode.getInstance() : tree;
+  }
+
+  private String walk(final JsonNode tree, final int depth, final int pathIndex) {
+    JsonNode currentNode = tree;
+    final List<String> tokens = paths.get(pathIndex);
+    for (final String token : tokens.subList(depth, tokens.size())) {
+      if (currentNode instanceof ArrayNode) {
+        try {
+          final int index = Integer.parseInt(token);
+          currentNode = currentNode.get(index);
+        } catch (final NumberFormatException e) {
+          return null;
+        }
+      } else {
+        currentNode = currentNode.get(token);
+      }
+
+      if (currentNode == null) {
+        return null;
+      }
+    }
+
+    if (currentNode.isTextual()) {
+      return currentNode.asText();
+    } else {
+      return currentNode.toString();
+    }
+  }
+
+  private static final class Node {
+
+    private final int depth;
+    private final Map<String, Node> children = new HashMap<>();
+    private final Map<Integer, List<Node>> elements = new HashMap<>();
+    private final List<Integer> terminals = new ArrayList<>();
+    private final List<Integer> pathsBelow = new ArrayList<>();
+
+    private Node(final int depth) {
+      this.depth = depth;
+    }
+
+    /**
+     * Indexes the children that match array elements, i.e. whose token is an integer.
+     * Several tokens, e.g. {@code 1} and {@code 01}, can match the same element.
+     */
+    private void indexElements() {
+      children.forEach((token, child) -> {
+        try {
+          elements.computeIfAbsent(Integer.parseInt(token), i -> new ArrayList<>()).add(child);
+        } catch (final NumberFormatException e) {
+          // Not an array index
+        }
+        child.indexElements();
+      });
+    }
+  }
+
+  private static final class Extraction {
+
+    private final String json;
+    private final String[] values;
+
+    private Extraction(final String json, final String[] values) {
+      this.json = json;
+      this.values = values;
+    }
+  }
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.materialization;
+
+import io.confluent.ksql.parser.tree.AliasedRelation;
+import io.confluent.ksql.parser.tree.ComparisonExpression;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.IntegerLiteral;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.LongLiteral;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.parser.tree.QuerySpecification;
+import io.confluent.ksql.parser.tree.Relation;
+import io.confluent.ksql.parser.tree.SelectItem;
+import io.confluent.ksql.parser.tree.SingleColumn;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.Table;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.SchemaUtil;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A pull query: a lookup of the current rows of a table with a given key, of the form:
+ *
+ * <pre>{@code
+ * SELECT * FROM <table> WHERE ROWKEY = '<key>'
+ *     [AND WINDOWSTART >= <start>] [AND WINDOWSTART <= <end>];
+ * }</pre>
+ *
+ * <p>Window start bounds are epoch millis, and may use any of {@code =, <, <=, >, >=}.
+ */
+public final class KeyLookup {
+
+  public static final String WINDOWSTART_NAME = "WINDOWSTART";
+
+  private final String sourceName;
+  private final String key;
+  private final long windowStartFrom;
+  private final long windowStartTo;
+
+  private KeyLookup(
+      final String sourceName,
+      final String key,
+      final long windowStartFrom,
+      final long windowStartTo
+  ) {
+    this.sourceName = Objects.requireNonNull(sourceName, "sourceName");
+    this.key = Objects.requireNonNull(key, "key");
+    this.windowStartFrom = windowStartFrom;
+    this.windowStartTo = windowStartTo;
+  }
+
+  /**
+   * @param query the query to convert.
+   * @return the lookup the query performs.
+   * @throws KsqlException if the query isn't a pull query.
+   */
+  public static KeyLookup from(final Query query) {
+    if (query.getLimit().isPresent()) {
+      throw new KsqlException("Pull queries don't support LIMIT clauses.");
+    }
+
+    if (!(query.getQueryBody() instanceof QuerySpecification)) {
+      throw new KsqlException("Pull queries only support simple SELECT statements.");
+    }
+
+    final QuerySpecification spec = (QuerySpecification) query.getQueryBody();
+    if (spec.getWindowExpression().isPresent()
+        || spec.getGroupBy().isPresent()
+        || spec.getHaving().isPresent()
+        || spec.getLimit().isPresent()) {
+      throw new KsqlException(
+          "Pull queries don't support WINDOW, GROUP BY, HAVING or LIMIT clauses.");
+    }
+
+    for (final SelectItem item : spec.getSelect().getSelectItems()) {
+      if (!(item instanceof SingleColumn) || !((SingleColumn) item).getAllColumns().isPresent()) {
+        throw new KsqlException("Pull queries only support 'SELECT *'.");
+      }
+    }
+
+    final String sourceName = getSourceName(spec.getFrom());
+    final Expression where = spec.getWhere()
+        .orElseThrow(() -> new KsqlException(
+            "Pull queries must have a WHERE clause of the form: ROWKEY = '<key>'."));
+
+    final Bounds bounds = new Bounds();
+    addConditions(where, bounds);
+
+    if (bounds.key == null) {
+      throw new KsqlException(
+          "Pull queries must have a WHERE clause of the form: ROWKEY = '<key>'.");
+    }
+
+    return new KeyLookup(sourceName, bounds.key, bounds.windowStartFrom, bounds.windowStartTo);
+  }
+
+  public String getSourceName() {
+    return sourceName;
+  }
+
+  public String getKey() {
+    return key;
+  }
+
+  /**
+   * @return the earliest window start to return, inclusive.
+   */
+  public long getWindowStartFrom() {
+    return windowStartFrom;
+  }
+
+  /**
+   * @return the latest window start to return, inclusive.
+   */
+  public long getWindowStartTo() {
+    return windowStartTo;
+  }
+
+  private static String getSourceName(final Relation from) {
+    final Relation relation = from instanceof AliasedRelation
+        ? ((AliasedRelation) from).getRelation()
+        : from;
+
+    if (!(relation instanceof Table)) {
+      throw new KsqlException("Pull queries only support a single table in the FROM clause.");
+    }
+
+    return ((Table) relation).getName().getSuffix();
+  }
+
+  private static void addConditions(final Expression expression, final Bounds bounds) {
+    if (expression instanceof LogicalBinaryExpression
+        && ((LogicalBinaryExpression) expression).getType()
+        == LogicalBinaryExpression.Type.AND) {
+      final LogicalBinaryExpression and = (LogicalBinaryExpression) expression;
+      addConditions(and.getLeft(), bounds);
+      addConditions(and.getRight(), bounds);
+      return;
+    }
+
+    if (!(expression instanceof ComparisonExpression)) {
+      throw unsupportedCondition(expression);
+    }
+
+    final ComparisonExpression comparison = (ComparisonExpression) expression;
+    final Optional<String> leftColumn = getColumnName(comparison.getLeft());
+    final Optional<String> rightColumn = getColumnName(comparison.getRight());
+
+    final String column;
+    final Expression value;
+    final ComparisonExpression.Type type;
+    if (leftColumn.isPresent() && !rightColumn.isPresent()) {
+      column = leftColumn.get();
+      value = comparison.getRight();
+      type = comparison.getType();
+    } else if (rightColumn.isPresent() && !leftColumn.isPresent()) {
+      column = rightColumn.get();
+      value = comparison.getLeft();
+      type = comparison.getType().flip();
+    } else {
+      throw unsupportedCondition(expression);
+    }
+
+    if (column.equalsIgnoreCase(SchemaUtil.ROWKEY_NAME)) {
+      if (type != ComparisonExpression.Type.EQUAL || bounds.key != null) {
+        throw unsupportedCondition(expression);
+      }
+      bounds.key = getKey(value, expression);
+    } else if (column.equalsIgnoreCase(WINDOWSTART_NAME)) {
+      bounds.addWindowStartBound(type, getWindowStart(value, expression), expression);
+    } else {
+      throw unsupportedCondition(expression);
+    }
+  }
+
+  private static Optional<String> getColumnName(final Expression expression) {
+    if (expression instanceof DereferenceExpression) {
+      return Optional.of(((DereferenceExpression) expression).getFieldName());
+    }
+    return Optional.empty();
+  }
+
+  private static String getKey(final Expression value, final Expression condition) {
+    if (value instanceof StringLiteral) {
+      return ((StringLiteral) value).getValue();
+    }
+    if (value instanceof IntegerLiteral || value instanceof LongLiteral) {
+      return value.toString();
+    }
+    throw unsupportedCondition(condition);
+  }
+
+  private static long getWindowStart(final Expression value, final Expression condition) {
+    if (value instanceof IntegerLiteral) {
+      return ((IntegerLiteral) value).getValue();
+    }
+    if (value instanceof LongLiteral) {
+      return ((LongLiteral) value).getValue();
+    }
+    throw unsupportedCondition(condition);
+  }
+
+  private static KsqlException unsupportedCondition(final Expression condition) {
+    return new KsqlException("Unsupported condition in pull query: " + condition
+        + ". Pull queries support only a single 'ROWKEY = <literal>' condition, "
+        + "optionally combined, using AND, with bounds on WINDOWSTART.");
+  }
+
+  private static final class Bounds {
+
+    private String key;
+    private long windowStartFrom = 0;
+    private long windowStartTo = Long.MAX_VALUE;
+
+    private void addWindowStartBound(
+        final ComparisonExpression.Type type,
+        final long value,
+        final Expression condition
+    ) {
+      switch (type) {
+        case EQUAL:
+          windowStartFrom = Math.max(windowStartFrom, value);
+          windowStartTo = Math.min(windowStartTo, value);
+          break;
+        case GREATER_THAN:
+          windowStartFrom = Math.max(windowStartFrom, value + 1);
+          break;
+        case GREATER_THAN_OR_EQUAL:
+          windowStartFrom = Math.max(windowStartFrom, value);
+          break;
+        case LESS_THAN:
+          windowStartTo = Math.min(windowStartTo, value - 1);
+          break;
+        case LESS_THAN_OR_EQUAL:
+          windowStartTo = Math.min(windowStartTo, value);
+          break;
+        default:
+          throw unsupportedCondition(condition);
+      }
+    }
+  }
+}
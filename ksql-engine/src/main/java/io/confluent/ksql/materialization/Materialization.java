@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.materialization;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.function.udaf.window.WindowSelectMapper;
+import io.confluent.ksql.util.KsqlException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.ValueMapper;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.QueryableStoreType;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlySessionStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.StreamsMetadata;
+
+/**
+ * How to read the rows of a table from the state store a persistent query materializes it in.
+ *
+ * <p>The store holds the output of the query's aggregation, so each value read is mapped
+ * through the rest of the query, i.e. its HAVING clause and final projection, as it is read.
+ */
+public final class Materialization {
+
+  public enum StoreType { KEY_VALUE, WINDOW, SESSION }
+
+  private final KafkaStreams streams;
+  private final String storeName;
+  private final StoreType storeType;
+  private final WindowSelectMapper windowSelectMapper;
+  private final ValueMapper<GenericRow, GenericRow> resultMapper;
+
+  /**
+   * @param streams the streams app of the query.
+   * @param storeName the name of the store.
+   * @param storeType the type of the store.
+   * @param windowSelectMapper the mapper to apply to windowed values before the result mapper.
+   * @param resultMapper maps the values in the store to table rows, or to null if a value is
+   *                     filtered out of the table.
+   */
+  public Materialization(
+      final KafkaStreams streams,
+      final String storeName,
+      final StoreType storeType,
+      final WindowSelectMapper windowSelectMapper,
+      final ValueMapper<GenericRow, GenericRow> resultMapper
+  ) {
+    this.streams = Objects.requireNonNull(streams, "streams");
+    this.storeName = Objects.requireNonNull(storeName, "storeName");
+    this.storeType = Objects.requireNonNull(storeType, "storeType");
+    this.windowSelectMapper = Objects.requireNonNull(windowSelectMapper, "windowSelectMapper");
+    this.resultMapper = Objects.requireNonNull(resultMapper, "resultMapper");
+  }
+
+  public String getStoreName() {
+    return storeName;
+  }
+
+  public boolean isWindowed() {
+    return storeType != StoreType.KEY_VALUE;
+  }
+
+  /**
+   * @return the metadata of the instance of the query that hosts {@code key}.
+   */
+  public StreamsMetadata getOwner(final String key) {
+    return streams.metadataForKey(storeName, key, Serdes.String().serializer());
+  }
+
+  /**
+   * Look up the row of a non-windowed table.
+   *
+   * @return the row with the supplied {@code key}, if there is one.
+   */
+  public Optional<GenericRow> get(final String key) {
+    if (isWindowed()) {
+      throw new KsqlException("A lookup on a windowed table must specify a window start range");
+    }
+
+    final ReadOnlyKeyValueStore<String, GenericRow> store =
+        getStore(QueryableStoreTypes.keyValueStore());
+    return Optional.ofNullable(store.get(key))
+        .map(resultMapper::apply);
+  }
+
+  /**
+   * Look up the rows of a windowed table.
+   *
+   * @param windowStartFrom the earliest window start to return, inclusive.
+   * @param windowStartTo the latest window start to return, inclusive.
+   * @return the rows with the supplied {@code key}, in the order of their windows.
+   */
+  public List<KeyValue<Windowed<String>, GenericRow>> get(
+      final String key,
+      final long windowStartFrom,
+      final long windowStartTo
+  ) {
+    if (!isWindowed()) {
+      throw new KsqlException("A lookup on a non-windowed table can't specify a window");
+    }
+
+    final List<KeyValue<Windowed<String>, GenericRow>> rows = new ArrayList<>();
+    if (storeType == StoreType.WINDOW) {
+      final ReadOnlyWindowStore<String, GenericRow> store =
+          getStore(QueryableStoreTypes.windowStore());
+      try (KeyValueIterator<Windowed<String>, GenericRow> it = store.fetch(
+          key,
+          key,
+          Instant.ofEpochMilli(windowStartFrom),
+          Instant.ofEpochMilli(windowStartTo))) {
+        it.forEachRemaining(kv -> addWindowedRow(kv, rows));
+      }
+    } else {
+      final ReadOnlySessionStore<String, GenericRow> store =
+          getStore(QueryableStoreTypes.sessionStore());
+      try (KeyValueIterator<Windowed<String>, GenericRow> it = store.fetch(key)) {
+        it.forEachRemaining(kv -> {
+          final long start = kv.key.window().start();
+          if (start >= windowStartFrom && start <= windowStartTo) {
+            addWindowedRow(kv, rows);
+          }
+        });
+      }
+    }
+    return rows;
+  }
+
+  private void addWindowedRow(
+      final KeyValue<Windowed<String>, GenericRow> kv,
+      final List<KeyValue<Windowed<String>, GenericRow>> rows
+  ) {
+    final GenericRow row = resultMapper.apply(windowSelectMapper.apply(kv.key, kv.value));
+    if (row != null) {
+      rows.add(new KeyValue<>(kv.key, row));
+    }
+  }
+
+  private <T> T getStore(final QueryableStoreType<T> type) {
+    try {
+      return streams.store(storeName, type);
+    } catch (final InvalidStateStoreException e) {
+      throw new KsqlException(
+          "State store " + storeName + " is not currently available, e.g. because the query "
+              + "is rebalancing. Please try again.", e);
+    }
+  }
+}
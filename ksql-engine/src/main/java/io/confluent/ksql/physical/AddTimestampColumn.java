@@ -20,6 +20,11 @@ import org.apache.kafka.streams.kstream.ValueTransformer;
 import org.apache.kafka.streams.kstream.ValueTransformerSupplier;
 import org.apache.kafka.streams.processor.ProcessorContext;
 
+/**
+ * Populates the ROWTIME column with the record's timestamp.
+ *
+ * <p>The row must already have the ROWTIME slot reserved at index zero.
+ */
 public class AddTimestampColumn implements ValueTransformerSupplier<GenericRow, GenericRow> {
   @Override
   public ValueTransformer<GenericRow, GenericRow> get() {
@@ -33,7 +38,7 @@ public class AddTimestampColumn implements ValueTransformerSupplier<GenericRow,
       @Override
       public GenericRow transform(final GenericRow row) {
         if (row != null) {
-          row.getColumns().add(0, processorContext.timestamp());
+          row.getColumns().set(0, processorContext.timestamp());
         }
         return row;
       }
@@ -15,25 +15,34 @@
 
 package io.confluent.ksql.physical;
 
+import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.errors.ProductionExceptionHandlerUtil;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.logging.processing.ProcessingLogger;
+import io.confluent.ksql.materialization.Materialization;
 import io.confluent.ksql.metastore.KsqlStream;
 import io.confluent.ksql.metastore.KsqlTable;
 import io.confluent.ksql.metastore.MutableMetaStore;
 import io.confluent.ksql.metastore.StructuredDataSource;
 import io.confluent.ksql.metrics.ConsumerCollector;
 import io.confluent.ksql.metrics.ProducerCollector;
+import io.confluent.ksql.physical.SharedSourceScans.SharedScan;
 import io.confluent.ksql.planner.LogicalPlanNode;
+import io.confluent.ksql.planner.plan.AggregateNode;
+import io.confluent.ksql.planner.plan.FilterNode;
 import io.confluent.ksql.planner.plan.KsqlBareOutputNode;
 import io.confluent.ksql.planner.plan.KsqlStructuredDataOutputNode;
 import io.confluent.ksql.planner.plan.OutputNode;
 import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.planner.plan.ProjectNode;
+import io.confluent.ksql.planner.plan.StructuredDataSourceNode;
 import io.confluent.ksql.query.QueryId;
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.services.ServiceContext;
 import io.confluent.ksql.structured.QueuedSchemaKStream;
+import io.confluent.ksql.structured.QueuedSchemaKStream.OverflowPolicy;
+import io.confluent.ksql.structured.QueuedSchemaKStream.QueuePopulator;
 import io.confluent.ksql.structured.SchemaKStream;
 import io.confluent.ksql.structured.SchemaKTable;
 import io.confluent.ksql.util.KsqlConfig;
@@ -50,6 +59,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.function.Consumer;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.producer.ProducerConfig;
@@ -59,6 +69,8 @@ import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.kstream.ForeachAction;
+import org.apache.kafka.streams.kstream.ValueMapper;
 
 public class PhysicalPlanBuilder {
 
@@ -71,6 +83,7 @@ public class PhysicalPlanBuilder {
   private final MutableMetaStore metaStore;
   private final QueryIdGenerator queryIdGenerator;
   private final KafkaStreamsBuilder kafkaStreamsBuilder;
+  private final SharedSourceScans sharedSourceScans;
   private final Consumer<QueryMetadata> queryCloseCallback;
 
   public PhysicalPlanBuilder(
@@ -83,6 +96,7 @@ public class PhysicalPlanBuilder {
       final MutableMetaStore metaStore,
       final QueryIdGenerator queryIdGenerator,
       final KafkaStreamsBuilder kafkaStreamsBuilder,
+      final SharedSourceScans sharedSourceScans,
       final Consumer<QueryMetadata> queryCloseCallback
   ) {
     this.builder = Objects.requireNonNull(builder, "builder");
@@ -97,6 +111,7 @@ public class PhysicalPlanBuilder {
     this.metaStore = Objects.requireNonNull(metaStore, "metaStore");
     this.queryIdGenerator = Objects.requireNonNull(queryIdGenerator, "queryIdGenerator");
     this.kafkaStreamsBuilder = Objects.requireNonNull(kafkaStreamsBuilder, "kafkaStreamsBuilder");
+    this.sharedSourceScans = Objects.requireNonNull(sharedSourceScans, "sharedSourceScans");
     this.queryCloseCallback = Objects.requireNonNull(queryCloseCallback, "queryCloseCallback");
   }
 
@@ -189,6 +204,23 @@ public class PhysicalPlanBuilder {
         queryId
     ));
 
+    final Optional<StructuredDataSourceNode> sharedScanSource = getSharedScanSource(bareOutputNode);
+    if (sharedScanSource.isPresent()) {
+      final Optional<QueryMetadata> query = buildSharedScanQuery(
+          schemaKStream,
+          bareOutputNode,
+          sharedScanSource.get(),
+          serviceId,
+          transientQueryPrefix,
+          queryId,
+          applicationId,
+          statement
+      );
+      if (query.isPresent()) {
+        return query.get();
+      }
+    }
+
     final Map<String, Object> streamsProperties = buildStreamsProperties(
         applicationId,
         ksqlConfig,
@@ -215,6 +247,137 @@ public class PhysicalPlanBuilder {
     );
   }
 
+  /**
+   * A transient query can share the scan of its source with other transient queries if all it
+   * does is filter and project a stream, and it reads from the latest offsets with no
+   * overridden properties, so that the scan would be the same as the one it'd run itself.
+   */
+  private Optional<StructuredDataSourceNode> getSharedScanSource(
+      final KsqlBareOutputNode bareOutputNode
+  ) {
+    if (!ksqlConfig.getBoolean(KsqlConfig.KSQL_TRANSIENT_SHARED_SCAN_ENABLED_CONFIG)
+        || !overriddenProperties.isEmpty()
+        || !KsqlConstants.defaultAutoOffsetRestConfig.equals(
+            ksqlConfig.getKsqlStreamConfigProps().get(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG))
+        || !(bareOutputNode.getSource() instanceof ProjectNode)) {
+      return Optional.empty();
+    }
+
+    PlanNode source = bareOutputNode.getSource().getSources().get(0);
+    if (source instanceof FilterNode) {
+      source = source.getSources().get(0);
+    }
+
+    if (!(source instanceof StructuredDataSourceNode)
+        || source.getNodeOutputType() != DataSource.DataSourceType.KSTREAM) {
+      return Optional.empty();
+    }
+    return Optional.of((StructuredDataSourceNode) source);
+  }
+
+  private Optional<QueryMetadata> buildSharedScanQuery(
+      final QueuedSchemaKStream<?> schemaKStream,
+      final KsqlBareOutputNode bareOutputNode,
+      final StructuredDataSourceNode sourceNode,
+      final String serviceId,
+      final String transientQueryPrefix,
+      final QueryId queryId,
+      final String applicationId,
+      final String statement
+  ) {
+    final QueryId scanQueryId = new QueryId(
+        "SHARED_SCAN_" + sourceNode.getStructuredDataSource().getName());
+    final String scanApplicationId = addTimeSuffix(getQueryApplicationId(
+        serviceId,
+        transientQueryPrefix,
+        scanQueryId
+    ));
+    final Map<String, Object> streamsProperties = buildStreamsProperties(
+        scanApplicationId,
+        ksqlConfig,
+        scanQueryId,
+        processingLogContext
+    );
+
+    final Optional<SharedScan> scan = sharedSourceScans.acquire(
+        sourceNode.getStructuredDataSource(),
+        fanOut -> buildSharedScanStreams(sourceNode, scanQueryId, streamsProperties, fanOut)
+    );
+    if (!scan.isPresent()) {
+      return Optional.empty();
+    }
+
+    // The query's own topology is only built for its execution plan. Its rows are mapped
+    // and queued by the scan instead:
+    final ValueMapper<GenericRow, GenericRow> mapper =
+        ((ProjectNode) bareOutputNode.getSource()).buildSelectValueMapper(
+            getSourceStream(schemaKStream),
+            processingLogContext,
+            queryId
+        );
+    final QueuePopulator<Object> queuePopulator =
+        new QueuePopulator<>(
+            schemaKStream.getQueue(),
+            bareOutputNode.getCallback(),
+            OverflowPolicy.from(ksqlConfig));
+
+    return Optional.of(new SharedScanQueryMetadata(
+        statement,
+        scan.get(),
+        (key, row) -> queuePopulator.apply(key, mapper.apply(row)),
+        bareOutputNode,
+        schemaKStream.getExecutionPlan(""),
+        schemaKStream.getQueue(),
+        applicationId,
+        builder.build(),
+        streamsProperties,
+        overriddenProperties,
+        queryCloseCallback
+    ));
+  }
+
+  private KafkaStreams buildSharedScanStreams(
+      final StructuredDataSourceNode sourceNode,
+      final QueryId scanQueryId,
+      final Map<String, Object> streamsProperties,
+      final ForeachAction<Object, GenericRow> fanOut
+  ) {
+    // Each query may need different columns, so the scan deserializes them all:
+    final StructuredDataSourceNode allColumns = new StructuredDataSourceNode(
+        sourceNode.getId(),
+        sourceNode.getStructuredDataSource(),
+        sourceNode.getSchema()
+    );
+
+    final StreamsBuilder scanBuilder = new StreamsBuilder();
+    final SchemaKStream<?> scanStream = allColumns.buildStream(
+        scanBuilder,
+        ksqlConfig,
+        serviceContext,
+        processingLogContext,
+        functionRegistry,
+        scanQueryId
+    );
+    scanStream.getKstream().foreach(fanOut);
+
+    return kafkaStreamsBuilder.buildKafkaStreams(scanBuilder, streamsProperties);
+  }
+
+  private static SchemaKTable<?> getAggregateStage(final SchemaKStream<?> schemaKStream) {
+    SchemaKStream<?> stream = schemaKStream;
+    while (stream.getType() != SchemaKStream.Type.AGGREGATE) {
+      stream = stream.getSourceSchemaKStreams().get(0);
+    }
+    return (SchemaKTable<?>) stream;
+  }
+
+  private static SchemaKStream<?> getSourceStream(final SchemaKStream<?> schemaKStream) {
+    SchemaKStream<?> stream = schemaKStream;
+    while (stream.getType() != SchemaKStream.Type.SOURCE) {
+      stream = stream.getSourceSchemaKStreams().get(0);
+    }
+    return stream;
+  }
 
   private QueryMetadata buildPlanForStructuredOutputNode(
       final String sqlExpression, final SchemaKStream<?> schemaKStream,
@@ -275,6 +438,16 @@ public class PhysicalPlanBuilder {
 
     final Topology topology = builder.build();
 
+    final Optional<Materialization> materialization =
+        outputNode.getSource() instanceof AggregateNode
+            ? ((AggregateNode) outputNode.getSource()).buildMaterialization(
+                getAggregateStage(schemaKStream),
+                streams,
+                ksqlConfig,
+                processingLogContext,
+                queryId)
+            : Optional.empty();
+
     return new PersistentQueryMetadata(
         statement,
         streams,
@@ -286,6 +459,7 @@ public class PhysicalPlanBuilder {
                                                 : DataSource.DataSourceType.KSTREAM,
         applicationId,
         sinkDataSource.getKsqlTopic(),
+        materialization,
         topology,
         streamsProperties,
         overriddenProperties,
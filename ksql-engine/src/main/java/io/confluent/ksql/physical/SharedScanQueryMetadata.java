@@ -0,0 +1,101 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.physical;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.physical.SharedSourceScans.SharedScan;
+import io.confluent.ksql.planner.plan.OutputNode;
+import io.confluent.ksql.serde.DataSource;
+import io.confluent.ksql.util.QueryMetadata;
+import io.confluent.ksql.util.QueuedQueryMetadata;
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.Topology;
+import org.apache.kafka.streams.kstream.ForeachAction;
+
+/**
+ * A transient query fed by a scan of its source that is shared with other transient queries.
+ *
+ * <p>Starting and closing the query subscribes it to, and unsubscribes it from, the shared
+ * scan, rather than starting and closing the scan's streams app.
+ */
+final class SharedScanQueryMetadata extends QueuedQueryMetadata {
+
+  private final SharedScan scan;
+  private final ForeachAction<Object, GenericRow> subscriber;
+  private volatile UncaughtExceptionHandler handler = (thread, e) -> { };
+  private volatile boolean closed = false;
+
+  // CHECKSTYLE_RULES.OFF: ParameterNumberCheck
+  SharedScanQueryMetadata(
+      final String statementString,
+      final SharedScan scan,
+      final ForeachAction<Object, GenericRow> subscriber,
+      final OutputNode outputNode,
+      final String executionPlan,
+      final BlockingQueue<KeyValue<String, GenericRow>> rowQueue,
+      final String queryApplicationId,
+      final Topology topology,
+      final Map<String, Object> streamsProperties,
+      final Map<String, Object> overriddenProperties,
+      final Consumer<QueryMetadata> closeCallback) {
+    // CHECKSTYLE_RULES.ON: ParameterNumberCheck
+    super(
+        statementString,
+        scan.getStreams(),
+        outputNode,
+        executionPlan,
+        rowQueue,
+        DataSource.DataSourceType.KSTREAM,
+        queryApplicationId,
+        topology,
+        streamsProperties,
+        overriddenProperties,
+        closeCallback);
+    this.scan = Objects.requireNonNull(scan, "scan");
+    this.subscriber = Objects.requireNonNull(subscriber, "subscriber");
+  }
+
+  @Override
+  public void setUncaughtExceptionHandler(final UncaughtExceptionHandler handler) {
+    this.handler = Objects.requireNonNull(handler, "handler");
+  }
+
+  @Override
+  public String getState() {
+    return closed ? KafkaStreams.State.NOT_RUNNING.toString() : super.getState();
+  }
+
+  @Override
+  protected void startStreams() {
+    scan.subscribe(subscriber, (thread, e) -> handler.uncaughtException(thread, e));
+  }
+
+  @Override
+  protected void closeStreams() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    scan.unsubscribe(subscriber);
+    scan.release();
+  }
+}
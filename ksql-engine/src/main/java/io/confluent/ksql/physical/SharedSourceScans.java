@@ -0,0 +1,176 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.physical;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import java.lang.Thread.UncaughtExceptionHandler;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.kstream.ForeachAction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The scans of sources that are shared by the transient queries reading them.
+ *
+ * <p>Each scan is a single Kafka Streams app that consumes and deserializes its source once and
+ * fans each row out to the queries subscribed to it. A scan is built by the first query to
+ * acquire it, started by the first to subscribe, and closed once every query that acquired it
+ * has released it.
+ */
+public final class SharedSourceScans {
+
+  private static final Logger LOG = LoggerFactory.getLogger(SharedSourceScans.class);
+
+  private final Map<String, SharedScan> scans = new HashMap<>();
+
+  /**
+   * Acquire the scan of {@code dataSource}, building it if there is none.
+   *
+   * <p>Each scan acquired must be released once the query using it is closed.
+   *
+   * @param dataSource the source to scan.
+   * @param streamsFactory builds the streams app of a new scan from the action to apply to
+   *                       each of its rows.
+   * @return the scan, or empty if the source has been redefined since its scan was built.
+   */
+  synchronized Optional<SharedScan> acquire(
+      final StructuredDataSource dataSource,
+      final Function<ForeachAction<Object, GenericRow>, KafkaStreams> streamsFactory
+  ) {
+    SharedScan scan = scans.get(dataSource.getName());
+    if (scan == null) {
+      scan = new SharedScan(dataSource, streamsFactory);
+      scans.put(dataSource.getName(), scan);
+    } else if (!scan.isScanOf(dataSource)) {
+      return Optional.empty();
+    }
+
+    scan.references++;
+    return Optional.of(scan);
+  }
+
+  synchronized int size() {
+    return scans.size();
+  }
+
+  final class SharedScan {
+
+    private final StructuredDataSource dataSource;
+    private final KafkaStreams streams;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+    private int references;
+    private boolean started;
+
+    private SharedScan(
+        final StructuredDataSource dataSource,
+        final Function<ForeachAction<Object, GenericRow>, KafkaStreams> streamsFactory
+    ) {
+      this.dataSource = Objects.requireNonNull(dataSource, "dataSource");
+      this.streams = Objects.requireNonNull(streamsFactory.apply(this::fanOut), "streams");
+      this.streams.setUncaughtExceptionHandler(this::onUncaughtException);
+    }
+
+    KafkaStreams getStreams() {
+      return streams;
+    }
+
+    /**
+     * Start applying {@code action} to each row the scan reads, starting the scan if need be.
+     *
+     * <p>If the action throws, the subscription is removed and the exception passed to
+     * {@code handler}, so that one query failing doesn't fail the others.
+     */
+    void subscribe(
+        final ForeachAction<Object, GenericRow> action,
+        final UncaughtExceptionHandler handler
+    ) {
+      subscriptions.add(new Subscription(action, handler));
+
+      synchronized (SharedSourceScans.this) {
+        if (!started) {
+          started = true;
+          streams.start();
+        }
+      }
+    }
+
+    void unsubscribe(final ForeachAction<Object, GenericRow> action) {
+      subscriptions.removeIf(subscription -> subscription.action == action);
+    }
+
+    /**
+     * Release the scan, closing it if it's no longer acquired by any query.
+     */
+    void release() {
+      synchronized (SharedSourceScans.this) {
+        if (--references > 0) {
+          return;
+        }
+        scans.remove(dataSource.getName(), this);
+      }
+
+      // Closing waits for the stream threads, so is done outside the lock:
+      streams.close();
+      streams.cleanUp();
+    }
+
+    private boolean isScanOf(final StructuredDataSource other) {
+      return Objects.equals(dataSource.getSqlExpression(), other.getSqlExpression())
+          && Objects.equals(dataSource.getSchema(), other.getSchema())
+          && Objects.equals(dataSource.getKafkaTopicName(), other.getKafkaTopicName());
+    }
+
+    private void fanOut(final Object key, final GenericRow row) {
+      for (final Subscription subscription : subscriptions) {
+        try {
+          subscription.action.apply(key, row);
+        } catch (final RuntimeException e) {
+          LOG.error("Subscriber to shared scan of {} failed", dataSource.getName(), e);
+          subscriptions.remove(subscription);
+          subscription.handler.uncaughtException(Thread.currentThread(), e);
+        }
+      }
+    }
+
+    private void onUncaughtException(final Thread thread, final Throwable e) {
+      for (final Subscription subscription : subscriptions) {
+        subscription.handler.uncaughtException(thread, e);
+      }
+    }
+  }
+
+  private static final class Subscription {
+
+    private final ForeachAction<Object, GenericRow> action;
+    private final UncaughtExceptionHandler handler;
+
+    private Subscription(
+        final ForeachAction<Object, GenericRow> action,
+        final UncaughtExceptionHandler handler
+    ) {
+      this.action = Objects.requireNonNull(action, "action");
+      this.handler = Objects.requireNonNull(handler, "handler");
+    }
+  }
+}
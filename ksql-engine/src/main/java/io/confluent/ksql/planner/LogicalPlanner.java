@@ -23,7 +23,10 @@ import io.confluent.ksql.metastore.KsqlStdOut;
 import io.confluent.ksql.metastore.KsqlStream;
 import io.confluent.ksql.metastore.KsqlTable;
 import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.DefaultTraversalVisitor;
+import io.confluent.ksql.parser.tree.DereferenceExpression;
 import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.QualifiedNameReference;
 import io.confluent.ksql.planner.plan.AggregateNode;
 import io.confluent.ksql.planner.plan.FilterNode;
 import io.confluent.ksql.planner.plan.KsqlBareOutputNode;
@@ -39,7 +42,10 @@ import io.confluent.ksql.util.Pair;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.timestamp.TimestampExtractionPolicy;
 import io.confluent.ksql.util.timestamp.TimestampExtractionPolicyFactory;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 
@@ -197,9 +203,57 @@ public class LogicalPlanner {
     );
 
     if (dataSource.left instanceof KsqlStream || dataSource.left instanceof KsqlTable) {
-      return new StructuredDataSourceNode(new PlanNodeId("KsqlTopic"), dataSource.left, fromSchema);
+      return new StructuredDataSourceNode(
+          new PlanNodeId("KsqlTopic"),
+          dataSource.left,
+          fromSchema,
+          Optional.of(getReferencedColumns()));
     }
     throw new RuntimeException("Data source is not supported yet.");
   }
 
+  /**
+   * Get the names of all the columns the query references, so the source need only deserialize
+   * those. Names are collected regardless of any qualifying alias, which is safe as the query
+   * has a single source.
+   */
+  private Set<String> getReferencedColumns() {
+    final ColumnReferenceCollector collector = new ColumnReferenceCollector();
+    analysis.getSelectExpressions().forEach(collector::collect);
+    analysis.getGroupByExpressions().forEach(collector::collect);
+    aggregateAnalysis.getRequiredColumns().forEach(collector::collect);
+    collector.collect(analysis.getWhereExpression());
+    collector.collect(analysis.getHavingExpression());
+    return collector.columns;
+  }
+
+  private static final class ColumnReferenceCollector
+      extends DefaultTraversalVisitor<Object, Object> {
+
+    private final Set<String> columns = new HashSet<>();
+
+    private void collect(final Expression expression) {
+      if (expression != null) {
+        process(expression, null);
+      }
+    }
+
+    @Override
+    protected Object visitDereferenceExpression(
+        final DereferenceExpression node,
+        final Object context
+    ) {
+      columns.add(node.getFieldName());
+      return super.visitDereferenceExpression(node, context);
+    }
+
+    @Override
+    protected Object visitQualifiedNameReference(
+        final QualifiedNameReference node,
+        final Object context
+    ) {
+      columns.add(node.getName().getSuffix());
+      return null;
+    }
+  }
 }
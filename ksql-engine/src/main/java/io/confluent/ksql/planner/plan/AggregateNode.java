@@ -23,7 +23,9 @@ import io.confluent.ksql.function.AggregateFunctionArguments;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.function.KsqlAggregateFunction;
 import io.confluent.ksql.function.udaf.KudafInitializer;
+import io.confluent.ksql.function.udaf.window.WindowSelectMapper;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
+import io.confluent.ksql.materialization.Materialization;
 import io.confluent.ksql.parser.tree.DereferenceExpression;
 import io.confluent.ksql.parser.tree.Expression;
 import io.confluent.ksql.parser.tree.ExpressionRewriter;
@@ -32,12 +34,14 @@ import io.confluent.ksql.parser.tree.FunctionCall;
 import io.confluent.ksql.parser.tree.Literal;
 import io.confluent.ksql.parser.tree.QualifiedName;
 import io.confluent.ksql.parser.tree.QualifiedNameReference;
+import io.confluent.ksql.parser.tree.SessionWindowExpression;
 import io.confluent.ksql.parser.tree.WindowExpression;
 import io.confluent.ksql.query.QueryId;
 import io.confluent.ksql.serde.DataSource.DataSourceType;
 import io.confluent.ksql.serde.KsqlTopicSerDe;
 import io.confluent.ksql.services.KafkaTopicClient;
 import io.confluent.ksql.services.ServiceContext;
+import io.confluent.ksql.streams.StreamsUtil;
 import io.confluent.ksql.structured.QueryContext;
 import io.confluent.ksql.structured.SchemaKGroupedStream;
 import io.confluent.ksql.structured.SchemaKStream;
@@ -57,12 +61,14 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 
 
@@ -292,6 +298,61 @@ public class AggregateNode extends PlanNode {
         processingLogContext);
   }
 
+  /**
+   * Describe how to read the rows of this aggregation's table from its state store.
+   *
+   * @param aggregateStage the stream of the aggregation's results, as built by
+   *                       {@link #buildStream}, before any HAVING clause or final projection.
+   * @param streams the streams app of the query.
+   * @return the materialization, or empty if the store isn't named, so can't be queried.
+   */
+  public Optional<Materialization> buildMaterialization(
+      final SchemaKTable<?> aggregateStage,
+      final KafkaStreams streams,
+      final KsqlConfig ksqlConfig,
+      final ProcessingLogContext processingLogContext,
+      final QueryId queryId
+  ) {
+    if (!StreamsUtil.useProvidedName(ksqlConfig)) {
+      return Optional.empty();
+    }
+
+    final QueryContext.Stacker contextStacker = buildNodeContext(queryId);
+    final InternalSchema internalSchema = new InternalSchema(getRequiredColumns(),
+        getAggregateFunctionArguments());
+
+    final Materialization.StoreType storeType;
+    if (getWindowExpression() == null) {
+      storeType = Materialization.StoreType.KEY_VALUE;
+    } else if (getWindowExpression().getKsqlWindowExpression()
+        instanceof SessionWindowExpression) {
+      storeType = Materialization.StoreType.SESSION;
+    } else {
+      storeType = Materialization.StoreType.WINDOW;
+    }
+
+    // Aggregate function results follow the required columns in the aggregate's schema:
+    final Map<Integer, String> functionNamesByIndex = new HashMap<>();
+    for (int i = 0; i < getFunctionCalls().size(); i++) {
+      functionNamesByIndex.put(
+          getRequiredColumns().size() + i,
+          getFunctionCalls().get(i).getName().toString());
+    }
+
+    return Optional.of(new Materialization(
+        streams,
+        StreamsUtil.buildOpName(contextStacker.push(AGGREGATION_OP_NAME).getQueryContext()),
+        storeType,
+        WindowSelectMapper.forFunctionNames(functionNamesByIndex),
+        aggregateStage.buildSelectValueMapper(
+            Optional.ofNullable(havingExpressions).map(internalSchema::resolveToInternal),
+            contextStacker.push(FILTER_OP_NAME),
+            internalSchema.updateFinalSelectExpressions(getFinalSelectExpressions()),
+            contextStacker.push(PROJECT_OP_NAME),
+            processingLogContext)
+    ));
+  }
+
   protected int getPartitions(final KafkaTopicClient kafkaTopicClient) {
     return source.getPartitions(kafkaTopicClient);
   }
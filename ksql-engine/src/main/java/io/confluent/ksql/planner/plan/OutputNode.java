@@ -107,6 +107,13 @@ public abstract class OutputNode
     callback.setLimitHandler(limitHandler);
   }
 
+  /**
+   * @param queuedHandler called, on the thread queuing it, each time a row has been queued.
+   */
+  public void setQueuedHandler(final Runnable queuedHandler) {
+    callback.setQueuedHandler(queuedHandler);
+  }
+
   @JsonProperty
   public PlanNode getSource() {
     return source;
@@ -129,6 +136,8 @@ public abstract class OutputNode
   private interface InternalCallback extends Callback {
 
     void setLimitHandler(LimitHandler limitHandler);
+
+    void setQueuedHandler(Runnable queuedHandler);
   }
 
   private static final class LimitCallback implements InternalCallback {
@@ -137,6 +146,8 @@ public abstract class OutputNode
     private final AtomicInteger queued;
     private volatile LimitHandler limitHandler = () -> {
     };
+    private volatile Runnable queuedHandler = () -> {
+    };
 
     private LimitCallback(final int limit) {
       if (limit <= 0) {
@@ -151,6 +162,11 @@ public abstract class OutputNode
       this.limitHandler = Objects.requireNonNull(limitHandler, "limitHandler");
     }
 
+    @Override
+    public void setQueuedHandler(final Runnable queuedHandler) {
+      this.queuedHandler = Objects.requireNonNull(queuedHandler, "queuedHandler");
+    }
+
     @Override
     public boolean shouldQueue() {
       return remaining.decrementAndGet() >= 0;
@@ -158,6 +174,7 @@ public abstract class OutputNode
 
     @Override
     public void onQueued() {
+      queuedHandler.run();
       if (queued.decrementAndGet() == 0) {
         limitHandler.limitReached();
       }
@@ -168,10 +185,18 @@ public abstract class OutputNode
 
   private static class NoCallback implements InternalCallback {
 
+    private volatile Runnable queuedHandler = () -> {
+    };
+
     @Override
     public void setLimitHandler(final LimitHandler limitHandler) {
     }
 
+    @Override
+    public void setQueuedHandler(final Runnable queuedHandler) {
+      this.queuedHandler = Objects.requireNonNull(queuedHandler, "queuedHandler");
+    }
+
     @Override
     public boolean shouldQueue() {
       return true;
@@ -179,6 +204,7 @@ public abstract class OutputNode
 
     @Override
     public void onQueued() {
+      queuedHandler.run();
     }
   }
 }
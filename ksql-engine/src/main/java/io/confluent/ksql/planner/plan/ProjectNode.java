@@ -18,6 +18,7 @@ package io.confluent.ksql.planner.plan;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.parser.tree.Expression;
@@ -31,10 +32,12 @@ import io.confluent.ksql.util.SelectExpression;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import javax.annotation.concurrent.Immutable;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.streams.StreamsBuilder;
+import org.apache.kafka.streams.kstream.ValueMapper;
 
 @Immutable
 public class ProjectNode
@@ -107,6 +110,24 @@ public class ProjectNode
       final ProcessingLogContext processingLogContext,
       final FunctionRegistry functionRegistry,
       final QueryId queryId) {
+    if (getSource() instanceof FilterNode
+        && ksqlConfig.getBoolean(KsqlConfig.KSQL_CODEGEN_FUSED_PROJECTION_CONFIG)) {
+      final FilterNode filterNode = (FilterNode) getSource();
+      return filterNode.getSource().buildStream(
+          builder,
+          ksqlConfig,
+          serviceContext,
+          processingLogContext,
+          functionRegistry,
+          queryId
+      ).filterAndSelect(
+          filterNode.getPredicate(),
+          filterNode.buildNodeContext(queryId),
+          getProjectSelectExpressions(),
+          buildNodeContext(queryId),
+          processingLogContext);
+    }
+
     return getSource().buildStream(
         builder,
         ksqlConfig,
@@ -119,4 +140,27 @@ public class ProjectNode
         buildNodeContext(queryId),
         processingLogContext);
   }
+
+  /**
+   * Build the mapper this node, and the filter it reads from if any, apply to each row of
+   * {@code sourceStream}, for queries that are fed rows from a scan shared with other queries.
+   *
+   * <p>Rows that fail the filter are mapped to {@code null}.
+   */
+  public ValueMapper<GenericRow, GenericRow> buildSelectValueMapper(
+      final SchemaKStream<?> sourceStream,
+      final ProcessingLogContext processingLogContext,
+      final QueryId queryId) {
+    final Optional<FilterNode> filterNode = getSource() instanceof FilterNode
+        ? Optional.of((FilterNode) getSource())
+        : Optional.empty();
+
+    return sourceStream.buildSelectValueMapper(
+        filterNode.map(FilterNode::getPredicate),
+        filterNode.map(node -> node.buildNodeContext(queryId))
+            .orElseGet(() -> buildNodeContext(queryId)),
+        getProjectSelectExpressions(),
+        buildNodeContext(queryId),
+        processingLogContext);
+  }
 }
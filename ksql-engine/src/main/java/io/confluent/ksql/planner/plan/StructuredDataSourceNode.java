@@ -17,6 +17,7 @@ package io.confluent.ksql.planner.plan;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableSet;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
@@ -39,10 +40,12 @@ import io.confluent.ksql.util.QueryLoggerUtil;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.timestamp.TimestampExtractionPolicy;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
 import javax.annotation.concurrent.Immutable;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
@@ -69,22 +72,22 @@ public class StructuredDataSourceNode
 
   private static final ValueMapperWithKey<String, GenericRow, GenericRow>
       nonWindowedValueMapper = (key, row) -> {
-        if (row != null) {
-          row.getColumns().add(0, key);
+        if (row == null) {
+          return null;
         }
-        return row;
+        return withSystemColumns(key, row);
       };
 
   private static final ValueMapperWithKey<Windowed<String>, GenericRow, GenericRow>
       windowedMapper = (key, row) -> {
-        if (row != null) {
-          final Window window = key.window();
-          final String end = window instanceof SessionWindow ? String.valueOf(window.end()) : "-";
-          final String rowKey = String.format("%s : Window{start=%d end=%s}",
-              key.key(), window.start(), end);
-          row.getColumns().add(0, rowKey);
+        if (row == null) {
+          return null;
         }
-        return row;
+        final Window window = key.window();
+        final String end = window instanceof SessionWindow ? String.valueOf(window.end()) : "-";
+        final String rowKey = String.format("%s : Window{start=%d end=%s}",
+            key.key(), window.start(), end);
+        return withSystemColumns(rowKey, row);
       };
 
   private static final String SOURCE_OP_NAME = "source";
@@ -92,6 +95,7 @@ public class StructuredDataSourceNode
 
   private final StructuredDataSource structuredDataSource;
   private final Schema schema;
+  private final Optional<Set<String>> requiredColumns;
   private final Function<KsqlConfig, MaterializedFactory> materializedFactorySupplier;
 
   // TODO: pass in the "assignments" and the "outputs" separately
@@ -102,7 +106,20 @@ public class StructuredDataSourceNode
       @JsonProperty("structuredDataSource") final StructuredDataSource structuredDataSource,
       @JsonProperty("schema") final Schema schema
   ) {
-    this(id, structuredDataSource, schema, MaterializedFactory::create);
+    this(id, structuredDataSource, schema, Optional.empty());
+  }
+
+  /**
+   * @param requiredColumns the names, without alias, of the columns the query references, or
+   *                        empty if all columns should be deserialized.
+   */
+  public StructuredDataSourceNode(
+      final PlanNodeId id,
+      final StructuredDataSource structuredDataSource,
+      final Schema schema,
+      final Optional<Set<String>> requiredColumns
+  ) {
+    this(id, structuredDataSource, schema, requiredColumns, MaterializedFactory::create);
   }
 
   public StructuredDataSourceNode(
@@ -110,9 +127,20 @@ public class StructuredDataSourceNode
       final StructuredDataSource structuredDataSource,
       final Schema schema,
       final Function<KsqlConfig, MaterializedFactory> materializedFactorySupplier) {
+    this(id, structuredDataSource, schema, Optional.empty(), materializedFactorySupplier);
+  }
+
+  private StructuredDataSourceNode(
+      final PlanNodeId id,
+      final StructuredDataSource structuredDataSource,
+      final Schema schema,
+      final Optional<Set<String>> requiredColumns,
+      final Function<KsqlConfig, MaterializedFactory> materializedFactorySupplier) {
     super(id, structuredDataSource.getDataSourceType());
     this.schema =
         Objects.requireNonNull(schema, "schema");
+    this.requiredColumns =
+        Objects.requireNonNull(requiredColumns, "requiredColumns").map(ImmutableSet::copyOf);
     this.structuredDataSource =
         Objects.requireNonNull(structuredDataSource, "structuredDataSource");
     this.materializedFactorySupplier =
@@ -137,6 +165,10 @@ public class StructuredDataSourceNode
     return structuredDataSource;
   }
 
+  public Optional<Set<String>> getRequiredColumns() {
+    return requiredColumns;
+  }
+
   @Override
   public int getPartitions(final KafkaTopicClient kafkaTopicClient) {
     final String topicName = getStructuredDataSource().getKsqlTopic().getKafkaTopicName();
@@ -173,15 +205,13 @@ public class StructuredDataSourceNode
 
     final KsqlTopicSerDe ksqlTopicSerDe = getStructuredDataSource()
         .getKsqlTopic().getKsqlTopicSerDe();
-    final Serde<GenericRow> genericRowSerde =
-        ksqlTopicSerDe.getGenericRowSerde(
-            SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(getSchema()),
-            ksqlConfig,
-            false,
-            serviceContext.getSchemaRegistryClientFactory(), 
-            QueryLoggerUtil.queryLoggerName(contextStacker.push(SOURCE_OP_NAME).getQueryContext()),
-            processingLogContext
-        );
+    final Serde<GenericRow> genericRowSerde = getSourceSerde(
+        ksqlTopicSerDe,
+        ksqlConfig,
+        serviceContext,
+        processingLogContext,
+        QueryLoggerUtil.queryLoggerName(contextStacker.push(SOURCE_OP_NAME).getQueryContext())
+    );
 
     if (getDataSourceType() == StructuredDataSource.DataSourceType.KTABLE) {
       final KsqlTable table = (KsqlTable) getStructuredDataSource();
@@ -231,6 +261,46 @@ public class StructuredDataSourceNode
     );
   }
 
+  private Serde<GenericRow> getSourceSerde(
+      final KsqlTopicSerDe ksqlTopicSerDe,
+      final KsqlConfig ksqlConfig,
+      final ServiceContext serviceContext,
+      final ProcessingLogContext processingLogContext,
+      final String loggerNamePrefix
+  ) {
+    final Schema sourceSchema = SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(getSchema());
+    if (!requiredColumns.isPresent()) {
+      return ksqlTopicSerDe.getGenericRowSerde(
+          sourceSchema,
+          ksqlConfig,
+          false,
+          serviceContext.getSchemaRegistryClientFactory(),
+          loggerNamePrefix,
+          processingLogContext
+      );
+    }
+
+    // The timestamp and key columns are read from the deserialized row too:
+    final Set<String> columns = new HashSet<>(requiredColumns.get());
+    final String timestampField = getTimestampExtractionPolicy().timestampField();
+    if (timestampField != null) {
+      columns.add(timestampField.substring(timestampField.indexOf('.') + 1));
+    }
+    if (getKeyField() != null) {
+      columns.add(SchemaUtil.getFieldNameWithNoAlias(getKeyField()));
+    }
+
+    return ksqlTopicSerDe.getGenericRowSerde(
+        sourceSchema,
+        ksqlConfig,
+        false,
+        serviceContext.getSchemaRegistryClientFactory(),
+        loggerNamePrefix,
+        processingLogContext,
+        columns
+    );
+  }
+
   private static Topology.AutoOffsetReset getAutoOffsetReset(final Map<String, Object> props) {
     if (props.containsKey(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG)) {
       final String offestReset = props.get(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG).toString();
@@ -392,6 +462,21 @@ public class StructuredDataSourceNode
             materialized);
   }
 
+  /**
+   * Copy the deserialized columns into a row with the ROWTIME and ROWKEY slots reserved up front,
+   * sized exactly, so neither system column has to be inserted by shifting the whole row.
+   *
+   * <p>ROWTIME is left null here and populated by {@link AddTimestampColumn}.
+   */
+  private static GenericRow withSystemColumns(final Object rowKey, final GenericRow row) {
+    final List<Object> source = row.getColumns();
+    final List<Object> columns = new ArrayList<>(source.size() + 2);
+    columns.add(null);
+    columns.add(rowKey);
+    columns.addAll(source);
+    return new GenericRow(columns);
+  }
+
   public StructuredDataSource.DataSourceType getDataSourceType() {
     return structuredDataSource.getDataSourceType();
   }
@@ -15,7 +15,7 @@
 
 package io.confluent.ksql.security;
 
-import io.confluent.ksql.function.udf.PluggableUdf;
+import io.confluent.ksql.function.UdfInvoker;
 import java.security.AllPermission;
 import java.security.CodeSource;
 import java.security.Permission;
@@ -23,17 +23,20 @@ import java.security.PermissionCollection;
 import java.security.Permissions;
 import java.security.Policy;
 import java.security.ProtectionDomain;
-import java.util.Stack;
 
 /**
  * A simple security manager extension to block UDFs from calling
- * System.exit or executing processes
+ * System.exit or executing processes.
+ *
+ * <p>Whether a thread is executing a UDF is tracked with a per-thread depth, which is only
+ * changed by {@link #evaluateUdf}, around the call to the UDF. As nothing else can change it,
+ * there is no need to lock or to validate the caller by walking the stack.
  */
 public final class ExtensionSecurityManager extends SecurityManager {
 
   public static final ExtensionSecurityManager INSTANCE
       = new ExtensionSecurityManager();
-  private static final ThreadLocal<Stack<Boolean>> UDF_IS_EXECUTING = new ThreadLocal<>();
+  private static final ThreadLocal<UdfDepth> UDF_DEPTH = ThreadLocal.withInitial(UdfDepth::new);
 
   // so only can be accessed via the INSTANCE
   private ExtensionSecurityManager() {
@@ -59,21 +62,25 @@ public final class ExtensionSecurityManager extends SecurityManager {
     });
   }
 
-  public synchronized void pushInUdf() {
-    if (validateCaller()) {
-      if (UDF_IS_EXECUTING.get() == null) {
-        UDF_IS_EXECUTING.set(new Stack<>());
-      }
-      UDF_IS_EXECUTING.get().push(true);
-    }
-  }
-
-  public void popOutUdf() {
-    if (validateCaller()) {
-      final Stack<Boolean> stack = UDF_IS_EXECUTING.get();
-      if (stack != null && !stack.isEmpty()) {
-        stack.pop();
-      }
+  /**
+   * Evaluate a UDF, blocking it from calling System.exit or executing processes.
+   *
+   * @param udf the invoker of the UDF.
+   * @param udfInstance the UDF instance to invoke.
+   * @param args the arguments to the UDF.
+   * @return the result of the UDF.
+   */
+  public Object evaluateUdf(
+      final UdfInvoker udf,
+      final Object udfInstance,
+      final Object... args
+  ) {
+    final UdfDepth depth = UDF_DEPTH.get();
+    depth.value++;
+    try {
+      return udf.eval(udfInstance, args);
+    } finally {
+      depth.value--;
     }
   }
 
@@ -94,17 +101,11 @@ public final class ExtensionSecurityManager extends SecurityManager {
   }
 
 
-  private boolean inUdfExecution() {
-    final Stack<Boolean> executing = UDF_IS_EXECUTING.get();
-    return executing != null && !executing.isEmpty();
+  private static boolean inUdfExecution() {
+    return UDF_DEPTH.get().value > 0;
   }
 
-  /**
-   * Check if the caller is a PluggableUdf. It will be the third
-   * item in the class array.
-   * @return true if caller is allowed
-   */
-  private boolean validateCaller() {
-    return getClassContext()[2].equals(PluggableUdf.class);
+  private static final class UdfDepth {
+    private int value;
   }
 }
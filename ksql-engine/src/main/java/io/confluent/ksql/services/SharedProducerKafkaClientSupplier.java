@@ -0,0 +1,108 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.services;
+
+import static io.confluent.ksql.util.LimitedProxyBuilder.anyParams;
+
+import io.confluent.ksql.util.LimitedProxyBuilder;
+import java.io.Closeable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.streams.KafkaClientSupplier;
+
+/**
+ * A kafka client supplier that hands out the same producer to every stream thread, of every
+ * query, that asks for a producer with the same config.
+ *
+ * <p>Without this each stream thread of each query has its own producer, each with its own
+ * network thread, buffer memory and broker connections.
+ *
+ * <p>The {@code client.id} is ignored when matching configs, as Kafka Streams sets it per thread.
+ * Transactional producers, i.e. those used for exactly-once processing, are never shared.
+ *
+ * <p>Closing a shared producer is a no-op: the producers are closed when the supplier is closed.
+ */
+public final class SharedProducerKafkaClientSupplier implements KafkaClientSupplier, Closeable {
+
+  private final KafkaClientSupplier delegate;
+  private final Map<Map<String, Object>, Producer<byte[], byte[]>> producers = new HashMap<>();
+  private final Map<Map<String, Object>, Producer<byte[], byte[]>> sharedProducers =
+      new HashMap<>();
+
+  public SharedProducerKafkaClientSupplier(final KafkaClientSupplier delegate) {
+    this.delegate = Objects.requireNonNull(delegate, "delegate");
+  }
+
+  @Override
+  public AdminClient getAdminClient(final Map<String, Object> config) {
+    return delegate.getAdminClient(config);
+  }
+
+  @Override
+  public synchronized Producer<byte[], byte[]> getProducer(final Map<String, Object> config) {
+    if (config.get(ProducerConfig.TRANSACTIONAL_ID_CONFIG) != null) {
+      return delegate.getProducer(config);
+    }
+
+    final Map<String, Object> key = new HashMap<>(config);
+    key.remove(ProducerConfig.CLIENT_ID_CONFIG);
+
+    return sharedProducers.computeIfAbsent(key, k -> {
+      final Producer<byte[], byte[]> producer = delegate.getProducer(config);
+      producers.put(k, producer);
+      return createSharedProxy(producer);
+    });
+  }
+
+  @Override
+  public Consumer<byte[], byte[]> getConsumer(final Map<String, Object> config) {
+    return delegate.getConsumer(config);
+  }
+
+  @Override
+  public Consumer<byte[], byte[]> getRestoreConsumer(final Map<String, Object> config) {
+    return delegate.getRestoreConsumer(config);
+  }
+
+  @Override
+  public Consumer<byte[], byte[]> getGlobalConsumer(final Map<String, Object> config) {
+    return delegate.getGlobalConsumer(config);
+  }
+
+  @Override
+  public synchronized void close() {
+    producers.values().forEach(Producer::close);
+    producers.clear();
+    sharedProducers.clear();
+  }
+
+  private static Producer<byte[], byte[]> createSharedProxy(
+      final Producer<byte[], byte[]> producer
+  ) {
+    return LimitedProxyBuilder.forClass(Producer.class)
+        .forward("send", anyParams(), producer)
+        .forward("flush", anyParams(), producer)
+        .forward("partitionsFor", anyParams(), producer)
+        .forward("metrics", anyParams(), producer)
+        .swallow("close", anyParams())
+        .build();
+  }
+}
@@ -23,7 +23,7 @@ public final class StreamsUtil {
   private StreamsUtil() {
   }
 
-  static boolean useProvidedName(final KsqlConfig ksqlConfig) {
+  public static boolean useProvidedName(final KsqlConfig ksqlConfig) {
     return Objects.equals(
         ksqlConfig.getString(KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS),
         KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS_ON
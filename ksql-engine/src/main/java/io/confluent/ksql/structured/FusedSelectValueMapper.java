@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.structured;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.codegen.CompiledProjection;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
+import io.confluent.ksql.util.EngineProcessingLogMessageFactory;
+import io.confluent.ksql.util.GenericRowValueTypeEnforcer;
+import io.confluent.ksql.util.ProjectionMetadata;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.kstream.ValueMapper;
+
+/**
+ * Select mapper backed by a single {@link CompiledProjection}.
+ *
+ * <p>If the projection includes a filter, rows that do not pass it are mapped to {@code null}.
+ */
+class FusedSelectValueMapper
+    implements ValueMapper<GenericRow, GenericRow>, CompiledProjection.Context {
+
+  private final Schema schema;
+  private final List<String> selectFieldNames;
+  private final ProjectionMetadata projection;
+  private final Kudf[] udfs;
+  private final GenericRowValueTypeEnforcer typeEnforcer;
+  private final ProcessingLogger processingLogger;
+  private final ProcessingLogger filterProcessingLogger;
+
+  FusedSelectValueMapper(
+      final Schema schema,
+      final List<String> selectFieldNames,
+      final ProjectionMetadata projection,
+      final ProcessingLogger processingLogger,
+      final ProcessingLogger filterProcessingLogger
+  ) {
+    this.schema = Objects.requireNonNull(schema);
+    this.selectFieldNames = Objects.requireNonNull(selectFieldNames);
+    this.projection = Objects.requireNonNull(projection);
+    this.udfs = projection.getUdfs().toArray(new Kudf[0]);
+    this.typeEnforcer = new GenericRowValueTypeEnforcer(schema);
+    this.processingLogger = Objects.requireNonNull(processingLogger);
+    this.filterProcessingLogger = Objects.requireNonNull(filterProcessingLogger);
+
+    if (selectFieldNames.size() != projection.getExpressions().size()) {
+      throw new IllegalArgumentException("must have field names for all expressions");
+    }
+  }
+
+  @Override
+  public GenericRow apply(final GenericRow row) {
+    if (row == null) {
+      return null;
+    }
+
+    final List<Object> newColumns = new ArrayList<>(selectFieldNames.size());
+    if (!projection.getProjection().project(row, this, newColumns)) {
+      return null;
+    }
+    return new GenericRow(newColumns);
+  }
+
+  @Override
+  public Object column(final GenericRow row, final int index) {
+    return typeEnforcer.enforceFieldType(index, row.getColumns().get(index));
+  }
+
+  @Override
+  public Kudf udf(final int index) {
+    return udfs[index];
+  }
+
+  @Override
+  public void onColumnReadError(final int columnIndex, final Exception e, final GenericRow row) {
+    logError(
+        processingLogger,
+        String.format(
+            "Error reading column %s with index %d: %s",
+            schema.fields().get(columnIndex).name(),
+            columnIndex,
+            e.getMessage()),
+        row);
+  }
+
+  @Override
+  public void onExpressionError(final int outputIndex, final Exception e, final GenericRow row) {
+    logError(
+        processingLogger,
+        String.format(
+            "Error computing expression %s for column %s with index %d: %s",
+            projection.getExpressions().get(outputIndex),
+            selectFieldNames.get(outputIndex),
+            outputIndex,
+            e.getMessage()),
+        row);
+  }
+
+  @Override
+  public void onFilterError(final Exception e, final GenericRow row) {
+    logError(
+        filterProcessingLogger,
+        String.format(
+            "Error evaluating predicate %s: %s",
+            projection.getFilterExpression().map(Object::toString).orElse(""),
+            e.getMessage()),
+        row);
+  }
+
+  private static void logError(
+      final ProcessingLogger logger,
+      final String errorMsg,
+      final GenericRow row
+  ) {
+    logger.error(
+        EngineProcessingLogMessageFactory.recordProcessingError(errorMsg, row));
+  }
+}
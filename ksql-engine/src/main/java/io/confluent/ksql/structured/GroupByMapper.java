@@ -22,7 +22,6 @@ import io.confluent.ksql.util.ExpressionMetadata;
 import java.util.List;
 import java.util.Objects;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import org.apache.kafka.streams.kstream.KeyValueMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -44,9 +43,19 @@ class GroupByMapper<K> implements KeyValueMapper<K, GenericRow, String> {
 
   @Override
   public String apply(final K key, final GenericRow row) {
-    return IntStream.range(0, expressions.size())
-        .mapToObj(idx -> processColumn(idx, expressions.get(idx), row))
-        .collect(Collectors.joining(GROUP_BY_COLUMN_SEPARATOR));
+    if (expressions.size() == 1) {
+      return String.valueOf(processColumn(0, expressions.get(0), row));
+    }
+
+    // Called for every record, so avoid streams and intermediate strings:
+    final StringBuilder groupByKey = new StringBuilder(16 * expressions.size());
+    for (int idx = 0; idx < expressions.size(); idx++) {
+      if (idx != 0) {
+        groupByKey.append(GROUP_BY_COLUMN_SEPARATOR);
+      }
+      appendColumn(groupByKey, processColumn(idx, expressions.get(idx), row));
+    }
+    return groupByKey.toString();
   }
 
   static String keyNameFor(final List<Expression> groupByExpressions) {
@@ -55,16 +64,31 @@ class GroupByMapper<K> implements KeyValueMapper<K, GenericRow, String> {
         .collect(Collectors.joining(GROUP_BY_COLUMN_SEPARATOR));
   }
 
-  private String processColumn(
+  private static Object processColumn(
       final int index,
       final ExpressionMetadata exp,
       final GenericRow row
   ) {
     try {
-      return String.valueOf(exp.evaluate(row));
+      return exp.evaluate(row);
     } catch (final Exception e) {
       LOG.error("Error calculating group-by field with index {}", index, e);
-      return "null";
+      return null;
+    }
+  }
+
+  private static void appendColumn(final StringBuilder groupByKey, final Object value) {
+    // Append primitives directly, rather than via their string representation:
+    if (value instanceof Long) {
+      groupByKey.append((long) (Long) value);
+    } else if (value instanceof Integer) {
+      groupByKey.append((int) (Integer) value);
+    } else if (value instanceof Double) {
+      groupByKey.append((double) (Double) value);
+    } else if (value instanceof Boolean) {
+      groupByKey.append((boolean) (Boolean) value);
+    } else {
+      groupByKey.append(value);
     }
   }
 }
@@ -19,9 +19,11 @@ import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.parser.tree.Expression;
 import io.confluent.ksql.planner.plan.OutputNode;
+import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.SelectExpression;
 import java.util.List;
+import java.util.Locale;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.BlockingQueue;
@@ -36,8 +38,7 @@ import org.apache.kafka.streams.kstream.Windowed;
 
 public class QueuedSchemaKStream<K> extends SchemaKStream<K> {
 
-  private final BlockingQueue<KeyValue<String, GenericRow>> rowQueue =
-      new LinkedBlockingQueue<>(100);
+  private final BlockingQueue<KeyValue<String, GenericRow>> rowQueue;
 
   @SuppressWarnings("unchecked") // needs investigating
   QueuedSchemaKStream(final SchemaKStream<K> schemaKStream, final QueryContext queryContext) {
@@ -53,9 +54,15 @@ public class QueuedSchemaKStream<K> extends SchemaKStream<K> {
         queryContext
     );
 
+    this.rowQueue = new LinkedBlockingQueue<>(
+        ksqlConfig.getInt(KsqlConfig.KSQL_TRANSIENT_QUEUE_CAPACITY_CONFIG));
+
     final OutputNode output = schemaKStream.outputNode();
     setOutputNode(output);
-    kstream.foreach(new QueuedSchemaKStream.QueuePopulator(rowQueue, output.getCallback()));
+    kstream.foreach(new QueuedSchemaKStream.QueuePopulator(
+        rowQueue,
+        output.getCallback(),
+        OverflowPolicy.from(ksqlConfig)));
   }
 
   public BlockingQueue<KeyValue<String, GenericRow>> getQueue() {
@@ -134,17 +141,38 @@ public class QueuedSchemaKStream<K> extends SchemaKStream<K> {
     return super.getSourceSchemaKStreams();
   }
 
+  /**
+   * What to do with a row when the queue of a transient query is full.
+   */
+  public enum OverflowPolicy {
+    BLOCK,
+    DROP_OLDEST,
+    TERMINATE;
+
+    public static OverflowPolicy from(final KsqlConfig ksqlConfig) {
+      return valueOf(ksqlConfig
+          .getString(KsqlConfig.KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_CONFIG)
+          .toUpperCase(Locale.ROOT));
+    }
+  }
+
+  /**
+   * Puts each non-null row onto the queue of a transient query, subject to its callback.
+   */
   @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
-  private static final class QueuePopulator<K> implements ForeachAction<K, GenericRow> {
+  public static final class QueuePopulator<K> implements ForeachAction<K, GenericRow> {
     private final BlockingQueue<KeyValue<String, GenericRow>> queue;
     private final OutputNode.Callback callback;
+    private final OverflowPolicy overflowPolicy;
 
-    QueuePopulator(
+    public QueuePopulator(
         final BlockingQueue<KeyValue<String, GenericRow>> queue,
-        final OutputNode.Callback callback
+        final OutputNode.Callback callback,
+        final OverflowPolicy overflowPolicy
     ) {
       this.queue = queue;
       this.callback = Objects.requireNonNull(callback, "callback");
+      this.overflowPolicy = Objects.requireNonNull(overflowPolicy, "overflowPolicy");
     }
 
     @Override
@@ -159,7 +187,7 @@ public class QueuedSchemaKStream<K> extends SchemaKStream<K> {
         }
 
         final String keyString = getStringKey(key);
-        queue.put(new KeyValue<>(keyString, row));
+        enqueue(new KeyValue<>(keyString, row));
 
         callback.onQueued();
       } catch (final InterruptedException exception) {
@@ -167,6 +195,26 @@ public class QueuedSchemaKStream<K> extends SchemaKStream<K> {
       }
     }
 
+    private void enqueue(final KeyValue<String, GenericRow> row) throws InterruptedException {
+      switch (overflowPolicy) {
+        case DROP_OLDEST:
+          // The client may drain the queue between the two calls, so loop until there's space:
+          while (!queue.offer(row)) {
+            queue.poll();
+          }
+          break;
+        case TERMINATE:
+          if (!queue.offer(row)) {
+            throw new KsqlException("The client is not keeping up with the results of the "
+                + "query: its queue of " + (queue.size() + queue.remainingCapacity())
+                + " rows is full. See " + KsqlConfig.KSQL_TRANSIENT_QUEUE_OVERFLOW_POLICY_CONFIG);
+          }
+          break;
+        default:
+          queue.put(row);
+      }
+    }
+
     private String getStringKey(final K key) {
       if (key instanceof Windowed) {
         final Windowed windowedKey = (Windowed) key;
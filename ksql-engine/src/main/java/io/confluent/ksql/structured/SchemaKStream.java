@@ -18,6 +18,7 @@ package io.confluent.ksql.structured;
 import com.google.common.collect.ImmutableList;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.codegen.CodeGenRunner;
+import io.confluent.ksql.codegen.ProjectionCompiler;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.logging.processing.ProcessingLogger;
@@ -29,6 +30,7 @@ import io.confluent.ksql.streams.StreamsFactories;
 import io.confluent.ksql.streams.StreamsUtil;
 import io.confluent.ksql.util.ExpressionMetadata;
 import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.ProjectionMetadata;
 import io.confluent.ksql.util.QueryLoggerUtil;
 import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.SelectExpression;
@@ -36,6 +38,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -50,6 +53,7 @@ import org.apache.kafka.streams.kstream.KGroupedStream;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
 import org.apache.kafka.streams.kstream.ValueJoiner;
+import org.apache.kafka.streams.kstream.ValueMapper;
 import org.apache.kafka.streams.kstream.WindowedSerdes;
 
 // CHECKSTYLE_RULES.OFF: ClassDataAbstractionCoupling
@@ -142,7 +146,7 @@ public class SchemaKStream<K> {
           if (row == null) {
             return null;
           }
-          final List<Object> columns = new ArrayList<>();
+          final List<Object> columns = new ArrayList<>(row.getColumns().size());
           for (int i = 0; i < row.getColumns().size(); i++) {
             if (!rowkeyIndexes.contains(i)) {
               columns.add(row.getColumns().get(i));
@@ -207,24 +211,110 @@ public class SchemaKStream<K> {
     );
   }
 
+  /**
+   * Apply a filter and then a projection, compiled together into a single mapper.
+   *
+   * <p>Rows that fail the filter are mapped to {@code null} and then dropped.
+   */
+  public SchemaKStream<K> filterAndSelect(
+      final Expression filterExpression,
+      final QueryContext.Stacker filterContextStacker,
+      final List<SelectExpression> selectExpressions,
+      final QueryContext.Stacker contextStacker,
+      final ProcessingLogContext processingLogContext) {
+    final Selection selection = new Selection(
+        selectExpressions,
+        Optional.of(filterExpression),
+        processingLogContext.getLoggerFactory().getLogger(
+            QueryLoggerUtil.queryLoggerName(
+                contextStacker.push(Type.PROJECT.name()).getQueryContext())),
+        processingLogContext.getLoggerFactory().getLogger(
+            QueryLoggerUtil.queryLoggerName(
+                filterContextStacker.push(Type.FILTER.name()).getQueryContext()))
+    );
+    return new SchemaKStream<>(
+        selection.getProjectedSchema(),
+        kstream.mapValues(selection.getSelectValueMapper())
+            .filter((key, value) -> value != null),
+        selection.getKey(),
+        Collections.singletonList(this),
+        keySerde,
+        Type.PROJECT,
+        ksqlConfig,
+        functionRegistry,
+        contextStacker.getQueryContext()
+    );
+  }
+
+  /**
+   * Build the mapper {@link #filterAndSelect} would apply to each row of this stream, for callers
+   * that apply it to the rows themselves.
+   *
+   * <p>Rows that fail the filter, if there is one, are mapped to {@code null}.
+   */
+  public ValueMapper<GenericRow, GenericRow> buildSelectValueMapper(
+      final Optional<Expression> filterExpression,
+      final QueryContext.Stacker filterContextStacker,
+      final List<SelectExpression> selectExpressions,
+      final QueryContext.Stacker contextStacker,
+      final ProcessingLogContext processingLogContext) {
+    return new Selection(
+        selectExpressions,
+        filterExpression,
+        processingLogContext.getLoggerFactory().getLogger(
+            QueryLoggerUtil.queryLoggerName(
+                contextStacker.push(Type.PROJECT.name()).getQueryContext())),
+        processingLogContext.getLoggerFactory().getLogger(
+            QueryLoggerUtil.queryLoggerName(
+                filterContextStacker.push(Type.FILTER.name()).getQueryContext()))
+    ).getSelectValueMapper();
+  }
+
   class Selection {
     private final Schema schema;
     private final Field key;
-    private final SelectValueMapper selectValueMapper;
+    private final ValueMapper<GenericRow, GenericRow> selectValueMapper;
 
     Selection(
         final List<SelectExpression> selectExpressions,
         final ProcessingLogger processingLogger) {
+      this(selectExpressions, Optional.empty(), processingLogger, processingLogger);
+    }
+
+    Selection(
+        final List<SelectExpression> selectExpressions,
+        final Optional<Expression> filterExpression,
+        final ProcessingLogger processingLogger,
+        final ProcessingLogger filterProcessingLogger) {
       key = findKeyField(selectExpressions);
-      final List<ExpressionMetadata> expressionEvaluators = buildExpressions(selectExpressions);
-      schema = buildSchema(selectExpressions, expressionEvaluators);
       final List<String> selectFieldNames = selectExpressions.stream()
           .map(SelectExpression::getName)
           .collect(Collectors.toList());
-      selectValueMapper = new SelectValueMapper(
-          selectFieldNames,
-          expressionEvaluators,
-          processingLogger);
+
+      if (filterExpression.isPresent()
+          || ksqlConfig.getBoolean(KsqlConfig.KSQL_CODEGEN_FUSED_PROJECTION_CONFIG)) {
+        final ProjectionMetadata projection = buildProjection(
+            selectExpressions, filterExpression);
+        schema = buildSchema(selectExpressions, projection.getExpressionTypes());
+        selectValueMapper = new FusedSelectValueMapper(
+            SchemaKStream.this.getSchema(),
+            selectFieldNames,
+            projection,
+            processingLogger,
+            filterProcessingLogger);
+      } else {
+        final List<ExpressionMetadata> expressionEvaluators =
+            buildExpressions(selectExpressions);
+        schema = buildSchema(
+            selectExpressions,
+            expressionEvaluators.stream()
+                .map(ExpressionMetadata::getExpressionType)
+                .collect(Collectors.toList()));
+        selectValueMapper = new SelectValueMapper(
+            selectFieldNames,
+            expressionEvaluators,
+            processingLogger);
+      }
     }
 
     private Field findKeyField(final List<SelectExpression> selectExpressions) {
@@ -267,12 +357,12 @@ public class SchemaKStream<K> {
 
     private Schema buildSchema(
         final List<SelectExpression> selectExpressions,
-        final List<ExpressionMetadata> expressionEvaluators) {
+        final List<Schema> expressionTypes) {
       final SchemaBuilder schemaBuilder = SchemaBuilder.struct();
       IntStream.range(0, selectExpressions.size()).forEach(
           i -> schemaBuilder.field(
               selectExpressions.get(i).getName(),
-              expressionEvaluators.get(i).getExpressionType()));
+              expressionTypes.get(i)));
       return schemaBuilder.build();
     }
 
@@ -285,6 +375,18 @@ public class SchemaKStream<K> {
           expressions, "Select", SchemaKStream.this.getSchema(), ksqlConfig, functionRegistry);
     }
 
+    private ProjectionMetadata buildProjection(
+        final List<SelectExpression> selectExpressions,
+        final Optional<Expression> filterExpression
+    ) {
+      final List<Expression> expressions = selectExpressions.stream()
+          .map(SelectExpression::getExpression)
+          .collect(Collectors.toList());
+
+      return new ProjectionCompiler(SchemaKStream.this.getSchema(), ksqlConfig, functionRegistry)
+          .compile(expressions, filterExpression);
+    }
+
     public Schema getProjectedSchema() {
       return schema;
     }
@@ -293,7 +395,7 @@ public class SchemaKStream<K> {
       return key;
     }
 
-    SelectValueMapper getSelectValueMapper() {
+    ValueMapper<GenericRow, GenericRow> getSelectValueMapper() {
       return selectValueMapper;
     }
   }
@@ -662,7 +764,8 @@ public class SchemaKStream<K> {
 
     @Override
     public GenericRow apply(final GenericRow left, final GenericRow right) {
-      final List<Object> columns = new ArrayList<>();
+      final List<Object> columns = new ArrayList<>(
+          leftSchema.fields().size() + rightSchema.fields().size());
       if (left != null) {
         columns.addAll(left.getColumns());
       } else {
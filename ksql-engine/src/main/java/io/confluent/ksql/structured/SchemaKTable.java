@@ -109,7 +109,7 @@ public class SchemaKTable<K> extends SchemaKStream<K> {
               if (row == null) {
                 return null;
               }
-              final List<Object> columns = new ArrayList<>();
+              final List<Object> columns = new ArrayList<>(row.getColumns().size());
               for (int i = 0; i < row.getColumns().size(); i++) {
                 if (!rowkeyIndexes.contains(i)) {
                   columns.add(row.getColumns().get(i));
@@ -181,6 +181,19 @@ public class SchemaKTable<K> extends SchemaKStream<K> {
     );
   }
 
+  @Override
+  public SchemaKTable<K> filterAndSelect(
+      final Expression filterExpression,
+      final QueryContext.Stacker filterContextStacker,
+      final List<SelectExpression> selectExpressions,
+      final QueryContext.Stacker contextStacker,
+      final ProcessingLogContext processingLogContext) {
+    // A filtered table must emit tombstones for rows that fail the predicate, so the filter
+    // is not fused into the projection here:
+    return filter(filterExpression, filterContextStacker, processingLogContext)
+        .select(selectExpressions, contextStacker, processingLogContext);
+  }
+
   @SuppressWarnings("unchecked") // needs investigating
   @Override
   public KStream getKstream() {
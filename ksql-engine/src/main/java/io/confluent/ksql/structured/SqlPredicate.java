@@ -16,7 +16,9 @@
 package io.confluent.ksql.structured;
 
 import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.codegen.CodeGenCache;
 import io.confluent.ksql.codegen.CodeGenRunner;
+import io.confluent.ksql.codegen.ExpressionOptimizer;
 import io.confluent.ksql.codegen.SqlToJavaVisitor;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.function.udf.Kudf;
@@ -34,7 +36,6 @@ import java.util.Set;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.streams.kstream.Predicate;
 import org.apache.kafka.streams.kstream.Windowed;
-import org.codehaus.commons.compiler.CompilerFactoryFactory;
 import org.codehaus.commons.compiler.IExpressionEvaluator;
 
 public class SqlPredicate {
@@ -64,9 +65,12 @@ public class SqlPredicate {
     this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
     this.processingLogger = Objects.requireNonNull(processingLogger);
 
+    final Expression optimizedExpression =
+        new ExpressionOptimizer(schema, functionRegistry).optimize(filterExpression);
+
     final CodeGenRunner codeGenRunner = new CodeGenRunner(schema, ksqlConfig, functionRegistry);
     final Set<CodeGenRunner.ParameterType> parameters
-        = codeGenRunner.getParameterInfo(filterExpression);
+        = codeGenRunner.getParameterInfo(optimizedExpression);
 
     final String[] parameterNames = new String[parameters.size()];
     final Class[] parameterTypes = new Class[parameters.size()];
@@ -80,18 +84,18 @@ public class SqlPredicate {
     }
 
     try {
-      ee = CompilerFactoryFactory.getDefaultCompilerFactory().newExpressionEvaluator();
-      ee.setDefaultImports(SqlToJavaVisitor.JAVA_IMPORTS.toArray(new String[0]));
-      ee.setParameters(parameterNames, parameterTypes);
-
-      ee.setExpressionType(boolean.class);
-
       final String expressionStr = new SqlToJavaVisitor(
           schema,
           functionRegistry
-      ).process(filterExpression);
-
-      ee.cook(expressionStr);
+      ).process(optimizedExpression);
+
+      ee = CodeGenCache.cookExpression(
+          expressionStr,
+          SqlToJavaVisitor.JAVA_IMPORTS,
+          parameterNames,
+          parameterTypes,
+          boolean.class,
+          ksqlConfig.getBoolean(KsqlConfig.KSQL_CODEGEN_CACHE_ENABLED_CONFIG));
     } catch (final Exception e) {
       throw new KsqlException(
           "Failed to generate code for SqlPredicate."
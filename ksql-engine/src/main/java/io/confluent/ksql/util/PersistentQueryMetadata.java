@@ -16,6 +16,7 @@
 package io.confluent.ksql.util;
 
 import com.google.common.collect.ImmutableSet;
+import io.confluent.ksql.materialization.Materialization;
 import io.confluent.ksql.metastore.KsqlTopic;
 import io.confluent.ksql.metastore.StructuredDataSource;
 import io.confluent.ksql.planner.plan.OutputNode;
@@ -23,6 +24,7 @@ import io.confluent.ksql.query.QueryId;
 import io.confluent.ksql.serde.DataSource;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import org.apache.kafka.streams.KafkaStreams;
@@ -33,6 +35,7 @@ public class PersistentQueryMetadata extends QueryMetadata {
   private final QueryId id;
   private final KsqlTopic resultTopic;
   private final Set<String> sinkNames;
+  private final Optional<Materialization> materialization;
 
   // CHECKSTYLE_RULES.OFF: ParameterNumberCheck
   public PersistentQueryMetadata(final String statementString,
@@ -44,6 +47,7 @@ public class PersistentQueryMetadata extends QueryMetadata {
                                  final DataSource.DataSourceType dataSourceType,
                                  final String queryApplicationId,
                                  final KsqlTopic resultTopic,
+                                 final Optional<Materialization> materialization,
                                  final Topology topology,
                                  final Map<String, Object> streamsProperties,
                                  final Map<String, Object> overriddenProperties,
@@ -63,6 +67,7 @@ public class PersistentQueryMetadata extends QueryMetadata {
     this.id = Objects.requireNonNull(id, "id");
     this.resultTopic = Objects.requireNonNull(resultTopic, "resultTopic");
     this.sinkNames = ImmutableSet.of(sinkDataSource.getName());
+    this.materialization = Objects.requireNonNull(materialization, "materialization");
 
     if (resultTopic.getKsqlTopicSerDe() == null) {
       throw new KsqlException(String.format("Invalid result topic: %s. Serde cannot be null.",
@@ -78,6 +83,7 @@ public class PersistentQueryMetadata extends QueryMetadata {
     this.id = other.id;
     this.resultTopic = other.resultTopic;
     this.sinkNames = other.sinkNames;
+    this.materialization = other.materialization;
   }
 
   public PersistentQueryMetadata copyWith(final Consumer<QueryMetadata> closeCallback) {
@@ -100,6 +106,14 @@ public class PersistentQueryMetadata extends QueryMetadata {
     return sinkNames;
   }
 
+  /**
+   * @return how to read the table this query materializes, if it materializes one that can be
+   *         read.
+   */
+  public Optional<Materialization> getMaterialization() {
+    return materialization;
+  }
+
   public DataSource.DataSourceSerDe getResultTopicSerde() {
     return resultTopic.getKsqlTopicSerDe().getSerDe();
   }
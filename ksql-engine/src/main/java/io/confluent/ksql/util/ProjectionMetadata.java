@@ -0,0 +1,70 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.util;
+
+import io.confluent.ksql.codegen.CompiledProjection;
+import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.parser.tree.Expression;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import org.apache.kafka.connect.data.Schema;
+
+@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+public class ProjectionMetadata {
+
+  private final CompiledProjection projection;
+  private final List<Kudf> udfs;
+  private final List<Schema> expressionTypes;
+  private final List<Expression> expressions;
+  private final Optional<Expression> filterExpression;
+
+  public ProjectionMetadata(
+      final CompiledProjection projection,
+      final List<Kudf> udfs,
+      final List<Schema> expressionTypes,
+      final List<Expression> expressions,
+      final Optional<Expression> filterExpression) {
+    this.projection = Objects.requireNonNull(projection, "projection");
+    this.udfs = Collections.unmodifiableList(Objects.requireNonNull(udfs, "udfs"));
+    this.expressionTypes = Collections.unmodifiableList(
+        Objects.requireNonNull(expressionTypes, "expressionTypes"));
+    this.expressions = Collections.unmodifiableList(
+        Objects.requireNonNull(expressions, "expressions"));
+    this.filterExpression = Objects.requireNonNull(filterExpression, "filterExpression");
+  }
+
+  public CompiledProjection getProjection() {
+    return projection;
+  }
+
+  public List<Kudf> getUdfs() {
+    return udfs;
+  }
+
+  public List<Schema> getExpressionTypes() {
+    return expressionTypes;
+  }
+
+  public List<Expression> getExpressions() {
+    return expressions;
+  }
+
+  public Optional<Expression> getFilterExpression() {
+    return filterExpression;
+  }
+}
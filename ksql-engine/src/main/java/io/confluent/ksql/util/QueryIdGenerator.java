@@ -33,6 +33,14 @@ public class QueryIdGenerator {
     return String.valueOf(queryIdCounter.getAndIncrement());
   }
 
+  public long peekNextId() {
+    return queryIdCounter.get();
+  }
+
+  public void setNextId(final long nextId) {
+    queryIdCounter.set(nextId);
+  }
+
   public QueryIdGenerator copy() {
     return new QueryIdGenerator(queryIdCounter.get());
   }
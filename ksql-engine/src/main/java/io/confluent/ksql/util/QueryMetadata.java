@@ -155,9 +155,7 @@ public class QueryMetadata {
   }
 
   public void close() {
-    kafkaStreams.close();
-
-    kafkaStreams.cleanUp();
+    closeStreams();
 
     queryStateListener.ifPresent(QueryStateListener::close);
 
@@ -167,10 +165,20 @@ public class QueryMetadata {
   public void start() {
     LOG.info("Starting query with application id: {}", queryApplicationId);
     everStarted = true;
+    startStreams();
+  }
+
+  protected void startStreams() {
     queryStateListener.ifPresent(kafkaStreams::setStateListener);
     kafkaStreams.start();
   }
 
+  protected void closeStreams() {
+    kafkaStreams.close();
+
+    kafkaStreams.cleanUp();
+  }
+
   public String getTopologyDescription() {
     return topology.describe().toString();
   }
@@ -88,6 +88,13 @@ public class QueuedQueryMetadata extends QueryMetadata {
     getOutputNode().setLimitHandler(limitHandler);
   }
 
+  /**
+   * @param queuedHandler called, on a stream thread, each time a row is added to the row queue.
+   */
+  public void setQueuedHandler(final Runnable queuedHandler) {
+    getOutputNode().setQueuedHandler(queuedHandler);
+  }
+
   @Override
   public void close() {
     super.close();
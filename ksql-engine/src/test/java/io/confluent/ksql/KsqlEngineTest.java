@@ -1090,6 +1090,24 @@ public class KsqlEngineTest {
         sandbox.getPersistentQuery(queryId), is(Optional.empty()));
   }
 
+  @Test
+  public void shouldNotUpdateSandboxOnEngineQueryClose() {
+    // Given:
+    givenSqlAlreadyExecuted("create table bar as select * from test2;");
+
+    final PersistentQueryMetadata query = ksqlEngine.getPersistentQueries().get(0);
+
+    // When:
+    query.close();
+
+    // Then:
+    assertThat("main engine should be updated",
+        ksqlEngine.getPersistentQuery(query.getQueryId()), is(Optional.empty()));
+
+    assertThat("sand box should not be updated",
+        sandbox.getPersistentQuery(query.getQueryId()), is(not(Optional.empty())));
+  }
+
   @Test
   public void shouldRegisterPersistentQueriesOnlyInSandbox() {
     // Given:
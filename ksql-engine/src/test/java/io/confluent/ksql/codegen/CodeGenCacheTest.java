@@ -0,0 +1,96 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.codehaus.commons.compiler.CompileException;
+import org.codehaus.commons.compiler.IExpressionEvaluator;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CodeGenCacheTest {
+
+  private static final List<String> IMPORTS = ImmutableList.of();
+  private static final String[] NAMES = new String[]{"COL0"};
+  private static final Class[] TYPES = new Class[]{Long.class};
+
+  @Before
+  public void setUp() {
+    CodeGenCache.clear();
+  }
+
+  @Test
+  public void shouldReuseEvaluatorForSameCode() throws Exception {
+    // When:
+    final IExpressionEvaluator first =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, true);
+    final IExpressionEvaluator second =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, true);
+
+    // Then:
+    assertThat(second, is(sameInstance(first)));
+    assertThat(CodeGenCache.size(), is(1L));
+  }
+
+  @Test
+  public void shouldNotReuseEvaluatorForDifferentParameterTypes() throws Exception {
+    // When:
+    final IExpressionEvaluator first =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, true);
+    final IExpressionEvaluator second = CodeGenCache.cookExpression(
+        "(COL0 + 1)", IMPORTS, NAMES, new Class[]{Integer.class}, Integer.class, true);
+
+    // Then:
+    assertThat(second, is(not(sameInstance(first))));
+  }
+
+  @Test
+  public void shouldNotCacheIfDisabled() throws Exception {
+    // When:
+    final IExpressionEvaluator first =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, false);
+    final IExpressionEvaluator second =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, false);
+
+    // Then:
+    assertThat(second, is(not(sameInstance(first))));
+    assertThat(CodeGenCache.size(), is(0L));
+  }
+
+  @Test(expected = CompileException.class)
+  public void shouldThrowCompileExceptionOnInvalidCode() throws Exception {
+    CodeGenCache.cookExpression("(COL0 +", IMPORTS, NAMES, TYPES, Long.class, true);
+  }
+
+  @Test
+  public void shouldEvaluateCachedEvaluator() throws Exception {
+    // Given:
+    CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, true);
+
+    // When:
+    final IExpressionEvaluator cached =
+        CodeGenCache.cookExpression("(COL0 + 1)", IMPORTS, NAMES, TYPES, Long.class, true);
+
+    // Then:
+    assertThat(cached.evaluate(new Object[]{41L}), is(42L));
+  }
+}
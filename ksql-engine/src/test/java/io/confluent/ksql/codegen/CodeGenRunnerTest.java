@@ -27,6 +27,7 @@ import static org.hamcrest.Matchers.instanceOf;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.lessThanOrEqualTo;
 import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.junit.internal.matchers.ThrowableMessageMatcher.hasMessage;
 
 import com.google.common.collect.ImmutableList;
@@ -37,6 +38,7 @@ import io.confluent.ksql.function.InternalFunctionRegistry;
 import io.confluent.ksql.function.KsqlFunction;
 import io.confluent.ksql.function.UdfLoaderUtil;
 import io.confluent.ksql.function.udf.Kudf;
+import io.confluent.ksql.function.udf.json.JsonExtractStringKudf;
 import io.confluent.ksql.metastore.KsqlStream;
 import io.confluent.ksql.metastore.KsqlTopic;
 import io.confluent.ksql.metastore.MutableMetaStore;
@@ -90,6 +92,7 @@ public class CodeGenRunnerTest {
     public final ExpectedException expectedException = ExpectedException.none();
 
     private MutableMetaStore metaStore;
+    private Schema schema;
     private CodeGenRunner codeGenRunner;
     private final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
     private final KsqlConfig ksqlConfig = new KsqlConfig(Collections.emptyMap());
@@ -121,7 +124,7 @@ public class CodeGenRunnerTest {
         final Schema arraySchema = SchemaBuilder.array(Schema.STRING_SCHEMA).optional().build();
 
 
-        final Schema schema = SchemaBuilder.struct()
+        schema = SchemaBuilder.struct()
             .field("CODEGEN_TEST.COL0", SchemaBuilder.OPTIONAL_INT64_SCHEMA)
             .field("CODEGEN_TEST.COL1", SchemaBuilder.OPTIONAL_STRING_SCHEMA)
             .field("CODEGEN_TEST.COL2", SchemaBuilder.OPTIONAL_STRING_SCHEMA)
@@ -518,6 +521,23 @@ public class CodeGenRunnerTest {
         assertThat(columns, contains(20.0, 25.0, 125L, 50));
     }
 
+    @Test
+    public void shouldEvaluateSimplifiedExpression() {
+        // Given:
+        final String query = "SELECT col0 > 2 * 3 AND 1 = 1 FROM codegen_test;";
+        final Analysis analysis = analyzeQuery(query, metaStore);
+
+        // When:
+        final ExpressionMetadata metadata = codeGenRunner.buildCodeGenFromParseTree(
+            analysis.getSelectExpressions().get(0), "Select");
+
+        // Then:
+        assertThat(metadata.getExpression(), is(analysis.getSelectExpressions().get(0)));
+        assertThat(metadata.getIndexes(), contains(0));
+        assertThat(metadata.evaluate(genericRow(7L)), is(true));
+        assertThat(metadata.evaluate(genericRow(6L)), is(false));
+    }
+
     @Test
     public void testCastNumericArithmeticExpressions() {
         final Map<Integer, Object> inputValues =
@@ -604,6 +624,38 @@ public class CodeGenRunnerTest {
         assertThat(columns, contains(" hello ", " HELLO ", "Hello", " Hello _test", "Hell"));
     }
 
+    @Test
+    public void shouldHandleUdfsWithPrimitiveParameters() {
+        // Given:
+        final String query =
+            "SELECT TIMESTAMPTOSTRING(col0, 'yyyy-MM-dd', 'UTC') FROM codegen_test;";
+
+        final Map<Integer, Object> inputValues = ImmutableMap.of(0, 86400000L);
+
+        // When:
+        final List<Object> columns = executeExpression(query, inputValues);
+
+        // Then:
+        assertThat(columns, contains("1970-01-02"));
+    }
+
+    @Test
+    public void shouldThrowOnNullPassedToPrimitiveUdfParameter() {
+        // Given:
+        final String query =
+            "SELECT TIMESTAMPTOSTRING(col0, 'yyyy-MM-dd', 'UTC') FROM codegen_test;";
+
+        final Map<Integer, Object> inputValues = Collections.singletonMap(0, null);
+
+        // Then:
+        expectedException.expect(KsqlException.class);
+        expectedException.expectMessage(
+            "Can't coerce argument at index 0 from null to a primitive type");
+
+        // When:
+        executeExpression(query, inputValues);
+    }
+
     @Test
     public void shouldHandleNestedUdfs() {
         final String query =
@@ -617,6 +669,51 @@ public class CodeGenRunnerTest {
         executeExpression(query, inputValues);
     }
 
+    @Test
+    public void shouldShareJsonParseBetweenExtractsFromSameColumn() {
+        // Given:
+        final Expression expression = analyzeQuery(
+            "SELECT "
+                + "CONCAT(EXTRACTJSONFIELD(col1,'$.name'),CONCAT('-',EXTRACTJSONFIELD(col1,'$.value')))"
+                + " FROM codegen_test;", metaStore)
+            .getSelectExpressions()
+            .get(0);
+
+        final GenericRow input =
+            buildRow(ImmutableMap.of(1, "{\"name\":\"fred\",\"value\":1}"));
+
+        // When:
+        final Object result = codeGenRunner
+            .buildCodeGenFromParseTree(expression, "Select")
+            .evaluate(input);
+
+        // Then:
+        assertThat(result, is("fred-1"));
+    }
+
+    @Test
+    public void shouldShareJsonParseBetweenExpressionsExtractingFromSameColumn() {
+        // Given:
+        final List<Expression> expressions = analyzeQuery(
+            "SELECT EXTRACTJSONFIELD(col1,'$.name'), EXTRACTJSONFIELD(col1,'$.value')"
+                + " FROM codegen_test;", metaStore)
+            .getSelectExpressions();
+
+        final GenericRow input =
+            buildRow(ImmutableMap.of(1, "{\"name\":\"fred\",\"value\":1}"));
+
+        // When:
+        final List<ExpressionMetadata> compiled = CodeGenRunner.compileExpressions(
+            expressions.stream(), "Select", schema, ksqlConfig, functionRegistry);
+
+        // Then:
+        final JsonExtractStringKudf first = jsonExtractUdf(compiled.get(0));
+        final JsonExtractStringKudf second = jsonExtractUdf(compiled.get(1));
+        assertThat(first.getExtractor(), is(sameInstance(second.getExtractor())));
+        assertThat(compiled.get(0).evaluate(input), is("fred"));
+        assertThat(compiled.get(1).evaluate(input), is("1"));
+    }
+
     @Test
     public void shouldHandleMaps() {
         // Given:
@@ -884,6 +981,14 @@ public class CodeGenRunnerTest {
         return (Boolean)result0;
     }
 
+    private static JsonExtractStringKudf jsonExtractUdf(final ExpressionMetadata expression) {
+        return expression.getUdfs().stream()
+            .filter(JsonExtractStringKudf.class::isInstance)
+            .map(JsonExtractStringKudf.class::cast)
+            .findFirst()
+            .orElseThrow(AssertionError::new);
+    }
+
     private GenericRow buildRow(final Map<Integer, Object> overrides) {
         final List<Object> columns = new ArrayList<>(ONE_ROW);
         overrides.forEach(columns::set);
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.codegen;
+
+import static io.confluent.ksql.testutils.AnalysisTestUtil.analyzeQuery;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import io.confluent.ksql.analyzer.Analysis;
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.tree.ArithmeticBinaryExpression;
+import io.confluent.ksql.parser.tree.BooleanLiteral;
+import io.confluent.ksql.parser.tree.Cast;
+import io.confluent.ksql.parser.tree.ComparisonExpression;
+import io.confluent.ksql.parser.tree.DoubleLiteral;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.IntegerLiteral;
+import io.confluent.ksql.parser.tree.IsNotNullPredicate;
+import io.confluent.ksql.parser.tree.LogicalBinaryExpression;
+import io.confluent.ksql.parser.tree.SearchedCaseExpression;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.util.MetaStoreFixture;
+import java.util.Collections;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpressionOptimizerTest {
+
+  private final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
+  private MetaStore metaStore;
+  private ExpressionOptimizer optimizer;
+
+  @Before
+  public void init() {
+    metaStore = MetaStoreFixture.getNewMetaStore(functionRegistry);
+
+    final Schema schema = SchemaBuilder.struct()
+        .field("TEST1.COL0", SchemaBuilder.OPTIONAL_INT64_SCHEMA)
+        .field("TEST1.COL1", SchemaBuilder.OPTIONAL_STRING_SCHEMA)
+        .field("TEST1.COL2", SchemaBuilder.OPTIONAL_STRING_SCHEMA)
+        .field("TEST1.COL3", SchemaBuilder.OPTIONAL_FLOAT64_SCHEMA)
+        .build();
+
+    optimizer = new ExpressionOptimizer(schema, functionRegistry);
+  }
+
+  @Test
+  public void shouldFoldArithmeticOnLiterals() {
+    // Given:
+    final Expression expression = select("SELECT 12*4+2 FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new IntegerLiteral(50)));
+  }
+
+  @Test
+  public void shouldFoldArithmeticWithJavaSemantics() {
+    // Given:
+    final Expression division = select("SELECT 10 / 4 FROM test1;");
+    final Expression promoted = select("SELECT 1 + 2.5 FROM test1;");
+
+    // When:
+    final Expression divisionResult = optimizer.optimize(division);
+    final Expression promotedResult = optimizer.optimize(promoted);
+
+    // Then:
+    assertThat(divisionResult, is(new IntegerLiteral(2)));
+    assertThat(promotedResult, is(new DoubleLiteral("3.5")));
+  }
+
+  @Test
+  public void shouldNotFoldIntegerDivisionByZero() {
+    // Given:
+    final Expression expression = select("SELECT 1 / 0 FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression));
+  }
+
+  @Test
+  public void shouldFoldLiteralsWithinLargerExpression() {
+    // Given:
+    final ArithmeticBinaryExpression expression =
+        (ArithmeticBinaryExpression) select("SELECT col3 * (2 + 3) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new ArithmeticBinaryExpression(
+        ArithmeticBinaryExpression.Type.MULTIPLY, expression.getLeft(), new IntegerLiteral(5))));
+  }
+
+  @Test
+  public void shouldFoldStringConcatenation() {
+    // Given:
+    final Expression expression = select("SELECT 'a' + 'b' FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new StringLiteral("ab")));
+  }
+
+  @Test
+  public void shouldFoldComparisonOfLiterals() {
+    // Given:
+    final Expression expression = where("SELECT col0 FROM test1 WHERE 'a' < 'b';");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new BooleanLiteral("true")));
+  }
+
+  @Test
+  public void shouldDropRedundantConditions() {
+    // Given:
+    final LogicalBinaryExpression expression = (LogicalBinaryExpression)
+        where("SELECT col0 FROM test1 WHERE col0 > 100 AND 1 = 1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression.getLeft()));
+  }
+
+  @Test
+  public void shouldShortCircuitConditionsThatAreNeverMet() {
+    // Given:
+    final Expression expression = where("SELECT col0 FROM test1 WHERE col0 > 100 AND 1 > 2;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new BooleanLiteral("false")));
+  }
+
+  @Test
+  public void shouldFoldNot() {
+    // Given:
+    final Expression expression = where("SELECT col0 FROM test1 WHERE NOT (1 > 2);");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new BooleanLiteral("true")));
+  }
+
+  @Test
+  public void shouldFoldCastOfLiteral() {
+    // Given:
+    final Expression expression = select("SELECT CAST('10' AS INTEGER) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new IntegerLiteral(10)));
+  }
+
+  @Test
+  public void shouldNotFoldCastThatFails() {
+    // Given:
+    final Expression expression = select("SELECT CAST('ten' AS INTEGER) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression));
+  }
+
+  @Test
+  public void shouldRemoveNoOpCast() {
+    // Given:
+    final Cast expression = (Cast) select("SELECT CAST(col0 AS BIGINT) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression.getExpression()));
+  }
+
+  @Test
+  public void shouldNotRemoveCastThatChangesType() {
+    // Given:
+    final Expression expression = select("SELECT CAST(col0 AS INTEGER) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression));
+  }
+
+  @Test
+  public void shouldNotRemoveCastOfStringToString() {
+    // Given:
+    final Expression expression = select("SELECT CAST(col1 AS STRING) FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression));
+  }
+
+  @Test
+  public void shouldMoveLiteralToRightOfComparison() {
+    // Given:
+    final ComparisonExpression expression =
+        (ComparisonExpression) where("SELECT col0 FROM test1 WHERE 'foo' < col1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new ComparisonExpression(
+        ComparisonExpression.Type.GREATER_THAN, expression.getRight(), expression.getLeft())));
+  }
+
+  @Test
+  public void shouldReplaceComparisonOfColumnWithItselfWithNullCheck() {
+    // Given:
+    final ComparisonExpression expression =
+        (ComparisonExpression) where("SELECT col0 FROM test1 WHERE col1 = col1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new IsNotNullPredicate(expression.getLeft())));
+  }
+
+  @Test
+  public void shouldNotSimplifyComparisonOfDoubleColumnWithItself() {
+    // Given:
+    final Expression expression = where("SELECT col0 FROM test1 WHERE col3 = col3;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(expression));
+  }
+
+  @Test
+  public void shouldDropCaseBranchesThatAreNeverTaken() {
+    // Given:
+    final SearchedCaseExpression expression = (SearchedCaseExpression) select(
+        "SELECT CASE WHEN 1 > 2 THEN 'a' WHEN col0 > 10 THEN 'b' ELSE 'c' END FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new SearchedCaseExpression(
+        Collections.singletonList(expression.getWhenClauses().get(1)),
+        expression.getDefaultValue())));
+  }
+
+  @Test
+  public void shouldReplaceCaseWithBranchThatIsAlwaysTaken() {
+    // Given:
+    final Expression expression = select(
+        "SELECT CASE WHEN 1 < 2 THEN 'a' WHEN col0 > 10 THEN 'b' ELSE 'c' END FROM test1;");
+
+    // When:
+    final Expression result = optimizer.optimize(expression);
+
+    // Then:
+    assertThat(result, is(new StringLiteral("a")));
+  }
+
+  @Test
+  public void shouldBeIdempotent() {
+    // Given:
+    final Expression expression = where("SELECT col0 FROM test1 "
+        + "WHERE 'foo' = col1 AND (col0 > 5 * 2 OR NOT NOT (col2 = col2)) AND 1 = 1;");
+    final Expression optimized = optimizer.optimize(expression);
+
+    // When:
+    final Expression result = optimizer.optimize(optimized);
+
+    // Then:
+    assertThat(result, is(optimized));
+  }
+
+  private Expression select(final String query) {
+    final Analysis analysis = analyzeQuery(query, metaStore);
+    return analysis.getSelectExpressions().get(0);
+  }
+
+  private Expression where(final String query) {
+    final Analysis analysis = analyzeQuery(query, metaStore);
+    return analysis.getWhereExpression();
+  }
+}
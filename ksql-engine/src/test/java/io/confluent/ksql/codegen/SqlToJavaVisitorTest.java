@@ -83,7 +83,7 @@ public class SqlToJavaVisitorTest {
         .process(analysis.getSelectExpressions().get(0));
 
     assertThat(javaExpression,
-        equalTo("((Double) ((java.util.List)TEST1_COL4).get((int)(Integer.parseInt(\"0\"))))"));
+        equalTo("((Double) ((java.util.List)TEST1_COL4).get((int)(0)))"));
   }
 
   @Test
@@ -129,9 +129,24 @@ public class SqlToJavaVisitorTest {
 
     assertThat(javaExpression, is(
         "((String) CONCAT_0.evaluate("
-            + "((String) SUBSTRING_1.evaluate(TEST1_COL1, Integer.parseInt(\"1\"), Integer.parseInt(\"3\"))), "
-            + "((String) CONCAT_2.evaluate(\"-\","
-            + " ((String) SUBSTRING_3.evaluate(TEST1_COL1, Integer.parseInt(\"4\"), Integer.parseInt(\"5\")))))))"));
+            + "((String) ((io.confluent.ksql.function.udf.string.Substring) ((io.confluent.ksql.function.udf.PluggableUdf) SUBSTRING_1).getActualUdf())"
+            + ".substring(((java.lang.String) (TEST1_COL1)), ((java.lang.Integer) (1)), ((java.lang.Integer) (3)))), "
+            + "((String) CONCAT_2.evaluate(\"-\", "
+            + "((String) ((io.confluent.ksql.function.udf.string.Substring) ((io.confluent.ksql.function.udf.PluggableUdf) SUBSTRING_3).getActualUdf())"
+            + ".substring(((java.lang.String) (TEST1_COL1)), ((java.lang.Integer) (4)), ((java.lang.Integer) (5))))))))"));
+  }
+
+  @Test
+  public void shouldUnboxArgumentsForPrimitiveUdfParameters() {
+    final Analysis analysis = analyzeQuery(
+        "SELECT TIMESTAMPTOSTRING(col0, 'yyyy') FROM test1;", metaStore);
+
+    final String javaExpression = new SqlToJavaVisitor(schema, functionRegistry)
+        .process(analysis.getSelectExpressions().get(0));
+
+    assertThat(javaExpression, is(
+        "((String) ((io.confluent.ksql.function.udf.datetime.TimestampToString) ((io.confluent.ksql.function.udf.PluggableUdf) TIMESTAMPTOSTRING_0).getActualUdf())"
+            + ".timestampToString(io.confluent.ksql.function.UdfTemplate.longArg(TEST1_COL0, 0), ((java.lang.String) (\"yyyy\"))))"));
   }
 
   @Test
@@ -196,7 +211,7 @@ public class SqlToJavaVisitorTest {
         .process(analysis.getSelectExpressions().get(0));
 
     // ThenL
-    assertThat(javaExpression, equalTo("((java.lang.String)SearchedCaseFunction.searchedCaseFunction(ImmutableList.of( SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(Integer.parseInt(\"10\"))) == null) ? false : (ORDERS_ORDERUNITS < Integer.parseInt(\"10\"))); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"small\"; }}), SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(Integer.parseInt(\"100\"))) == null) ? false : (ORDERS_ORDERUNITS < Integer.parseInt(\"100\"))); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"medium\"; }})), new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"large\"; }}))"));
+    assertThat(javaExpression, equalTo("((java.lang.String)SearchedCaseFunction.searchedCaseFunction(ImmutableList.of( SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(10)) == null) ? false : (ORDERS_ORDERUNITS < 10)); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"small\"; }}), SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(100)) == null) ? false : (ORDERS_ORDERUNITS < 100)); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"medium\"; }})), new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"large\"; }}))"));
   }
 
   @Test
@@ -210,6 +225,6 @@ public class SqlToJavaVisitorTest {
         .process(analysis.getSelectExpressions().get(0));
 
     // ThenL
-    assertThat(javaExpression, equalTo("((java.lang.String)SearchedCaseFunction.searchedCaseFunction(ImmutableList.of( SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(Integer.parseInt(\"10\"))) == null) ? false : (ORDERS_ORDERUNITS < Integer.parseInt(\"10\"))); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"small\"; }}), SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(Integer.parseInt(\"100\"))) == null) ? false : (ORDERS_ORDERUNITS < Integer.parseInt(\"100\"))); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"medium\"; }})), new Supplier<java.lang.String>() { @Override public java.lang.String get() { return null; }}))"));
+    assertThat(javaExpression, equalTo("((java.lang.String)SearchedCaseFunction.searchedCaseFunction(ImmutableList.of( SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(10)) == null) ? false : (ORDERS_ORDERUNITS < 10)); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"small\"; }}), SearchedCaseFunction.whenClause( new Supplier<Boolean>() { @Override public Boolean get() { return ((((Object)(ORDERS_ORDERUNITS)) == null || ((Object)(100)) == null) ? false : (ORDERS_ORDERUNITS < 100)); }},  new Supplier<java.lang.String>() { @Override public java.lang.String get() { return \"medium\"; }})), new Supplier<java.lang.String>() { @Override public java.lang.String get() { return null; }}))"));
   }
 }
\ No newline at end of file
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.function.udaf.KudafAggregator;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import org.apache.kafka.connect.data.Schema;
+import org.junit.Before;
+import org.junit.Test;
+
+public class KudafAggregatorTest {
+
+  private KudafAggregator aggregator;
+
+  @Before
+  public void setUp() {
+    final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
+    final Map<Integer, Integer> aggValToValColumnMap = new HashMap<>();
+    aggValToValColumnMap.put(0, 1);
+    aggValToValColumnMap.put(1, 0);
+
+    final Map<Integer, KsqlAggregateFunction> aggValToAggFunctionMap = new HashMap<>();
+    aggValToAggFunctionMap.put(2, functionRegistry
+        .getAggregate("SUM", Schema.OPTIONAL_INT64_SCHEMA)
+        .getInstance(new AggregateFunctionArguments(2, Collections.singletonList("baz"))));
+    aggValToAggFunctionMap.put(3, functionRegistry
+        .getAggregate("MAX", Schema.OPTIONAL_INT64_SCHEMA)
+        .getInstance(new AggregateFunctionArguments(2, Collections.singletonList("baz"))));
+
+    aggregator = new KudafAggregator(aggValToAggFunctionMap, aggValToValColumnMap);
+  }
+
+  @Test
+  public void shouldApplyAggregateFunctions() {
+    // Given:
+    final GenericRow row = new GenericRow(Arrays.asList("snow", "jon", 3L));
+    final GenericRow aggRow = new GenericRow(Arrays.asList(null, null, 5L, 1L));
+
+    // When:
+    final GenericRow resultRow = aggregator.apply("unused", row, aggRow);
+
+    // Then:
+    assertThat(resultRow, equalTo(new GenericRow(Arrays.asList("jon", "snow", 8L, 3L))));
+  }
+
+  @Test
+  public void shouldMergeAggregateRows() {
+    // Given:
+    final GenericRow aggRowOne = new GenericRow(Arrays.asList("jon", "snow", 5L, 4L));
+    final GenericRow aggRowTwo = new GenericRow(Arrays.asList("jon", "snow", 3L, 7L));
+
+    // When:
+    final GenericRow merged = aggregator.getMerger().apply("key", aggRowOne, aggRowTwo);
+
+    // Then:
+    assertThat(merged, equalTo(new GenericRow(Arrays.asList("snow", "jon", 8L, 7L))));
+  }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.both;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.lessThan;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.common.utils.MockTime;
+import org.apache.kafka.common.utils.Time;
+import org.hamcrest.Matcher;
+import org.junit.Test;
+
+public class SampledUdfMetricProducerTest {
+
+  private final Time time = new MockTime();
+
+  @Test
+  public void shouldRecordLatencyPercentiles() {
+    // Given:
+    final LatencyHistogram histogram = new LatencyHistogram(1);
+    final AtomicInteger calls = new AtomicInteger();
+    final SampledUdfMetricProducer metricProducer
+        = new SampledUdfMetricProducer(histogram, args -> {
+      time.sleep(calls.incrementAndGet() <= 99 ? 1 : 100);
+      return null;
+    }, time);
+
+    // When:
+    for (int i = 0; i < 100; i++) {
+      metricProducer.evaluate("foo");
+    }
+
+    // Then:
+    assertThat(histogram.valueAtPercentile(50), is(approximately(MILLISECONDS.toNanos(1)))));
+    assertThat(histogram.valueAtPercentile(99), is(approximately(MILLISECONDS.toNanos(1)))));
+    assertThat(histogram.valueAtPercentile(99.9), is(approximately(MILLISECONDS.toNanos(100)))));
+  }
+
+  @Test
+  public void shouldOnlyTimeSampledInvocations() {
+    // Given:
+    final LatencyHistogram histogram = new LatencyHistogram(10);
+    final AtomicInteger calls = new AtomicInteger();
+    final SampledUdfMetricProducer metricProducer
+        = new SampledUdfMetricProducer(histogram, args -> {
+      // Only the first of every ten invocations is sampled:
+      time.sleep(calls.getAndIncrement() % 10 == 0 ? 5 : 500);
+      return calls.get();
+    }, time);
+
+    // When:
+    for (int i = 0; i < 100; i++) {
+      assertThat(metricProducer.evaluate("foo"), is(i + 1));
+    }
+
+    // Then:
+    assertThat(histogram.valueAtPercentile(100), is(approximately(MILLISECONDS.toNanos(5)))));
+  }
+
+  @Test
+  public void shouldRecordEvenIfExceptionThrown() {
+    // Given:
+    final LatencyHistogram histogram = new LatencyHistogram(1);
+    final SampledUdfMetricProducer metricProducer
+        = new SampledUdfMetricProducer(histogram, args -> {
+      time.sleep(10);
+      throw new RuntimeException("boom");
+    }, time);
+
+    // When:
+    try {
+      metricProducer.evaluate("foo");
+    } catch (final Exception e) {
+      // ignored
+    }
+
+    // Then:
+    assertThat(histogram.valueAtPercentile(50), is(approximately(MILLISECONDS.toNanos(10)))));
+  }
+
+  // Values are recorded to within about 6%:
+  private static Matcher<Long> approximately(final long expected) {
+    return both(greaterThanOrEqualTo(expected)).and(lessThan(expected + expected * 6 / 100));
+  }
+}
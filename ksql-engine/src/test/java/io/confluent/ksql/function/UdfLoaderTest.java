@@ -248,6 +248,34 @@ public class UdfLoaderTest {
         not(nullValue()));
   }
 
+  @Test
+  public void shouldCollectSampledMetricsWhenSampleIntervalSet() {
+    final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
+    final UdfLoader pluginLoader = new UdfLoader(functionRegistry,
+        new File("src/test/resources"),
+        parentClassLoader,
+        value -> false,
+        compiler,
+        Optional.of(metrics),
+        true,
+        100);
+
+    pluginLoader.load();
+    final UdfFactory substring = functionRegistry.getUdfFactory("substring");
+    final KsqlFunction function
+        = substring.getFunction(Arrays.asList(Schema.STRING_SCHEMA, Schema.INT32_SCHEMA));
+    final Kudf kudf = function.newInstance(ksqlConfig);
+    assertThat(kudf, instanceOf(SampledUdfMetricProducer.class));
+    assertThat(kudf.evaluate("substring", 2), equalTo("ubstring"));
+    assertThat(metrics.metric(metrics.metricName("ksql-udf-substring-p50", "ksql-udf")),
+        not(nullValue()));
+    assertThat(metrics.metric(metrics.metricName("ksql-udf-substring-p99", "ksql-udf")),
+        not(nullValue()));
+    assertThat(metrics.metric(metrics.metricName("ksql-udf-substring-p999", "ksql-udf")),
+        not(nullValue()));
+    assertThat(metrics.getSensor("ksql-udf-substring"), is(nullValue()));
+  }
+
   @Test
   public void shouldUseConfigForExtDir() {
     final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
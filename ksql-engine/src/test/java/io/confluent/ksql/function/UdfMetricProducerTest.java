@@ -17,7 +17,14 @@ package io.confluent.ksql.function;
 
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
 
+import com.google.common.collect.ImmutableMap;
+import io.confluent.ksql.function.udf.ConstantArgsAware;
+import io.confluent.ksql.function.udf.Kudf;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 import org.apache.kafka.common.MetricName;
 import org.apache.kafka.common.metrics.KafkaMetric;
@@ -74,4 +81,18 @@ public class UdfMetricProducerTest {
     final Double actual = (Double) metric.metricValue();
     assertThat(actual.longValue(), equalTo(TimeUnit.MILLISECONDS.toNanos(10)));
   }
+
+  @Test
+  public void shouldPassConstantArgsToUdf() {
+    // Given:
+    final Kudf udf = mock(Kudf.class, withSettings().extraInterfaces(ConstantArgsAware.class));
+    final UdfMetricProducer metricProducer = new UdfMetricProducer(sensor, udf, time);
+    final Map<Integer, Object> constantArgs = ImmutableMap.of(1, "yyyy-MM-dd");
+
+    // When:
+    metricProducer.initConstantArgs(constantArgs);
+
+    // Then:
+    verify((ConstantArgsAware) udf).initConstantArgs(constantArgs);
+  }
 }
\ No newline at end of file
@@ -72,4 +72,20 @@ public class CollectSetUdafTest {
     assertThat(runningList, not(hasItem(1001)));
   }
 
+  @Test
+  public void shouldRespectSizeLimitOnMerge() {
+    final Udaf<Integer, List<Integer>> udaf = CollectSetUdaf.createCollectSetInt();
+    List<Integer> lhs = udaf.initialize();
+    List<Integer> rhs = udaf.initialize();
+    for (int i = 0; i < 600; i++) {
+      lhs = udaf.aggregate(i, lhs);
+      rhs = udaf.aggregate(i + 550, rhs);
+    }
+
+    final List<Integer> merged = udaf.merge(lhs, rhs);
+
+    assertThat(merged, hasSize(1000));
+    assertThat(merged, hasItem(999));
+    assertThat(merged, not(hasItem(1000)));
+  }
 }
@@ -55,6 +55,66 @@ public class IntTopkDistinctKudafTest {
     assertThat("Invalid results.", currentVal, equalTo(ImmutableList.of(80)));
   }
 
+  @Test
+  public void shouldInsertIntoMiddleOfFullTopK() {
+    // Given:
+    final List<Integer> currentVal = new ArrayList<>(ImmutableList.of(80, 60, 40));
+
+    // When:
+    final List<Integer> result = intTopkDistinctKudaf.aggregate(50, currentVal);
+
+    // Then:
+    assertThat(result, equalTo(ImmutableList.of(80, 60, 50)));
+  }
+
+  @Test
+  public void shouldInsertAtHeadOfFullTopK() {
+    // Given:
+    final List<Integer> currentVal = new ArrayList<>(ImmutableList.of(80, 60, 40));
+
+    // When:
+    final List<Integer> result = intTopkDistinctKudaf.aggregate(90, currentVal);
+
+    // Then:
+    assertThat(result, equalTo(ImmutableList.of(90, 80, 60)));
+  }
+
+  @Test
+  public void shouldInsertIntoFixedSizeTopK() {
+    // Given:
+    final List<Integer> currentVal = Arrays.asList(80, 60, 40);
+
+    // When:
+    final List<Integer> result = intTopkDistinctKudaf.aggregate(70, currentVal);
+
+    // Then:
+    assertThat(result, equalTo(ImmutableList.of(80, 70, 60)));
+  }
+
+  @Test
+  public void shouldIgnoreValueEqualToMinimumOfFullTopK() {
+    // Given:
+    final List<Integer> currentVal = new ArrayList<>(ImmutableList.of(80, 60, 40));
+
+    // When:
+    final List<Integer> result = intTopkDistinctKudaf.aggregate(40, currentVal);
+
+    // Then:
+    assertThat(result, equalTo(ImmutableList.of(80, 60, 40)));
+  }
+
+  @Test
+  public void shouldIgnoreDuplicateInFullTopK() {
+    // Given:
+    final List<Integer> currentVal = new ArrayList<>(ImmutableList.of(80, 60, 40));
+
+    // When:
+    final List<Integer> result = intTopkDistinctKudaf.aggregate(60, currentVal);
+
+    // Then:
+    assertThat(result, equalTo(ImmutableList.of(80, 60, 40)));
+  }
+
   @Test
   public void shouldMergeTopK() {
     final List<Integer> array1 = ImmutableList.of(50, 45, 25);
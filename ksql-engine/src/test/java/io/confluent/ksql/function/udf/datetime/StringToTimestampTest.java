@@ -18,6 +18,7 @@ package io.confluent.ksql.function.udf.datetime;
 import static org.hamcrest.CoreMatchers.is;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.function.KsqlFunctionException;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -91,6 +92,32 @@ public class StringToTimestampTest {
     udf.stringToTimestamp("2021-12-01 12:10:11.123", "invalid");
   }
 
+  @Test
+  public void shouldConvertWithConstantArgs() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "yyyy-MM-dd HH:mm:ss", 2, "America/Los_Angeles"));
+
+    // When:
+    final Object result = udf.stringToTimestamp("2018-08-15 10:10:43",
+        "yyyy-MM-dd HH:mm:ss", "America/Los_Angeles");
+
+    // Then:
+    assertThat(result, is(1534353043000L));
+  }
+
+  @Test
+  public void shouldThrowOnInvocationIfConstantFormatInvalid() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "invalid"));
+
+    // Then:
+    expectedException.expect(KsqlFunctionException.class);
+    expectedException.expectMessage("Unknown pattern letter: i");
+
+    // When:
+    udf.stringToTimestamp("2021-12-01 12:10:11.123", "invalid");
+  }
+
   @Test
   public void shouldThrowIfParseFails() {
     expectedException.expect(KsqlFunctionException.class);
@@ -19,6 +19,7 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.Matchers.either;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.function.KsqlFunctionException;
 import java.text.SimpleDateFormat;
 import java.util.Date;
@@ -143,6 +144,32 @@ public class TimestampToStringTest {
     udf.timestampToString(1638360611123L, "invalid");
   }
 
+  @Test
+  public void shouldConvertWithConstantArgs() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "yyyy-MM-dd HH:mm:ss", 2, "America/Los_Angeles"));
+
+    // When:
+    final String result = udf.timestampToString(1534353043000L,
+        "yyyy-MM-dd HH:mm:ss", "America/Los_Angeles");
+
+    // Then:
+    assertThat(result, is("2018-08-15 10:10:43"));
+  }
+
+  @Test
+  public void shouldThrowOnInvocationIfConstantFormatInvalid() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "invalid"));
+
+    // Then:
+    expectedException.expect(KsqlFunctionException.class);
+    expectedException.expectMessage("Unknown pattern letter: i");
+
+    // When:
+    udf.timestampToString(1638360611123L, "invalid");
+  }
+
   @Test
   public void shouldBeThreadSafe() {
     IntStream.range(0, 10_000)
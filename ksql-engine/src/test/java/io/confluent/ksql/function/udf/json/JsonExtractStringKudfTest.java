@@ -19,8 +19,11 @@ import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.CoreMatchers.nullValue;
 import static org.junit.Assert.assertThat;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.function.KsqlFunctionException;
 import io.confluent.ksql.function.udf.KudfTester;
+import io.confluent.ksql.util.KsqlException;
 import java.util.stream.IntStream;
 import org.junit.Before;
 import org.junit.Test;
@@ -106,6 +109,41 @@ public class JsonExtractStringKudfTest {
     udf.evaluate("this is NOT a JSON doc", "$.thing1");
   }
 
+  @Test
+  public void shouldExtractWithConstantPath() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "$.thing1.thing2"));
+
+    // When:
+    final Object result = udf.evaluate(JSON_DOC, "$.thing1.thing2");
+
+    // Then:
+    assertThat(result, is("hello"));
+  }
+
+  @Test(expected = KsqlException.class)
+  public void shouldThrowOnEvaluateIfConstantPathInvalid() {
+    // Given:
+    udf.initConstantArgs(ImmutableMap.of(1, "$$"));
+
+    // When:
+    udf.evaluate(JSON_DOC, "$$");
+  }
+
+  @Test
+  public void shouldExtractViaSharedExtractor() {
+    // Given:
+    final JsonPathExtractor extractor =
+        new JsonPathExtractor(ImmutableList.of("$.array.0", "$.thing1.thing2"));
+    udf.shareExtractor(extractor, 1);
+
+    // When:
+    final Object result = udf.evaluate(JSON_DOC, "$.thing1.thing2");
+
+    // Then:
+    assertThat(result, is("hello"));
+  }
+
   @Test
   public void shouldBeThreadSafe() {
     IntStream.range(0, 10_000)
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function.udf.json;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.function.KsqlFunctionException;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.junit.Test;
+
+public class JsonPathExtractorTest {
+
+  private static final String JSON_DOC = "{"
+      + "\"ignored\":{\"deep\":[1,{\"deeper\":true}]},"
+      + "\"thing1\":{\"thing2\":\"hello\",\"thing3\":1.50},"
+      + "\"array\":[101,{\"name\":\"fred\"},null],"
+      + "\"1\":\"one\""
+      + "}";
+
+  @Test
+  public void shouldExtractAllPaths() {
+    // Given:
+    final JsonPathExtractor extractor = new JsonPathExtractor(ImmutableList.of(
+        "$.thing1.thing2",
+        "$.thing1",
+        "$.array.1.name",
+        "$.array.0",
+        "$.array.2",
+        "$.1",
+        "$.will.not.find.me",
+        "$.thing1.thing2.deeper",
+        "$.array.name"));
+
+    // When:
+    final List<String> result = extractAll(extractor, JSON_DOC, 9);
+
+    // Then:
+    assertThat(result, is(ImmutableList.of(
+        "hello",
+        "{\"thing2\":\"hello\",\"thing3\":1.5}",
+        "fred",
+        "101",
+        "null",
+        "one",
+        null,
+        null,
+        null)));
+  }
+
+  @Test
+  public void shouldExtractWholeDoc() {
+    // Given:
+    final JsonPathExtractor extractor =
+        new JsonPathExtractor(ImmutableList.of("$", "$.thing1.thing2"));
+
+    // When:
+    final List<String> result = extractAll(extractor, "{\"thing1\":{\"thing2\":\"hello\"}}", 2);
+
+    // Then:
+    assertThat(result, is(ImmutableList.of("{\"thing1\":{\"thing2\":\"hello\"}}", "hello")));
+  }
+
+  @Test
+  public void shouldMatchArrayElementByNumericValueOfToken() {
+    // Given:
+    final JsonPathExtractor extractor =
+        new JsonPathExtractor(ImmutableList.of("$.array.1", "$.array.01.name"));
+
+    // When:
+    final List<String> result = extractAll(extractor, JSON_DOC, 2);
+
+    // Then:
+    assertThat(result, is(ImmutableList.of("{\"name\":\"fred\"}", "fred")));
+  }
+
+  @Test
+  public void shouldUseLastOfDuplicateFields() {
+    // Given:
+    final JsonPathExtractor extractor =
+        new JsonPathExtractor(ImmutableList.of("$.a.b", "$.a.c"));
+
+    // When:
+    final List<String> result =
+        extractAll(extractor, "{\"a\":{\"b\":\"first\",\"c\":\"c\"},\"a\":{\"b\":\"last\"}}", 2);
+
+    // Then:
+    assertThat(result, is(ImmutableList.of("last", null)));
+  }
+
+  @Test
+  public void shouldReturnNullsForEmptyDoc() {
+    // Given:
+    final JsonPathExtractor extractor = new JsonPathExtractor(ImmutableList.of("$.a"));
+
+    // When:
+    final String result = extractor.extract("", 0);
+
+    // Then:
+    assertThat(result, is(nullValue()));
+  }
+
+  @Test(expected = KsqlFunctionException.class)
+  public void shouldThrowOnInvalidJsonDoc() {
+    new JsonPathExtractor(ImmutableList.of("$.thing1")).extract("this is NOT a JSON doc", 0);
+  }
+
+  @Test(expected = KsqlFunctionException.class)
+  public void shouldThrowOnInvalidJsonInSkippedField() {
+    new JsonPathExtractor(ImmutableList.of("$.thing1")).extract("{\"ignored\":[1,}", 0);
+  }
+
+  @Test
+  public void shouldExtractFromEachNewDoc() {
+    // Given:
+    final JsonPathExtractor extractor = new JsonPathExtractor(ImmutableList.of("$.a"));
+    extractor.extract("{\"a\":\"first\"}", 0);
+
+    // When:
+    final String result = extractor.extract("{\"a\":\"second\"}", 0);
+
+    // Then:
+    assertThat(result, is("second"));
+  }
+
+  @Test
+  public void shouldBeThreadSafe() {
+    final JsonPathExtractor extractor =
+        new JsonPathExtractor(ImmutableList.of("$.thing1.thing2", "$.array.1.name"));
+
+    IntStream.range(0, 10_000)
+        .parallel()
+        .forEach(idx -> {
+          final String doc = idx % 2 == 0
+              ? JSON_DOC
+              : "{\"thing1\":{\"thing2\":\"bye\"},\"array\":[1,{\"name\":\"ann\"}]}";
+          final List<String> expected = idx % 2 == 0
+              ? ImmutableList.of("hello", "fred")
+              : ImmutableList.of("bye", "ann");
+          assertThat(extractAll(extractor, doc, 2), is(expected));
+        });
+  }
+
+  private static List<String> extractAll(
+      final JsonPathExtractor extractor,
+      final String json,
+      final int numPaths
+  ) {
+    return IntStream.range(0, numPaths)
+        .mapToObj(i -> extractor.extract(json, i))
+        .collect(Collectors.toList());
+  }
+}
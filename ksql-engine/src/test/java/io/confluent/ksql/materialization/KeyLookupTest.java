@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.materialization;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.KsqlParserTestUtil;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.MetaStoreFixture;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class KeyLookupTest {
+
+  @Rule
+  public final ExpectedException expectedException = ExpectedException.none();
+
+  private final MetaStore metaStore =
+      MetaStoreFixture.getNewMetaStore(new InternalFunctionRegistry());
+
+  @Test
+  public void shouldBuildLookupOfKey() {
+    // When:
+    final KeyLookup lookup = KeyLookup.from(givenQuery(
+        "SELECT * FROM test2 WHERE ROWKEY = 'k1';"));
+
+    // Then:
+    assertThat(lookup.getSourceName(), is("TEST2"));
+    assertThat(lookup.getKey(), is("k1"));
+    assertThat(lookup.getWindowStartFrom(), is(0L));
+    assertThat(lookup.getWindowStartTo(), is(Long.MAX_VALUE));
+  }
+
+  @Test
+  public void shouldBuildLookupOfKeyWithWindowStartBounds() {
+    // When:
+    final KeyLookup lookup = KeyLookup.from(givenQuery(
+        "SELECT * FROM test2 WHERE 100 < WINDOWSTART AND ROWKEY = 'k1' AND WINDOWSTART <= 200;"));
+
+    // Then:
+    assertThat(lookup.getKey(), is("k1"));
+    assertThat(lookup.getWindowStartFrom(), is(101L));
+    assertThat(lookup.getWindowStartTo(), is(200L));
+  }
+
+  @Test
+  public void shouldBuildLookupOfSingleWindow() {
+    // When:
+    final KeyLookup lookup = KeyLookup.from(givenQuery(
+        "SELECT * FROM test2 WHERE ROWKEY = 'k1' AND WINDOWSTART = 1000;"));
+
+    // Then:
+    assertThat(lookup.getWindowStartFrom(), is(1000L));
+    assertThat(lookup.getWindowStartTo(), is(1000L));
+  }
+
+  @Test
+  public void shouldThrowIfNoKey() {
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("ROWKEY = '<key>'"));
+
+    // When:
+    KeyLookup.from(givenQuery("SELECT * FROM test2 WHERE WINDOWSTART > 10;"));
+  }
+
+  @Test
+  public void shouldThrowOnConditionOnOtherColumn() {
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("Unsupported condition in pull query"));
+
+    // When:
+    KeyLookup.from(givenQuery("SELECT * FROM test2 WHERE ROWKEY = 'k1' AND COL0 = 10;"));
+  }
+
+  @Test
+  public void shouldThrowOnRangeOfKeys() {
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("Unsupported condition in pull query"));
+
+    // When:
+    KeyLookup.from(givenQuery("SELECT * FROM test2 WHERE ROWKEY > 'k1';"));
+  }
+
+  @Test
+  public void shouldThrowIfNotSelectStar() {
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("Pull queries only support 'SELECT *'."));
+
+    // When:
+    KeyLookup.from(givenQuery("SELECT col0 FROM test2 WHERE ROWKEY = 'k1';"));
+  }
+
+  private Query givenQuery(final String sql) {
+    return KsqlParserTestUtil.<Query>buildSingleAst(sql, metaStore).getStatement();
+  }
+}
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.materialization;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.function.udaf.window.WindowSelectMapper;
+import io.confluent.ksql.util.KsqlException;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.errors.InvalidStateStoreException;
+import org.apache.kafka.streams.kstream.ValueMapper;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.SessionWindow;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlySessionStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MaterializationTest {
+
+  private static final String STORE_NAME = "Aggregate-aggregate";
+
+  // Stands in for a HAVING clause of COUNT > 1, and a final projection of just the count:
+  private static final ValueMapper<GenericRow, GenericRow> HAVING_AND_PROJECTION = row -> {
+    final long count = (Long) row.getColumns().get(1);
+    return count > 1 ? new GenericRow(Collections.singletonList(count)) : null;
+  };
+
+  @Rule
+  public final ExpectedException expectedException = ExpectedException.none();
+
+  @Mock
+  private KafkaStreams streams;
+  @Mock
+  private ReadOnlyKeyValueStore<String, GenericRow> keyValueStore;
+  @Mock
+  private ReadOnlyWindowStore<String, GenericRow> windowStore;
+  @Mock
+  private ReadOnlySessionStore<String, GenericRow> sessionStore;
+
+  @Test
+  public void shouldApplyHavingAndProjectionToKeyValueRead() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.KEY_VALUE);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(keyValueStore);
+    when(keyValueStore.get("k")).thenReturn(row("k", 2L));
+
+    // When:
+    final Optional<GenericRow> result = materialization.get("k");
+
+    // Then:
+    assertThat(result, is(Optional.of(new GenericRow(Collections.singletonList(2L)))));
+  }
+
+  @Test
+  public void shouldReturnNoRowIfKeyValueReadFailsHaving() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.KEY_VALUE);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(keyValueStore);
+    when(keyValueStore.get("k")).thenReturn(row("k", 1L));
+
+    // When:
+    final Optional<GenericRow> result = materialization.get("k");
+
+    // Then:
+    assertThat(result, is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldReturnNoRowIfKeyIsNotInStore() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.KEY_VALUE);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(keyValueStore);
+
+    // When:
+    final Optional<GenericRow> result = materialization.get("k");
+
+    // Then:
+    assertThat(result, is(Optional.empty()));
+  }
+
+  @Test
+  public void shouldApplyHavingAndProjectionToWindowRead() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.WINDOW);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(windowStore);
+    final Windowed<String> first = new Windowed<>("k", new TimeWindow(1000, 2000));
+    final Windowed<String> second = new Windowed<>("k", new TimeWindow(2000, 3000));
+    final Windowed<String> third = new Windowed<>("k", new TimeWindow(3000, 4000));
+    when(windowStore.fetch("k", "k", Instant.ofEpochMilli(1000), Instant.ofEpochMilli(3000)))
+        .thenReturn(iterator(
+            new KeyValue<>(first, row("k", 2L)),
+            new KeyValue<>(second, row("k", 1L)),
+            new KeyValue<>(third, row("k", 3L))));
+
+    // When:
+    final List<KeyValue<Windowed<String>, GenericRow>> result =
+        materialization.get("k", 1000, 3000);
+
+    // Then:
+    assertThat(result, contains(
+        new KeyValue<>(first, new GenericRow(Collections.singletonList(2L))),
+        new KeyValue<>(third, new GenericRow(Collections.singletonList(3L)))));
+  }
+
+  @Test
+  public void shouldApplyHavingAndProjectionToSessionReadWithinWindowStartBounds() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.SESSION);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(sessionStore);
+    final Windowed<String> early = new Windowed<>("k", new SessionWindow(500, 900));
+    final Windowed<String> failsHaving = new Windowed<>("k", new SessionWindow(1000, 1500));
+    final Windowed<String> inRange = new Windowed<>("k", new SessionWindow(2000, 2500));
+    final Windowed<String> late = new Windowed<>("k", new SessionWindow(3001, 3500));
+    when(sessionStore.fetch("k"))
+        .thenReturn(iterator(
+            new KeyValue<>(early, row("k", 2L)),
+            new KeyValue<>(failsHaving, row("k", 1L)),
+            new KeyValue<>(inRange, row("k", 4L)),
+            new KeyValue<>(late, row("k", 5L))));
+
+    // When:
+    final List<KeyValue<Windowed<String>, GenericRow>> result =
+        materialization.get("k", 1000, 3000);
+
+    // Then:
+    assertThat(result, contains(
+        new KeyValue<>(inRange, new GenericRow(Collections.singletonList(4L)))));
+  }
+
+  @Test
+  public void shouldApplyWindowSelectsBeforeHavingAndProjection() {
+    // Given:
+    final Materialization materialization = new Materialization(
+        streams,
+        STORE_NAME,
+        Materialization.StoreType.WINDOW,
+        WindowSelectMapper.forFunctionNames(ImmutableMap.of(1, "WindowStart")),
+        row -> new GenericRow(Collections.singletonList(row.getColumns().get(1))));
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(windowStore);
+    final Windowed<String> window = new Windowed<>("k", new TimeWindow(1000, 2000));
+    when(windowStore.fetch("k", "k", Instant.ofEpochMilli(0), Instant.ofEpochMilli(5000)))
+        .thenReturn(iterator(new KeyValue<>(window, row("k", 0L))));
+
+    // When:
+    final List<KeyValue<Windowed<String>, GenericRow>> result =
+        materialization.get("k", 0, 5000);
+
+    // Then:
+    assertThat(result, contains(
+        new KeyValue<>(window, new GenericRow(Collections.singletonList(1000L)))));
+  }
+
+  @Test
+  public void shouldThrowOnWindowedLookupOfNonWindowedTable() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.KEY_VALUE);
+
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("can't specify a window"));
+
+    // When:
+    materialization.get("k", 0, 1000);
+  }
+
+  @Test
+  public void shouldThrowOnNonWindowedLookupOfWindowedTable() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.SESSION);
+
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("must specify a window start range"));
+
+    // When:
+    materialization.get("k");
+  }
+
+  @Test
+  public void shouldThrowIfStoreIsNotAvailable() {
+    // Given:
+    final Materialization materialization = givenMaterialization(
+        Materialization.StoreType.KEY_VALUE);
+    when(streams.store(eq(STORE_NAME), any()))
+        .thenThrow(new InvalidStateStoreException("rebalancing"));
+
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("is not currently available"));
+
+    // When:
+    materialization.get("k");
+  }
+
+  private Materialization givenMaterialization(final Materialization.StoreType storeType) {
+    return new Materialization(
+        streams,
+        STORE_NAME,
+        storeType,
+        WindowSelectMapper.forFunctionNames(Collections.emptyMap()),
+        HAVING_AND_PROJECTION);
+  }
+
+  private static GenericRow row(final Object... columns) {
+    return new GenericRow(Arrays.asList(columns));
+  }
+
+  @SafeVarargs
+  private static KeyValueIterator<Windowed<String>, GenericRow> iterator(
+      final KeyValue<Windowed<String>, GenericRow>... rows
+  ) {
+    final Iterator<KeyValue<Windowed<String>, GenericRow>> it = Arrays.asList(rows).iterator();
+    return new KeyValueIterator<Windowed<String>, GenericRow>() {
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public Windowed<String> peekNextKey() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public KeyValue<Windowed<String>, GenericRow> next() {
+        return it.next();
+      }
+    };
+  }
+}
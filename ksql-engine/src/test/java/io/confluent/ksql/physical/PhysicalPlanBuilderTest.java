@@ -22,6 +22,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
 import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,6 +31,7 @@ import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.KsqlEngineTestUtil;
@@ -170,11 +172,31 @@ public class PhysicalPlanBuilderTest {
 
   private PhysicalPlanBuilder buildPhysicalPlanBuilder(
       final Map<String, Object> overrideProperties) {
+    return buildPhysicalPlanBuilder(
+        ksqlConfig.cloneWithPropertyOverwrite(overrideProperties),
+        overrideProperties,
+        new SharedSourceScans());
+  }
+
+  private PhysicalPlanBuilder buildSharedScanPhysicalPlanBuilder(
+      final SharedSourceScans sharedSourceScans) {
+    return buildPhysicalPlanBuilder(
+        ksqlConfig.cloneWithPropertyOverwrite(ImmutableMap.of(
+            KsqlConfig.KSQL_TRANSIENT_SHARED_SCAN_ENABLED_CONFIG, true,
+            ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest")),
+        Collections.emptyMap(),
+        sharedSourceScans);
+  }
+
+  private PhysicalPlanBuilder buildPhysicalPlanBuilder(
+      final KsqlConfig config,
+      final Map<String, Object> overrideProperties,
+      final SharedSourceScans sharedSourceScans) {
     final StreamsBuilder streamsBuilder = new StreamsBuilder();
     final InternalFunctionRegistry functionRegistry = new InternalFunctionRegistry();
     return new PhysicalPlanBuilder(
         streamsBuilder,
-        ksqlConfig.cloneWithPropertyOverwrite(overrideProperties),
+        config,
         serviceContext,
         processingLogContext,
         functionRegistry,
@@ -182,6 +204,7 @@ public class PhysicalPlanBuilderTest {
         metaStore,
         new QueryIdGenerator(),
         testKafkaStreamsBuilder,
+        sharedSourceScans,
         queryCloseCallback
     );
   }
@@ -646,6 +669,70 @@ public class PhysicalPlanBuilderTest {
     assertThat(ConsumerCollector.class, equalTo(Class.forName(consumerInterceptors.get(2))));
   }
 
+  @Test
+  public void shouldShareScanOfStreamBetweenTransientQueries() {
+    // Given:
+    final SharedSourceScans sharedSourceScans = new SharedSourceScans();
+    final String otherQuery = "SELECT col1 FROM test1;";
+
+    // When:
+    final QueryMetadata first = buildSharedScanPhysicalPlanBuilder(sharedSourceScans)
+        .buildPhysicalPlan(new LogicalPlanNode(
+            simpleSelectFilter, AnalysisTestUtil.buildLogicalPlan(simpleSelectFilter, metaStore)));
+    final QueryMetadata second = buildSharedScanPhysicalPlanBuilder(sharedSourceScans)
+        .buildPhysicalPlan(new LogicalPlanNode(
+            otherQuery, AnalysisTestUtil.buildLogicalPlan(otherQuery, metaStore)));
+
+    // Then:
+    assertThat(first, instanceOf(SharedScanQueryMetadata.class));
+    assertThat(second, instanceOf(SharedScanQueryMetadata.class));
+    assertThat(testKafkaStreamsBuilder.getCalls(), hasSize(1));
+    assertThat(sharedSourceScans.size(), is(1));
+    closeQueries(ImmutableList.of(first, second));
+  }
+
+  @Test
+  public void shouldCloseSharedScanOnceAllItsQueriesAreClosed() {
+    // Given:
+    final SharedSourceScans sharedSourceScans = new SharedSourceScans();
+    final QueryMetadata first = buildSharedScanPhysicalPlanBuilder(sharedSourceScans)
+        .buildPhysicalPlan(new LogicalPlanNode(
+            simpleSelectFilter, AnalysisTestUtil.buildLogicalPlan(simpleSelectFilter, metaStore)));
+    final QueryMetadata second = buildSharedScanPhysicalPlanBuilder(sharedSourceScans)
+        .buildPhysicalPlan(new LogicalPlanNode(
+            simpleSelectFilter, AnalysisTestUtil.buildLogicalPlan(simpleSelectFilter, metaStore)));
+
+    // When:
+    first.close();
+
+    // Then:
+    assertThat(first.getState(), is(KafkaStreams.State.NOT_RUNNING.toString()));
+    assertThat(second.getState(), is(KafkaStreams.State.CREATED.toString()));
+    assertThat(sharedSourceScans.size(), is(1));
+
+    // When:
+    second.close();
+
+    // Then:
+    assertThat(sharedSourceScans.size(), is(0));
+  }
+
+  @Test
+  public void shouldNotShareScanOfAggregatingTransientQuery() {
+    // Given:
+    final SharedSourceScans sharedSourceScans = new SharedSourceScans();
+    final String aggregateQuery = "SELECT col0, count(*) FROM test1 GROUP BY col0;";
+
+    // When:
+    final QueryMetadata metadata = buildSharedScanPhysicalPlanBuilder(sharedSourceScans)
+        .buildPhysicalPlan(new LogicalPlanNode(
+            aggregateQuery, AnalysisTestUtil.buildLogicalPlan(aggregateQuery, metaStore)));
+
+    // Then:
+    assertThat(metadata, not(instanceOf(SharedScanQueryMetadata.class)));
+    assertThat(sharedSourceScans.size(), is(0));
+  }
+
   @Test
   public void shouldCreateExpectedServiceId() {
     final String serviceId = physicalPlanBuilder.getServiceId();
@@ -19,6 +19,7 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 
+import com.google.common.collect.ImmutableSet;
 import io.confluent.ksql.function.InternalFunctionRegistry;
 import io.confluent.ksql.metastore.MetaStore;
 import io.confluent.ksql.metastore.StructuredDataSource;
@@ -32,6 +33,7 @@ import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.serde.DataSource.DataSourceType;
 import io.confluent.ksql.testutils.AnalysisTestUtil;
 import io.confluent.ksql.util.MetaStoreFixture;
+import java.util.Optional;
 import org.apache.kafka.connect.data.Schema;
 import org.junit.Assert;
 import org.junit.Before;
@@ -76,6 +78,18 @@ public class LogicalPlannerTest {
     Assert.assertNotNull(((FilterNode) logicalPlan.getSources().get(0).getSources().get(0)).getPredicate());
   }
 
+  @Test
+  public void shouldOnlyRequireReferencedSourceColumns() {
+    // When:
+    final PlanNode logicalPlan = buildLogicalPlan(
+        "SELECT col0, ABS(col3) FROM test1 WHERE col2 = 'foo';");
+
+    // Then:
+    final StructuredDataSourceNode sourceNode = logicalPlan.getTheSourceNode();
+    assertThat(sourceNode.getRequiredColumns(),
+        equalTo(Optional.of(ImmutableSet.of("COL0", "COL2", "COL3"))));
+  }
+
   @Test
   public void testSimpleLeftJoinLogicalPlan() {
     final String simpleQuery = "SELECT t1.col1, t2.col1, t1.col4, t2.col2 FROM test1 t1 LEFT JOIN test2 t2 ON t1.col1 = t2.col1;";
@@ -44,6 +44,7 @@ import io.confluent.ksql.function.UdfLoaderUtil;
 import io.confluent.ksql.logging.processing.ProcessingLogConstants;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.logging.processing.ProcessingLoggerUtil;
+import io.confluent.ksql.materialization.Materialization;
 import io.confluent.ksql.metastore.MetaStore;
 import io.confluent.ksql.query.QueryId;
 import io.confluent.ksql.util.LimitedProxyBuilder;
@@ -62,10 +63,12 @@ import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.KafkaStreams;
 import org.apache.kafka.streams.StreamsBuilder;
 import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.TopologyDescription;
@@ -300,6 +303,77 @@ public class AggregateNodeTest {
     assertThat(stream.getKeySerde(), is(not(Optional.empty())));
   }
 
+  @Test
+  public void shouldNameMaterializationAfterAggregationStateStore() {
+    // Given:
+    final AggregateNode aggregateNode = buildAggregateNode(
+        "SELECT col0, sum(col3), count(col3) FROM test1 "
+            + "window TUMBLING (size 2 second) GROUP BY col0;");
+    final SchemaKStream stream = buildQuery(aggregateNode, ksqlConfig);
+
+    // When:
+    final Optional<Materialization> materialization =
+        buildMaterialization(aggregateNode, stream, ksqlConfig);
+
+    // Then:
+    assertThat(materialization.get().getStoreName(), is("Aggregate-aggregate"));
+    assertThat(stateStoreNames(), hasItem(materialization.get().getStoreName()));
+    assertThat(materialization.get().isWindowed(), is(true));
+  }
+
+  @Test
+  public void shouldNameMaterializationOfUnwindowedAggregationAfterItsStateStore() {
+    // Given:
+    final AggregateNode aggregateNode = buildAggregateNode(
+        "SELECT col0, sum(col3) FROM test1 GROUP BY col0 HAVING sum(col3) > 10;");
+    final SchemaKStream stream = buildQuery(aggregateNode, ksqlConfig);
+
+    // When:
+    final Optional<Materialization> materialization =
+        buildMaterialization(aggregateNode, stream, ksqlConfig);
+
+    // Then:
+    assertThat(materialization.get().getStoreName(), is("Aggregate-aggregate"));
+    assertThat(stateStoreNames(), hasItem(materialization.get().getStoreName()));
+    assertThat(materialization.get().isWindowed(), is(false));
+  }
+
+  @Test
+  public void shouldBuildWindowedMaterializationForSessionWindows() {
+    // Given:
+    final AggregateNode aggregateNode = buildAggregateNode(
+        "SELECT col0, count(col3) FROM test1 WINDOW SESSION (10 SECONDS) GROUP BY col0;");
+    final SchemaKStream stream = buildQuery(aggregateNode, ksqlConfig);
+
+    // When:
+    final Optional<Materialization> materialization =
+        buildMaterialization(aggregateNode, stream, ksqlConfig);
+
+    // Then:
+    assertThat(stateStoreNames(), hasItem(materialization.get().getStoreName()));
+    assertThat(materialization.get().isWindowed(), is(true));
+  }
+
+  @Test
+  public void shouldNotBuildMaterializationIfInternalTopicNamingOff() {
+    // Given:
+    final KsqlConfig ksqlConfig = new KsqlConfig(ImmutableMap.of(
+        StreamsConfig.TOPOLOGY_OPTIMIZATION,
+        StreamsConfig.NO_OPTIMIZATION,
+        KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS,
+        KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS_OFF));
+    final AggregateNode aggregateNode = buildAggregateNode(
+        "SELECT col0, sum(col3) FROM test1 GROUP BY col0;");
+    final SchemaKStream stream = buildQuery(aggregateNode, ksqlConfig);
+
+    // When:
+    final Optional<Materialization> materialization =
+        buildMaterialization(aggregateNode, stream, ksqlConfig);
+
+    // Then:
+    assertThat(materialization, is(Optional.empty()));
+  }
+
   private SchemaKStream build() {
     return build(ksqlConfig);
   }
@@ -395,6 +469,32 @@ public class AggregateNodeTest {
             queryId);
   }
 
+  private Optional<Materialization> buildMaterialization(
+      final AggregateNode aggregateNode,
+      final SchemaKStream stream,
+      final KsqlConfig ksqlConfig
+  ) {
+    SchemaKStream<?> aggregateStage = stream;
+    while (aggregateStage.getType() != SchemaKStream.Type.AGGREGATE) {
+      aggregateStage = aggregateStage.getSourceSchemaKStreams().get(0);
+    }
+
+    return aggregateNode.buildMaterialization(
+        (SchemaKTable<?>) aggregateStage,
+        mock(KafkaStreams.class),
+        ksqlConfig,
+        processingLogContext,
+        queryId);
+  }
+
+  private Set<String> stateStoreNames() {
+    return builder.build().describe().subtopologies().stream()
+        .flatMap(subtopology -> subtopology.nodes().stream())
+        .filter(TopologyDescription.Processor.class::isInstance)
+        .flatMap(node -> ((TopologyDescription.Processor) node).stores().stream())
+        .collect(Collectors.toSet());
+  }
+
   private static AggregateNode buildAggregateNode(final String queryString) {
     final MetaStore newMetaStore = MetaStoreFixture.getNewMetaStore(new InternalFunctionRegistry());
     final KsqlBareOutputNode planNode = (KsqlBareOutputNode) AnalysisTestUtil
@@ -78,5 +78,28 @@ public class ExtensionSecurityManagerTest {
       return null;
     }, new Object()).evaluate();
   }
-  
-}
\ No newline at end of file
+
+  @Test(expected = SecurityException.class)
+  public void shouldNotAllowExitAfterNestedPluggableUDF() {
+    new PluggableUdf((thiz, args) -> {
+      new PluggableUdf((innerThiz, innerArgs) -> null, new Object()).evaluate();
+      System.exit(1);
+      return null;
+    }, new Object()).evaluate();
+  }
+
+  @Test
+  public void shouldAllowExecAfterPluggableUDFFails() {
+    // Given:
+    try {
+      new PluggableUdf((thiz, args) -> {
+        throw new IllegalStateException("boom");
+      }, new Object()).evaluate();
+    } catch (final IllegalStateException e) {
+      // expected
+    }
+
+    // Then:
+    ExtensionSecurityManager.INSTANCE.checkExec("cmd");
+  }
+}
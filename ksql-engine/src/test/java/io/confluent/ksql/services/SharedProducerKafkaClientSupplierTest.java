@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.services;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.Map;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.streams.KafkaClientSupplier;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class SharedProducerKafkaClientSupplierTest {
+
+  private static final Map<String, Object> CONFIG = ImmutableMap.of(
+      ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+      ProducerConfig.CLIENT_ID_CONFIG, "query-1-thread-1-producer");
+
+  private static final Map<String, Object> OTHER_CLIENT_CONFIG = ImmutableMap.of(
+      ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+      ProducerConfig.CLIENT_ID_CONFIG, "query-2-thread-1-producer");
+
+  private static final Map<String, Object> TRANSACTIONAL_CONFIG = ImmutableMap.of(
+      ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "localhost:9092",
+      ProducerConfig.TRANSACTIONAL_ID_CONFIG, "query-1-0_0");
+
+  @Mock
+  private KafkaClientSupplier delegate;
+  @Mock
+  private Producer<byte[], byte[]> producer;
+  private SharedProducerKafkaClientSupplier supplier;
+
+  @Before
+  public void setUp() {
+    when(delegate.getProducer(any())).thenReturn(producer);
+
+    supplier = new SharedProducerKafkaClientSupplier(delegate);
+  }
+
+  @Test
+  public void shouldShareProducerBetweenClientIds() {
+    // When:
+    supplier.getProducer(CONFIG);
+    supplier.getProducer(OTHER_CLIENT_CONFIG);
+
+    // Then:
+    verify(delegate, times(1)).getProducer(any());
+  }
+
+  @Test
+  public void shouldNotShareProducerBetweenDifferentConfigs() {
+    // When:
+    supplier.getProducer(CONFIG);
+    supplier.getProducer(ImmutableMap.of(
+        ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, "otherhost:9092"));
+
+    // Then:
+    verify(delegate, times(2)).getProducer(any());
+  }
+
+  @Test
+  public void shouldNotShareTransactionalProducers() {
+    // When:
+    final Producer<byte[], byte[]> result = supplier.getProducer(TRANSACTIONAL_CONFIG);
+    supplier.getProducer(TRANSACTIONAL_CONFIG);
+
+    // Then:
+    verify(delegate, times(2)).getProducer(TRANSACTIONAL_CONFIG);
+    assertThat(result, is(sameInstance(producer)));
+  }
+
+  @Test
+  public void shouldForwardSendToSharedProducer() {
+    // Given:
+    final Producer<byte[], byte[]> shared = supplier.getProducer(CONFIG);
+    final ProducerRecord<byte[], byte[]> record = new ProducerRecord<>("topic", new byte[]{1});
+
+    // When:
+    shared.send(record, null);
+
+    // Then:
+    assertThat(shared, is(not(sameInstance(producer))));
+    verify(producer).send(record, null);
+  }
+
+  @Test
+  public void shouldNotCloseSharedProducerWhenQueryClosesIt() {
+    // Given:
+    final Producer<byte[], byte[]> shared = supplier.getProducer(CONFIG);
+
+    // When:
+    shared.close();
+
+    // Then:
+    verify(producer, never()).close();
+  }
+
+  @Test
+  public void shouldCloseSharedProducersOnClose() {
+    // Given:
+    supplier.getProducer(CONFIG);
+
+    // When:
+    supplier.close();
+
+    // Then:
+    verify(producer).close();
+  }
+}
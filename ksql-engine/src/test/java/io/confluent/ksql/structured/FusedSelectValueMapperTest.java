@@ -0,0 +1,217 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.structured;
+
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.codegen.ProjectionCompiler;
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.logging.processing.ProcessingLogConfig;
+import io.confluent.ksql.logging.processing.ProcessingLogMessageSchema;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.planner.plan.FilterNode;
+import io.confluent.ksql.planner.plan.PlanNode;
+import io.confluent.ksql.planner.plan.ProjectNode;
+import io.confluent.ksql.testutils.AnalysisTestUtil;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.MetaStoreFixture;
+import io.confluent.ksql.util.ProjectionMetadata;
+import io.confluent.ksql.util.SelectExpression;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaAndValue;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class FusedSelectValueMapperTest {
+  private final MetaStore metaStore =
+      MetaStoreFixture.getNewMetaStore(new InternalFunctionRegistry());
+  private final KsqlConfig ksqlConfig = new KsqlConfig(Collections.emptyMap());
+
+  @Mock
+  private ProcessingLogger processingLogger;
+  @Mock
+  private ProcessingLogger filterProcessingLogger;
+
+  @Rule
+  public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  @Test
+  public void shouldSelectChosenColumns() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0, col2, col3 FROM test1;");
+
+    // When:
+    final GenericRow transformed = selectMapper.apply(
+        genericRow(1521834663L, "key1", 1L, "hi", "bye", 2.0F, "blah"));
+
+    // Then:
+    assertThat(transformed, is(genericRow(1L, "bye", 2.0F)));
+  }
+
+  @Test
+  public void shouldApplyUdfsToColumns() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0, col1, col2, CEIL(col3) FROM test1;");
+
+    // When:
+    final GenericRow row = selectMapper.apply(
+        genericRow(1521834663L, "key1", 2L, "foo", "whatever", 6.9F, "boo", "hoo"));
+
+    // Then:
+    assertThat(row, is(genericRow(2L, "foo", "whatever", 7.0F)));
+  }
+
+  @Test
+  public void shouldShareColumnsAcrossExpressions() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0 + 1, col0 * 2, col0 + 1 FROM test1;");
+
+    // When:
+    final GenericRow row = selectMapper.apply(
+        genericRow(1521834663L, "key1", 5L, "foo", "whatever", 6.9F, "boo", "hoo"));
+
+    // Then:
+    assertThat(row, is(genericRow(6L, 10L, 6L)));
+  }
+
+  @Test
+  public void shouldApplyFilter() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0, col2 FROM test1 WHERE col0 > 100;");
+
+    // When:
+    final GenericRow passed = selectMapper.apply(
+        genericRow(1521834663L, "key1", 101L, "hi", "bye", 2.0F, "blah"));
+    final GenericRow filtered = selectMapper.apply(
+        genericRow(1521834663L, "key1", 100L, "hi", "bye", 2.0F, "blah"));
+
+    // Then:
+    assertThat(passed, is(genericRow(101L, "bye")));
+    assertThat(filtered, is(nullValue()));
+  }
+
+  @Test
+  public void shouldHandleNullRows() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0, col1, col2, CEIL(col3) FROM test1 WHERE col0 > 100;");
+
+    // When:
+    final GenericRow row = selectMapper.apply(null);
+
+    // Then:
+    assertThat(row, is(nullValue()));
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void shouldWriteProcessingLogOnError() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0, col1, col2, CEIL(col3) FROM test1;");
+
+    // When:
+    final GenericRow row = selectMapper.apply(
+        new GenericRow(0L, "key", 2L, "foo", "whatever", null, "boo", "hoo"));
+
+    // Then:
+    assertThat(row, is(genericRow(2L, "foo", "whatever", null)));
+    final ArgumentCaptor<Function<ProcessingLogConfig, SchemaAndValue>> captor
+        = ArgumentCaptor.forClass(Function.class);
+    verify(processingLogger).error(captor.capture());
+    final SchemaAndValue schemaAndValue = captor.getValue().apply(
+        new ProcessingLogConfig(Collections.emptyMap()));
+    final Struct errorStruct = ((Struct) schemaAndValue.value())
+        .getStruct(ProcessingLogMessageSchema.RECORD_PROCESSING_ERROR);
+    assertThat(
+        errorStruct.get(ProcessingLogMessageSchema.RECORD_PROCESSING_ERROR_FIELD_MESSAGE),
+        equalTo(
+            "Error computing expression CEIL(TEST1.COL3) "
+                + "for column KSQL_COL_3 with index 3: null")
+    );
+  }
+
+  @Test
+  public void shouldWriteFilterErrorsToFilterProcessingLog() {
+    // Given:
+    final FusedSelectValueMapper selectMapper = givenSelectMapperFor(
+        "SELECT col0 FROM test1 WHERE CEIL(col3) > 1;");
+
+    // When:
+    final GenericRow row = selectMapper.apply(
+        new GenericRow(0L, "key", 2L, "foo", "whatever", null, "boo", "hoo"));
+
+    // Then:
+    assertThat(row, is(nullValue()));
+    verify(filterProcessingLogger).error(any());
+    verifyZeroInteractions(processingLogger);
+  }
+
+  private FusedSelectValueMapper givenSelectMapperFor(final String query) {
+    final PlanNode planNode = AnalysisTestUtil.buildLogicalPlan(query, metaStore);
+    final ProjectNode projectNode = (ProjectNode) planNode.getSources().get(0);
+    final Schema schema = planNode.getTheSourceNode().getSchema();
+    final Optional<Expression> filter = projectNode.getSource() instanceof FilterNode
+        ? Optional.of(((FilterNode) projectNode.getSource()).getPredicate())
+        : Optional.empty();
+    final List<SelectExpression> selectExpressions = projectNode.getProjectSelectExpressions();
+    final ProjectionMetadata projection =
+        new ProjectionCompiler(schema, ksqlConfig, new InternalFunctionRegistry())
+            .compile(
+                selectExpressions.stream()
+                    .map(SelectExpression::getExpression)
+                    .collect(Collectors.toList()),
+                filter);
+    final List<String> selectFieldNames = selectExpressions.stream()
+        .map(SelectExpression::getName)
+        .collect(Collectors.toList());
+    return new FusedSelectValueMapper(
+        schema,
+        selectFieldNames,
+        projection,
+        processingLogger,
+        filterProcessingLogger
+    );
+  }
+
+  private static GenericRow genericRow(final Object... columns) {
+    return new GenericRow(Arrays.asList(columns));
+  }
+}
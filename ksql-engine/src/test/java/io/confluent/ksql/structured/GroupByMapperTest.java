@@ -105,6 +105,34 @@ public class GroupByMapperTest {
     assertThat(result, is("null|+|result1"));
   }
 
+  @Test
+  public void shouldGenerateGroupByKeyFromPrimitiveValues() {
+    // Given:
+    EasyMock.expect(groupBy0.evaluate(row)).andReturn(-10L);
+    EasyMock.expect(groupBy1.evaluate(row)).andReturn(1.5);
+    EasyMock.replay(groupBy0, groupBy1);
+
+    // When:
+    final String result = mapper.apply("key", row);
+
+    // Then:
+    assertThat(result, is("-10|+|1.5"));
+  }
+
+  @Test
+  public void shouldGenerateGroupByKeyForSingleExpression() {
+    // Given:
+    final GroupByMapper<Object> singleMapper = new GroupByMapper<>(ImmutableList.of(groupBy0));
+    EasyMock.expect(groupBy0.evaluate(row)).andReturn(42);
+    EasyMock.replay(groupBy0);
+
+    // When:
+    final String result = singleMapper.apply("key", row);
+
+    // Then:
+    assertThat(result, is("42"));
+  }
+
   @Test
   public void shouldGetKeyName() {
     // Given:
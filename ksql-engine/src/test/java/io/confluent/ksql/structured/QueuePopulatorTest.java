@@ -0,0 +1,109 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.structured;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+
+import com.google.common.collect.ImmutableList;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.planner.plan.OutputNode;
+import io.confluent.ksql.structured.QueuedSchemaKStream.OverflowPolicy;
+import io.confluent.ksql.structured.QueuedSchemaKStream.QueuePopulator;
+import io.confluent.ksql.util.KsqlException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.stream.Collectors;
+import org.apache.kafka.streams.KeyValue;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class QueuePopulatorTest {
+
+  private static final OutputNode.Callback ALWAYS_QUEUE = new OutputNode.Callback() {
+    @Override
+    public boolean shouldQueue() {
+      return true;
+    }
+
+    @Override
+    public void onQueued() {
+    }
+  };
+
+  @Rule
+  public final ExpectedException expectedException = ExpectedException.none();
+
+  private final BlockingQueue<KeyValue<String, GenericRow>> queue = new LinkedBlockingQueue<>(2);
+
+  @Test
+  public void shouldDropOldestRowsWhenFullIfDropOldest() {
+    // Given:
+    final QueuePopulator<String> populator =
+        new QueuePopulator<>(queue, ALWAYS_QUEUE, OverflowPolicy.DROP_OLDEST);
+
+    // When:
+    populator.apply("k1", row("a"));
+    populator.apply("k2", row("b"));
+    populator.apply("k3", row("c"));
+
+    // Then:
+    assertThat(queuedKeys(), contains("k2", "k3"));
+  }
+
+  @Test
+  public void shouldThrowWhenFullIfTerminate() {
+    // Given:
+    final QueuePopulator<String> populator =
+        new QueuePopulator<>(queue, ALWAYS_QUEUE, OverflowPolicy.TERMINATE);
+    populator.apply("k1", row("a"));
+    populator.apply("k2", row("b"));
+
+    // Then:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(containsString("queue of 2 rows is full"));
+
+    // When:
+    populator.apply("k3", row("c"));
+  }
+
+  @Test
+  public void shouldQueueRowsWhileNotFullIfTerminate() {
+    // Given:
+    final QueuePopulator<String> populator =
+        new QueuePopulator<>(queue, ALWAYS_QUEUE, OverflowPolicy.TERMINATE);
+
+    // When:
+    populator.apply("k1", row("a"));
+    populator.apply("k2", row("b"));
+
+    // Then:
+    assertThat(queuedKeys(), contains("k1", "k2"));
+  }
+
+  private List<String> queuedKeys() {
+    return queue.stream()
+        .map(kv -> kv.key)
+        .collect(Collectors.toList());
+  }
+
+  private static GenericRow row(final Object value) {
+    return new GenericRow(ImmutableList.of(value));
+  }
+}
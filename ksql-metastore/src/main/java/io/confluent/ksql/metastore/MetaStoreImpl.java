@@ -15,6 +15,7 @@
 
 package io.confluent.ksql.metastore;
 
+import com.google.common.collect.Sets;
 import io.confluent.ksql.function.AggregateFunctionFactory;
 import io.confluent.ksql.function.FunctionRegistry;
 import io.confluent.ksql.function.KsqlAggregateFunction;
@@ -22,57 +23,65 @@ import io.confluent.ksql.function.UdfFactory;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.KsqlReferentialIntegrityException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.annotation.concurrent.ThreadSafe;
 import org.apache.kafka.connect.data.Schema;
 
+/**
+ * A metastore whose topics and sources are held in immutable snapshots.
+ *
+ * <p>Reads never lock: they see whichever snapshot is current. Each change builds a new snapshot
+ * from the current one and swaps it in atomically, retrying if another change got there first,
+ * so a change either applies in full or not at all. As snapshots are never modified once
+ * published, {@link #copy()} shares the current one with the copy rather than copying the
+ * catalog, and only the copy's own later changes build new snapshots.
+ */
 @ThreadSafe
 public final class MetaStoreImpl implements MutableMetaStore {
 
-  private final Map<String, KsqlTopic> topics = new ConcurrentHashMap<>();
-  private final Map<String, SourceInfo> dataSources = new ConcurrentHashMap<>();
-  private final Object referentialIntegrityLock = new Object();
+  private final AtomicReference<State> state;
   private final FunctionRegistry functionRegistry;
 
   public MetaStoreImpl(final FunctionRegistry functionRegistry) {
-    this.functionRegistry = Objects.requireNonNull(functionRegistry, "functionRegistry");
+    this(State.EMPTY, functionRegistry);
   }
 
   private MetaStoreImpl(
-      final Map<String, KsqlTopic> topics,
-      final Map<String, SourceInfo> dataSources,
+      final State state,
       final FunctionRegistry functionRegistry
   ) {
-    this.topics.putAll(topics);
+    this.state = new AtomicReference<>(Objects.requireNonNull(state, "state"));
     this.functionRegistry = Objects.requireNonNull(functionRegistry, "functionRegistry");
-
-    dataSources.forEach((name, info) -> this.dataSources.put(name, info.copy()));
   }
 
   @Override
   public KsqlTopic getTopic(final String topicName) {
-    return topics.get(topicName);
+    return state.get().topics.get(topicName);
   }
 
   @Override
   public void putTopic(final KsqlTopic topic) {
-    if (topics.putIfAbsent(topic.getName(), topic) != null) {
-      throw new KsqlException(
-          "Cannot add the new topic. Another topic with the same name already exists: "
-          + topic.getName());
-    }
+    state.updateAndGet(current -> {
+      if (current.topics.containsKey(topic.getName())) {
+        throw new KsqlException(
+            "Cannot add the new topic. Another topic with the same name already exists: "
+            + topic.getName());
+      }
+      return current.withTopics(with(current.topics, topic.getName(), topic));
+    });
   }
 
   @Override
   public StructuredDataSource getSource(final String sourceName) {
-    final SourceInfo source = dataSources.get(sourceName);
+    final SourceInfo source = state.get().dataSources.get(sourceName);
     if (source == null) {
       return null;
     }
@@ -81,7 +90,7 @@ public final class MetaStoreImpl implements MutableMetaStore {
 
   @Override
   public Optional<StructuredDataSource> getSourceForTopic(final String ksqlTopicName) {
-    return dataSources.values()
+    return state.get().dataSources.values()
         .stream()
         .filter(p -> p.source.getKsqlTopic().getName() != null
             && p.source.getKsqlTopic().getName().equals(ksqlTopicName))
@@ -91,63 +100,69 @@ public final class MetaStoreImpl implements MutableMetaStore {
 
   @Override
   public void putSource(final StructuredDataSource dataSource) {
-    if (dataSources.putIfAbsent(dataSource.getName(), new SourceInfo(dataSource)) != null) {
-      throw new KsqlException(
-          "Cannot add the new data source. Another data source with the same name already exists: "
-              + dataSource.toString());
-    }
+    state.updateAndGet(current -> {
+      if (current.dataSources.containsKey(dataSource.getName())) {
+        throw new KsqlException(
+            "Cannot add the new data source. Another data source with the same name already "
+                + "exists: " + dataSource.toString());
+      }
+      return current.withDataSources(
+          with(current.dataSources, dataSource.getName(), new SourceInfo(dataSource)));
+    });
   }
 
   @Override
   public void deleteTopic(final String topicName) {
-    if (topics.remove(topicName) == null) {
-      throw new KsqlException(String.format("No topic with name %s was registered.", topicName));
-    }
+    state.updateAndGet(current -> {
+      if (!current.topics.containsKey(topicName)) {
+        throw new KsqlException(String.format("No topic with name %s was registered.", topicName));
+      }
+      return current.withTopics(without(current.topics, topicName));
+    });
   }
 
   @Override
   public void deleteSource(final String sourceName) {
-    synchronized (referentialIntegrityLock) {
-      dataSources.compute(sourceName, (ignored, source) -> {
-        if (source == null) {
-          throw new KsqlException(String.format("No data source with name %s exists.", sourceName));
-        }
+    state.updateAndGet(current -> {
+      final SourceInfo source = current.dataSources.get(sourceName);
+      if (source == null) {
+        throw new KsqlException(String.format("No data source with name %s exists.", sourceName));
+      }
 
-        final String sourceForQueriesMessage = source.referentialIntegrity
-            .getSourceForQueries()
-            .stream()
-            .collect(Collectors.joining(", "));
-
-        final String sinkForQueriesMessage = source.referentialIntegrity
-            .getSinkForQueries()
-            .stream()
-            .collect(Collectors.joining(", "));
-
-        if (!sourceForQueriesMessage.isEmpty() || !sinkForQueriesMessage.isEmpty()) {
-          throw new KsqlReferentialIntegrityException(
-              String.format("Cannot drop %s.%n"
-                      + "The following queries read from this source: [%s].%n"
-                      + "The following queries write into this source: [%s].%n"
-                      + "You need to terminate them before dropping %s.",
-                  sourceName, sourceForQueriesMessage, sinkForQueriesMessage, sourceName));
-        }
+      final String sourceForQueriesMessage = source.referentialIntegrity
+          .getSourceForQueries()
+          .stream()
+          .collect(Collectors.joining(", "));
+
+      final String sinkForQueriesMessage = source.referentialIntegrity
+          .getSinkForQueries()
+          .stream()
+          .collect(Collectors.joining(", "));
+
+      if (!sourceForQueriesMessage.isEmpty() || !sinkForQueriesMessage.isEmpty()) {
+        throw new KsqlReferentialIntegrityException(
+            String.format("Cannot drop %s.%n"
+                    + "The following queries read from this source: [%s].%n"
+                    + "The following queries write into this source: [%s].%n"
+                    + "You need to terminate them before dropping %s.",
+                sourceName, sourceForQueriesMessage, sinkForQueriesMessage, sourceName));
+      }
 
-        return null;
-      });
-    }
+      return current.withDataSources(without(current.dataSources, sourceName));
+    });
   }
 
   @Override
   public Map<String, StructuredDataSource> getAllStructuredDataSources() {
-    return dataSources
-        .entrySet()
-        .stream()
-        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().source));
+    final Map<String, SourceInfo> dataSources = state.get().dataSources;
+    final Map<String, StructuredDataSource> result = new HashMap<>(dataSources.size());
+    dataSources.forEach((name, sourceInfo) -> result.put(name, sourceInfo.source));
+    return result;
   }
 
   @Override
   public Map<String, KsqlTopic> getAllKsqlTopics() {
-    return Collections.unmodifiableMap(topics);
+    return state.get().topics;
   }
 
   @Override
@@ -156,13 +171,13 @@ public final class MetaStoreImpl implements MutableMetaStore {
       final Set<String> sourceNames,
       final Set<String> sinkNames
   ) {
-    synchronized (referentialIntegrityLock) {
-      final String sourceAlreadyRegistered = streamSources(sourceNames)
+    state.updateAndGet(current -> {
+      final String sourceAlreadyRegistered = current.streamSources(sourceNames)
           .filter(source -> source.referentialIntegrity.getSourceForQueries().contains(queryId))
           .map(source -> source.source.getName())
           .collect(Collectors.joining(","));
 
-      final String sinkAlreadyRegistered = streamSources(sinkNames)
+      final String sinkAlreadyRegistered = current.streamSources(sinkNames)
           .filter(source -> source.referentialIntegrity.getSinkForQueries().contains(queryId))
           .map(source -> source.source.getName())
           .collect(Collectors.joining(","));
@@ -174,25 +189,53 @@ public final class MetaStoreImpl implements MutableMetaStore {
             + ", registeredAgainstSink: " + sinkAlreadyRegistered);
       }
 
-      streamSources(sourceNames)
-          .forEach(source -> source.referentialIntegrity.addSourceForQueries(queryId));
-      streamSources(sinkNames)
-          .forEach(source -> source.referentialIntegrity.addSinkForQueries(queryId));
-    }
+      final Map<String, SourceInfo> dataSources = new HashMap<>(current.dataSources);
+      for (final String name : Sets.union(sourceNames, sinkNames)) {
+        final SourceInfo sourceInfo = current.dataSources.get(name);
+        final ReferentialIntegrityTableEntry referentialIntegrity =
+            sourceInfo.referentialIntegrity.copy();
+        if (sourceNames.contains(name)) {
+          referentialIntegrity.addSourceForQueries(queryId);
+        }
+        if (sinkNames.contains(name)) {
+          referentialIntegrity.addSinkForQueries(queryId);
+        }
+        dataSources.put(name, new SourceInfo(sourceInfo.source, referentialIntegrity));
+      }
+      return current.withDataSources(Collections.unmodifiableMap(dataSources));
+    });
   }
 
   @Override
   public void removePersistentQuery(final String queryId) {
-    synchronized (referentialIntegrityLock) {
-      for (final SourceInfo sourceInfo : dataSources.values()) {
-        sourceInfo.referentialIntegrity.removeQuery(queryId);
+    state.updateAndGet(current -> {
+      Map<String, SourceInfo> dataSources = null;
+      for (final SourceInfo sourceInfo : current.dataSources.values()) {
+        if (!sourceInfo.referentialIntegrity.getSourceForQueries().contains(queryId)
+            && !sourceInfo.referentialIntegrity.getSinkForQueries().contains(queryId)) {
+          continue;
+        }
+
+        if (dataSources == null) {
+          dataSources = new HashMap<>(current.dataSources);
+        }
+        final ReferentialIntegrityTableEntry referentialIntegrity =
+            sourceInfo.referentialIntegrity.copy();
+        referentialIntegrity.removeQuery(queryId);
+        dataSources.put(
+            sourceInfo.source.getName(),
+            new SourceInfo(sourceInfo.source, referentialIntegrity));
       }
-    }
+
+      return dataSources == null
+          ? current
+          : current.withDataSources(Collections.unmodifiableMap(dataSources));
+    });
   }
 
   @Override
   public Set<String> getQueriesWithSource(final String sourceName) {
-    final SourceInfo sourceInfo = dataSources.get(sourceName);
+    final SourceInfo sourceInfo = state.get().dataSources.get(sourceName);
     if (sourceInfo == null) {
       return Collections.emptySet();
     }
@@ -201,7 +244,7 @@ public final class MetaStoreImpl implements MutableMetaStore {
 
   @Override
   public Set<String> getQueriesWithSink(final String sourceName) {
-    final SourceInfo sourceInfo = dataSources.get(sourceName);
+    final SourceInfo sourceInfo = state.get().dataSources.get(sourceName);
     if (sourceInfo == null) {
       return Collections.emptySet();
     }
@@ -210,9 +253,7 @@ public final class MetaStoreImpl implements MutableMetaStore {
 
   @Override
   public MutableMetaStore copy() {
-    synchronized (referentialIntegrityLock) {
-      return new MetaStoreImpl(topics, dataSources, functionRegistry);
-    }
+    return new MetaStoreImpl(state.get(), functionRegistry);
   }
 
   @Override
@@ -244,16 +285,60 @@ public final class MetaStoreImpl implements MutableMetaStore {
     return functionRegistry.listAggregateFunctions();
   }
 
-  private Stream<SourceInfo> streamSources(final Set<String> sourceNames) {
-    return sourceNames.stream()
-        .map(sourceName -> {
-          final SourceInfo sourceInfo = dataSources.get(sourceName);
-          if (sourceInfo == null) {
-            throw new KsqlException("Unknown source: " + sourceName);
-          }
+  private static <V> Map<String, V> with(
+      final Map<String, V> map,
+      final String key,
+      final V value
+  ) {
+    final Map<String, V> copy = new HashMap<>(map);
+    copy.put(key, value);
+    return Collections.unmodifiableMap(copy);
+  }
+
+  private static <V> Map<String, V> without(final Map<String, V> map, final String key) {
+    final Map<String, V> copy = new HashMap<>(map);
+    copy.remove(key);
+    return Collections.unmodifiableMap(copy);
+  }
+
+  /**
+   * A snapshot of the metastore. Neither the maps, nor the source infos in them, are modified
+   * once the snapshot is published.
+   */
+  private static final class State {
+
+    private static final State EMPTY = new State(Collections.emptyMap(), Collections.emptyMap());
+
+    private final Map<String, KsqlTopic> topics;
+    private final Map<String, SourceInfo> dataSources;
+
+    private State(
+        final Map<String, KsqlTopic> topics,
+        final Map<String, SourceInfo> dataSources
+    ) {
+      this.topics = topics;
+      this.dataSources = dataSources;
+    }
+
+    private State withTopics(final Map<String, KsqlTopic> topics) {
+      return new State(topics, dataSources);
+    }
+
+    private State withDataSources(final Map<String, SourceInfo> dataSources) {
+      return new State(topics, dataSources);
+    }
 
-          return sourceInfo;
-        });
+    private Stream<SourceInfo> streamSources(final Set<String> sourceNames) {
+      return sourceNames.stream()
+          .map(sourceName -> {
+            final SourceInfo sourceInfo = dataSources.get(sourceName);
+            if (sourceInfo == null) {
+              throw new KsqlException("Unknown source: " + sourceName);
+            }
+
+            return sourceInfo;
+          });
+    }
   }
 
   private static final class SourceInfo {
@@ -264,8 +349,7 @@ public final class MetaStoreImpl implements MutableMetaStore {
     private SourceInfo(
         final StructuredDataSource source
     ) {
-      this.source = Objects.requireNonNull(source, "source");
-      this.referentialIntegrity = new ReferentialIntegrityTableEntry();
+      this(source, new ReferentialIntegrityTableEntry());
     }
 
     private SourceInfo(
@@ -273,11 +357,8 @@ public final class MetaStoreImpl implements MutableMetaStore {
         final ReferentialIntegrityTableEntry referentialIntegrity
     ) {
       this.source = Objects.requireNonNull(source, "source");
-      this.referentialIntegrity = referentialIntegrity.copy();
-    }
-
-    public SourceInfo copy() {
-      return new SourceInfo(source, referentialIntegrity);
+      this.referentialIntegrity =
+          Objects.requireNonNull(referentialIntegrity, "referentialIntegrity");
     }
   }
 }
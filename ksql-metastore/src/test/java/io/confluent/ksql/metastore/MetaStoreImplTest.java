@@ -108,6 +108,40 @@ public class MetaStoreImplTest {
     assertThat(metaStore.getAllStructuredDataSources().keySet(), is(empty()));
   }
 
+  @Test
+  public void shouldNotSeeChangesMadeToCopy() {
+    // Given:
+    metaStore.putSource(dataSource);
+    metaStore.updateForPersistentQuery(
+        "some query",
+        ImmutableSet.of(dataSource.getName()),
+        ImmutableSet.of());
+    final MutableMetaStore copy = metaStore.copy();
+
+    // When:
+    copy.removePersistentQuery("some query");
+    copy.deleteSource(dataSource.getName());
+    copy.putSource(dataSource1);
+    copy.putTopic(topic);
+
+    // Then:
+    assertThat(metaStore.getAllStructuredDataSources().keySet(), contains(dataSource.getName()));
+    assertThat(metaStore.getQueriesWithSource(dataSource.getName()), contains("some query"));
+    assertThat(metaStore.getAllKsqlTopics().keySet(), is(empty()));
+  }
+
+  @Test
+  public void shouldNotChangeTopicsAlreadyReturned() {
+    // Given:
+    final Map<String, KsqlTopic> topics = metaStore.getAllKsqlTopics();
+
+    // When:
+    metaStore.putTopic(topic);
+
+    // Then:
+    assertThat(topics.keySet(), is(empty()));
+  }
+
   @Test
   public void shouldDeepCopySourceReferentialIntegrityDataOnCopy() {
     // Given:
@@ -60,6 +60,7 @@ import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
+import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status;
@@ -187,6 +188,15 @@ public class KsqlRestClient implements Closeable {
     return postRequest("query", jsonRequest, readTimeoutMs, false, QueryStream::new);
   }
 
+  public RestResponse<List<StreamedRow>> makePullQueryRequest(
+      final String ksql,
+      final Map<String, Object> properties
+  ) {
+    final KsqlRequest jsonRequest = new KsqlRequest(ksql, properties, null);
+    return postRequest("pull-query", jsonRequest, Optional.empty(), true,
+        r -> r.readEntity(new GenericType<List<StreamedRow>>() { }));
+  }
+
   public RestResponse<InputStream> makePrintTopicRequest(
       final String ksql, final Long commandSeqNum) {
     final KsqlRequest jsonRequest = new KsqlRequest(ksql, localProperties.toMap(), commandSeqNum);
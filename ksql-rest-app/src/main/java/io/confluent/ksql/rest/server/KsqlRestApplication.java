@@ -43,10 +43,12 @@ import io.confluent.ksql.parser.tree.Type;
 import io.confluent.ksql.rest.entity.ServerInfo;
 import io.confluent.ksql.rest.server.computation.CommandQueue;
 import io.confluent.ksql.rest.server.computation.CommandRunner;
+import io.confluent.ksql.rest.server.computation.CommandSnapshotter;
 import io.confluent.ksql.rest.server.computation.CommandStore;
 import io.confluent.ksql.rest.server.computation.StatementExecutor;
 import io.confluent.ksql.rest.server.resources.KsqlExceptionMapper;
 import io.confluent.ksql.rest.server.resources.KsqlResource;
+import io.confluent.ksql.rest.server.resources.PullQueryResource;
 import io.confluent.ksql.rest.server.resources.RootDocument;
 import io.confluent.ksql.rest.server.resources.ServerInfoResource;
 import io.confluent.ksql.rest.server.resources.StatusResource;
@@ -64,12 +66,15 @@ import io.confluent.ksql.util.WelcomeMsgUtils;
 import io.confluent.ksql.version.metrics.VersionCheckerAgent;
 import io.confluent.ksql.version.metrics.collector.KsqlModuleType;
 import io.confluent.rest.Application;
+import io.confluent.rest.RestConfig;
 import io.confluent.rest.validation.JacksonMessageBodyProvider;
 import java.io.Console;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
+import java.net.URI;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collections;
@@ -167,6 +172,13 @@ public final class KsqlRestApplication extends Application<KsqlRestConfig> imple
     config.register(statusResource);
     config.register(ksqlResource);
     config.register(streamedQueryResource);
+    config.register(new PullQueryResource(
+        ksqlConfig,
+        ksqlEngine,
+        new StatementParser(ksqlEngine),
+        commandQueue,
+        Duration.ofMillis(appConfig.getLong(DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG)),
+        URI.create(appConfig.getList(RestConfig.LISTENERS_CONFIG).get(0)).getScheme()));
     config.register(new KsqlExceptionMapper());
   }
 
@@ -385,6 +397,9 @@ public final class KsqlRestApplication extends Application<KsqlRestConfig> imple
         commandStore,
         Duration.ofMillis(
             restConfig.getLong(KsqlRestConfig.STREAMED_QUERY_DISCONNECT_CHECK_MS_CONFIG)),
+        restConfig.getInt(KsqlRestConfig.STREAMED_QUERY_BATCH_MAX_BYTES_CONFIG),
+        Duration.ofMillis(
+            restConfig.getLong(KsqlRestConfig.STREAMED_QUERY_BATCH_MAX_MS_CONFIG)),
         Duration.ofMillis(restConfig.getLong(DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG)),
         versionChecker::updateLastRequestTime
     );
@@ -418,7 +433,9 @@ public final class KsqlRestApplication extends Application<KsqlRestConfig> imple
         commandStore,
         ksqlEngine,
         maxStatementRetries,
-        new ClusterTerminator(ksqlConfig, ksqlEngine, serviceContext, managedTopics)
+        restConfig.getInt(KsqlRestConfig.KSQL_RESTORE_NUM_THREADS_CONFIG),
+        new ClusterTerminator(ksqlConfig, ksqlEngine, serviceContext, managedTopics),
+        buildCommandSnapshotter(restConfig, ksqlConfig, commandTopic)
     );
 
     commandRunner.processPriorCommands();
@@ -478,6 +495,23 @@ public final class KsqlRestApplication extends Application<KsqlRestConfig> imple
     writer.flush();
   }
 
+  private static Optional<CommandSnapshotter> buildCommandSnapshotter(
+      final KsqlRestConfig restConfig,
+      final KsqlConfig ksqlConfig,
+      final String commandTopic
+  ) {
+    final String snapshotDir =
+        restConfig.getString(KsqlRestConfig.KSQL_COMMAND_SNAPSHOT_DIR_CONFIG);
+    if (snapshotDir.isEmpty()) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new CommandSnapshotter(
+        Paths.get(snapshotDir, commandTopic + ".snapshot.json"),
+        restConfig.getInt(KsqlRestConfig.KSQL_COMMAND_SNAPSHOT_INTERVAL_CONFIG),
+        ksqlConfig));
+  }
+
   static void maybeCreateProcessingLogStream(
       final ProcessingLogConfig config,
       final KsqlConfig ksqlConfig,
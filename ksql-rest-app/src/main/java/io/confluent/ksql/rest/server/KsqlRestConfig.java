@@ -40,6 +40,22 @@ public class KsqlRestConfig extends RestConfig {
               + "JSON; this helps proactively determine if the connection has been terminated in "
               + "order to avoid keeping the created streams job alive longer than necessary";
 
+  static final String STREAMED_QUERY_BATCH_MAX_BYTES_CONFIG =
+      "query.stream.batch.max.bytes";
+
+  private static final String STREAMED_QUERY_BATCH_MAX_BYTES_DOC =
+          "The maximum size of the batches of rows written at once while streaming queries as "
+              + "JSON. Rows already queued are batched, up to this size, rather than each being "
+              + "written and flushed on its own";
+
+  static final String STREAMED_QUERY_BATCH_MAX_MS_CONFIG =
+      "query.stream.batch.max.ms";
+
+  private static final String STREAMED_QUERY_BATCH_MAX_MS_DOC =
+          "The maximum time a row waits in a batch while streaming queries as JSON. Only rows "
+              + "that are already queued are batched, so rows are never held back waiting for "
+              + "more; this bounds how long a client waits while a backlog of rows is batched";
+
   static final String DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG =
       KSQL_CONFIG_PREFIX + "server.command.response.timeout.ms";
 
@@ -58,6 +74,24 @@ public class KsqlRestConfig extends RestConfig {
   private static final String KSQL_WEBSOCKETS_NUM_THREADS_DOC =
       "The number of websocket threads to handle query results";
 
+  static final String KSQL_RESTORE_NUM_THREADS_CONFIG =
+      KSQL_CONFIG_PREFIX + "server.restore.num.threads";
+  private static final String KSQL_RESTORE_NUM_THREADS_DOC =
+      "The number of threads used, on startup, to parse the statements in the command topic "
+          + "ahead of them being executed, and to start the queries they create";
+
+  static final String KSQL_COMMAND_SNAPSHOT_DIR_CONFIG =
+      KSQL_CONFIG_PREFIX + "server.command.snapshot.dir";
+  private static final String KSQL_COMMAND_SNAPSHOT_DIR_DOC =
+      "The directory to save snapshots of the commands in the command topic to. On startup, the "
+          + "commands in the latest snapshot are run instead of those in the command topic that "
+          + "it covers. Snapshots are disabled if empty";
+
+  static final String KSQL_COMMAND_SNAPSHOT_INTERVAL_CONFIG =
+      KSQL_CONFIG_PREFIX + "server.command.snapshot.interval";
+  private static final String KSQL_COMMAND_SNAPSHOT_INTERVAL_DOC =
+      "The number of commands to run between snapshots of the commands in the command topic";
+
   private static final ConfigDef CONFIG_DEF;
 
   static {
@@ -67,6 +101,20 @@ public class KsqlRestConfig extends RestConfig {
         1000L,
         Importance.LOW,
         STREAMED_QUERY_DISCONNECT_CHECK_MS_DOC
+    ).define(
+        STREAMED_QUERY_BATCH_MAX_BYTES_CONFIG,
+        Type.INT,
+        64 * 1024,
+        ConfigDef.Range.atLeast(1),
+        Importance.LOW,
+        STREAMED_QUERY_BATCH_MAX_BYTES_DOC
+    ).define(
+        STREAMED_QUERY_BATCH_MAX_MS_CONFIG,
+        Type.LONG,
+        100L,
+        ConfigDef.Range.atLeast(0),
+        Importance.LOW,
+        STREAMED_QUERY_BATCH_MAX_MS_DOC
     ).define(
         DISTRIBUTED_COMMAND_RESPONSE_TIMEOUT_MS_CONFIG,
         Type.LONG,
@@ -85,6 +133,25 @@ public class KsqlRestConfig extends RestConfig {
         5,
         Importance.LOW,
         KSQL_WEBSOCKETS_NUM_THREADS_DOC
+    ).define(
+        KSQL_RESTORE_NUM_THREADS_CONFIG,
+        Type.INT,
+        4,
+        ConfigDef.Range.atLeast(1),
+        Importance.LOW,
+        KSQL_RESTORE_NUM_THREADS_DOC
+    ).define(
+        KSQL_COMMAND_SNAPSHOT_DIR_CONFIG,
+        Type.STRING,
+        "",
+        Importance.LOW,
+        KSQL_COMMAND_SNAPSHOT_DIR_DOC
+    ).define(
+        KSQL_COMMAND_SNAPSHOT_INTERVAL_CONFIG,
+        Type.INT,
+        1000,
+        Importance.LOW,
+        KSQL_COMMAND_SNAPSHOT_INTERVAL_DOC
     );
   }
 
@@ -28,10 +28,22 @@ public class StatementParser {
     this.ksqlEngine = ksqlEngine;
   }
 
-  @SuppressWarnings("unchecked")
   public <T extends Statement> PreparedStatement<T> parseSingleStatement(
       final String statementString
   ) {
+    return prepareStatement(parseWithoutPreparing(statementString));
+  }
+
+  /**
+   * Parse a single statement, without preparing it.
+   *
+   * <p>Unlike preparing, parsing does not depend on the state of the metastore. So a statement can
+   * be parsed on any thread, ahead of the statements before it being executed.
+   *
+   * @param statementString the statement to parse.
+   * @return the parsed statement.
+   */
+  public ParsedStatement parseWithoutPreparing(final String statementString) {
     final List<ParsedStatement> statements = ksqlEngine.parse(statementString);
     if ((statements.size() != 1)) {
       throw new IllegalArgumentException(
@@ -39,6 +51,13 @@ public class StatementParser {
       );
     }
 
-    return (PreparedStatement<T>) ksqlEngine.prepare(statements.get(0));
+    return statements.get(0);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <T extends Statement> PreparedStatement<T> prepareStatement(
+      final ParsedStatement statement
+  ) {
+    return (PreparedStatement<T>) ksqlEngine.prepare(statement);
   }
 }
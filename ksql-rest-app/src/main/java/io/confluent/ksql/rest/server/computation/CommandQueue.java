@@ -70,6 +70,21 @@ public interface CommandQueue extends Closeable {
    */
   List<QueuedCommand> getRestoreCommands();
 
+  /**
+   * Seeks to the supplied offset in the command queue and returns all
+   * commands between then and the end of the queue.
+   *
+   * @param fromOffset the offset of the first command to return
+   * @return the command list history from {@code fromOffset}
+   * @apiNote this method may block
+   */
+  List<QueuedCommand> getRestoreCommands(long fromOffset);
+
+  /**
+   * @return the offset of the next command that will be returned
+   */
+  long getConsumerPosition();
+
   /**
    * @param seqNum  the required minimum sequence number to wait for
    * @param timeout throws {@link TimeoutException} if it takes longer that
@@ -15,17 +15,23 @@
 
 package io.confluent.ksql.rest.server.computation;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.parser.KsqlParser.ParsedStatement;
 import io.confluent.ksql.rest.entity.ClusterTerminateRequest;
 import io.confluent.ksql.rest.util.ClusterTerminator;
 import io.confluent.ksql.rest.util.TerminateCluster;
-import io.confluent.ksql.util.PersistentQueryMetadata;
 import io.confluent.ksql.util.RetryUtil;
 import java.io.Closeable;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import org.apache.kafka.common.errors.WakeupException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -48,21 +54,27 @@ public class CommandRunner implements Runnable, Closeable {
   private final CommandQueue commandStore;
   private volatile boolean closed;
   private final int maxRetries;
+  private final int restoreThreads;
   private final ClusterTerminator clusterTerminator;
+  private final Optional<CommandSnapshotter> snapshotter;
 
   public CommandRunner(
       final StatementExecutor statementExecutor,
       final CommandQueue commandStore,
       final KsqlEngine ksqlEngine,
       final int maxRetries,
-      final ClusterTerminator clusterTerminator
+      final int restoreThreads,
+      final ClusterTerminator clusterTerminator,
+      final Optional<CommandSnapshotter> snapshotter
   ) {
     this.statementExecutor = Objects.requireNonNull(statementExecutor, "statementExecutor");
     this.commandStore = Objects.requireNonNull(commandStore, "commandStore");
     this.ksqlEngine = Objects.requireNonNull(ksqlEngine, "ksqlEngine");
     this.maxRetries = maxRetries;
+    this.restoreThreads = restoreThreads;
     closed = false;
     this.clusterTerminator = Objects.requireNonNull(clusterTerminator, "clusterTerminator");
+    this.snapshotter = Objects.requireNonNull(snapshotter, "snapshotter");
   }
 
   /**
@@ -101,29 +113,119 @@ public class CommandRunner implements Runnable, Closeable {
     }
     log.trace("Found {} new writes to command topic", commands.size());
     commands.forEach(this::executeStatement);
+    maybeSnapshot(commands.size());
   }
 
   /**
    * Read and execute all commands on the command topic, starting at the earliest offset.
+   *
+   * <p>If there is a {@link CommandSnapshot snapshot} of the commands, its commands are executed
+   * instead of those it covers, and only the commands after it are read from the command topic.
+   *
+   * <p>Each statement must be prepared and executed in order, as it may depend on those before it.
+   * But parsing a statement does not, so statements are parsed ahead, in parallel. Queries are
+   * not started until all the commands have been executed, so only the queries that are still
+   * running are started, and are started in parallel.
    */
   public void processPriorCommands() {
-    final List<QueuedCommand> restoreCommands = commandStore.getRestoreCommands();
+    final Optional<CommandSnapshot> snapshot = snapshotter.flatMap(CommandSnapshotter::load);
+    final List<QueuedCommand> restoreCommands = snapshot
+        .map(s -> commandStore.getRestoreCommands(s.getOffset()))
+        .orElseGet(commandStore::getRestoreCommands);
     final Optional<QueuedCommand> terminateCmd = findTerminateCommand(restoreCommands);
     if (terminateCmd.isPresent()) {
       terminateCluster(terminateCmd.get().getCommand());
       return;
     }
-    restoreCommands.forEach(
-        command -> RetryUtil.retryWithBackoff(
+
+    final ExecutorService restoreExecutor = Executors.newFixedThreadPool(
+        restoreThreads,
+        new ThreadFactoryBuilder()
+            .setDaemon(true)
+            .setNameFormat("ksql-restore-thread-%d")
+            .build());
+
+    try {
+      final List<Future<Optional<ParsedStatement>>> parsed = restoreCommands.stream()
+          .map(command -> restoreExecutor.submit(() -> parseAhead(command)))
+          .collect(Collectors.toList());
+
+      snapshot.ifPresent(this::restoreSnapshot);
+
+      for (int i = 0; i < restoreCommands.size(); i++) {
+        final QueuedCommand command = restoreCommands.get(i);
+        final Optional<ParsedStatement> statement = waitFor(parsed.get(i));
+        RetryUtil.retryWithBackoff(
             maxRetries,
             STATEMENT_RETRY_MS,
             MAX_STATEMENT_RETRY_MS,
-            () -> statementExecutor.handleRestore(command),
+            () -> statementExecutor.handleRestore(command, statement),
             WakeupException.class
-        )
-    );
-    final KsqlEngine ksqlEngine = statementExecutor.getKsqlEngine();
-    ksqlEngine.getPersistentQueries().forEach(PersistentQueryMetadata::start);
+        );
+      }
+
+      final KsqlEngine ksqlEngine = statementExecutor.getKsqlEngine();
+      final List<Future<?>> started = ksqlEngine.getPersistentQueries().stream()
+          .map(query -> restoreExecutor.submit(query::start))
+          .collect(Collectors.toList());
+
+      started.forEach(CommandRunner::waitFor);
+    } finally {
+      restoreExecutor.shutdownNow();
+    }
+
+    maybeSnapshot(restoreCommands.size());
+  }
+
+  private void restoreSnapshot(final CommandSnapshot snapshot) {
+    for (final CommandSnapshot.Entry entry : snapshot.getCommands()) {
+      final QueuedCommand command = new QueuedCommand(entry.getCommandId(), entry.getCommand());
+      RetryUtil.retryWithBackoff(
+          maxRetries,
+          STATEMENT_RETRY_MS,
+          MAX_STATEMENT_RETRY_MS,
+          () -> {
+            entry.getQueryId().ifPresent(ksqlEngine::setNextQueryId);
+            statementExecutor.handleRestore(command, Optional.empty());
+          },
+          WakeupException.class
+      );
+    }
+
+    ksqlEngine.setNextQueryId(snapshot.getNextQueryId());
+  }
+
+  private void maybeSnapshot(final int commandsRun) {
+    snapshotter.ifPresent(s ->
+        s.maybeSnapshot(commandsRun, statementExecutor, commandStore.getConsumerPosition()));
+  }
+
+  /**
+   * Parse the statement of a command, ready for it to be restored.
+   *
+   * <p>Failures are left to the restore to handle, which parses the statement again.
+   */
+  private Optional<ParsedStatement> parseAhead(final QueuedCommand command) {
+    try {
+      return Optional.of(statementExecutor.getStatementParser()
+          .parseWithoutPreparing(command.getCommand().getStatement()));
+    } catch (final Exception e) {
+      return Optional.empty();
+    }
+  }
+
+  private static <T> T waitFor(final Future<T> future) {
+    try {
+      return future.get();
+    } catch (final ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new RuntimeException(e.getCause());
+    } catch (final InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
   }
 
   private void executeStatement(final QueuedCommand queuedCommand) {
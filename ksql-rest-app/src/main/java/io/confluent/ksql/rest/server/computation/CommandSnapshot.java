@@ -0,0 +1,152 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.computation;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * The commands needed to rebuild the metastore and the running queries, as they were once the
+ * commands in the command topic before {@link #getOffset()} had been executed.
+ */
+public final class CommandSnapshot {
+
+  private final long offset;
+  private final long nextQueryId;
+  private final List<Entry> commands;
+
+  @JsonCreator
+  public CommandSnapshot(
+      @JsonProperty("offset") final long offset,
+      @JsonProperty("nextQueryId") final long nextQueryId,
+      @JsonProperty("commands") final List<Entry> commands
+  ) {
+    this.offset = offset;
+    this.nextQueryId = nextQueryId;
+    this.commands = ImmutableList.copyOf(Objects.requireNonNull(commands, "commands"));
+  }
+
+  /**
+   * @return the offset of the first command in the command topic not covered by the snapshot.
+   */
+  public long getOffset() {
+    return offset;
+  }
+
+  /**
+   * @return the number the id of the next persistent query should end with.
+   */
+  public long getNextQueryId() {
+    return nextQueryId;
+  }
+
+  public List<Entry> getCommands() {
+    return commands;
+  }
+
+  @Override
+  public boolean equals(final Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    final CommandSnapshot that = (CommandSnapshot) o;
+    return offset == that.offset
+        && nextQueryId == that.nextQueryId
+        && Objects.equals(commands, that.commands);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(offset, nextQueryId, commands);
+  }
+
+  @Override
+  public String toString() {
+    return "CommandSnapshot{"
+        + "offset=" + offset
+        + ", nextQueryId=" + nextQueryId
+        + ", commands=" + commands
+        + '}';
+  }
+
+  public static final class Entry {
+
+    private final CommandId commandId;
+    private final Command command;
+    private final Optional<Long> queryId;
+
+    @JsonCreator
+    public Entry(
+        @JsonProperty("commandId") final CommandId commandId,
+        @JsonProperty("command") final Command command,
+        @JsonProperty("queryId") final Optional<Long> queryId
+    ) {
+      this.commandId = Objects.requireNonNull(commandId, "commandId");
+      this.command = Objects.requireNonNull(command, "command");
+      this.queryId = queryId == null ? Optional.empty() : queryId;
+    }
+
+    public CommandId getCommandId() {
+      return commandId;
+    }
+
+    public Command getCommand() {
+      return command;
+    }
+
+    /**
+     * @return the number the id of the query the command starts must end with, if it starts one.
+     */
+    public Optional<Long> getQueryId() {
+      return queryId;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (o == null || getClass() != o.getClass()) {
+        return false;
+      }
+      final Entry entry = (Entry) o;
+      return Objects.equals(commandId, entry.commandId)
+          && Objects.equals(command, entry.command)
+          && Objects.equals(queryId, entry.queryId);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(commandId, command, queryId);
+    }
+
+    @Override
+    public String toString() {
+      return "Entry{"
+          + "commandId=" + commandId
+          + ", command=" + command
+          + ", queryId=" + queryId
+          + '}';
+    }
+  }
+}
@@ -0,0 +1,393 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.computation;
+
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.ddl.DdlConfig;
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.json.JsonMapper;
+import io.confluent.ksql.metastore.KsqlStream;
+import io.confluent.ksql.metastore.KsqlTable;
+import io.confluent.ksql.metastore.KsqlTopic;
+import io.confluent.ksql.metastore.MetaStore;
+import io.confluent.ksql.metastore.MetaStoreImpl;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.DefaultKsqlParser;
+import io.confluent.ksql.parser.SqlFormatter;
+import io.confluent.ksql.parser.tree.AbstractStreamCreateStatement;
+import io.confluent.ksql.parser.tree.CreateStream;
+import io.confluent.ksql.parser.tree.CreateTable;
+import io.confluent.ksql.parser.tree.Expression;
+import io.confluent.ksql.parser.tree.QualifiedName;
+import io.confluent.ksql.parser.tree.Statement;
+import io.confluent.ksql.parser.tree.StringLiteral;
+import io.confluent.ksql.parser.tree.TableElement;
+import io.confluent.ksql.query.QueryId;
+import io.confluent.ksql.rest.server.computation.CommandId.Action;
+import io.confluent.ksql.rest.server.computation.CommandId.Type;
+import io.confluent.ksql.serde.DataSource.DataSourceSerDe;
+import io.confluent.ksql.serde.avro.KsqlAvroTopicSerDe;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.ParserUtil;
+import io.confluent.ksql.util.PersistentQueryMetadata;
+import io.confluent.ksql.util.SchemaUtil;
+import io.confluent.ksql.util.TypeUtil;
+import io.confluent.ksql.util.timestamp.StringTimestampExtractionPolicy;
+import io.confluent.ksql.util.timestamp.TimestampExtractionPolicy;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.streams.kstream.WindowedSerdes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Takes, saves and loads {@link CommandSnapshot snapshots} of the commands needed to rebuild the
+ * metastore and the running queries, so that, on restart, only the commands written to the
+ * command topic after the snapshot need to be replayed.
+ *
+ * <p>A snapshot is built from the current state of the engine, not from the commands that led to
+ * it, so its size depends on the number of sources and running queries, not on the length of the
+ * command topic:
+ * <ul>
+ *   <li>Topics not registered by any other statement in the snapshot are registered.</li>
+ *   <li>Sources created by DDL statements are created by the same statements.</li>
+ *   <li>Sources created by queries that are no longer running are created by DDL statements
+ *   generated from their schema and properties.</li>
+ *   <li>Running queries are started by the commands that started them, in order, with the same
+ *   query ids, so that they resume from the state and offsets of their consumer groups.</li>
+ * </ul>
+ *
+ * <p>If the state can't be rebuilt in this way, the snapshot is skipped, and the previous one, if
+ * any, is kept.
+ */
+public class CommandSnapshotter {
+
+  private static final Logger log = LoggerFactory.getLogger(CommandSnapshotter.class);
+
+  private final Path snapshotFile;
+  private final int interval;
+  private final KsqlConfig ksqlConfig;
+  private final DefaultKsqlParser parser = new DefaultKsqlParser();
+  private int commandsSinceSnapshot = 0;
+
+  /**
+   * @param snapshotFile the file to save the snapshot to.
+   * @param interval the number of commands to run between snapshots.
+   * @param ksqlConfig the config the generated commands are run with.
+   */
+  public CommandSnapshotter(
+      final Path snapshotFile,
+      final int interval,
+      final KsqlConfig ksqlConfig
+  ) {
+    this.snapshotFile = Objects.requireNonNull(snapshotFile, "snapshotFile");
+    this.interval = interval;
+    this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
+  }
+
+  /**
+   * @return the last saved snapshot, if there is one and it can be read.
+   */
+  public Optional<CommandSnapshot> load() {
+    if (!Files.exists(snapshotFile)) {
+      return Optional.empty();
+    }
+
+    try {
+      final CommandSnapshot snapshot = JsonMapper.INSTANCE.mapper
+          .readValue(snapshotFile.toFile(), CommandSnapshot.class);
+
+      log.info("Loaded snapshot of {} commands, covering the command topic up to offset {}",
+          snapshot.getCommands().size(), snapshot.getOffset());
+      return Optional.of(snapshot);
+    } catch (final IOException e) {
+      log.warn("Failed to load command snapshot from " + snapshotFile
+          + ". The whole command topic will be replayed.", e);
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * Take and save a snapshot if enough commands have been run since the last one.
+   *
+   * @param commandsRun the number of commands run since the last call.
+   * @param statementExecutor the executor that ran them.
+   * @param offset the offset of the next command in the command topic.
+   */
+  void maybeSnapshot(
+      final int commandsRun,
+      final StatementExecutor statementExecutor,
+      final long offset
+  ) {
+    commandsSinceSnapshot += commandsRun;
+    if (commandsSinceSnapshot < interval) {
+      return;
+    }
+
+    commandsSinceSnapshot = 0;
+
+    final CommandSnapshot snapshot;
+    try {
+      snapshot = build(statementExecutor, offset);
+    } catch (final Exception e) {
+      log.warn("Skipping command snapshot as the current state can not be snapshotted", e);
+      return;
+    }
+
+    save(snapshot);
+  }
+
+  CommandSnapshot build(final StatementExecutor statementExecutor, final long offset) {
+    final KsqlEngine ksqlEngine = statementExecutor.getKsqlEngine();
+    final MetaStore metaStore = ksqlEngine.getMetaStore();
+
+    final List<PersistentQueryMetadata> queries = ksqlEngine.getPersistentQueries().stream()
+        .sorted(Comparator.comparingLong(query -> queryNumber(query.getQueryId())))
+        .collect(Collectors.toList());
+
+    final Map<QueryId, StatementExecutor.QueryCommand> queryCommands = new HashMap<>();
+    for (final PersistentQueryMetadata query : queries) {
+      queryCommands.put(query.getQueryId(), statementExecutor.getQueryCommand(query.getQueryId())
+          .orElseThrow(() -> new KsqlException(
+              "Unknown command for running query " + query.getQueryId())));
+    }
+
+    final Set<String> sinksOfQueries = queries.stream()
+        .filter(query -> queryCommands.get(query.getQueryId()).createsSink())
+        .flatMap(query -> query.getSinkNames().stream())
+        .collect(Collectors.toSet());
+
+    final Set<String> topicsOfQueries = new HashSet<>();
+    final Set<String> topicsOfSources = new HashSet<>();
+    final List<CommandSnapshot.Entry> ownTopicSources = new ArrayList<>();
+    final Map<StructuredDataSource, String> registeredTopicSources = new LinkedHashMap<>();
+
+    for (final StructuredDataSource source : metaStore.getAllStructuredDataSources().values()) {
+      final String topicName = source.getKsqlTopic().getName();
+      if (sinksOfQueries.contains(source.getName())) {
+        topicsOfQueries.add(topicName);
+        continue;
+      }
+
+      final String sql;
+      if (source.getKsqlTopic().isKsqlSink()) {
+        sql = buildCreateStatement(source);
+      } else {
+        sql = source.getSqlExpression();
+      }
+
+      if (registersOwnTopic(sql)) {
+        topicsOfSources.add(topicName);
+        ownTopicSources.add(sourceEntry(source, sql));
+      } else {
+        registeredTopicSources.put(source, sql);
+      }
+    }
+
+    final List<CommandSnapshot.Entry> entries = new ArrayList<>();
+
+    metaStore.getAllKsqlTopics().values().stream()
+        .filter(topic -> !topicsOfQueries.contains(topic.getName()))
+        .filter(topic -> !topicsOfSources.contains(topic.getName()))
+        .map(this::topicEntry)
+        .forEach(entries::add);
+
+    entries.addAll(ownTopicSources);
+
+    registeredTopicSources.forEach((source, sql) -> {
+      if (topicsOfQueries.contains(source.getKsqlTopic().getName())) {
+        throw new KsqlException("Source " + source.getName()
+            + " uses the topic of a sink of a running query");
+      }
+      entries.add(sourceEntry(source, sql));
+    });
+
+    for (final PersistentQueryMetadata query : queries) {
+      final QueuedCommand queryCommand = queryCommands.get(query.getQueryId()).getCommand();
+
+      entries.add(new CommandSnapshot.Entry(
+          queryCommand.getCommandId(),
+          queryCommand.getCommand(),
+          Optional.of(queryNumber(query.getQueryId()))));
+    }
+
+    return new CommandSnapshot(offset, ksqlEngine.peekNextQueryId(), entries);
+  }
+
+  private void save(final CommandSnapshot snapshot) {
+    final Path tmpFile = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+    try {
+      if (snapshotFile.getParent() != null) {
+        Files.createDirectories(snapshotFile.getParent());
+      }
+      JsonMapper.INSTANCE.mapper.writeValue(tmpFile.toFile(), snapshot);
+      Files.move(tmpFile, snapshotFile,
+          StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+      log.info("Saved snapshot of {} commands, covering the command topic up to offset {}",
+          snapshot.getCommands().size(), snapshot.getOffset());
+    } catch (final IOException e) {
+      log.warn("Failed to save command snapshot to " + snapshotFile, e);
+    }
+  }
+
+  private CommandSnapshot.Entry topicEntry(final KsqlTopic topic) {
+    final DataSourceSerDe format = topic.getKsqlTopicSerDe().getSerDe();
+    final StringBuilder sql = new StringBuilder()
+        .append("REGISTER TOPIC IF NOT EXISTS ")
+        .append(ParserUtil.escapeIfLiteral(topic.getName()))
+        .append(" WITH (")
+        .append(DdlConfig.KAFKA_TOPIC_NAME_PROPERTY).append("=")
+        .append(new StringLiteral(topic.getKafkaTopicName()))
+        .append(", ")
+        .append(DdlConfig.VALUE_FORMAT_PROPERTY).append("=")
+        .append(new StringLiteral(format.name()));
+
+    avroSchemaName(topic).ifPresent(name -> sql
+        .append(", ")
+        .append(DdlConfig.VALUE_AVRO_SCHEMA_FULL_NAME).append("=")
+        .append(new StringLiteral(name)));
+
+    sql.append(");");
+
+    return new CommandSnapshot.Entry(
+        new CommandId(Type.TOPIC, topic.getName(), Action.CREATE),
+        command(sql.toString()),
+        Optional.empty());
+  }
+
+  private CommandSnapshot.Entry sourceEntry(
+      final StructuredDataSource source,
+      final String sql
+  ) {
+    final Type type = source instanceof KsqlTable ? Type.TABLE : Type.STREAM;
+    return new CommandSnapshot.Entry(
+        new CommandId(type, source.getName(), Action.CREATE),
+        command(sql),
+        Optional.empty());
+  }
+
+  private Command command(final String sql) {
+    return new Command(
+        sql,
+        Collections.emptyMap(),
+        ksqlConfig.getAllConfigPropsWithSecretsObfuscated());
+  }
+
+  private boolean registersOwnTopic(final String sql) {
+    final Statement statement = parser
+        .prepare(parser.parse(sql).get(0), new MetaStoreImpl(new InternalFunctionRegistry()))
+        .getStatement();
+
+    if (!(statement instanceof AbstractStreamCreateStatement)) {
+      throw new KsqlException("Unexpected statement creating source: " + sql);
+    }
+
+    return ((AbstractStreamCreateStatement) statement).getProperties()
+        .containsKey(DdlConfig.KAFKA_TOPIC_NAME_PROPERTY);
+  }
+
+  /**
+   * Build the DDL statement that creates the sink of a query, without the query.
+   */
+  private static String buildCreateStatement(final StructuredDataSource source) {
+    final Schema schema = SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(source.getSchema());
+    final List<TableElement> elements = TypeUtil.buildTableElementsForSchema(schema);
+    final KsqlTopic topic = source.getKsqlTopic();
+
+    final Map<String, Expression> properties = new HashMap<>();
+    properties.put(DdlConfig.KAFKA_TOPIC_NAME_PROPERTY,
+        new StringLiteral(topic.getKafkaTopicName()));
+    properties.put(DdlConfig.VALUE_FORMAT_PROPERTY,
+        new StringLiteral(topic.getKsqlTopicSerDe().getSerDe().name()));
+    avroSchemaName(topic).ifPresent(name ->
+        properties.put(DdlConfig.VALUE_AVRO_SCHEMA_FULL_NAME, new StringLiteral(name)));
+
+    final Field keyField = source.getKeyField();
+    if (keyField != null && schema.field(keyField.name()) != null) {
+      properties.put(DdlConfig.KEY_NAME_PROPERTY, new StringLiteral(keyField.name()));
+    }
+
+    final TimestampExtractionPolicy timestampPolicy = source.getTimestampExtractionPolicy();
+    if (timestampPolicy.timestampField() != null) {
+      properties.put(DdlConfig.TIMESTAMP_NAME_PROPERTY,
+          new StringLiteral(timestampPolicy.timestampField()));
+    }
+    if (timestampPolicy instanceof StringTimestampExtractionPolicy) {
+      properties.put(DdlConfig.TIMESTAMP_FORMAT_PROPERTY,
+          new StringLiteral(((StringTimestampExtractionPolicy) timestampPolicy).getFormat()));
+    }
+
+    final QualifiedName name = QualifiedName.of(source.getName());
+    if (source instanceof KsqlStream) {
+      final KsqlStream<?> stream = (KsqlStream<?>) source;
+      if (stream.hasWindowedKey()) {
+        properties.put(DdlConfig.WINDOW_TYPE_PROPERTY, windowType(stream.getKeySerde()));
+      }
+      return SqlFormatter.formatSql(new CreateStream(name, elements, false, properties));
+    }
+
+    if (source instanceof KsqlTable) {
+      final KsqlTable<?> table = (KsqlTable<?>) source;
+      if (table.isWindowed()) {
+        properties.put(DdlConfig.WINDOW_TYPE_PROPERTY, windowType(table.getKeySerde()));
+      }
+      return SqlFormatter.formatSql(new CreateTable(name, elements, false, properties));
+    }
+
+    throw new KsqlException("Unexpected source type: " + source.getName());
+  }
+
+  private static StringLiteral windowType(final Object keySerde) {
+    return new StringLiteral(keySerde instanceof WindowedSerdes.SessionWindowedSerde
+        ? "SESSION"
+        : "TUMBLING");
+  }
+
+  private static Optional<String> avroSchemaName(final KsqlTopic topic) {
+    if (!(topic.getKsqlTopicSerDe() instanceof KsqlAvroTopicSerDe)) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(
+        ((KsqlAvroTopicSerDe) topic.getKsqlTopicSerDe()).getFullSchemaName());
+  }
+
+  private static long queryNumber(final QueryId queryId) {
+    final String id = queryId.getId();
+    try {
+      return Long.parseLong(id.substring(id.lastIndexOf('_') + 1));
+    } catch (final NumberFormatException e) {
+      throw new KsqlException("Unexpected query id: " + id, e);
+    }
+  }
+}
@@ -159,6 +159,16 @@ public class CommandStore implements CommandQueue, Closeable {
     return commandTopic.getRestoreCommands(POLLING_TIMEOUT_FOR_COMMAND_TOPIC);
   }
 
+  @Override
+  public List<QueuedCommand> getRestoreCommands(final long fromOffset) {
+    return commandTopic.getRestoreCommands(POLLING_TIMEOUT_FOR_COMMAND_TOPIC, fromOffset);
+  }
+
+  @Override
+  public long getConsumerPosition() {
+    return commandTopic.getCommandTopicConsumerPosition();
+  }
+
   @Override
   public void ensureConsumedPast(final long seqNum, final Duration timeout)
       throws InterruptedException, TimeoutException {
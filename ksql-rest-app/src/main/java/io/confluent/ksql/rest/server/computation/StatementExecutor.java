@@ -61,6 +61,7 @@ public class StatementExecutor {
   private final KsqlEngine ksqlEngine;
   private final StatementParser statementParser;
   private final Map<CommandId, CommandStatus> statusStore;
+  private final Map<QueryId, QueryCommand> queryCommands = new ConcurrentHashMap<>();
 
   private enum Mode {
     RESTORE,
@@ -85,6 +86,10 @@ public class StatementExecutor {
     return ksqlEngine;
   }
 
+  protected StatementParser getStatementParser() {
+    return statementParser;
+  }
+
   /**
    * Attempt to execute a single statement.
    *
@@ -95,14 +100,29 @@ public class StatementExecutor {
         queuedCommand.getCommand(),
         queuedCommand.getCommandId(),
         queuedCommand.getStatus(),
+        Optional.empty(),
         Mode.EXECUTE);
   }
 
   void handleRestore(final QueuedCommand queuedCommand) {
+    handleRestore(queuedCommand, Optional.empty());
+  }
+
+  /**
+   * Attempt to restore a single statement.
+   *
+   * @param queuedCommand The command to be restored
+   * @param parsed The statement of the command, if it has already been parsed
+   */
+  void handleRestore(
+      final QueuedCommand queuedCommand,
+      final Optional<ParsedStatement> parsed
+  ) {
     handleStatementWithTerminatedQueries(
         queuedCommand.getCommand(),
         queuedCommand.getCommandId(),
         queuedCommand.getStatus(),
+        parsed,
         Mode.RESTORE
     );
   }
@@ -125,6 +145,14 @@ public class StatementExecutor {
     return Optional.ofNullable(statusStore.get(statementId));
   }
 
+  /**
+   * @param queryId The ID of a persistent query.
+   * @return The command that started the query, if it was started by this executor.
+   */
+  Optional<QueryCommand> getQueryCommand(final QueryId queryId) {
+    return Optional.ofNullable(queryCommands.get(queryId));
+  }
+
   private void putStatus(final CommandId commandId,
                         final Optional<CommandStatusFuture> commandStatusFuture,
                         final CommandStatus status) {
@@ -144,12 +172,14 @@ public class StatementExecutor {
    *
    * @param command The string containing the statement to be executed
    * @param commandId The ID to be used to track the status of the command
+   * @param parsed The statement, if it has already been parsed
    * @param mode was this table/stream subsequently dropped
    */
   private void handleStatementWithTerminatedQueries(
       final Command command,
       final CommandId commandId,
       final Optional<CommandStatusFuture> commandStatusFuture,
+      final Optional<ParsedStatement> parsed,
       final Mode mode
   ) {
     try {
@@ -159,7 +189,9 @@ public class StatementExecutor {
           commandId,
           commandStatusFuture,
           new CommandStatus(CommandStatus.Status.PARSING, "Parsing statement"));
-      final PreparedStatement<?> statement = statementParser.parseSingleStatement(statementString);
+      final PreparedStatement<?> statement = parsed.isPresent()
+          ? statementParser.prepareStatement(parsed.get())
+          : statementParser.parseSingleStatement(statementString);
       putStatus(
           commandId,
           commandStatusFuture,
@@ -189,11 +221,11 @@ public class StatementExecutor {
     if (statement.getStatement() instanceof ExecutableDdlStatement) {
       successMessage = executeDdlStatement(statement, command);
     } else if (statement.getStatement() instanceof CreateAsSelect) {
-      startQuery(statement, command, mode);
+      startQuery(statement, command, commandId, mode);
       successMessage = statement.getStatement() instanceof CreateTableAsSelect
           ? "Table created and running" : "Stream created and running";
     } else if (statement.getStatement() instanceof InsertInto) {
-      startQuery(statement, command, mode);
+      startQuery(statement, command, commandId, mode);
       successMessage = "Insert Into query is running.";
     } else if (statement.getStatement() instanceof TerminateQuery) {
       terminateQuery((PreparedStatement<TerminateQuery>) statement);
@@ -256,6 +288,15 @@ public class StatementExecutor {
           ksqlEngine, mergedConfig, command.getStatement());
     }
 
+    // The thread limit is the server's current one, not the one the command was accepted
+    // under, so it is only enforced on new commands, never when restoring accepted ones:
+    if (mode == Mode.EXECUTE
+        && QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, mergedConfig, 0)) {
+      queries.forEach(QueryMetadata::close);
+      QueryCapacityUtil.throwTooManyStreamThreadsException(
+          ksqlEngine, mergedConfig, command.getStatement());
+    }
+
     if (mode == Mode.EXECUTE) {
       for (final QueryMetadata queryMetadata : queries) {
         if (queryMetadata instanceof PersistentQueryMetadata) {
@@ -270,6 +311,7 @@ public class StatementExecutor {
   private void startQuery(
       final PreparedStatement<?> statement,
       final Command command,
+      final CommandId commandId,
       final Mode mode
   ) {
     final KsqlConfig mergedConfig = buildMergedConfig(command);
@@ -279,6 +321,12 @@ public class StatementExecutor {
           ksqlEngine, mergedConfig, statement.getStatementText());
     }
 
+    if (mode == Mode.EXECUTE
+        && QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, mergedConfig, 1)) {
+      QueryCapacityUtil.throwTooManyStreamThreadsException(
+          ksqlEngine, mergedConfig, statement.getStatementText());
+    }
+
     final QueryMetadata queryMetadata = ksqlEngine.execute(
         statement,
         mergedConfig,
@@ -294,6 +342,9 @@ public class StatementExecutor {
     }
 
     final PersistentQueryMetadata persistentQueryMd = (PersistentQueryMetadata) queryMetadata;
+    queryCommands.put(persistentQueryMd.getQueryId(), new QueryCommand(
+        new QueuedCommand(commandId, command),
+        statement.getStatement() instanceof CreateAsSelect));
     if (mode == Mode.EXECUTE) {
       persistentQueryMd.start();
     }
@@ -310,6 +361,7 @@ public class StatementExecutor {
         .orElseThrow(() ->
             new KsqlException(String.format("No running query with id %s was found", queryId)))
         .close();
+    queryCommands.remove(queryId);
   }
 
   private void maybeTerminateQueryForLegacyDropCommand(
@@ -331,6 +383,35 @@ public class StatementExecutor {
         .map(ksqlEngine::getPersistentQuery)
         .filter(Optional::isPresent)
         .map(Optional::get)
-        .forEach(QueryMetadata::close);
+        .forEach(query -> {
+          query.close();
+          queryCommands.remove(query.getQueryId());
+        });
+  }
+
+  /**
+   * The command that started a persistent query.
+   */
+  static final class QueryCommand {
+
+    private final QueuedCommand command;
+    private final boolean createsSink;
+
+    private QueryCommand(final QueuedCommand command, final boolean createsSink) {
+      this.command = command;
+      this.createsSink = createsSink;
+    }
+
+    QueuedCommand getCommand() {
+      return command;
+    }
+
+    /**
+     * @return {@code true} if the statement created the query's sink, i.e. it was a
+     *         {@link CreateAsSelect} rather than an {@link InsertInto}.
+     */
+    boolean createsSink() {
+      return createsSink;
+    }
   }
 }
@@ -896,6 +896,11 @@ public class KsqlResource {
         QueryCapacityUtil
             .throwTooManyActivePersistentQueriesException(executionSandbox, ksqlConfig, sql);
       }
+      if (QueryCapacityUtil
+          .exceedsStreamThreadCapacity(executionSandbox, ksqlConfig, persistentQueryCount)) {
+        QueryCapacityUtil
+            .throwTooManyStreamThreadsException(executionSandbox, ksqlConfig, sql);
+      }
     }
 
     @SuppressFBWarnings("RV_RETURN_VALUE_IGNORED_INFERRED")
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.resources;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.materialization.KeyLookup;
+import io.confluent.ksql.materialization.Materialization;
+import io.confluent.ksql.metastore.StructuredDataSource;
+import io.confluent.ksql.parser.KsqlParser.PreparedStatement;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.query.QueryId;
+import io.confluent.ksql.rest.client.KsqlRestClient;
+import io.confluent.ksql.rest.client.RestResponse;
+import io.confluent.ksql.rest.entity.KsqlEntityList;
+import io.confluent.ksql.rest.entity.KsqlRequest;
+import io.confluent.ksql.rest.entity.StreamedRow;
+import io.confluent.ksql.rest.entity.Versions;
+import io.confluent.ksql.rest.server.StatementParser;
+import io.confluent.ksql.rest.server.computation.CommandQueue;
+import io.confluent.ksql.rest.util.CommandStoreUtil;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.PersistentQueryMetadata;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.StreamsMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Serves pull queries, i.e. lookups of the current rows of a table by key, from the state store
+ * of the persistent query that materializes the table.
+ *
+ * <p>The rows of a windowed table are returned with the bounds of their window, in epoch millis,
+ * as the leading WINDOWSTART and WINDOWEND columns.
+ *
+ * <p>If the rows are held by another server, and that server is known from the
+ * {@code application.server} config of the query, the request is forwarded to it. As that config
+ * only holds a host and port, the request is forwarded using the scheme of this server's own
+ * listener, i.e. all servers of a cluster are expected to listen over the same protocol.
+ */
+@Path("/pull-query")
+@Produces({Versions.KSQL_V1_JSON, MediaType.APPLICATION_JSON})
+@Consumes({Versions.KSQL_V1_JSON, MediaType.APPLICATION_JSON})
+public class PullQueryResource {
+
+  private static final Logger log = LoggerFactory.getLogger(PullQueryResource.class);
+
+  static final String FORWARDED_PROPERTY = "ksql.query.pull.forwarded";
+
+  private final KsqlConfig ksqlConfig;
+  private final KsqlEngine ksqlEngine;
+  private final StatementParser statementParser;
+  private final CommandQueue commandQueue;
+  private final Duration commandQueueCatchupTimeout;
+  private final String forwardingScheme;
+  private final Function<String, KsqlRestClient> clientFactory;
+
+  public PullQueryResource(
+      final KsqlConfig ksqlConfig,
+      final KsqlEngine ksqlEngine,
+      final StatementParser statementParser,
+      final CommandQueue commandQueue,
+      final Duration commandQueueCatchupTimeout,
+      final String forwardingScheme
+  ) {
+    this(
+        ksqlConfig,
+        ksqlEngine,
+        statementParser,
+        commandQueue,
+        commandQueueCatchupTimeout,
+        forwardingScheme,
+        KsqlRestClient::new);
+  }
+
+  PullQueryResource(
+      final KsqlConfig ksqlConfig,
+      final KsqlEngine ksqlEngine,
+      final StatementParser statementParser,
+      final CommandQueue commandQueue,
+      final Duration commandQueueCatchupTimeout,
+      final String forwardingScheme,
+      final Function<String, KsqlRestClient> clientFactory
+  ) {
+    this.ksqlConfig = Objects.requireNonNull(ksqlConfig, "ksqlConfig");
+    this.ksqlEngine = Objects.requireNonNull(ksqlEngine, "ksqlEngine");
+    this.statementParser = Objects.requireNonNull(statementParser, "statementParser");
+    this.commandQueue = Objects.requireNonNull(commandQueue, "commandQueue");
+    this.commandQueueCatchupTimeout =
+        Objects.requireNonNull(commandQueueCatchupTimeout, "commandQueueCatchupTimeout");
+    this.forwardingScheme = Objects.requireNonNull(forwardingScheme, "forwardingScheme");
+    this.clientFactory = Objects.requireNonNull(clientFactory, "clientFactory");
+  }
+
+  @POST
+  public Response pullQuery(final KsqlRequest request) {
+    if (!ksqlEngine.isAcceptingStatements()) {
+      return Errors.serverErrorForStatement(
+          new KsqlException("Cluster has been terminated."),
+          "The cluster has been terminated. No new request will be accepted.",
+          new KsqlEntityList());
+    }
+
+    final String ksql = request.getKsql();
+    if (ksql.trim().isEmpty()) {
+      return Errors.badRequest("\"ksql\" field must be populated");
+    }
+
+    final PreparedStatement<?> statement;
+    try {
+      statement = statementParser.parseSingleStatement(ksql);
+    } catch (final IllegalArgumentException | KsqlException e) {
+      return Errors.badStatement(e, ksql);
+    }
+
+    if (!(statement.getStatement() instanceof Query)) {
+      return Errors.badRequest(String.format(
+          "Statement type `%s' not supported for this resource",
+          statement.getStatement().getClass().getName()));
+    }
+
+    CommandStoreUtil.httpWaitForCommandSequenceNumber(
+        commandQueue, request, commandQueueCatchupTimeout);
+
+    try {
+      final KeyLookup lookup = KeyLookup.from((Query) statement.getStatement());
+      final boolean forwarded = Boolean.parseBoolean(
+          String.valueOf(request.getStreamsProperties().get(FORWARDED_PROPERTY)));
+      return Response.ok().entity(execute(lookup, ksql, forwarded)).build();
+    } catch (final KsqlException e) {
+      return Errors.badRequest(e);
+    }
+  }
+
+  private List<StreamedRow> execute(
+      final KeyLookup lookup,
+      final String ksql,
+      final boolean forwarded
+  ) {
+    final PersistentQueryMetadata query = getMaterializingQuery(lookup.getSourceName());
+    final Materialization materialization = query.getMaterialization().get();
+
+    final Optional<HostInfo> owner = getRemoteOwner(materialization, lookup.getKey());
+    if (owner.isPresent() && !forwarded) {
+      return forward(owner.get(), ksql);
+    }
+
+    if (!materialization.isWindowed()) {
+      return materialization.get(lookup.getKey())
+          .map(row -> ImmutableList.of(StreamedRow.row(row)))
+          .orElseGet(ImmutableList::of);
+    }
+
+    return materialization.get(
+        lookup.getKey(),
+        lookup.getWindowStartFrom(),
+        lookup.getWindowStartTo())
+        .stream()
+        .map(PullQueryResource::windowedRow)
+        .collect(Collectors.toList());
+  }
+
+  private static StreamedRow windowedRow(final KeyValue<Windowed<String>, GenericRow> kv) {
+    final List<Object> columns = new ArrayList<>(kv.value.getColumns().size() + 2);
+    columns.add(kv.key.window().start());
+    columns.add(kv.key.window().end());
+    columns.addAll(kv.value.getColumns());
+    return StreamedRow.row(new GenericRow(columns));
+  }
+
+  private PersistentQueryMetadata getMaterializingQuery(final String sourceName) {
+    final StructuredDataSource source = ksqlEngine.getMetaStore().getSource(sourceName);
+    if (source == null) {
+      throw new KsqlException("Unknown table: " + sourceName);
+    }
+
+    return ksqlEngine.getMetaStore().getQueriesWithSink(sourceName).stream()
+        .map(queryId -> ksqlEngine.getPersistentQuery(new QueryId(queryId)))
+        .filter(Optional::isPresent)
+        .map(Optional::get)
+        .filter(query -> query.getMaterialization().isPresent())
+        .findFirst()
+        .orElseThrow(() -> new KsqlException("Pull queries are only supported on tables built "
+            + "by an aggregation, with " + KsqlConfig.KSQL_USE_NAMED_INTERNAL_TOPICS
+            + " on. " + sourceName + " is not such a table."));
+  }
+
+  private Optional<HostInfo> getRemoteOwner(
+      final Materialization materialization,
+      final String key
+  ) {
+    final Object localServer = ksqlConfig.getKsqlStreamConfigProps()
+        .get(StreamsConfig.APPLICATION_SERVER_CONFIG);
+    if (localServer == null || localServer.toString().isEmpty()) {
+      return Optional.empty();
+    }
+
+    final StreamsMetadata owner = materialization.getOwner(key);
+    if (owner == null || owner.equals(StreamsMetadata.NOT_AVAILABLE)) {
+      return Optional.empty();
+    }
+
+    final HostInfo host = owner.hostInfo();
+    return localServer.toString().equals(host.host() + ":" + host.port())
+        ? Optional.empty()
+        : Optional.of(owner.hostInfo());
+  }
+
+  private List<StreamedRow> forward(final HostInfo owner, final String ksql) {
+    final String serverAddress =
+        forwardingScheme + "://" + owner.host() + ":" + owner.port();
+    log.debug("Forwarding pull query to {}: {}", serverAddress, ksql);
+
+    try (KsqlRestClient client = clientFactory.apply(serverAddress)) {
+      final RestResponse<List<StreamedRow>> response = client.makePullQueryRequest(
+          ksql, ImmutableMap.of(FORWARDED_PROPERTY, true));
+
+      if (response.isErroneous()) {
+        throw new KsqlException("Pull query failed on " + serverAddress + ": "
+            + response.getErrorMessage().getMessage());
+      }
+      return response.getResponse();
+    }
+  }
+}
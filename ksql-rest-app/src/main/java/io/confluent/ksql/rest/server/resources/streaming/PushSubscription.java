@@ -0,0 +1,162 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import com.google.common.base.Preconditions;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * A subscription that delivers items as soon as they are available, rather than polling for
+ * them on a timer like {@link PollingSubscription}.
+ *
+ * <p>Implementations call {@link #onAvailable()} whenever there may be new items to poll.
+ * Each call to {@link #request}, {@link #cancel}, {@link #onAvailable}, {@link #setDone} or
+ * {@link #setError} signals the subscription. A signal submits a task to deliver items only if
+ * no task is already delivering them, and a running task keeps delivering until it has seen
+ * every signal. So items are delivered by one task at a time, in order, and bursts of items cost
+ * one task, not one per item.
+ */
+public abstract class PushSubscription<T> implements Flow.Subscription {
+
+  private final Flow.Subscriber<T> subscriber;
+  private final Executor exec;
+  private final Schema schema;
+  private final AtomicLong demand = new AtomicLong();
+  private final AtomicInteger signals = new AtomicInteger();
+
+  private volatile boolean done = false;
+  private volatile boolean cancelled = false;
+  private volatile Throwable exception = null;
+
+  // Only accessed by the task delivering items:
+  private boolean needsSchema = true;
+  private boolean finished = false;
+
+  public PushSubscription(
+      final Executor exec,
+      final Flow.Subscriber<T> subscriber,
+      final Schema schema
+  ) {
+    this.exec = Objects.requireNonNull(exec, "exec");
+    this.subscriber = Objects.requireNonNull(subscriber, "subscriber");
+    this.schema = schema;
+  }
+
+  @Override
+  public void request(final long n) {
+    Preconditions.checkArgument(n > 0, "number of requested items must be positive");
+    demand.getAndUpdate(current -> current + n < 0 ? Long.MAX_VALUE : current + n);
+    signal();
+  }
+
+  @Override
+  public void cancel() {
+    cancelled = true;
+    signal();
+  }
+
+  protected void onAvailable() {
+    signal();
+  }
+
+  protected void setError(final Throwable e) {
+    exception = e;
+    done = true;
+    signal();
+  }
+
+  protected void setDone() {
+    done = true;
+    signal();
+  }
+
+  /**
+   * @return the next item, or null if there is none available.
+   */
+  abstract T poll();
+
+  abstract void close();
+
+  private void signal() {
+    if (signals.getAndIncrement() == 0) {
+      exec.execute(this::deliver);
+    }
+  }
+
+  private void deliver() {
+    int seen = 1;
+    do {
+      try {
+        deliverAvailable();
+      } catch (final RuntimeException e) {
+        finish(e);
+      }
+      seen = signals.addAndGet(-seen);
+    } while (seen != 0);
+  }
+
+  private void deliverAvailable() {
+    while (!finished) {
+      if (cancelled) {
+        finished = true;
+        close();
+        return;
+      }
+
+      if (needsSchema) {
+        needsSchema = false;
+        if (schema != null) {
+          subscriber.onSchema(schema);
+        }
+      }
+
+      if (demand.get() == 0) {
+        return;
+      }
+
+      // Read before polling, so that any items queued before the subscription was marked done
+      // are delivered before it completes:
+      final boolean wasDone = done;
+      final T item = poll();
+      if (item == null) {
+        if (wasDone) {
+          finish(exception);
+        }
+        return;
+      }
+
+      demand.decrementAndGet();
+      subscriber.onNext(item);
+    }
+  }
+
+  private void finish(final Throwable error) {
+    if (finished) {
+      return;
+    }
+    finished = true;
+    close();
+    if (error != null) {
+      subscriber.onError(error);
+    } else {
+      subscriber.onComplete();
+    }
+  }
+}
@@ -16,12 +16,14 @@
 package io.confluent.ksql.rest.server.resources.streaming;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.planner.plan.OutputNode;
 import io.confluent.ksql.rest.entity.StreamedRow;
 import io.confluent.ksql.util.KsqlException;
 import io.confluent.ksql.util.QueuedQueryMetadata;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.OutputStream;
@@ -30,28 +32,62 @@ import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import javax.ws.rs.core.StreamingOutput;
+import org.apache.kafka.common.MetricName;
+import org.apache.kafka.common.metrics.Gauge;
+import org.apache.kafka.common.metrics.Metrics;
 import org.apache.kafka.streams.KeyValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Streams the rows of a transient query to its client, one JSON document per line.
+ *
+ * <p>Rows already queued are written to the connection in batches: a batch is flushed as soon as
+ * the queue of rows is empty, so rows are never held back waiting for more, or once it reaches
+ * {@code batchMaxBytes} or its first row has waited {@code batchMaxMs}.
+ */
 class QueryStreamWriter implements StreamingOutput {
 
   private static final Logger log = LoggerFactory.getLogger(QueryStreamWriter.class);
 
+  static final String METRIC_GROUP = "ksql-transient-queries";
+
+  private static final byte[] NEW_LINE = "\n".getBytes(StandardCharsets.UTF_8);
+
   private final QueuedQueryMetadata queryMetadata;
   private final long disconnectCheckInterval;
+  private final int batchMaxBytes;
+  private final long batchMaxMs;
   private final ObjectMapper objectMapper;
+  private final Metrics metrics;
+  private final MetricName queueDepthMetricName;
+  private final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+  private long batchStartMs;
   private volatile Exception streamsException;
   private volatile boolean limitReached = false;
 
   QueryStreamWriter(
       final QueuedQueryMetadata queryMetadata,
       final long disconnectCheckInterval,
-      final ObjectMapper objectMapper
+      final int batchMaxBytes,
+      final long batchMaxMs,
+      final ObjectMapper objectMapper,
+      final Metrics metrics
   ) {
     this.objectMapper = Objects.requireNonNull(objectMapper, "objectMapper");
     this.disconnectCheckInterval = disconnectCheckInterval;
+    this.batchMaxBytes = batchMaxBytes;
+    this.batchMaxMs = batchMaxMs;
+    this.metrics = Objects.requireNonNull(metrics, "metrics");
     this.queryMetadata = Objects.requireNonNull(queryMetadata, "queryMetadata");
+    this.queueDepthMetricName = metrics.metricName(
+        "queue-depth",
+        METRIC_GROUP,
+        "The number of result rows queued for the client of a transient query",
+        ImmutableMap.of("query-id", queryMetadata.getQueryApplicationId()));
+    this.metrics.addMetric(
+        queueDepthMetricName,
+        (Gauge<Integer>) (config, now) -> queryMetadata.getRowQueue().size());
     this.queryMetadata.setLimitHandler(new LimitHandler());
     this.queryMetadata.setUncaughtExceptionHandler(new StreamsExceptionHandler());
     queryMetadata.start();
@@ -66,11 +102,14 @@ class QueryStreamWriter implements StreamingOutput {
             TimeUnit.MILLISECONDS
         );
         if (value != null) {
-          write(out, value.value);
+          addToBatch(value.value);
+          if (isBatchComplete()) {
+            flushBatch(out);
+          }
         } else {
           // If no new rows have been written, the user may have terminated the connection without
           // us knowing. Check by trying to write a single newline.
-          out.write("\n".getBytes(StandardCharsets.UTF_8));
+          out.write(NEW_LINE);
           out.flush();
         }
         drainAndThrowOnError(out);
@@ -80,7 +119,7 @@ class QueryStreamWriter implements StreamingOutput {
 
       if (limitReached) {
         objectMapper.writeValue(out, StreamedRow.finalMessage("Limit Reached"));
-        out.write("\n".getBytes(StandardCharsets.UTF_8));
+        out.write(NEW_LINE);
         out.flush();
       }
     } catch (final EOFException exception) {
@@ -94,25 +133,40 @@ class QueryStreamWriter implements StreamingOutput {
       log.error("Exception occurred while writing to connection stream: ", exception);
       outputException(out, exception);
     } finally {
+      metrics.removeMetric(queueDepthMetricName);
       queryMetadata.close();
     }
   }
 
-  private void write(final OutputStream output, final GenericRow row) throws IOException {
-    objectMapper.writeValue(output, StreamedRow.row(row));
-    output.write("\n".getBytes(StandardCharsets.UTF_8));
+  private void addToBatch(final GenericRow row) throws IOException {
+    if (batch.size() == 0) {
+      batchStartMs = System.currentTimeMillis();
+    }
+    objectMapper.writeValue(batch, StreamedRow.row(row));
+    batch.write(NEW_LINE);
+  }
+
+  private boolean isBatchComplete() {
+    return queryMetadata.getRowQueue().peek() == null
+        || batch.size() >= batchMaxBytes
+        || System.currentTimeMillis() - batchStartMs >= batchMaxMs;
+  }
+
+  private void flushBatch(final OutputStream output) throws IOException {
+    batch.writeTo(output);
+    batch.reset();
     output.flush();
   }
 
   private void outputException(final OutputStream out, final Throwable exception) {
     try {
-      out.write("\n".getBytes(StandardCharsets.UTF_8));
+      out.write(NEW_LINE);
       if (exception.getCause() instanceof KsqlException) {
         objectMapper.writeValue(out, StreamedRow.error(exception.getCause()));
       } else {
         objectMapper.writeValue(out, StreamedRow.error(exception));
       }
-      out.write("\n".getBytes(StandardCharsets.UTF_8));
+      out.write(NEW_LINE);
       out.flush();
     } catch (final IOException e) {
       log.debug("Client disconnected while attempting to write an error message");
@@ -131,8 +185,9 @@ class QueryStreamWriter implements StreamingOutput {
     queryMetadata.getRowQueue().drainTo(rows);
 
     for (final KeyValue<String, GenericRow> row : rows) {
-      write(out, row.value);
+      addToBatch(row.value);
     }
+    flushBatch(out);
   }
 
   private class StreamsExceptionHandler implements Thread.UncaughtExceptionHandler {
@@ -15,7 +15,6 @@
 
 package io.confluent.ksql.rest.server.resources.streaming;
 
-import com.google.common.collect.Lists;
 import com.google.common.util.concurrent.ListeningScheduledExecutorService;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.KsqlEngine;
@@ -25,6 +24,7 @@ import io.confluent.ksql.rest.entity.StreamedRow;
 import io.confluent.ksql.rest.server.resources.streaming.Flow.Subscriber;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.QueuedQueryMetadata;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -75,7 +75,7 @@ class StreamPublisher implements Flow.Publisher<Collection<StreamedRow>> {
     subscriber.onSubscribe(subscription);
   }
 
-  class StreamSubscription extends PollingSubscription<Collection<StreamedRow>> {
+  class StreamSubscription extends PushSubscription<Collection<StreamedRow>> {
 
     private final QueuedQueryMetadata queryMetadata;
     private boolean closed = false;
@@ -88,6 +88,7 @@ class StreamPublisher implements Flow.Publisher<Collection<StreamedRow>> {
       this.queryMetadata = queryMetadata;
 
       queryMetadata.setLimitHandler(this::setDone);
+      queryMetadata.setQueuedHandler(this::onAvailable);
       queryMetadata.setUncaughtExceptionHandler(
           (thread, e) -> setError(e)
       );
@@ -95,13 +96,13 @@ class StreamPublisher implements Flow.Publisher<Collection<StreamedRow>> {
 
     @Override
     public Collection<StreamedRow> poll() {
-      final List<KeyValue<String, GenericRow>> rows = Lists.newLinkedList();
+      final List<KeyValue<String, GenericRow>> rows = new ArrayList<>();
       queryMetadata.getRowQueue().drainTo(rows);
       if (rows.isEmpty()) {
         return null;
       } else {
         return rows.stream().map(row -> StreamedRow.row(row.value))
-            .collect(Collectors.toCollection(Lists::newLinkedList));
+            .collect(Collectors.toList());
       }
     }
 
@@ -18,6 +18,7 @@ package io.confluent.ksql.rest.server.resources.streaming;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.json.JsonMapper;
+import io.confluent.ksql.metrics.MetricCollectors;
 import io.confluent.ksql.parser.KsqlParser.PreparedStatement;
 import io.confluent.ksql.parser.tree.PrintTopic;
 import io.confluent.ksql.parser.tree.Query;
@@ -60,6 +61,8 @@ public class StreamedQueryResource {
   private final StatementParser statementParser;
   private final CommandQueue commandQueue;
   private final Duration disconnectCheckInterval;
+  private final int batchMaxBytes;
+  private final Duration batchMaxLatency;
   private final Duration commandQueueCatchupTimeout;
   private final ObjectMapper objectMapper;
   private final ActivenessRegistrar activenessRegistrar;
@@ -71,6 +74,8 @@ public class StreamedQueryResource {
       final StatementParser statementParser,
       final CommandQueue commandQueue,
       final Duration disconnectCheckInterval,
+      final int batchMaxBytes,
+      final Duration batchMaxLatency,
       final Duration commandQueueCatchupTimeout,
       final ActivenessRegistrar activenessRegistrar
   ) {
@@ -81,6 +86,8 @@ public class StreamedQueryResource {
     this.commandQueue = Objects.requireNonNull(commandQueue, "commandQueue");
     this.disconnectCheckInterval =
         Objects.requireNonNull(disconnectCheckInterval, "disconnectCheckInterval");
+    this.batchMaxBytes = batchMaxBytes;
+    this.batchMaxLatency = Objects.requireNonNull(batchMaxLatency, "batchMaxLatency");
     this.commandQueueCatchupTimeout =
         Objects.requireNonNull(commandQueueCatchupTimeout, "commandQueueCatchupTimeout");
     this.objectMapper = JsonMapper.INSTANCE.mapper;
@@ -161,7 +168,10 @@ public class StreamedQueryResource {
     final QueryStreamWriter queryStreamWriter = new QueryStreamWriter(
         (QueuedQueryMetadata) query,
         disconnectCheckInterval.toMillis(),
-        objectMapper);
+        batchMaxBytes,
+        batchMaxLatency.toMillis(),
+        objectMapper,
+        MetricCollectors.getMetrics());
 
     log.info("Streaming query '{}'", statement.getStatementText());
     return Response.ok().entity(queryStreamWriter).build();
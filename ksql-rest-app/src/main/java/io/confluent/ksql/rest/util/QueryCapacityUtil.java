@@ -18,6 +18,9 @@ package io.confluent.ksql.rest.util;
 import io.confluent.ksql.KsqlExecutionContext;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.QueryMetadata;
+import java.util.Map;
+import org.apache.kafka.streams.StreamsConfig;
 
 public final class QueryCapacityUtil {
   private QueryCapacityUtil() {
@@ -52,7 +55,53 @@ public final class QueryCapacityUtil {
     );
   }
 
+  public static boolean exceedsStreamThreadCapacity(
+      final KsqlExecutionContext executionContext,
+      final KsqlConfig ksqlConfig,
+      final long additionalQueries
+  ) {
+    final long newTotal = numberOfStreamThreads(executionContext)
+        + additionalQueries * getStreamThreads(ksqlConfig.getKsqlStreamConfigProps());
+    return newTotal > getStreamThreadLimit(ksqlConfig);
+  }
+
+  public static void throwTooManyStreamThreadsException(
+      final KsqlExecutionContext executionContext,
+      final KsqlConfig ksqlConfig,
+      final String statementStr
+  ) {
+    throw new KsqlException(
+        String.format(
+            "Not executing statement(s) '%s' as it would cause the number "
+                + "of stream threads used by active, persistent queries to exceed the configured "
+                + "limit. Use the TERMINATE command to terminate existing queries, "
+                + "or increase the '%s' setting via the 'ksql-server.properties' file. "
+                + "Current stream thread count: %d. Configured limit: %d.",
+            statementStr,
+            KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG,
+            numberOfStreamThreads(executionContext),
+            getStreamThreadLimit(ksqlConfig)
+        )
+    );
+  }
+
   private static int getQueryLimit(final KsqlConfig ksqlConfig) {
     return ksqlConfig.getInt(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_LIMIT_CONFIG);
   }
+
+  private static int getStreamThreadLimit(final KsqlConfig ksqlConfig) {
+    return ksqlConfig.getInt(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG);
+  }
+
+  private static long numberOfStreamThreads(final KsqlExecutionContext executionContext) {
+    return executionContext.getPersistentQueries().stream()
+        .map(QueryMetadata::getStreamsProperties)
+        .mapToLong(QueryCapacityUtil::getStreamThreads)
+        .sum();
+  }
+
+  private static int getStreamThreads(final Map<String, ?> streamsProperties) {
+    final Object threads = streamsProperties.get(StreamsConfig.NUM_STREAM_THREADS_CONFIG);
+    return threads == null ? 1 : Integer.parseInt(threads.toString());
+  }
 }
@@ -176,6 +176,7 @@ public class QueryDescriptionTest {
         DataSource.DataSourceType.KSTREAM,
         "app id",
         sinkTopic,
+        Optional.empty(),
         topology,
         streamsProperties,
         streamsProperties,
@@ -22,6 +22,7 @@ import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertThat;
 
 import com.google.common.collect.ImmutableMap;
+import io.confluent.common.config.ConfigException;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.rest.RestConfig;
 import java.util.HashMap;
@@ -81,4 +82,28 @@ public class KsqlRestConfigTest {
     assertThat(commandTopicName,
                equalTo("_confluent-ksql-TestKSql_" + KsqlRestConfig.COMMAND_TOPIC_SUFFIX));
   }
+
+  @Test(expected = ConfigException.class)
+  public void shouldRejectNonPositiveRestoreThreads() {
+    final Map<String, Object> props = new HashMap<>(MIN_VALID_CONFIGS);
+    props.put(KsqlRestConfig.KSQL_RESTORE_NUM_THREADS_CONFIG, 0);
+
+    new KsqlRestConfig(props);
+  }
+
+  @Test(expected = ConfigException.class)
+  public void shouldRejectNonPositiveStreamedQueryBatchSize() {
+    final Map<String, Object> props = new HashMap<>(MIN_VALID_CONFIGS);
+    props.put(KsqlRestConfig.STREAMED_QUERY_BATCH_MAX_BYTES_CONFIG, 0);
+
+    new KsqlRestConfig(props);
+  }
+
+  @Test(expected = ConfigException.class)
+  public void shouldRejectNegativeStreamedQueryBatchTime() {
+    final Map<String, Object> props = new HashMap<>(MIN_VALID_CONFIGS);
+    props.put(KsqlRestConfig.STREAMED_QUERY_BATCH_MAX_MS_CONFIG, -1L);
+
+    new KsqlRestConfig(props);
+  }
 }
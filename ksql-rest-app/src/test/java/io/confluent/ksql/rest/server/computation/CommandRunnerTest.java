@@ -23,17 +23,25 @@ import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.core.IsEqual.equalTo;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
 import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.parser.KsqlParser.ParsedStatement;
+import io.confluent.ksql.parser.SqlBaseParser.SingleStatementContext;
+import io.confluent.ksql.parser.exception.ParseFailedException;
+import io.confluent.ksql.rest.server.StatementParser;
 import io.confluent.ksql.rest.util.ClusterTerminator;
 import io.confluent.ksql.rest.util.TerminateCluster;
+import io.confluent.ksql.util.PersistentQueryMetadata;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -53,6 +61,16 @@ public class CommandRunnerTest {
   private KsqlEngine ksqlEngine;
   @Mock
   private ClusterTerminator clusterTerminator;
+  @Mock
+  private StatementParser statementParser;
+  @Mock
+  private SingleStatementContext statementContext;
+  @Mock
+  private PersistentQueryMetadata query1;
+  @Mock
+  private PersistentQueryMetadata query2;
+  @Mock
+  private CommandSnapshotter snapshotter;
 
   @Mock
   private Command command1;
@@ -84,8 +102,9 @@ public class CommandRunnerTest {
         commandId3, command3);
     when(commandStore.getRestoreCommands()).thenReturn(queuedCommandList);
     when(commandStore.getNewCommands()).thenReturn(queuedCommandList);
-    commandRunner = new CommandRunner(statementExecutor, commandStore, ksqlEngine, 1,
-        clusterTerminator);
+    when(statementExecutor.getStatementParser()).thenReturn(statementParser);
+    commandRunner = new CommandRunner(statementExecutor, commandStore, ksqlEngine, 1, 2,
+        clusterTerminator, Optional.empty());
   }
 
   @Test
@@ -97,9 +116,49 @@ public class CommandRunnerTest {
 
     // Then:
     final InOrder inOrder = Mockito.inOrder(statementExecutor);
-    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(0)));
-    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(1)));
-    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(2)));
+    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(0)), any());
+    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(1)), any());
+    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(2)), any());
+  }
+
+  @Test
+  public void shouldRestorePriorCommandsWithStatementsParsedAhead() {
+    // Given:
+    final ParsedStatement parsedStatement = ParsedStatement.of("command1", statementContext);
+    when(statementParser.parseWithoutPreparing("command1")).thenReturn(parsedStatement);
+
+    // When:
+    commandRunner.processPriorCommands();
+
+    // Then:
+    verify(statementExecutor)
+        .handleRestore(queuedCommandList.get(0), Optional.of(parsedStatement));
+  }
+
+  @Test
+  public void shouldLeaveStatementsThatFailToParseAheadToTheRestore() {
+    // Given:
+    when(statementParser.parseWithoutPreparing("command2"))
+        .thenThrow(new ParseFailedException("bad"));
+
+    // When:
+    commandRunner.processPriorCommands();
+
+    // Then:
+    verify(statementExecutor).handleRestore(queuedCommandList.get(1), Optional.empty());
+  }
+
+  @Test
+  public void shouldStartRestoredPersistentQueries() {
+    // Given:
+    when(ksqlEngine.getPersistentQueries()).thenReturn(ImmutableList.of(query1, query2));
+
+    // When:
+    commandRunner.processPriorCommands();
+
+    // Then:
+    verify(query1).start();
+    verify(query2).start();
   }
 
   @Test
@@ -114,7 +173,57 @@ public class CommandRunnerTest {
     verify(ksqlEngine).stopAcceptingStatements();
     verify(commandStore).close();
     verify(clusterTerminator).terminateCluster(anyList());
-    verify(statementExecutor, never()).handleRestore(any());
+    verify(statementExecutor, never()).handleRestore(any(), any());
+  }
+
+  @Test
+  public void shouldRestoreSnapshotThenTheCommandsAfterIt() {
+    // Given:
+    final CommandSnapshot snapshot = new CommandSnapshot(10L, 7L, ImmutableList.of(
+        new CommandSnapshot.Entry(commandId1, command1, Optional.of(3L))));
+    when(snapshotter.load()).thenReturn(Optional.of(snapshot));
+    when(commandStore.getRestoreCommands(10L)).thenReturn(queuedCommandList.subList(1, 3));
+    givenCommandRunnerWithSnapshotter();
+
+    // When:
+    commandRunner.processPriorCommands();
+
+    // Then:
+    final InOrder inOrder = Mockito.inOrder(statementExecutor, ksqlEngine);
+    inOrder.verify(ksqlEngine).setNextQueryId(3L);
+    inOrder.verify(statementExecutor)
+        .handleRestore(new QueuedCommand(commandId1, command1), Optional.empty());
+    inOrder.verify(ksqlEngine).setNextQueryId(7L);
+    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(1)), any());
+    inOrder.verify(statementExecutor).handleRestore(eq(queuedCommandList.get(2)), any());
+    verify(commandStore, never()).getRestoreCommands();
+  }
+
+  @Test
+  public void shouldRestoreAllCommandsIfNoSnapshot() {
+    // Given:
+    when(snapshotter.load()).thenReturn(Optional.empty());
+    givenCommandRunnerWithSnapshotter();
+
+    // When:
+    commandRunner.processPriorCommands();
+
+    // Then:
+    verify(statementExecutor).handleRestore(eq(queuedCommandList.get(0)), any());
+    verify(ksqlEngine, never()).setNextQueryId(anyLong());
+  }
+
+  @Test
+  public void shouldMaybeSnapshotAfterRunningNewCommands() {
+    // Given:
+    when(commandStore.getConsumerPosition()).thenReturn(12L);
+    givenCommandRunnerWithSnapshotter();
+
+    // When:
+    commandRunner.fetchAndRunCommands();
+
+    // Then:
+    verify(snapshotter).maybeSnapshot(3, statementExecutor, 12L);
   }
 
   @Test
@@ -150,6 +259,11 @@ public class CommandRunnerTest {
     commandRunner.close();
   }
 
+  private void givenCommandRunnerWithSnapshotter() {
+    commandRunner = new CommandRunner(statementExecutor, commandStore, ksqlEngine, 1, 2,
+        clusterTerminator, Optional.of(snapshotter));
+  }
+
   private static List<QueuedCommand> getQueuedCommands(final Object... args) {
     assertThat(args.length % 2, equalTo(0));
     final List<QueuedCommand> queuedCommandList = new ArrayList<>();
@@ -19,6 +19,8 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.instanceOf;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.mockito.Mockito.mock;
 
 import com.google.common.collect.ImmutableList;
@@ -45,7 +47,9 @@ import io.confluent.ksql.services.ServiceContext;
 import io.confluent.ksql.services.TestServiceContext;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.PersistentQueryMetadata;
+import io.confluent.ksql.util.SchemaUtil;
 import io.confluent.ksql.util.timestamp.TimestampExtractionPolicy;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.Arrays;
 import java.util.Collection;
@@ -64,9 +68,15 @@ import org.hamcrest.Matcher;
 import org.hamcrest.TypeSafeDiagnosingMatcher;
 import org.junit.After;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class RecoveryTest {
+
+  @Rule
+  public final TemporaryFolder tmpFolder = new TemporaryFolder();
+
   private final KsqlConfig ksqlConfig = new KsqlConfig(
       ImmutableMap.of(
           "bootstrap.servers", "0.0.0.0"
@@ -137,6 +147,19 @@ public class RecoveryTest {
       return restoreCommands;
     }
 
+    @Override
+    public List<QueuedCommand> getRestoreCommands(final long fromOffset) {
+      final List<QueuedCommand> restoreCommands =
+          ImmutableList.copyOf(commandLog.subList((int) fromOffset, commandLog.size()));
+      this.offset = commandLog.size();
+      return restoreCommands;
+    }
+
+    @Override
+    public long getConsumerPosition() {
+      return offset;
+    }
+
     @Override
     public void ensureConsumedPast(final long seqNum, final Duration timeout) {
     }
@@ -159,6 +182,13 @@ public class RecoveryTest {
     final CommandRunner commandRunner;
 
     KsqlServer(final List<QueuedCommand> commandLog) {
+      this(commandLog, Optional.empty());
+    }
+
+    KsqlServer(
+        final List<QueuedCommand> commandLog,
+        final Optional<CommandSnapshotter> snapshotter
+    ) {
       this.ksqlEngine = createKsqlEngine();
       this.fakeCommandQueue = new FakeCommandQueue(commandLog);
       this.ksqlResource = new KsqlResource(
@@ -178,7 +208,9 @@ public class RecoveryTest {
           fakeCommandQueue,
           ksqlEngine,
           1,
-          mock(ClusterTerminator.class)
+          2,
+          mock(ClusterTerminator.class),
+          snapshotter
       );
     }
 
@@ -591,6 +623,66 @@ public class RecoveryTest {
     shouldRecover(commands);
   }
 
+  @Test
+  public void shouldRecoverFromSnapshotAndTheCommandsAfterIt() {
+    // Given:
+    final Path snapshotFile = tmpFolder.getRoot().toPath().resolve("commands.snapshot.json");
+    final KsqlServer snapshotServer = new KsqlServer(commands, snapshotter(snapshotFile));
+    snapshotServer.submitCommands(
+        "CREATE STREAM A (COLUMN STRING) WITH (KAFKA_TOPIC='A', VALUE_FORMAT='JSON');",
+        "CREATE STREAM B AS SELECT * FROM A;",
+        "INSERT INTO B SELECT * FROM A;",
+        "CREATE STREAM C AS SELECT * FROM A;",
+        "TERMINATE InsertQuery_1;"
+    );
+    server1.executeCommands();
+    server1.submitCommands("CREATE STREAM D AS SELECT * FROM A;");
+
+    // When:
+    final KsqlServer recoverServer = new KsqlServer(commands, snapshotter(snapshotFile));
+    recoverServer.recover();
+
+    // Then:
+    assertThat(snapshotter(snapshotFile).get().load().get().getOffset(), is(5L));
+    final KsqlEngine engine = server1.ksqlEngine;
+    final KsqlEngine recovered = recoverServer.ksqlEngine;
+    assertThat(recovered.getMetaStore(), sameStore(engine.getMetaStore()));
+    final Map<QueryId, PersistentQueryMetadata> queries
+        = queriesById(engine.getPersistentQueries());
+    final Map<QueryId, PersistentQueryMetadata> recoveredQueries
+        = queriesById(recovered.getPersistentQueries());
+    assertThat(recoveredQueries.keySet(), equalTo(queries.keySet()));
+    queries.forEach(
+        (queryId, query) -> assertThat(query, sameQuery(recoveredQueries.get(queryId))));
+  }
+
+  @Test
+  public void shouldRecoverSinkOfTerminatedQueryFromSnapshot() {
+    // Given:
+    final Path snapshotFile = tmpFolder.getRoot().toPath().resolve("commands.snapshot.json");
+    final KsqlServer snapshotServer = new KsqlServer(commands, snapshotter(snapshotFile));
+    snapshotServer.submitCommands(
+        "CREATE STREAM A (C1 STRING, C2 INT) WITH (KAFKA_TOPIC='A', VALUE_FORMAT='JSON');",
+        "CREATE STREAM B AS SELECT C2 FROM A;",
+        "TERMINATE CSAS_B_0;"
+    );
+
+    // When:
+    final KsqlServer recoverServer = new KsqlServer(commands, snapshotter(snapshotFile));
+    recoverServer.recover();
+
+    // Then:
+    final StructuredDataSource original = snapshotServer.ksqlEngine.getMetaStore().getSource("B");
+    final StructuredDataSource recovered = recoverServer.ksqlEngine.getMetaStore().getSource("B");
+    assertThat(recovered, is(notNullValue()));
+    assertThat(
+        SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(recovered.getSchema()).fields(),
+        equalTo(SchemaUtil.removeImplicitRowTimeRowKeyFromSchema(original.getSchema()).fields()));
+    assertThat(recovered.getKafkaTopicName(), equalTo(original.getKafkaTopicName()));
+    assertThat(recoverServer.ksqlEngine.getPersistentQueries().size(), is(0));
+    assertThat(recoverServer.ksqlEngine.peekNextQueryId(), is(1L));
+  }
+
   @Test
   public void shouldCascade4Dot1Drop() {
     commands.addAll(
@@ -631,4 +723,8 @@ public class RecoveryTest {
         recovered.ksqlEngine.getMetaStore().getAllStructuredDataSources().keySet(),
         contains("A"));
   }
+
+  private Optional<CommandSnapshotter> snapshotter(final Path snapshotFile) {
+    return Optional.of(new CommandSnapshotter(snapshotFile, 1, ksqlConfig));
+  }
 }
@@ -673,6 +673,54 @@ public class StatementExecutorTest extends EasyMockSupport {
             + "to exceed the configured limit"));
   }
 
+  @Test
+  public void shouldFailCreateAsSelectIfExceedStreamThreadLimit() {
+    // Given:
+    createStreamsAndStartTwoPersistentQueries();
+    final StatementExecutor limitedExecutor = givenStatementExecutorWithStreamThreadLimit(2);
+    final Command csasCommand = givenCommand(
+        "CREATE STREAM user2pv AS select * from pageview;", ksqlConfig);
+    final CommandId csasCommandId =
+        new CommandId(CommandId.Type.STREAM, "_CSASGen2", CommandId.Action.CREATE);
+
+    // When:
+    handleStatement(limitedExecutor, csasCommand, csasCommandId, Optional.empty());
+
+    // Then:
+    final CommandStatus commandStatus = limitedExecutor.getStatus(csasCommandId).get();
+    assertThat(commandStatus.getStatus(), is(CommandStatus.Status.ERROR));
+    assertThat(
+        commandStatus.getMessage(),
+        containsString("would cause the number of stream threads used by active, "
+            + "persistent queries to exceed the configured limit"));
+  }
+
+  @Test
+  public void shouldRestoreQueriesEvenIfStreamThreadLimitWasLowered() {
+    // Given:
+    final StatementExecutor limitedExecutor = givenStatementExecutorWithStreamThreadLimit(1);
+    final List<QueuedCommand> priorCommands = ImmutableList.of(
+        new QueuedCommand(
+            new CommandId(CommandId.Type.STREAM, "pageview", CommandId.Action.CREATE),
+            givenCommand("CREATE STREAM pageview (viewtime bigint, pageid varchar) "
+                + "WITH (kafka_topic = 'pageview_topic_json', value_format = 'json');",
+                ksqlConfig)),
+        new QueuedCommand(
+            new CommandId(CommandId.Type.STREAM, "_CSASGen", CommandId.Action.CREATE),
+            givenCommand("CREATE STREAM user1pv AS select * from pageview;", ksqlConfig)),
+        new QueuedCommand(
+            new CommandId(CommandId.Type.STREAM, "_CSASGen2", CommandId.Action.CREATE),
+            givenCommand("CREATE STREAM user2pv AS select * from pageview;", ksqlConfig)));
+
+    // When:
+    for (final QueuedCommand command : priorCommands) {
+      limitedExecutor.handleRestore(command);
+    }
+
+    // Then:
+    assertThat(ksqlEngine.numberOfPersistentQueries(), is(2));
+  }
+
   @Test
   public void shouldHandleLegacyRunScriptCommand() {
     // Given:
@@ -913,6 +961,13 @@ public class StatementExecutorTest extends EasyMockSupport {
     return commandStatus.get();
   }
 
+  private StatementExecutor givenStatementExecutorWithStreamThreadLimit(final int limit) {
+    final Map<String, Object> props = new HashMap<>(ksqlConfig.originals());
+    props.put(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG, limit);
+    return new StatementExecutor(
+        new KsqlConfig(props), ksqlEngine, new StatementParser(ksqlEngine));
+  }
+
   private static KsqlConfig givenCommandConfig(final String name, final Object value) {
     return new KsqlConfig(Collections.singletonMap(name, value));
   }
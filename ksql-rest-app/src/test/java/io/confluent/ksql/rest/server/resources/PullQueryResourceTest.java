@@ -0,0 +1,333 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.resources;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.KsqlEngine;
+import io.confluent.ksql.function.InternalFunctionRegistry;
+import io.confluent.ksql.function.udaf.window.WindowSelectMapper;
+import io.confluent.ksql.materialization.Materialization;
+import io.confluent.ksql.metastore.KsqlTable;
+import io.confluent.ksql.metastore.KsqlTopic;
+import io.confluent.ksql.metastore.MetaStoreImpl;
+import io.confluent.ksql.metastore.MutableMetaStore;
+import io.confluent.ksql.parser.DefaultKsqlParser;
+import io.confluent.ksql.parser.KsqlParser;
+import io.confluent.ksql.parser.KsqlParser.PreparedStatement;
+import io.confluent.ksql.parser.tree.Query;
+import io.confluent.ksql.query.QueryId;
+import io.confluent.ksql.rest.client.KsqlRestClient;
+import io.confluent.ksql.rest.client.RestResponse;
+import io.confluent.ksql.rest.entity.KsqlRequest;
+import io.confluent.ksql.rest.entity.StreamedRow;
+import io.confluent.ksql.rest.server.StatementParser;
+import io.confluent.ksql.rest.server.computation.CommandQueue;
+import io.confluent.ksql.serde.json.KsqlJsonTopicSerDe;
+import io.confluent.ksql.util.KsqlConfig;
+import io.confluent.ksql.util.PersistentQueryMetadata;
+import io.confluent.ksql.util.timestamp.MetadataTimestampExtractionPolicy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import javax.ws.rs.core.Response;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.StreamsConfig;
+import org.apache.kafka.streams.kstream.Windowed;
+import org.apache.kafka.streams.kstream.internals.TimeWindow;
+import org.apache.kafka.streams.state.HostInfo;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+import org.apache.kafka.streams.state.ReadOnlyWindowStore;
+import org.apache.kafka.streams.state.StreamsMetadata;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@SuppressWarnings("unchecked")
+@RunWith(MockitoJUnitRunner.class)
+public class PullQueryResourceTest {
+
+  private static final String TABLE_NAME = "T";
+  private static final String STORE_NAME = "Aggregate-aggregate";
+  private static final QueryId QUERY_ID = new QueryId("CTAS_T_0");
+  private static final HostInfo LOCAL_HOST = new HostInfo("localhost", 8088);
+  private static final HostInfo REMOTE_HOST = new HostInfo("otherhost", 8088);
+  private static final String LOOKUP = "SELECT * FROM t WHERE ROWKEY = 'k';";
+  private static final String WINDOWED_LOOKUP =
+      "SELECT * FROM t WHERE ROWKEY = 'k' AND WINDOWSTART >= 1000 AND WINDOWSTART <= 3000;";
+
+  private final KsqlConfig ksqlConfig = new KsqlConfig(ImmutableMap.of(
+      StreamsConfig.APPLICATION_SERVER_CONFIG, LOCAL_HOST.host() + ":" + LOCAL_HOST.port()));
+  private final MutableMetaStore metaStore = new MetaStoreImpl(new InternalFunctionRegistry());
+
+  @Mock
+  private KsqlEngine ksqlEngine;
+  @Mock
+  private StatementParser statementParser;
+  @Mock
+  private CommandQueue commandQueue;
+  @Mock
+  private PersistentQueryMetadata query;
+  @Mock
+  private KafkaStreams streams;
+  @Mock
+  private ReadOnlyKeyValueStore<String, GenericRow> keyValueStore;
+  @Mock
+  private ReadOnlyWindowStore<String, GenericRow> windowStore;
+  @Mock
+  private Function<String, KsqlRestClient> clientFactory;
+  @Mock
+  private KsqlRestClient restClient;
+  private PullQueryResource resource;
+
+  @Before
+  public void setUp() {
+    final Schema schema = SchemaBuilder.struct()
+        .field("ROWTIME", Schema.OPTIONAL_INT64_SCHEMA)
+        .field("ROWKEY", Schema.OPTIONAL_STRING_SCHEMA)
+        .field("COUNT", Schema.OPTIONAL_INT64_SCHEMA)
+        .build();
+    final KsqlTopic topic = new KsqlTopic(TABLE_NAME, "t", new KsqlJsonTopicSerDe(), true);
+    metaStore.putTopic(topic);
+    metaStore.putSource(new KsqlTable<>(
+        "statementText", TABLE_NAME, schema, schema.field("ROWKEY"),
+        new MetadataTimestampExtractionPolicy(), topic, STORE_NAME, Serdes.String()));
+    metaStore.updateForPersistentQuery(
+        QUERY_ID.getId(), Collections.emptySet(), ImmutableSet.of(TABLE_NAME));
+
+    when(ksqlEngine.isAcceptingStatements()).thenReturn(true);
+    when(ksqlEngine.getMetaStore()).thenReturn(metaStore);
+    when(ksqlEngine.getPersistentQuery(QUERY_ID)).thenReturn(Optional.of(query));
+
+    resource = new PullQueryResource(
+        ksqlConfig,
+        ksqlEngine,
+        statementParser,
+        commandQueue,
+        Duration.ofMillis(1000),
+        "http",
+        clientFactory);
+  }
+
+  @Test
+  public void shouldServeLookupOfLocalKey() {
+    // Given:
+    givenMaterialization(Materialization.StoreType.KEY_VALUE);
+    givenStatement(LOOKUP);
+    givenOwner(LOCAL_HOST);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(keyValueStore);
+    when(keyValueStore.get("k")).thenReturn(row(1L, "k", 2L));
+
+    // When:
+    final Response response = resource.pullQuery(request(LOOKUP, Collections.emptyMap()));
+
+    // Then:
+    assertThat(response.getStatus(), is(200));
+    assertThat((List<StreamedRow>) response.getEntity(), contains(
+        StreamedRow.row(row(1L, "k", 2L))));
+    verify(clientFactory, never()).apply(any());
+  }
+
+  @Test
+  public void shouldReturnWindowBoundsWithWindowedRows() {
+    // Given:
+    givenMaterialization(Materialization.StoreType.WINDOW);
+    givenStatement(WINDOWED_LOOKUP);
+    givenOwner(LOCAL_HOST);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(windowStore);
+    when(windowStore.fetch("k", "k", Instant.ofEpochMilli(1000), Instant.ofEpochMilli(3000)))
+        .thenReturn(iterator(
+            new KeyValue<>(new Windowed<>("k", new TimeWindow(1000, 2000)), row(1L, "k", 2L)),
+            new KeyValue<>(new Windowed<>("k", new TimeWindow(2000, 3000)), row(2L, "k", 5L))));
+
+    // When:
+    final Response response =
+        resource.pullQuery(request(WINDOWED_LOOKUP, Collections.emptyMap()));
+
+    // Then:
+    assertThat(response.getStatus(), is(200));
+    assertThat((List<StreamedRow>) response.getEntity(), contains(
+        StreamedRow.row(row(1000L, 2000L, 1L, "k", 2L)),
+        StreamedRow.row(row(2000L, 3000L, 2L, "k", 5L))));
+  }
+
+  @Test
+  public void shouldForwardLookupOfKeyOwnedByAnotherServer() {
+    // Given:
+    givenMaterialization(Materialization.StoreType.KEY_VALUE);
+    givenStatement(LOOKUP);
+    givenOwner(REMOTE_HOST);
+    final List<StreamedRow> remoteRows = ImmutableList.of(StreamedRow.row(row(1L, "k", 2L)));
+    when(clientFactory.apply("http://otherhost:8088")).thenReturn(restClient);
+    when(restClient.makePullQueryRequest(
+        LOOKUP, ImmutableMap.of(PullQueryResource.FORWARDED_PROPERTY, true)))
+        .thenReturn(RestResponse.successful(remoteRows));
+
+    // When:
+    final Response response = resource.pullQuery(request(LOOKUP, Collections.emptyMap()));
+
+    // Then:
+    assertThat(response.getStatus(), is(200));
+    assertThat(response.getEntity(), is(remoteRows));
+    verify(restClient).close();
+    verify(streams, never()).store(any(), any());
+  }
+
+  @Test
+  public void shouldForwardLookupUsingTheSchemeOfTheLocalListener() {
+    // Given:
+    resource = new PullQueryResource(
+        ksqlConfig,
+        ksqlEngine,
+        statementParser,
+        commandQueue,
+        Duration.ofMillis(1000),
+        "https",
+        clientFactory);
+    givenMaterialization(Materialization.StoreType.KEY_VALUE);
+    givenStatement(LOOKUP);
+    givenOwner(REMOTE_HOST);
+    when(clientFactory.apply("https://otherhost:8088")).thenReturn(restClient);
+    when(restClient.makePullQueryRequest(any(), any()))
+        .thenReturn(RestResponse.successful(Collections.emptyList()));
+
+    // When:
+    final Response response = resource.pullQuery(request(LOOKUP, Collections.emptyMap()));
+
+    // Then:
+    assertThat(response.getStatus(), is(200));
+    verify(clientFactory).apply("https://otherhost:8088");
+  }
+
+  @Test
+  public void shouldNotForwardLookupThatWasAlreadyForwarded() {
+    // Given:
+    givenMaterialization(Materialization.StoreType.KEY_VALUE);
+    givenStatement(LOOKUP);
+    givenOwner(REMOTE_HOST);
+    when(streams.store(eq(STORE_NAME), any())).thenReturn(keyValueStore);
+    when(keyValueStore.get("k")).thenReturn(row(1L, "k", 2L));
+
+    // When:
+    final Response response = resource.pullQuery(request(
+        LOOKUP, ImmutableMap.of(PullQueryResource.FORWARDED_PROPERTY, true)));
+
+    // Then:
+    assertThat(response.getStatus(), is(200));
+    assertThat((List<StreamedRow>) response.getEntity(), contains(
+        StreamedRow.row(row(1L, "k", 2L))));
+    verify(clientFactory, never()).apply(any());
+  }
+
+  @Test
+  public void shouldReturnErrorIfForwardedLookupFails() {
+    // Given:
+    givenMaterialization(Materialization.StoreType.KEY_VALUE);
+    givenStatement(LOOKUP);
+    givenOwner(REMOTE_HOST);
+    when(clientFactory.apply("http://otherhost:8088")).thenReturn(restClient);
+    when(restClient.makePullQueryRequest(any(), any()))
+        .thenReturn(RestResponse.erroneous(50000, "store unavailable"));
+
+    // When:
+    final Response response = resource.pullQuery(request(LOOKUP, Collections.emptyMap()));
+
+    // Then:
+    assertThat(response.getStatus(), is(400));
+  }
+
+  private void givenMaterialization(final Materialization.StoreType storeType) {
+    when(query.getMaterialization()).thenReturn(Optional.of(new Materialization(
+        streams,
+        STORE_NAME,
+        storeType,
+        WindowSelectMapper.forFunctionNames(Collections.emptyMap()),
+        row -> row)));
+  }
+
+  private void givenStatement(final String sql) {
+    final KsqlParser parser = new DefaultKsqlParser();
+    final PreparedStatement<Query> statement =
+        (PreparedStatement<Query>) parser.prepare(parser.parse(sql).get(0), metaStore);
+    when(statementParser.<Query>parseSingleStatement(sql)).thenReturn(statement);
+  }
+
+  private void givenOwner(final HostInfo owner) {
+    when(streams.metadataForKey(eq(STORE_NAME), eq("k"), any(Serializer.class)))
+        .thenReturn(new StreamsMetadata(
+            owner, ImmutableSet.of(STORE_NAME), Collections.emptySet()));
+  }
+
+  private static KsqlRequest request(final String sql, final Map<String, ?> properties) {
+    return new KsqlRequest(sql, properties, null);
+  }
+
+  private static GenericRow row(final Object... columns) {
+    return new GenericRow(Arrays.asList(columns));
+  }
+
+  @SafeVarargs
+  private static KeyValueIterator<Windowed<String>, GenericRow> iterator(
+      final KeyValue<Windowed<String>, GenericRow>... rows
+  ) {
+    final Iterator<KeyValue<Windowed<String>, GenericRow>> it = Arrays.asList(rows).iterator();
+    return new KeyValueIterator<Windowed<String>, GenericRow>() {
+      @Override
+      public void close() {
+      }
+
+      @Override
+      public Windowed<String> peekNextKey() {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public boolean hasNext() {
+        return it.hasNext();
+      }
+
+      @Override
+      public KeyValue<Windowed<String>, GenericRow> next() {
+        return it.next();
+      }
+    };
+  }
+}
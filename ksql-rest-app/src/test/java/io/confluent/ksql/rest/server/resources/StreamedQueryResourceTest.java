@@ -95,6 +95,8 @@ public class StreamedQueryResourceTest {
 
   private static final Duration DISCONNECT_CHECK_INTERVAL = Duration.ofMillis(1000);
   private static final Duration COMMAND_QUEUE_CATCHUP_TIMOEUT = Duration.ofMillis(1000);
+  private static final int BATCH_MAX_BYTES = 64 * 1024;
+  private static final Duration BATCH_MAX_LATENCY = Duration.ZERO;
 
   @Rule
   public final ExpectedException expectedException = ExpectedException.none();
@@ -137,6 +139,8 @@ public class StreamedQueryResourceTest {
         mockStatementParser,
         commandQueue,
         DISCONNECT_CHECK_INTERVAL,
+        BATCH_MAX_BYTES,
+        BATCH_MAX_LATENCY,
         COMMAND_QUEUE_CATCHUP_TIMOEUT,
         activenessRegistrar);
   }
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.rest.server.resources.streaming;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.notNullValue;
+import static org.hamcrest.Matchers.nullValue;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import io.confluent.ksql.rest.server.resources.streaming.Flow.Subscriber;
+import io.confluent.ksql.rest.server.resources.streaming.StreamingTestUtils.TestSubscriber;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.After;
+import org.junit.Test;
+
+public class PushSubscriptionTest {
+
+  private final ExecutorService exec = Executors.newFixedThreadPool(4);
+
+  @After
+  public void tearDown() {
+    exec.shutdownNow();
+  }
+
+  @Test
+  public void shouldDeliverItemsAsTheyBecomeAvailable() throws Exception {
+    // Given:
+    final TestSubscriber<String> subscriber = new TestSubscriber<>();
+    final TestPushSubscription subscription = new TestPushSubscription(exec, subscriber);
+    subscriber.onSubscribe(subscription);
+
+    // When:
+    subscription.add("a");
+    subscription.add("b");
+    subscription.add("c");
+    subscription.setDone();
+
+    // Then:
+    assertThat(subscriber.done.await(1000, TimeUnit.MILLISECONDS), is(true));
+    assertThat(subscriber.elements, contains("a", "b", "c"));
+    assertThat(subscriber.schema, is(notNullValue()));
+    assertThat(subscriber.error, is(nullValue()));
+    assertThat(subscription.closeCount, is(1));
+  }
+
+  @Test
+  public void shouldOnlyDeliverRequestedItems() {
+    // Given:
+    final List<String> received = new ArrayList<>();
+    final TestPushSubscription subscription = new TestPushSubscription(
+        MoreExecutors.directExecutor(),
+        new CollectingSubscriber(received));
+    subscription.add("a");
+    subscription.add("b");
+    subscription.add("c");
+
+    // When:
+    subscription.request(2);
+
+    // Then:
+    assertThat(received, contains("a", "b"));
+
+    // When:
+    subscription.request(1);
+
+    // Then:
+    assertThat(received, contains("a", "b", "c"));
+  }
+
+  @Test
+  public void shouldNotDeliverWithoutDemand() {
+    // Given:
+    final List<String> received = new ArrayList<>();
+    final TestPushSubscription subscription = new TestPushSubscription(
+        MoreExecutors.directExecutor(),
+        new CollectingSubscriber(received));
+
+    // When:
+    subscription.add("a");
+
+    // Then:
+    assertThat(received, is(empty()));
+  }
+
+  @Test
+  public void shouldDeliverQueuedItemsBeforeError() throws Exception {
+    // Given:
+    final TestSubscriber<String> subscriber = new TestSubscriber<>();
+    final TestPushSubscription subscription = new TestPushSubscription(exec, subscriber);
+    subscription.add("a");
+
+    // When:
+    subscription.setError(new RuntimeException("boom"));
+    subscriber.onSubscribe(subscription);
+
+    // Then:
+    assertThat(subscriber.done.await(1000, TimeUnit.MILLISECONDS), is(true));
+    assertThat(subscriber.elements, contains("a"));
+    assertThat(subscriber.error, is(instanceOf(RuntimeException.class)));
+    assertThat(subscription.closeCount, is(1));
+  }
+
+  @Test
+  public void shouldCloseOnceWhenCancelled() {
+    // Given:
+    final TestPushSubscription subscription = new TestPushSubscription(
+        MoreExecutors.directExecutor(),
+        new CollectingSubscriber(new ArrayList<>()));
+
+    // When:
+    subscription.cancel();
+    subscription.cancel();
+
+    // Then:
+    assertThat(subscription.closeCount, is(1));
+  }
+
+  private static final class TestPushSubscription extends PushSubscription<String> {
+
+    private final Queue<String> queue = new ConcurrentLinkedQueue<>();
+    private volatile int closeCount = 0;
+
+    private TestPushSubscription(
+        final Executor exec,
+        final Subscriber<String> subscriber
+    ) {
+      super(exec, subscriber, SchemaBuilder.OPTIONAL_STRING_SCHEMA);
+    }
+
+    private void add(final String item) {
+      queue.add(item);
+      onAvailable();
+    }
+
+    @Override
+    String poll() {
+      return queue.poll();
+    }
+
+    @Override
+    void close() {
+      closeCount++;
+    }
+  }
+
+  private static final class CollectingSubscriber implements Subscriber<String> {
+
+    private final List<String> received;
+
+    private CollectingSubscriber(final List<String> received) {
+      this.received = received;
+    }
+
+    @Override
+    public void onNext(final String item) {
+      received.add(item);
+    }
+
+    @Override
+    public void onError(final Throwable e) {
+    }
+
+    @Override
+    public void onComplete() {
+    }
+
+    @Override
+    public void onSchema(final Schema schema) {
+    }
+
+    @Override
+    public void onSubscribe(final Flow.Subscription subscription) {
+    }
+  }
+}
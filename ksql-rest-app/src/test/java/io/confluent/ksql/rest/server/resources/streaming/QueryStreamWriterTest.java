@@ -15,6 +15,7 @@
 
 package io.confluent.ksql.rest.server.resources.streaming;
 
+import static org.easymock.EasyMock.anyLong;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.capture;
 import static org.easymock.EasyMock.expect;
@@ -24,10 +25,13 @@ import static org.easymock.EasyMock.niceMock;
 import static org.easymock.EasyMock.replay;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.CoreMatchers.hasItems;
+import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.json.JsonMapper;
@@ -39,9 +43,12 @@ import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import org.apache.kafka.common.metrics.KafkaMetric;
+import org.apache.kafka.common.metrics.Metrics;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
 import org.apache.kafka.streams.KafkaStreams;
@@ -85,11 +92,13 @@ public class QueryStreamWriterTest {
   private ByteArrayOutputStream out;
   private OutputNode.LimitHandler limitHandler;
   private ObjectMapper objectMapper;
+  private Metrics metrics;
 
   @Before
   public void setUp() {
 
     objectMapper = JsonMapper.INSTANCE.mapper;
+    metrics = new Metrics();
 
     ehCapture = newCapture();
     drainCapture = newCapture();
@@ -104,6 +113,7 @@ public class QueryStreamWriterTest {
     expect(kStreams.state()).andReturn(State.RUNNING);
 
     expect(queryMetadata.getRowQueue()).andReturn(rowQueue).anyTimes();
+    expect(queryMetadata.getQueryApplicationId()).andReturn("query-app-id").anyTimes();
     expect(queryMetadata.getResultSchema()).andReturn(schema).anyTimes();
 
     queryMetadata.setLimitHandler(capture(limitHandlerCapture));
@@ -176,10 +186,74 @@ public class QueryStreamWriterTest {
         containsString("Row3")));
   }
 
+  @Test
+  public void shouldWriteRowsAlreadyQueuedInOneBatch() throws Exception {
+    // Given:
+    final KeyValue<String, GenericRow> row1 = row("Row1");
+    final KeyValue<String, GenericRow> row2 = row("Row2");
+    final KeyValue<String, GenericRow> row3 = row("Row3");
+    expect(queryMetadata.isRunning()).andReturn(true).times(3).andReturn(false);
+    expect(rowQueue.poll(anyLong(), anyObject()))
+        .andReturn(row1).andReturn(row2).andReturn(row3);
+    expect(rowQueue.peek()).andReturn(row2).andReturn(row3).andReturn(null);
+
+    createWriter(60_000);
+
+    final CountingOutputStream countingOut = new CountingOutputStream();
+
+    // When:
+    writer.write(countingOut);
+
+    // Then:
+    assertThat(countingOut.writes, is(1));
+    assertThat(getOutput(countingOut), contains(
+        containsString("Row1"),
+        containsString("Row2"),
+        containsString("Row3")));
+  }
+
+  @Test
+  public void shouldReportQueueDepthWhileWriting() {
+    // Given:
+    expect(rowQueue.size()).andReturn(42).anyTimes();
+
+    // When:
+    createWriter();
+
+    // Then:
+    assertThat(queueDepth(), is(Optional.<Object>of(42)));
+  }
+
+  @Test
+  public void shouldRemoveQueueDepthMetricOnceDone() {
+    // Given:
+    expect(queryMetadata.isRunning()).andReturn(false);
+    createWriter();
+
+    // When:
+    writer.write(out);
+
+    // Then:
+    assertThat(queueDepth(), is(Optional.empty()));
+  }
+
+  private Optional<Object> queueDepth() {
+    return Optional.ofNullable(metrics.metric(metrics.metricName(
+        "queue-depth",
+        QueryStreamWriter.METRIC_GROUP,
+        ImmutableMap.of("query-id", "query-app-id"))))
+        .map(KafkaMetric::metricValue);
+  }
+
   private void createWriter() {
+    createWriter(0);
+  }
+
+  private void createWriter(final long batchMaxMs) {
     replay(queryMetadata, ksqlEngine, rowQueue);
 
-    writer = new QueryStreamWriter(queryMetadata, 1000, objectMapper);
+    writer = new QueryStreamWriter(
+        queryMetadata, 1000, 64 * 1024, batchMaxMs, objectMapper, metrics);
 
     out = new ByteArrayOutputStream();
     limitHandler = limitHandlerCapture.getValue();
@@ -202,10 +276,30 @@ public class QueryStreamWriterTest {
     };
   }
 
+  private static KeyValue<String, GenericRow> row(final Object value) {
+    return new KeyValue<>("no used", new GenericRow(ImmutableList.of(value)));
+  }
+
   private static List<String> getOutput(final ByteArrayOutputStream out) {
     final String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
     return Arrays.stream(lines)
         .filter(line -> !line.isEmpty())
         .collect(Collectors.toList());
   }
+
+  /**
+   * Counts the writes that carry data, ignoring empty ones.
+   */
+  private static final class CountingOutputStream extends ByteArrayOutputStream {
+
+    private int writes;
+
+    @Override
+    public synchronized void write(final byte[] b, final int off, final int len) {
+      if (len > 0) {
+        writes++;
+      }
+      super.write(b, off, len);
+    }
+  }
 }
@@ -19,14 +19,20 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.mockito.Mockito.when;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import io.confluent.ksql.KsqlEngine;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.PersistentQueryMetadata;
+import java.util.Map;
+import org.apache.kafka.streams.StreamsConfig;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
+import org.mockito.Mockito;
 import org.mockito.junit.MockitoJUnitRunner;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -105,6 +111,72 @@ public class QueryCapacityUtilTest {
         ksqlEngine, ksqlConfig, statementStr);
   }
 
+  @Test
+  public void shouldReportStreamThreadCapacityExceededIfOverLimit() {
+    // Given:
+    givenPersistentQueriesWithStreamThreads(4, "2");
+    givenStreamThreadLimit(5);
+
+    // Then:
+    assertThat(QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, ksqlConfig, 0),
+        equalTo(true));
+  }
+
+  @Test
+  public void shouldCountOneStreamThreadIfQueryDoesNotSetThreads() {
+    // Given:
+    givenPersistentQueriesWithStreamThreads(1, null);
+    givenStreamThreadLimit(3);
+
+    // Then:
+    assertThat(QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, ksqlConfig, 2),
+        equalTo(false));
+  }
+
+  @Test
+  public void shouldReportStreamThreadCapacityExceededIfTooManyQueriesAdded() {
+    // Given:
+    givenPersistentQueriesWithStreamThreads(1, 2);
+    givenStreamThreadLimit(5);
+    when(ksqlConfig.getKsqlStreamConfigProps())
+        .thenReturn(ImmutableMap.of(StreamsConfig.NUM_STREAM_THREADS_CONFIG, 2));
+
+    // Then:
+    assertThat(QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, ksqlConfig, 2),
+        equalTo(true));
+  }
+
+  @Test
+  public void shouldNotReportStreamThreadCapacityExceededIfReached() {
+    // Given:
+    givenPersistentQueriesWithStreamThreads(2, 2);
+    givenStreamThreadLimit(5);
+
+    // Then:
+    assertThat(QueryCapacityUtil.exceedsStreamThreadCapacity(ksqlEngine, ksqlConfig, 1),
+        equalTo(false));
+  }
+
+  @Test
+  public void shouldThrowTooManyStreamThreadsWhenAsked() {
+    // Given:
+    expectedException.expect(KsqlException.class);
+    expectedException.expectMessage(
+        "Not executing statement(s) 'my statement' as it would cause the number "
+            + "of stream threads used by active, persistent queries to exceed the configured "
+            + "limit. Use the TERMINATE command to terminate existing queries, "
+            + "or increase the 'ksql.query.persistent.active.stream.threads.limit' setting "
+            + "via the 'ksql-server.properties' file. "
+            + "Current stream thread count: 6. Configured limit: 4.");
+
+    givenPersistentQueriesWithStreamThreads(3, 2);
+    givenStreamThreadLimit(4);
+
+    // When:
+    QueryCapacityUtil.throwTooManyStreamThreadsException(
+        ksqlEngine, ksqlConfig, "my statement");
+  }
+
   private void givenActivePersistentQueries(final int numQueries) {
     when(ksqlEngine.numberOfPersistentQueries())
         .thenReturn(numQueries);
@@ -114,4 +186,27 @@ public class QueryCapacityUtilTest {
     when(ksqlConfig.getInt(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_LIMIT_CONFIG))
         .thenReturn(queryLimit);
   }
+
+  private void givenPersistentQueriesWithStreamThreads(
+      final int numQueries,
+      final Object streamThreads
+  ) {
+    final Map<String, Object> props = streamThreads == null
+        ? ImmutableMap.of()
+        : ImmutableMap.of(StreamsConfig.NUM_STREAM_THREADS_CONFIG, streamThreads);
+
+    final ImmutableList.Builder<PersistentQueryMetadata> queries = ImmutableList.builder();
+    for (int i = 0; i < numQueries; i++) {
+      final PersistentQueryMetadata query = Mockito.mock(PersistentQueryMetadata.class);
+      when(query.getStreamsProperties()).thenReturn(props);
+      queries.add(query);
+    }
+
+    when(ksqlEngine.getPersistentQueries()).thenReturn(queries.build());
+  }
+
+  private void givenStreamThreadLimit(final int threadLimit) {
+    when(ksqlConfig.getInt(KsqlConfig.KSQL_ACTIVE_PERSISTENT_QUERY_STREAM_THREAD_LIMIT_CONFIG))
+        .thenReturn(threadLimit);
+  }
 }
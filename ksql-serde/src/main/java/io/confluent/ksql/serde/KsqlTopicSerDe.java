@@ -19,6 +19,7 @@ import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
 import io.confluent.ksql.util.KsqlConfig;
+import java.util.Set;
 import java.util.function.Supplier;
 import org.apache.kafka.common.serialization.Serde;
 import org.apache.kafka.connect.data.Schema;
@@ -43,4 +44,28 @@ public abstract class KsqlTopicSerDe {
       Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
       String loggerNamePrefix,
       ProcessingLogContext processingLogContext);
+
+  /**
+   * Get a serde whose deserializer need only populate the supplied columns.
+   *
+   * <p>Columns whose name, without any source alias, is not in {@code requiredColumns} may be
+   * left null in the deserialized rows. Formats that can not skip columns ignore
+   * {@code requiredColumns} and populate every column.
+   */
+  public Serde<GenericRow> getGenericRowSerde(
+      final Schema schemaMaybeWithSource,
+      final KsqlConfig ksqlConfig,
+      final boolean isInternal,
+      final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
+      final String loggerNamePrefix,
+      final ProcessingLogContext processingLogContext,
+      final Set<String> requiredColumns) {
+    return getGenericRowSerde(
+        schemaMaybeWithSource,
+        ksqlConfig,
+        isInternal,
+        schemaRegistryClientFactory,
+        loggerNamePrefix,
+        processingLogContext);
+  }
 }
@@ -20,12 +20,15 @@ import com.google.common.collect.Iterables;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.serde.connect.ConnectDataTranslator;
 import io.confluent.ksql.serde.connect.DataTranslator;
+import io.confluent.ksql.serde.util.SerdeUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
 import org.apache.kafka.connect.data.Field;
 import org.apache.kafka.connect.data.Schema;
@@ -35,33 +38,74 @@ import org.apache.kafka.connect.data.Struct;
 
 public class AvroDataTranslator implements DataTranslator {
   private final DataTranslator innerTranslator;
+  private final DataTranslator readTranslator;
   private final Schema ksqlSchema;
   private final Schema avroCompatibleSchema;
+  private final int[] readColumnIndexes;
 
   public AvroDataTranslator(final Schema ksqlSchema, final String schemaFullName) {
+    this(ksqlSchema, schemaFullName, Optional.empty());
+  }
+
+  /**
+   * @param requiredColumns the columns {@link #toKsqlRow} must populate, or empty for all.
+   *                        Other columns are not translated and are left null.
+   */
+  public AvroDataTranslator(
+      final Schema ksqlSchema,
+      final String schemaFullName,
+      final Optional<Set<String>> requiredColumns
+  ) {
     this.ksqlSchema = ksqlSchema;
     this.avroCompatibleSchema = buildAvroCompatibleSchema(
         ksqlSchema,
         new TypeNameGenerator(Collections.singleton(schemaFullName)));
     this.innerTranslator = new ConnectDataTranslator(avroCompatibleSchema);
+
+    final List<Integer> readColumns = new ArrayList<>();
+    final SchemaBuilder readSchema = SchemaBuilder.struct().name(avroCompatibleSchema.name());
+    for (int i = 0; i < ksqlSchema.fields().size(); i++) {
+      if (SerdeUtils.isRequiredColumn(ksqlSchema.fields().get(i), requiredColumns)) {
+        final Field field = avroCompatibleSchema.fields().get(i);
+        readSchema.field(field.name(), field.schema());
+        readColumns.add(i);
+      }
+    }
+
+    this.readColumnIndexes = readColumns.stream().mapToInt(Integer::intValue).toArray();
+    this.readTranslator = readColumnIndexes.length == ksqlSchema.fields().size()
+        ? innerTranslator
+        : new ConnectDataTranslator(readSchema.build());
   }
 
   @Override
   public GenericRow toKsqlRow(final Schema connectSchema, final Object connectObject) {
-    final GenericRow avroCompatibleRow = innerTranslator.toKsqlRow(connectSchema, connectObject);
+    final GenericRow avroCompatibleRow = readTranslator.toKsqlRow(connectSchema, connectObject);
     if (avroCompatibleRow == null) {
       return null;
     }
-    final List<Object> columns = new ArrayList<>(avroCompatibleRow.getColumns().size());
-    for (int i = 0; i < avroCompatibleRow.getColumns().size(); i++) {
-      columns.add(
+    final List<Object> columns = new ArrayList<>(ksqlSchema.fields().size());
+    for (int i = 0; i < ksqlSchema.fields().size(); i++) {
+      columns.add(null);
+    }
+    for (int i = 0; i < readColumnIndexes.length; i++) {
+      final int index = readColumnIndexes[i];
+      columns.set(
+          index,
           replaceSchema(
-              ksqlSchema.fields().get(i).schema(),
+              ksqlSchema.fields().get(index).schema(),
               avroCompatibleRow.getColumns().get(i)));
     }
     return new GenericRow(columns);
   }
 
+  /**
+   * @return the schema rows are converted to before being written, with names Avro accepts.
+   */
+  Schema getAvroCompatibleSchema() {
+    return avroCompatibleSchema;
+  }
+
   @Override
   public Struct toConnectRow(final GenericRow genericRow) {
     final List<Object> columns = new ArrayList<>(genericRow.getColumns().size());
@@ -95,7 +139,7 @@ public class AvroDataTranslator implements DataTranslator {
     }
   }
 
-  private String avroCompatibleFieldName(final Field field) {
+  static String avroCompatibleFieldName(final Field field) {
     // Currently the only incompatible field names expected are fully qualified
     // column identifiers. Once quoted identifier support is introduced we will
     // need to implement something more generic here.
@@ -0,0 +1,431 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.serde.util.SerdeUtils;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.avro.io.Decoder;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * Decodes Avro binary written with a given writer schema straight into a {@link GenericRow}.
+ *
+ * <p>The plan for reading each writer field, or skipping it if it is not a column, or not
+ * required by the query, is compiled once per writer schema. Columns are matched to writer fields
+ * in the same way, and values are coerced to the same types, as going via Connect's
+ * {@code AvroConverter} and {@link AvroDataTranslator}.
+ *
+ * <p>Writer schemas that need more than that, e.g. unions other than a type and null, or types
+ * that are coerced in a way the Connect path would reject, are not compiled: rows written with
+ * them must be read via the Connect path, which handles or rejects them.
+ */
+final class AvroRowDecoder {
+
+  // The record type Connect's AvroData uses to write the entries of maps with non-string keys:
+  private static final String MAP_ENTRY_TYPE_NAME = "io.confluent.connect.avro.MapEntry";
+  private static final String MAP_ENTRY_KEY = "key";
+  private static final String MAP_ENTRY_VALUE = "value";
+  private static final int MAX_DEPTH = 32;
+  private static final int NOT_REQUIRED = -1;
+
+  private final int columnCount;
+  private final int[] columnIndexes;
+  private final FieldReader[] fieldReaders;
+
+  private AvroRowDecoder(
+      final int columnCount,
+      final int[] columnIndexes,
+      final FieldReader[] fieldReaders
+  ) {
+    this.columnCount = columnCount;
+    this.columnIndexes = columnIndexes;
+    this.fieldReaders = fieldReaders;
+  }
+
+  /**
+   * @param writerSchema the schema the data was written with.
+   * @param ksqlSchema the schema of the rows to decode, without any source name.
+   * @param requiredColumns the columns to populate, or empty for all.
+   * @return the decoder, or empty if rows written with the writer schema can not be decoded
+   *         directly.
+   */
+  static Optional<AvroRowDecoder> create(
+      final org.apache.avro.Schema writerSchema,
+      final Schema ksqlSchema,
+      final Optional<Set<String>> requiredColumns
+  ) {
+    if (writerSchema.getType() != org.apache.avro.Schema.Type.RECORD) {
+      return Optional.empty();
+    }
+
+    try {
+      final List<org.apache.avro.Schema.Field> writerFields = writerSchema.getFields();
+      final Field[] columns = matchFields(writerFields, ksqlSchema);
+      final int[] columnIndexes = new int[writerFields.size()];
+      final FieldReader[] fieldReaders = new FieldReader[writerFields.size()];
+      for (int i = 0; i < writerFields.size(); i++) {
+        final org.apache.avro.Schema fieldSchema = writerFields.get(i).schema();
+        if (columns[i] != null && SerdeUtils.isRequiredColumn(columns[i], requiredColumns)) {
+          columnIndexes[i] = columns[i].index();
+          fieldReaders[i] = reader(fieldSchema, columns[i].schema(), 0);
+        } else {
+          columnIndexes[i] = NOT_REQUIRED;
+          fieldReaders[i] = skipper(fieldSchema, 0);
+        }
+      }
+      return Optional.of(
+          new AvroRowDecoder(ksqlSchema.fields().size(), columnIndexes, fieldReaders));
+    } catch (final UnsupportedSchemaException e) {
+      return Optional.empty();
+    }
+  }
+
+  GenericRow decode(final Decoder decoder) throws IOException {
+    final List<Object> columns = new ArrayList<>(columnCount);
+    for (int i = 0; i < columnCount; i++) {
+      columns.add(null);
+    }
+
+    for (int i = 0; i < fieldReaders.length; i++) {
+      final Object value = fieldReaders[i].read(decoder);
+      if (columnIndexes[i] != NOT_REQUIRED) {
+        columns.set(columnIndexes[i], value);
+      }
+    }
+    return new GenericRow(columns);
+  }
+
+  /**
+   * @return the KSQL field each writer field populates, or null for those that populate none.
+   */
+  private static Field[] matchFields(
+      final List<org.apache.avro.Schema.Field> writerFields,
+      final Schema ksqlSchema
+  ) {
+    // Names are matched case-insensitively, and the last writer field with a name wins:
+    final Map<String, Integer> writerIndexes = new HashMap<>();
+    for (int i = 0; i < writerFields.size(); i++) {
+      writerIndexes.put(writerFields.get(i).name().toUpperCase(), i);
+    }
+
+    final Field[] matched = new Field[writerFields.size()];
+    for (final Field field : ksqlSchema.fields()) {
+      final Integer writerIndex = writerIndexes.get(
+          AvroDataTranslator.avroCompatibleFieldName(field).toUpperCase());
+      if (writerIndex != null) {
+        matched[writerIndex] = field;
+      }
+    }
+    return matched;
+  }
+
+  private static FieldReader reader(
+      final org.apache.avro.Schema writer,
+      final Schema ksql,
+      final int depth
+  ) {
+    checkDepth(depth);
+    if (writer.getType() == org.apache.avro.Schema.Type.UNION) {
+      return unionReader(writer, ksql, depth);
+    }
+
+    switch (ksql.type()) {
+      case BOOLEAN:
+        if (writer.getType() == org.apache.avro.Schema.Type.BOOLEAN) {
+          return Decoder::readBoolean;
+        }
+        break;
+      case INT32:
+        if (writer.getType() == org.apache.avro.Schema.Type.INT) {
+          return Decoder::readInt;
+        }
+        break;
+      case INT64:
+        if (writer.getType() == org.apache.avro.Schema.Type.LONG) {
+          return Decoder::readLong;
+        }
+        if (writer.getType() == org.apache.avro.Schema.Type.INT) {
+          return decoder -> (long) decoder.readInt();
+        }
+        break;
+      case FLOAT64:
+        if (writer.getType() == org.apache.avro.Schema.Type.DOUBLE) {
+          return Decoder::readDouble;
+        }
+        if (writer.getType() == org.apache.avro.Schema.Type.FLOAT) {
+          return decoder -> (double) decoder.readFloat();
+        }
+        break;
+      case STRING:
+        return stringReader(writer);
+      case ARRAY:
+        if (writer.getType() == org.apache.avro.Schema.Type.ARRAY) {
+          return arrayReader(writer, ksql, depth);
+        }
+        break;
+      case MAP:
+        return mapReader(writer, ksql, depth);
+      case STRUCT:
+        if (writer.getType() == org.apache.avro.Schema.Type.RECORD) {
+          return structReader(writer, ksql, depth);
+        }
+        break;
+      default:
+        break;
+    }
+    throw new UnsupportedSchemaException();
+  }
+
+  private static FieldReader unionReader(
+      final org.apache.avro.Schema writer,
+      final Schema ksql,
+      final int depth
+  ) {
+    final List<org.apache.avro.Schema> branches = writer.getTypes();
+    if (branches.size() != 2) {
+      throw new UnsupportedSchemaException();
+    }
+
+    final FieldReader[] branchReaders = new FieldReader[2];
+    int nullBranches = 0;
+    for (int i = 0; i < 2; i++) {
+      if (branches.get(i).getType() == org.apache.avro.Schema.Type.NULL) {
+        branchReaders[i] = AvroRowDecoder::readNull;
+        nullBranches++;
+      } else {
+        branchReaders[i] = reader(branches.get(i), ksql, depth + 1);
+      }
+    }
+    if (nullBranches != 1) {
+      throw new UnsupportedSchemaException();
+    }
+    return decoder -> branchReaders[decoder.readIndex()].read(decoder);
+  }
+
+  private static FieldReader stringReader(final org.apache.avro.Schema writer) {
+    switch (writer.getType()) {
+      case STRING:
+        return Decoder::readString;
+      case ENUM:
+        final List<String> symbols = writer.getEnumSymbols();
+        return decoder -> symbols.get(decoder.readEnum());
+      case INT:
+        return decoder -> String.valueOf(decoder.readInt());
+      case LONG:
+        return decoder -> String.valueOf(decoder.readLong());
+      case BOOLEAN:
+        return decoder -> String.valueOf(decoder.readBoolean());
+      default:
+        throw new UnsupportedSchemaException();
+    }
+  }
+
+  private static FieldReader arrayReader(
+      final org.apache.avro.Schema writer,
+      final Schema ksql,
+      final int depth
+  ) {
+    final FieldReader elementReader =
+        reader(writer.getElementType(), ksql.valueSchema(), depth + 1);
+    return decoder -> {
+      final List<Object> array = new ArrayList<>();
+      for (long n = decoder.readArrayStart(); n != 0; n = decoder.arrayNext()) {
+        for (long i = 0; i < n; i++) {
+          array.add(elementReader.read(decoder));
+        }
+      }
+      return array;
+    };
+  }
+
+  private static FieldReader mapReader(
+      final org.apache.avro.Schema writer,
+      final Schema ksql,
+      final int depth
+  ) {
+    if (writer.getType() == org.apache.avro.Schema.Type.MAP
+        && ksql.keySchema().type() == Schema.Type.STRING) {
+      final FieldReader valueReader = reader(writer.getValueType(), ksql.valueSchema(), depth + 1);
+      return decoder -> {
+        final Map<Object, Object> map = new HashMap<>();
+        for (long n = decoder.readMapStart(); n != 0; n = decoder.mapNext()) {
+          for (long i = 0; i < n; i++) {
+            final String key = decoder.readString();
+            map.put(key, valueReader.read(decoder));
+          }
+        }
+        return map;
+      };
+    }
+
+    if (writer.getType() == org.apache.avro.Schema.Type.ARRAY
+        && isMapEntry(writer.getElementType())) {
+      final List<org.apache.avro.Schema.Field> entryFields = writer.getElementType().getFields();
+      final FieldReader keyReader =
+          reader(entryFields.get(0).schema(), ksql.keySchema(), depth + 1);
+      final FieldReader valueReader =
+          reader(entryFields.get(1).schema(), ksql.valueSchema(), depth + 1);
+      return decoder -> {
+        final Map<Object, Object> map = new HashMap<>();
+        for (long n = decoder.readArrayStart(); n != 0; n = decoder.arrayNext()) {
+          for (long i = 0; i < n; i++) {
+            final Object key = keyReader.read(decoder);
+            map.put(key, valueReader.read(decoder));
+          }
+        }
+        return map;
+      };
+    }
+
+    throw new UnsupportedSchemaException();
+  }
+
+  private static boolean isMapEntry(final org.apache.avro.Schema schema) {
+    return schema.getType() == org.apache.avro.Schema.Type.RECORD
+        && MAP_ENTRY_TYPE_NAME.equals(schema.getFullName())
+        && schema.getFields().size() == 2
+        && MAP_ENTRY_KEY.equals(schema.getFields().get(0).name())
+        && MAP_ENTRY_VALUE.equals(schema.getFields().get(1).name());
+  }
+
+  private static FieldReader structReader(
+      final org.apache.avro.Schema writer,
+      final Schema ksql,
+      final int depth
+  ) {
+    final List<org.apache.avro.Schema.Field> writerFields = writer.getFields();
+    final Field[] fields = matchFields(writerFields, ksql);
+    final FieldReader[] fieldReaders = new FieldReader[writerFields.size()];
+    for (int i = 0; i < writerFields.size(); i++) {
+      fieldReaders[i] = fields[i] == null
+          ? skipper(writerFields.get(i).schema(), depth + 1)
+          : reader(writerFields.get(i).schema(), fields[i].schema(), depth + 1);
+    }
+
+    return decoder -> {
+      final Struct struct = new Struct(ksql);
+      for (int i = 0; i < fieldReaders.length; i++) {
+        final Object value = fieldReaders[i].read(decoder);
+        if (fields[i] != null) {
+          struct.put(fields[i], value);
+        }
+      }
+      return struct;
+    };
+  }
+
+  private static FieldReader skipper(final org.apache.avro.Schema writer, final int depth) {
+    checkDepth(depth);
+    switch (writer.getType()) {
+      case NULL:
+        return AvroRowDecoder::readNull;
+      case BOOLEAN:
+        return Decoder::readBoolean;
+      case INT:
+        return Decoder::readInt;
+      case LONG:
+        return Decoder::readLong;
+      case FLOAT:
+        return Decoder::readFloat;
+      case DOUBLE:
+        return Decoder::readDouble;
+      case ENUM:
+        return Decoder::readEnum;
+      case STRING:
+        return decoder -> {
+          decoder.skipString();
+          return null;
+        };
+      case BYTES:
+        return decoder -> {
+          decoder.skipBytes();
+          return null;
+        };
+      case FIXED:
+        final int size = writer.getFixedSize();
+        return decoder -> {
+          decoder.skipFixed(size);
+          return null;
+        };
+      case ARRAY:
+        final FieldReader elementSkipper = skipper(writer.getElementType(), depth + 1);
+        return decoder -> {
+          for (long n = decoder.skipArray(); n != 0; n = decoder.skipArray()) {
+            for (long i = 0; i < n; i++) {
+              elementSkipper.read(decoder);
+            }
+          }
+          return null;
+        };
+      case MAP:
+        final FieldReader valueSkipper = skipper(writer.getValueType(), depth + 1);
+        return decoder -> {
+          for (long n = decoder.skipMap(); n != 0; n = decoder.skipMap()) {
+            for (long i = 0; i < n; i++) {
+              decoder.skipString();
+              valueSkipper.read(decoder);
+            }
+          }
+          return null;
+        };
+      case RECORD:
+        final FieldReader[] fieldSkippers = writer.getFields().stream()
+            .map(field -> skipper(field.schema(), depth + 1))
+            .toArray(FieldReader[]::new);
+        return decoder -> {
+          for (final FieldReader fieldSkipper : fieldSkippers) {
+            fieldSkipper.read(decoder);
+          }
+          return null;
+        };
+      case UNION:
+        final FieldReader[] branchSkippers = writer.getTypes().stream()
+            .map(branch -> skipper(branch, depth + 1))
+            .toArray(FieldReader[]::new);
+        return decoder -> branchSkippers[decoder.readIndex()].read(decoder);
+      default:
+        throw new UnsupportedSchemaException();
+    }
+  }
+
+  private static Object readNull(final Decoder decoder) throws IOException {
+    decoder.readNull();
+    return null;
+  }
+
+  private static void checkDepth(final int depth) {
+    // Recursive writer schemas can't be compiled, and are left to the Connect path:
+    if (depth > MAX_DEPTH) {
+      throw new UnsupportedSchemaException();
+    }
+  }
+
+  private interface FieldReader {
+    Object read(Decoder decoder) throws IOException;
+  }
+
+  private static final class UnsupportedSchemaException extends RuntimeException {
+  }
+}
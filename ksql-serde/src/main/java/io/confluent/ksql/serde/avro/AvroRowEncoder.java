@@ -0,0 +1,324 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import com.google.common.collect.ImmutableMap;
+import io.confluent.connect.avro.AvroData;
+import io.confluent.connect.avro.AvroDataConfig;
+import io.confluent.ksql.GenericRow;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.avro.io.Encoder;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Encodes a {@link GenericRow} straight to Avro binary.
+ *
+ * <p>The Avro schema is the one Connect's {@code AvroConverter} would write the row with, and the
+ * plan for writing each column is compiled once from it. Values that don't match their column's
+ * type fail with a {@link DataException}, as they do on the Connect path.
+ */
+final class AvroRowEncoder {
+
+  private static final int MAX_DEPTH = 32;
+
+  private final org.apache.avro.Schema avroSchema;
+  private final FieldWriter[] columnWriters;
+
+  private AvroRowEncoder(
+      final org.apache.avro.Schema avroSchema,
+      final FieldWriter[] columnWriters
+  ) {
+    this.avroSchema = avroSchema;
+    this.columnWriters = columnWriters;
+  }
+
+  /**
+   * @param avroCompatibleSchema the schema of the rows, with names Avro accepts.
+   * @return the encoder, or empty if the schema can not be encoded directly.
+   */
+  static Optional<AvroRowEncoder> create(final Schema avroCompatibleSchema) {
+    final AvroData avroData = new AvroData(new AvroDataConfig(
+        ImmutableMap.of(AvroDataConfig.CONNECT_META_DATA_CONFIG, false)));
+
+    // Rows themselves are never written as a union, even if their schema is optional:
+    final org.apache.avro.Schema avroSchema =
+        nonNullBranch(avroData.fromConnectSchema(avroCompatibleSchema));
+    if (avroSchema == null || avroSchema.getType() != org.apache.avro.Schema.Type.RECORD) {
+      return Optional.empty();
+    }
+
+    try {
+      final List<org.apache.avro.Schema.Field> avroFields = avroSchema.getFields();
+      final List<Field> fields = avroCompatibleSchema.fields();
+      if (avroFields.size() != fields.size()) {
+        return Optional.empty();
+      }
+
+      final FieldWriter[] columnWriters = new FieldWriter[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        columnWriters[i] = writer(avroFields.get(i).schema(), fields.get(i).schema(), 0);
+      }
+      return Optional.of(new AvroRowEncoder(avroSchema, columnWriters));
+    } catch (final UnsupportedSchemaException e) {
+      return Optional.empty();
+    }
+  }
+
+  /**
+   * @return the schema rows are written with.
+   */
+  org.apache.avro.Schema getAvroSchema() {
+    return avroSchema;
+  }
+
+  void encode(final GenericRow row, final Encoder encoder) throws IOException {
+    final List<Object> columns = row.getColumns();
+    if (columns.size() != columnWriters.length) {
+      throw new DataException(
+          "Expected " + columnWriters.length + " columns but got " + columns.size());
+    }
+
+    try {
+      for (int i = 0; i < columnWriters.length; i++) {
+        columnWriters[i].write(encoder, columns.get(i));
+      }
+    } catch (final ClassCastException e) {
+      throw new DataException("Invalid value for the column's type: " + e.getMessage(), e);
+    }
+  }
+
+  private static org.apache.avro.Schema nonNullBranch(final org.apache.avro.Schema schema) {
+    if (schema.getType() != org.apache.avro.Schema.Type.UNION) {
+      return schema;
+    }
+    for (final org.apache.avro.Schema branch : schema.getTypes()) {
+      if (branch.getType() != org.apache.avro.Schema.Type.NULL) {
+        return branch;
+      }
+    }
+    return null;
+  }
+
+  private static FieldWriter writer(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    if (depth > MAX_DEPTH) {
+      throw new UnsupportedSchemaException();
+    }
+    if (avro.getType() == org.apache.avro.Schema.Type.UNION) {
+      return unionWriter(avro, ksql, depth);
+    }
+
+    final FieldWriter writer = valueWriter(avro, ksql, depth);
+    return (encoder, value) -> {
+      if (value == null) {
+        throw new DataException("Invalid value: null used for required field");
+      }
+      writer.write(encoder, value);
+    };
+  }
+
+  private static FieldWriter unionWriter(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    final List<org.apache.avro.Schema> branches = avro.getTypes();
+    if (branches.size() != 2) {
+      throw new UnsupportedSchemaException();
+    }
+
+    final int nullIndex = branches.get(0).getType() == org.apache.avro.Schema.Type.NULL ? 0 : 1;
+    final int valueIndex = 1 - nullIndex;
+    if (branches.get(nullIndex).getType() != org.apache.avro.Schema.Type.NULL) {
+      throw new UnsupportedSchemaException();
+    }
+
+    final FieldWriter writer = valueWriter(branches.get(valueIndex), ksql, depth + 1);
+    return (encoder, value) -> {
+      if (value == null) {
+        encoder.writeIndex(nullIndex);
+        encoder.writeNull();
+      } else {
+        encoder.writeIndex(valueIndex);
+        writer.write(encoder, value);
+      }
+    };
+  }
+
+  private static FieldWriter valueWriter(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    switch (ksql.type()) {
+      case BOOLEAN:
+        if (avro.getType() == org.apache.avro.Schema.Type.BOOLEAN) {
+          return (encoder, value) -> encoder.writeBoolean((Boolean) value);
+        }
+        break;
+      case INT32:
+        if (avro.getType() == org.apache.avro.Schema.Type.INT) {
+          return (encoder, value) -> encoder.writeInt((Integer) value);
+        }
+        break;
+      case INT64:
+        if (avro.getType() == org.apache.avro.Schema.Type.LONG) {
+          return (encoder, value) -> encoder.writeLong((Long) value);
+        }
+        break;
+      case FLOAT64:
+        if (avro.getType() == org.apache.avro.Schema.Type.DOUBLE) {
+          return (encoder, value) -> encoder.writeDouble((Double) value);
+        }
+        break;
+      case STRING:
+        if (avro.getType() == org.apache.avro.Schema.Type.STRING) {
+          return (encoder, value) -> encoder.writeString((String) value);
+        }
+        break;
+      case ARRAY:
+        if (avro.getType() == org.apache.avro.Schema.Type.ARRAY) {
+          return arrayWriter(avro, ksql, depth);
+        }
+        break;
+      case MAP:
+        return mapWriter(avro, ksql, depth);
+      case STRUCT:
+        if (avro.getType() == org.apache.avro.Schema.Type.RECORD) {
+          return structWriter(avro, ksql, depth);
+        }
+        break;
+      default:
+        break;
+    }
+    throw new UnsupportedSchemaException();
+  }
+
+  private static FieldWriter arrayWriter(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    final FieldWriter elementWriter = writer(avro.getElementType(), ksql.valueSchema(), depth + 1);
+    return (encoder, value) -> {
+      final List<?> array = (List<?>) value;
+      encoder.writeArrayStart();
+      encoder.setItemCount(array.size());
+      for (final Object element : array) {
+        encoder.startItem();
+        elementWriter.write(encoder, element);
+      }
+      encoder.writeArrayEnd();
+    };
+  }
+
+  private static FieldWriter mapWriter(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    if (avro.getType() == org.apache.avro.Schema.Type.MAP) {
+      final FieldWriter keyWriter = writer(
+          org.apache.avro.Schema.create(org.apache.avro.Schema.Type.STRING),
+          ksql.keySchema(),
+          depth + 1);
+      final FieldWriter valueWriter = writer(avro.getValueType(), ksql.valueSchema(), depth + 1);
+      return mapWriter(keyWriter, valueWriter, true);
+    }
+
+    // Connect's AvroData writes maps with optional keys as an array of key-value records:
+    if (avro.getType() == org.apache.avro.Schema.Type.ARRAY
+        && avro.getElementType().getType() == org.apache.avro.Schema.Type.RECORD
+        && avro.getElementType().getFields().size() == 2) {
+      final List<org.apache.avro.Schema.Field> entryFields = avro.getElementType().getFields();
+      final FieldWriter keyWriter =
+          writer(entryFields.get(0).schema(), ksql.keySchema(), depth + 1);
+      final FieldWriter valueWriter =
+          writer(entryFields.get(1).schema(), ksql.valueSchema(), depth + 1);
+      return mapWriter(keyWriter, valueWriter, false);
+    }
+
+    throw new UnsupportedSchemaException();
+  }
+
+  private static FieldWriter mapWriter(
+      final FieldWriter keyWriter,
+      final FieldWriter valueWriter,
+      final boolean asAvroMap
+  ) {
+    return (encoder, value) -> {
+      final Map<?, ?> map = (Map<?, ?>) value;
+      if (asAvroMap) {
+        encoder.writeMapStart();
+      } else {
+        encoder.writeArrayStart();
+      }
+      encoder.setItemCount(map.size());
+      for (final Map.Entry<?, ?> entry : map.entrySet()) {
+        encoder.startItem();
+        keyWriter.write(encoder, entry.getKey());
+        valueWriter.write(encoder, entry.getValue());
+      }
+      if (asAvroMap) {
+        encoder.writeMapEnd();
+      } else {
+        encoder.writeArrayEnd();
+      }
+    };
+  }
+
+  private static FieldWriter structWriter(
+      final org.apache.avro.Schema avro,
+      final Schema ksql,
+      final int depth
+  ) {
+    final List<org.apache.avro.Schema.Field> avroFields = avro.getFields();
+    final List<Field> fields = ksql.fields();
+    if (avroFields.size() != fields.size()) {
+      throw new UnsupportedSchemaException();
+    }
+
+    final String[] names = new String[fields.size()];
+    final FieldWriter[] fieldWriters = new FieldWriter[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      names[i] = fields.get(i).name();
+      fieldWriters[i] = writer(avroFields.get(i).schema(), fields.get(i).schema(), depth + 1);
+    }
+
+    return (encoder, value) -> {
+      final Struct struct = (Struct) value;
+      for (int i = 0; i < fieldWriters.length; i++) {
+        fieldWriters[i].write(encoder, struct.get(names[i]));
+      }
+    };
+  }
+
+  private interface FieldWriter {
+    void write(Encoder encoder, Object value) throws IOException;
+  }
+
+  private static final class UnsupportedSchemaException extends RuntimeException {
+  }
+}
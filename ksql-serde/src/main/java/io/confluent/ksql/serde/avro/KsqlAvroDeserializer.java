@@ -0,0 +1,143 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
+import io.confluent.ksql.serde.util.SerdeProcessingLogMessageFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.avro.io.BinaryDecoder;
+import org.apache.avro.io.DecoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Deserializes rows from the Confluent Avro wire format without going via Connect.
+ *
+ * <p>The writer schema of each schema id seen is fetched once, and compiled into an
+ * {@link AvroRowDecoder} that decodes the payload straight into the row's columns. Data the
+ * decoder doesn't support, e.g. written with a union of several types, or not in the wire format
+ * at all, is deserialized, or rejected, by the fallback, i.e. the Connect path.
+ *
+ * <p>Instances are not thread safe.
+ */
+public class KsqlAvroDeserializer implements Deserializer<GenericRow> {
+
+  private static final int HEADER_SIZE = 5;
+
+  private final SchemaRegistryClient schemaRegistryClient;
+  private final Schema schema;
+  private final Optional<Set<String>> requiredColumns;
+  private final Deserializer<GenericRow> fallback;
+  private final ProcessingLogger recordLogger;
+  private final Map<Integer, Optional<AvroRowDecoder>> decoders = new HashMap<>();
+  private BinaryDecoder decoder;
+
+  /**
+   * @param schemaRegistryClient the client to fetch writer schemas from.
+   * @param schema the schema of the rows, without any source name.
+   * @param requiredColumns the columns to populate, or empty for all.
+   * @param fallback the deserializer to use for data that can't be decoded directly.
+   * @param recordLogger the logger to log data that fails to decode to.
+   */
+  public KsqlAvroDeserializer(
+      final SchemaRegistryClient schemaRegistryClient,
+      final Schema schema,
+      final Optional<Set<String>> requiredColumns,
+      final Deserializer<GenericRow> fallback,
+      final ProcessingLogger recordLogger
+  ) {
+    this.schemaRegistryClient =
+        Objects.requireNonNull(schemaRegistryClient, "schemaRegistryClient");
+    this.schema = Objects.requireNonNull(schema, "schema");
+    this.requiredColumns = Objects.requireNonNull(requiredColumns, "requiredColumns");
+    this.fallback = Objects.requireNonNull(fallback, "fallback");
+    this.recordLogger = Objects.requireNonNull(recordLogger, "recordLogger");
+  }
+
+  static String valueSubject(final String topic) {
+    return topic + "-value";
+  }
+
+  @Override
+  public void configure(final Map<String, ?> map, final boolean b) {
+  }
+
+  @Override
+  public GenericRow deserialize(final String topic, final byte[] bytes) {
+    if (bytes == null) {
+      return null;
+    }
+
+    final Optional<AvroRowDecoder> rowDecoder = getDecoder(topic, bytes);
+    if (!rowDecoder.isPresent()) {
+      return fallback.deserialize(topic, bytes);
+    }
+
+    try {
+      decoder = DecoderFactory.get()
+          .binaryDecoder(bytes, HEADER_SIZE, bytes.length - HEADER_SIZE, decoder);
+      return rowDecoder.get().decode(decoder);
+    } catch (final Exception e) {
+      recordLogger.error(
+          SerdeProcessingLogMessageFactory.deserializationErrorMsg(
+              e,
+              Optional.of(bytes))
+      );
+      throw new SerializationException(
+          "KsqlAvroDeserializer failed to deserialize data for topic: " + topic, e);
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private Optional<AvroRowDecoder> getDecoder(final String topic, final byte[] bytes) {
+    if (bytes.length < HEADER_SIZE || bytes[0] != KsqlAvroSerializer.MAGIC_BYTE) {
+      return Optional.empty();
+    }
+
+    final int schemaId = ((bytes[1] & 0xFF) << 24)
+        | ((bytes[2] & 0xFF) << 16)
+        | ((bytes[3] & 0xFF) << 8)
+        | (bytes[4] & 0xFF);
+
+    final Optional<AvroRowDecoder> cached = decoders.get(schemaId);
+    if (cached != null) {
+      return cached;
+    }
+
+    final org.apache.avro.Schema writerSchema;
+    try {
+      writerSchema = schemaRegistryClient.getBySubjectAndId(valueSubject(topic), schemaId);
+    } catch (final Exception e) {
+      // Not cached, so the next record retries. The fallback reports the error for this one:
+      return Optional.empty();
+    }
+
+    final Optional<AvroRowDecoder> rowDecoder =
+        AvroRowDecoder.create(writerSchema, schema, requiredColumns);
+    decoders.put(schemaId, rowDecoder);
+    return rowDecoder;
+  }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.rest.exceptions.RestClientException;
+import io.confluent.ksql.GenericRow;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import org.apache.avro.io.BinaryEncoder;
+import org.apache.avro.io.EncoderFactory;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.errors.DataException;
+
+/**
+ * Serializes rows to the Confluent Avro wire format without going via Connect.
+ *
+ * <p>The value schema is registered once per topic and the rows are then encoded straight
+ * from their columns by an {@link AvroRowEncoder}. Rows with a schema the encoder doesn't
+ * support are serialized by the fallback, i.e. the Connect path.
+ *
+ * <p>Instances are not thread safe.
+ */
+public class KsqlAvroSerializer implements Serializer<GenericRow> {
+
+  static final byte MAGIC_BYTE = 0x0;
+
+  private final SchemaRegistryClient schemaRegistryClient;
+  private final Optional<AvroRowEncoder> rowEncoder;
+  private final Serializer<GenericRow> fallback;
+  private final Map<String, Integer> schemaIds = new HashMap<>();
+  private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+  private BinaryEncoder encoder;
+
+  /**
+   * @param schemaRegistryClient the client to register the value schema with.
+   * @param avroCompatibleSchema the schema of the rows, with names Avro accepts.
+   * @param fallback the serializer to use if the schema can't be encoded directly.
+   */
+  public KsqlAvroSerializer(
+      final SchemaRegistryClient schemaRegistryClient,
+      final Schema avroCompatibleSchema,
+      final Serializer<GenericRow> fallback
+  ) {
+    this.schemaRegistryClient =
+        Objects.requireNonNull(schemaRegistryClient, "schemaRegistryClient");
+    this.rowEncoder = AvroRowEncoder.create(avroCompatibleSchema);
+    this.fallback = Objects.requireNonNull(fallback, "fallback");
+  }
+
+  @Override
+  public void configure(final Map<String, ?> map, final boolean b) {
+  }
+
+  @Override
+  public byte[] serialize(final String topic, final GenericRow genericRow) {
+    if (genericRow == null) {
+      return null;
+    }
+    if (!rowEncoder.isPresent()) {
+      return fallback.serialize(topic, genericRow);
+    }
+
+    try {
+      final int schemaId = getSchemaId(topic);
+      buffer.reset();
+      buffer.write(MAGIC_BYTE);
+      buffer.write(schemaId >>> 24);
+      buffer.write(schemaId >>> 16);
+      buffer.write(schemaId >>> 8);
+      buffer.write(schemaId);
+      encoder = EncoderFactory.get().directBinaryEncoder(buffer, encoder);
+      rowEncoder.get().encode(genericRow, encoder);
+      encoder.flush();
+      return buffer.toByteArray();
+    } catch (final DataException e) {
+      throw e;
+    } catch (final Exception e) {
+      throw new SerializationException(
+          "Error serializing row to topic " + topic + " using Avro", e);
+    }
+  }
+
+  @Override
+  public void close() {
+  }
+
+  private int getSchemaId(final String topic) throws IOException, RestClientException {
+    final Integer cached = schemaIds.get(topic);
+    if (cached != null) {
+      return cached;
+    }
+
+    final int schemaId = schemaRegistryClient.register(
+        KsqlAvroDeserializer.valueSubject(topic),
+        rowEncoder.get().getAvroSchema());
+    schemaIds.put(topic, schemaId);
+    return schemaId;
+  }
+}
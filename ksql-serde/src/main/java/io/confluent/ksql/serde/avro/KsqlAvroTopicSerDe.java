@@ -24,6 +24,7 @@ import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
 import io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.logging.processing.ProcessingLogContext;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
 import io.confluent.ksql.serde.DataSource;
 import io.confluent.ksql.serde.KsqlTopicSerDe;
 import io.confluent.ksql.serde.connect.KsqlConnectDeserializer;
@@ -34,6 +35,8 @@ import io.confluent.ksql.serde.util.SerdeUtils;
 import io.confluent.ksql.util.KsqlConfig;
 import io.confluent.ksql.util.SchemaUtil;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
@@ -54,6 +57,10 @@ public class KsqlAvroTopicSerDe extends KsqlTopicSerDe {
     }
   }
 
+  public String getFullSchemaName() {
+    return fullSchemaName;
+  }
+
   private static AvroConverter getAvroConverter(
       final SchemaRegistryClient schemaRegistryClient, final KsqlConfig ksqlConfig) {
     final AvroConverter avroConverter = new AvroConverter(schemaRegistryClient);
@@ -76,20 +83,69 @@ public class KsqlAvroTopicSerDe extends KsqlTopicSerDe {
       final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
       final String loggerNamePrefix,
       final ProcessingLogContext processingLogContext) {
+    return buildGenericRowSerde(
+        schemaMaybeWithSource,
+        ksqlConfig,
+        isInternal,
+        schemaRegistryClientFactory,
+        loggerNamePrefix,
+        processingLogContext,
+        Optional.empty());
+  }
+
+  @Override
+  public Serde<GenericRow> getGenericRowSerde(
+      final Schema schemaMaybeWithSource,
+      final KsqlConfig ksqlConfig,
+      final boolean isInternal,
+      final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
+      final String loggerNamePrefix,
+      final ProcessingLogContext processingLogContext,
+      final Set<String> requiredColumns) {
+    return buildGenericRowSerde(
+        schemaMaybeWithSource,
+        ksqlConfig,
+        isInternal,
+        schemaRegistryClientFactory,
+        loggerNamePrefix,
+        processingLogContext,
+        Optional.of(requiredColumns));
+  }
+
+  private Serde<GenericRow> buildGenericRowSerde(
+      final Schema schemaMaybeWithSource,
+      final KsqlConfig ksqlConfig,
+      final boolean isInternal,
+      final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
+      final String loggerNamePrefix,
+      final ProcessingLogContext processingLogContext,
+      final Optional<Set<String>> requiredColumns) {
     final Schema schema = isInternal
         ? schemaMaybeWithSource : SchemaUtil.getSchemaWithNoAlias(schemaMaybeWithSource);
-    final Serializer<GenericRow> genericRowSerializer = new ThreadLocalSerializer(
-        () -> new KsqlConnectSerializer(
-            new AvroDataTranslator(schema, this.fullSchemaName),
-            getAvroConverter(schemaRegistryClientFactory.get(), ksqlConfig)));
-    final Deserializer<GenericRow> genericRowDeserializer = new ThreadLocalDeserializer(
-        () -> new KsqlConnectDeserializer(
-            getAvroConverter(schemaRegistryClientFactory.get(), ksqlConfig),
-            new AvroDataTranslator(schema, this.fullSchemaName),
-            processingLogContext.getLoggerFactory().getLogger(
-                join(loggerNamePrefix, SerdeUtils.DESERIALIZER_LOGGER_NAME))
-        )
-    );
+    final Serializer<GenericRow> genericRowSerializer = new ThreadLocalSerializer(() -> {
+      final SchemaRegistryClient schemaRegistryClient = schemaRegistryClientFactory.get();
+      final AvroDataTranslator translator = new AvroDataTranslator(schema, this.fullSchemaName);
+      return new KsqlAvroSerializer(
+          schemaRegistryClient,
+          translator.getAvroCompatibleSchema(),
+          new KsqlConnectSerializer(
+              translator,
+              getAvroConverter(schemaRegistryClient, ksqlConfig)));
+    });
+    final Deserializer<GenericRow> genericRowDeserializer = new ThreadLocalDeserializer(() -> {
+      final SchemaRegistryClient schemaRegistryClient = schemaRegistryClientFactory.get();
+      final ProcessingLogger recordLogger = processingLogContext.getLoggerFactory().getLogger(
+          join(loggerNamePrefix, SerdeUtils.DESERIALIZER_LOGGER_NAME));
+      return new KsqlAvroDeserializer(
+          schemaRegistryClient,
+          schema,
+          requiredColumns,
+          new KsqlConnectDeserializer(
+              getAvroConverter(schemaRegistryClient, ksqlConfig),
+              new AvroDataTranslator(schema, this.fullSchemaName, requiredColumns),
+              recordLogger),
+          recordLogger);
+    });
     return Serdes.serdeFrom(genericRowSerializer, genericRowDeserializer);
   }
 }
@@ -0,0 +1,416 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.delimited;
+
+import io.confluent.ksql.util.KsqlException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+
+/**
+ * Reads and writes single delimited records directly from and to UTF-8 bytes.
+ *
+ * <p>The format matches commons-csv's {@code CSVFormat.DEFAULT}, with a configurable delimiter
+ * and quote character: fields are only quoted when they need to be, quotes within a quoted
+ * field are doubled, and a record ends at the first unquoted line break. As the delimiter,
+ * the quote and line breaks are all ASCII, they can never appear within a multi-byte UTF-8
+ * sequence, so the bytes can be scanned in place without decoding the whole record first.
+ *
+ * <p>Integral columns are parsed straight from the bytes. Serialized records are built in a
+ * buffer that is reused by each thread.
+ */
+final class DelimitedCodec {
+
+  static final DelimitedCodec DEFAULT = new DelimitedCodec(',', '"');
+
+  private static final byte CR = '\r';
+  private static final byte LF = '\n';
+  private static final int INITIAL_BUFFER_SIZE = 1024;
+
+  private static final ThreadLocal<Output> OUTPUT = ThreadLocal.withInitial(Output::new);
+
+  private final byte delimiter;
+  private final byte quote;
+
+  DelimitedCodec(final char delimiter, final char quote) {
+    this.delimiter = toAsciiByte(delimiter, "delimiter");
+    this.quote = toAsciiByte(quote, "quote");
+    if (delimiter == quote) {
+      throw new IllegalArgumentException("delimiter and quote must differ: " + delimiter);
+    }
+  }
+
+  /**
+   * Decode the first record in {@code bytes}, converting each field to the type of its column.
+   *
+   * @param bytes the UTF-8 encoded record.
+   * @param fields the columns of the record.
+   * @param requiredColumns which columns to convert. Others are left null.
+   * @return the column values.
+   */
+  List<Object> decode(
+      final byte[] bytes,
+      final List<Field> fields,
+      final boolean[] requiredColumns
+  ) {
+    int pos = 0;
+    while (pos < bytes.length && isLineBreak(bytes[pos])) {
+      pos++;
+    }
+
+    if (pos == bytes.length) {
+      throw new KsqlException("Deserialization error in the delimited line: " + asString(bytes));
+    }
+
+    final List<Object> columns = new ArrayList<>(fields.size());
+    int fieldCount = 0;
+    boolean moreFields = true;
+    while (moreFields) {
+      final int start;
+      final int end;
+      final boolean escaped;
+      if (pos < bytes.length && bytes[pos] == quote) {
+        start = pos + 1;
+        boolean hasEscapes = false;
+        int i = start;
+        while (true) {
+          if (i == bytes.length) {
+            throw new KsqlException(
+                "EOF reached before encapsulated token finished: " + asString(bytes));
+          }
+          if (bytes[i] == quote) {
+            if (i + 1 < bytes.length && bytes[i + 1] == quote) {
+              hasEscapes = true;
+              i += 2;
+              continue;
+            }
+            break;
+          }
+          i++;
+        }
+        end = i;
+        escaped = hasEscapes;
+        pos = i + 1;
+        if (pos < bytes.length && bytes[pos] != delimiter && !isLineBreak(bytes[pos])) {
+          throw new KsqlException(
+              "Invalid char between encapsulated token and delimiter: " + asString(bytes));
+        }
+      } else {
+        start = pos;
+        while (pos < bytes.length && bytes[pos] != delimiter && !isLineBreak(bytes[pos])) {
+          pos++;
+        }
+        end = pos;
+        escaped = false;
+      }
+
+      if (fieldCount < fields.size()) {
+        columns.add(requiredColumns[fieldCount]
+            ? decodeField(fields.get(fieldCount).schema(), bytes, start, end, escaped)
+            : null);
+      }
+      fieldCount++;
+
+      moreFields = pos < bytes.length && bytes[pos] == delimiter;
+      pos++;
+    }
+
+    if (fieldCount != fields.size()) {
+      throw new KsqlException(
+          String.format(
+              "Unexpected field count, csvFields:%d schemaFields:%d line: %s",
+              fieldCount,
+              fields.size(),
+              asString(bytes)
+          )
+      );
+    }
+    return columns;
+  }
+
+  /**
+   * Encode the supplied values as a single record, without a trailing line break.
+   *
+   * @param values the values to encode. Nulls are written as empty fields.
+   * @return the UTF-8 encoded record.
+   */
+  byte[] encode(final List<?> values) {
+    final Output output = OUTPUT.get();
+    output.reset();
+
+    for (int i = 0; i < values.size(); i++) {
+      if (i != 0) {
+        output.write(delimiter);
+      }
+
+      final Object value = values.get(i);
+      if (value == null) {
+        continue;
+      }
+
+      if (value instanceof Long || value instanceof Integer) {
+        output.writeLong(((Number) value).longValue());
+      } else {
+        encodeString(value.toString(), i == 0, output);
+      }
+    }
+    return output.toByteArray();
+  }
+
+  private Object decodeField(
+      final Schema schema,
+      final byte[] bytes,
+      final int start,
+      final int end,
+      final boolean escaped
+  ) {
+    if (start == end) {
+      return null;
+    }
+
+    if (escaped) {
+      return decodeString(schema, unescape(bytes, start, end));
+    }
+
+    switch (schema.type()) {
+      case INT32: {
+        final long value = parseLong(bytes, start, end);
+        if (value != (int) value) {
+          return Integer.parseInt(asString(bytes, start, end));
+        }
+        return (int) value;
+      }
+      case INT64:
+        return parseLong(bytes, start, end);
+      default:
+        return decodeString(schema, asString(bytes, start, end));
+    }
+  }
+
+  private static Object decodeString(final Schema schema, final String value) {
+    switch (schema.type()) {
+      case BOOLEAN:
+        return Boolean.parseBoolean(value);
+      case INT32:
+        return Integer.parseInt(value);
+      case INT64:
+        return Long.parseLong(value);
+      case FLOAT64:
+        return Double.parseDouble(value);
+      case STRING:
+        return value;
+      case ARRAY:
+      case MAP:
+      default:
+        throw new KsqlException("Type is not supported: " + schema.type());
+    }
+  }
+
+  /**
+   * Parse a long from ASCII digits, falling back to {@link Long#parseLong} for anything that is
+   * not plain digits, with an optional sign, that fit in a long.
+   */
+  private static long parseLong(final byte[] bytes, final int start, final int end) {
+    int pos = start;
+    boolean negative = false;
+    if (bytes[pos] == '-' || bytes[pos] == '+') {
+      negative = bytes[pos] == '-';
+      pos++;
+    }
+
+    if (pos == end || end - pos > 18) {
+      // Let the JDK deal with the edge cases, and report errors:
+      return Long.parseLong(asString(bytes, start, end));
+    }
+
+    long result = 0;
+    for (; pos < end; pos++) {
+      final int digit = bytes[pos] - '0';
+      if (digit < 0 || digit > 9) {
+        return Long.parseLong(asString(bytes, start, end));
+      }
+      result = result * 10 + digit;
+    }
+    return negative ? -result : result;
+  }
+
+  private String unescape(final byte[] bytes, final int start, final int end) {
+    final byte[] unescaped = new byte[end - start];
+    int length = 0;
+    for (int i = start; i < end; i++) {
+      unescaped[length++] = bytes[i];
+      if (bytes[i] == quote) {
+        // Skip the second of the doubled quotes:
+        i++;
+      }
+    }
+    return new String(unescaped, 0, length, StandardCharsets.UTF_8);
+  }
+
+  private void encodeString(final String value, final boolean firstField, final Output output) {
+    if (!needsQuoting(value, firstField)) {
+      output.writeUtf8(value, -1);
+      return;
+    }
+
+    output.write(quote);
+    output.writeUtf8(value, quote);
+    output.write(quote);
+  }
+
+  /**
+   * Mirrors the rules of commons-csv's {@code QuoteMode.MINIMAL}.
+   */
+  private boolean needsQuoting(final String value, final boolean firstField) {
+    if (value.isEmpty()) {
+      // An empty first field must be quoted, else a record with a single empty field would
+      // be an empty line:
+      return firstField;
+    }
+
+    final char first = value.charAt(0);
+    if (firstField && (first < 0x20 || first == 0x22 || first == 0x2C || first > 0x7E)) {
+      return true;
+    }
+
+    if (first <= '#') {
+      return true;
+    }
+
+    for (int i = 0; i < value.length(); i++) {
+      final char c = value.charAt(i);
+      if (c == LF || c == CR || c == quote || c == delimiter) {
+        return true;
+      }
+    }
+
+    return value.charAt(value.length() - 1) <= ' ';
+  }
+
+  private static boolean isLineBreak(final byte b) {
+    return b == CR || b == LF;
+  }
+
+  private static String asString(final byte[] bytes) {
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static String asString(final byte[] bytes, final int start, final int end) {
+    return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+  }
+
+  private static byte toAsciiByte(final char c, final String name) {
+    if (c > 0x7F || c == CR || c == LF) {
+      throw new IllegalArgumentException(name + " must be an ASCII char other than a line break");
+    }
+    return (byte) c;
+  }
+
+  /**
+   * Growable byte buffer, reused across records by a single thread.
+   */
+  private static final class Output {
+
+    private byte[] buffer = new byte[INITIAL_BUFFER_SIZE];
+    private int length;
+
+    void reset() {
+      length = 0;
+    }
+
+    void write(final byte b) {
+      ensureCapacity(1);
+      buffer[length++] = b;
+    }
+
+    void writeLong(final long value) {
+      if (value == Long.MIN_VALUE) {
+        writeUtf8(Long.toString(value), -1);
+        return;
+      }
+
+      ensureCapacity(20);
+      long remaining = value;
+      if (remaining < 0) {
+        buffer[length++] = '-';
+        remaining = -remaining;
+      }
+
+      final int digitsStart = length;
+      do {
+        buffer[length++] = (byte) ('0' + remaining % 10);
+        remaining /= 10;
+      } while (remaining != 0);
+
+      // Digits were written least significant first:
+      for (int i = digitsStart, j = length - 1; i < j; i++, j--) {
+        final byte tmp = buffer[i];
+        buffer[i] = buffer[j];
+        buffer[j] = tmp;
+      }
+    }
+
+    /**
+     * Write {@code value} as UTF-8, doubling any occurrence of {@code escape}.
+     *
+     * @param escape the ASCII char to double, or -1 for none.
+     */
+    void writeUtf8(final String value, final int escape) {
+      // Worst case is three bytes per char, or every char an escaped quote:
+      ensureCapacity(value.length() * 3);
+      for (int i = 0; i < value.length(); i++) {
+        final char c = value.charAt(i);
+        if (c < 0x80) {
+          buffer[length++] = (byte) c;
+          if (c == escape) {
+            buffer[length++] = (byte) c;
+          }
+        } else if (c < 0x800) {
+          buffer[length++] = (byte) (0xC0 | (c >> 6));
+          buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        } else if (Character.isHighSurrogate(c)
+            && i + 1 < value.length()
+            && Character.isLowSurrogate(value.charAt(i + 1))) {
+          final int codePoint = Character.toCodePoint(c, value.charAt(++i));
+          buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+        } else if (Character.isSurrogate(c)) {
+          // Unpaired surrogate, replaced as String.getBytes would:
+          buffer[length++] = '?';
+        } else {
+          buffer[length++] = (byte) (0xE0 | (c >> 12));
+          buffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+          buffer[length++] = (byte) (0x80 | (c & 0x3F));
+        }
+      }
+    }
+
+    byte[] toByteArray() {
+      return Arrays.copyOf(buffer, length);
+    }
+
+    private void ensureCapacity(final int required) {
+      if (length + required > buffer.length) {
+        buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + required));
+      }
+    }
+  }
+}
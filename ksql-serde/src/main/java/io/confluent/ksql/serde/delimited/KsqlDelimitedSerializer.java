@@ -16,11 +16,7 @@
 package io.confluent.ksql.serde.delimited;
 
 import io.confluent.ksql.GenericRow;
-import java.io.StringWriter;
-import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVPrinter;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.common.serialization.Serializer;
 import org.apache.kafka.connect.data.Schema;
@@ -45,11 +41,7 @@ public class KsqlDelimitedSerializer implements Serializer<GenericRow> {
       return null;
     }
     try {
-      final StringWriter stringWriter = new StringWriter();
-      final CSVPrinter csvPrinter = new CSVPrinter(stringWriter, CSVFormat.DEFAULT);
-      csvPrinter.printRecord(genericRow.getColumns());
-      final String result = stringWriter.toString();
-      return result.substring(0, result.length() - 2).getBytes(StandardCharsets.UTF_8);
+      return DelimitedCodec.DEFAULT.encode(genericRow.getColumns());
     } catch (final Exception e) {
       throw new SerializationException("Error serializing CSV message", e);
     }
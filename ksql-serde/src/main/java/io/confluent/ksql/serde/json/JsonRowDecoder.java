@@ -0,0 +1,392 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.json;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.google.gson.Gson;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.serde.util.SerdeUtils;
+import io.confluent.ksql.util.KsqlException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.Struct;
+
+/**
+ * Decodes JSON straight into a {@link GenericRow} with a single streaming pass.
+ *
+ * <p>The readers for each column are built once from the schema. Field names are matched
+ * case-insensitively via a lookup that caches the resolution of each distinct name seen, and
+ * the values of fields that are not in the schema, or not required by the query, are skipped
+ * without being materialized. Columns that are not required are left null.
+ *
+ * <p>The values produced match those of converting the JSON via Connect's schemaless
+ * {@code JsonConverter} and then coercing each value to its column type.
+ */
+final class JsonRowDecoder {
+
+  private static final JsonFactory JSON_FACTORY = new JsonFactory();
+  private static final int MAX_CACHED_FIELD_NAMES = 1024;
+  private static final int NOT_FOUND = -1;
+
+  private final Gson gson = new Gson();
+  private final FieldLookup rowFields;
+
+  JsonRowDecoder(final Schema schema, final Optional<Set<String>> requiredColumns) {
+    this.rowFields = new FieldLookup(schema, true, requiredColumns);
+  }
+
+  GenericRow decode(final byte[] bytes) throws IOException {
+    if (bytes == null) {
+      return null;
+    }
+
+    try (JsonParser parser = JSON_FACTORY.createParser(bytes)) {
+      final JsonToken token = parser.nextToken();
+      if (token == null || token == JsonToken.VALUE_NULL) {
+        return null;
+      }
+
+      if (token != JsonToken.START_OBJECT) {
+        throw new KsqlException("Expected JSON object but got: " + token);
+      }
+
+      final List<Object> columns = new ArrayList<>(rowFields.size());
+      for (int i = 0; i < rowFields.size(); i++) {
+        columns.add(null);
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final int index = rowFields.resolve(parser.getCurrentName());
+        parser.nextToken();
+        if (index == NOT_FOUND) {
+          parser.skipChildren();
+        } else {
+          columns.set(index, rowFields.read(index, parser));
+        }
+      }
+      return new GenericRow(columns);
+    }
+  }
+
+  private ValueReader readerFor(final Schema schema) {
+    switch (schema.type()) {
+      case BOOLEAN:
+        return this::readBoolean;
+      case INT32:
+        return this::readInteger;
+      case INT64:
+        return this::readLong;
+      case FLOAT64:
+        return this::readDouble;
+      case STRING:
+        return this::readString;
+      case ARRAY:
+        return new ArrayReader(readerFor(schema.valueSchema()));
+      case MAP:
+        return new MapReader(readerFor(schema.valueSchema()));
+      case STRUCT:
+        return new StructReader(schema);
+      default:
+        throw new KsqlException("Type is not supported: " + schema.type());
+    }
+  }
+
+  private Object readBoolean(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      default:
+        return SerdeUtils.toBoolean(readGeneric(parser));
+    }
+  }
+
+  private Object readInteger(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_NUMBER_INT:
+        return (int) integralValue(parser);
+      case VALUE_NUMBER_FLOAT:
+        return (int) parser.getDoubleValue();
+      case VALUE_STRING:
+        return SerdeUtils.toInteger(parser.getText());
+      default:
+        return SerdeUtils.toInteger(readGeneric(parser));
+    }
+  }
+
+  private Object readLong(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_NUMBER_INT:
+        return integralValue(parser);
+      case VALUE_NUMBER_FLOAT:
+        return (long) parser.getDoubleValue();
+      case VALUE_STRING:
+        return SerdeUtils.toLong(parser.getText());
+      default:
+        return SerdeUtils.toLong(readGeneric(parser));
+    }
+  }
+
+  private Object readDouble(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_NUMBER_INT:
+        return (double) integralValue(parser);
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_STRING:
+        return SerdeUtils.toDouble(parser.getText());
+      default:
+        return SerdeUtils.toDouble(readGeneric(parser));
+    }
+  }
+
+  private Object readString(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return parser.getText();
+      case VALUE_NUMBER_INT:
+        return Long.toString(integralValue(parser));
+      case VALUE_NUMBER_FLOAT:
+        return Double.toString(parser.getDoubleValue());
+      case START_OBJECT:
+        return gson.toJson(readGeneric(parser));
+      default:
+        return readGeneric(parser).toString();
+    }
+  }
+
+  private static long integralValue(final JsonParser parser) throws IOException {
+    if (parser.getNumberType() == JsonParser.NumberType.BIG_INTEGER) {
+      return parser.getBigIntegerValue().longValue();
+    }
+    return parser.getLongValue();
+  }
+
+  /**
+   * Read the current value as Connect's schemaless {@code JsonConverter} would.
+   */
+  private static Object readGeneric(final JsonParser parser) throws IOException {
+    switch (parser.getCurrentToken()) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_TRUE:
+        return Boolean.TRUE;
+      case VALUE_FALSE:
+        return Boolean.FALSE;
+      case VALUE_NUMBER_INT:
+        return integralValue(parser);
+      case VALUE_NUMBER_FLOAT:
+        return parser.getDoubleValue();
+      case VALUE_STRING:
+        return parser.getText();
+      case START_ARRAY: {
+        final List<Object> list = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+          list.add(readGeneric(parser));
+        }
+        return list;
+      }
+      case START_OBJECT: {
+        final Map<String, Object> map = new HashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+          final String name = parser.getCurrentName();
+          parser.nextToken();
+          map.put(name, readGeneric(parser));
+        }
+        return map;
+      }
+      default:
+        throw new KsqlException("Unexpected JSON token: " + parser.getCurrentToken());
+    }
+  }
+
+  private static void expect(final JsonParser parser, final JsonToken expected) {
+    if (parser.getCurrentToken() != expected) {
+      throw new KsqlException(
+          "Expected " + expected + " but got: " + parser.getCurrentToken());
+    }
+  }
+
+  private interface ValueReader {
+    Object read(JsonParser parser) throws IOException;
+  }
+
+  private static final class ArrayReader implements ValueReader {
+
+    private final ValueReader elementReader;
+
+    private ArrayReader(final ValueReader elementReader) {
+      this.elementReader = elementReader;
+    }
+
+    @Override
+    public Object read(final JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return null;
+      }
+      expect(parser, JsonToken.START_ARRAY);
+
+      final List<Object> array = new ArrayList<>();
+      while (parser.nextToken() != JsonToken.END_ARRAY) {
+        array.add(elementReader.read(parser));
+      }
+      return array;
+    }
+  }
+
+  private static final class MapReader implements ValueReader {
+
+    private final ValueReader valueReader;
+
+    private MapReader(final ValueReader valueReader) {
+      this.valueReader = valueReader;
+    }
+
+    @Override
+    public Object read(final JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return null;
+      }
+      expect(parser, JsonToken.START_OBJECT);
+
+      final Map<String, Object> map = new HashMap<>();
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final String key = parser.getCurrentName();
+        parser.nextToken();
+        map.put(key, valueReader.read(parser));
+      }
+      return map;
+    }
+  }
+
+  private final class StructReader implements ValueReader {
+
+    private final Schema schema;
+    private final FieldLookup fields;
+
+    private StructReader(final Schema schema) {
+      this.schema = schema;
+      this.fields = new FieldLookup(schema, false, Optional.empty());
+    }
+
+    @Override
+    public Object read(final JsonParser parser) throws IOException {
+      if (parser.getCurrentToken() == JsonToken.VALUE_NULL) {
+        return null;
+      }
+      expect(parser, JsonToken.START_OBJECT);
+
+      final Object[] values = new Object[fields.size()];
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        final int index = fields.resolve(parser.getCurrentName());
+        parser.nextToken();
+        if (index == NOT_FOUND) {
+          parser.skipChildren();
+        } else {
+          values[index] = fields.read(index, parser);
+        }
+      }
+
+      final Struct struct = new Struct(schema);
+      final List<Field> schemaFields = schema.fields();
+      for (int i = 0; i < values.length; i++) {
+        struct.put(schemaFields.get(i), values[i]);
+      }
+      return struct;
+    }
+  }
+
+  /**
+   * Case-insensitive lookup of JSON field names to schema field indexes.
+   */
+  private final class FieldLookup {
+
+    private final boolean topLevel;
+    private final Map<String, Integer> indexByName = new HashMap<>();
+    private final ValueReader[] readers;
+    private final ConcurrentMap<String, Integer> resolved = new ConcurrentHashMap<>();
+
+    private FieldLookup(
+        final Schema schema,
+        final boolean topLevel,
+        final Optional<Set<String>> requiredColumns
+    ) {
+      this.topLevel = topLevel;
+      final List<Field> fields = schema.fields();
+      this.readers = new ValueReader[fields.size()];
+      for (int i = 0; i < fields.size(); i++) {
+        final Field field = fields.get(i);
+        if (!SerdeUtils.isRequiredColumn(field, requiredColumns)) {
+          continue;
+        }
+        // Top level columns are matched on their name as is, struct fields on upper case name:
+        indexByName.put(topLevel ? field.name() : field.name().toUpperCase(), i);
+        readers[i] = readerFor(field.schema());
+      }
+    }
+
+    int size() {
+      return readers.length;
+    }
+
+    Object read(final int index, final JsonParser parser) throws IOException {
+      return readers[index].read(parser);
+    }
+
+    int resolve(final String jsonName) {
+      final boolean hasAtPrefix = topLevel && jsonName.startsWith("@");
+      if (hasAtPrefix && jsonName.length() == 1) {
+        throw new KsqlException("Field name cannot be '@'.");
+      }
+
+      final Integer cached = resolved.get(jsonName);
+      if (cached != null) {
+        return cached;
+      }
+
+      final String upperCaseName = hasAtPrefix
+          ? jsonName.toUpperCase().substring(1)
+          : jsonName.toUpperCase();
+      final int index = indexByName.getOrDefault(upperCaseName, NOT_FOUND);
+      if (resolved.size() < MAX_CACHED_FIELD_NAMES) {
+        resolved.put(jsonName, index);
+      }
+      return index;
+    }
+  }
+}
@@ -26,6 +26,8 @@ import io.confluent.ksql.serde.util.SerdeUtils;
 import io.confluent.ksql.util.KsqlConfig;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 import java.util.function.Supplier;
 import org.apache.kafka.common.serialization.Deserializer;
 import org.apache.kafka.common.serialization.Serde;
@@ -46,6 +48,27 @@ public class KsqlJsonTopicSerDe extends KsqlTopicSerDe {
       final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
       final String loggerNamePrefix,
       final ProcessingLogContext processingLogContext) {
+    return buildGenericRowSerde(
+        schema, isInternal, loggerNamePrefix, processingLogContext, Optional.empty());
+  }
+
+  @Override
+  public Serde<GenericRow> getGenericRowSerde(final Schema schema, final KsqlConfig ksqlConfig,
+      final boolean isInternal,
+      final Supplier<SchemaRegistryClient> schemaRegistryClientFactory,
+      final String loggerNamePrefix,
+      final ProcessingLogContext processingLogContext,
+      final Set<String> requiredColumns) {
+    return buildGenericRowSerde(
+        schema, isInternal, loggerNamePrefix, processingLogContext, Optional.of(requiredColumns));
+  }
+
+  private static Serde<GenericRow> buildGenericRowSerde(
+      final Schema schema,
+      final boolean isInternal,
+      final String loggerNamePrefix,
+      final ProcessingLogContext processingLogContext,
+      final Optional<Set<String>> requiredColumns) {
     final Map<String, Object> serdeProps = new HashMap<>();
     serdeProps.put("JsonPOJOClass", GenericRow.class);
 
@@ -56,7 +79,8 @@ public class KsqlJsonTopicSerDe extends KsqlTopicSerDe {
         schema,
         isInternal,
         processingLogContext.getLoggerFactory().getLogger(
-            join(loggerNamePrefix, SerdeUtils.DESERIALIZER_LOGGER_NAME))
+            join(loggerNamePrefix, SerdeUtils.DESERIALIZER_LOGGER_NAME)),
+        requiredColumns
     );
 
     genericRowDeserializer.configure(serdeProps, false);
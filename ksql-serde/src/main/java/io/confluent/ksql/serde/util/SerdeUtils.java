@@ -16,7 +16,11 @@
 package io.confluent.ksql.serde.util;
 
 import io.confluent.ksql.util.KsqlException;
+import io.confluent.ksql.util.SchemaUtil;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import org.apache.kafka.connect.data.Field;
 
 public final class SerdeUtils {
   public static final String DESERIALIZER_LOGGER_NAME = "deserializer";
@@ -87,4 +91,20 @@ public final class SerdeUtils {
     }
     throw new IllegalArgumentException("This Object doesn't represent a double");
   }
+
+  /**
+   * Determine if a deserializer must populate the supplied column.
+   *
+   * @param field the column.
+   * @param requiredColumns the names, without any source alias, of the columns that must be
+   *                        populated, or empty if all columns must be populated.
+   * @return {@code true} if the column must be populated.
+   */
+  public static boolean isRequiredColumn(
+      final Field field,
+      final Optional<Set<String>> requiredColumns
+  ) {
+    return !requiredColumns.isPresent()
+        || requiredColumns.get().contains(SchemaUtil.getFieldNameWithNoAlias(field));
+  }
 }
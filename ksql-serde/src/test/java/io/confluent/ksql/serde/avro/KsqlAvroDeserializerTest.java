@@ -0,0 +1,255 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.apache.avro.generic.GenericData;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.errors.SerializationException;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class KsqlAvroDeserializerTest {
+
+  private static final String TOPIC = "topic";
+
+  private static final org.apache.avro.Schema ADDRESS_AVRO_SCHEMA =
+      new org.apache.avro.Schema.Parser().parse(
+          "{\"type\": \"record\", \"name\": \"address\", \"fields\": ["
+              + "{\"name\": \"street\", \"type\": \"string\"},"
+              + "{\"name\": \"zip\", \"type\": \"int\"}"
+              + "]}");
+
+  private static final org.apache.avro.Schema AVRO_SCHEMA =
+      new org.apache.avro.Schema.Parser().parse(
+          "{\"type\": \"record\", \"name\": \"order\", \"fields\": ["
+              + "{\"name\": \"orderId\", \"type\": \"int\"},"
+              + "{\"name\": \"ignored\", \"type\": {\"type\": \"map\", \"values\": \"bytes\"}},"
+              + "{\"name\": \"itemId\", \"type\": [\"null\", \"string\"]},"
+              + "{\"name\": \"units\", \"type\": \"float\"},"
+              + "{\"name\": \"tags\", \"type\": {\"type\": \"array\", \"items\": \"string\"}},"
+              + "{\"name\": \"address\", \"type\": " + ADDRESS_AVRO_SCHEMA + "}"
+              + "]}");
+
+  private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct()
+      .field("STREET", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("ZIP", Schema.OPTIONAL_INT64_SCHEMA)
+      .optional()
+      .build();
+
+  private static final Schema SCHEMA = SchemaBuilder.struct()
+      .field("ORDERID", Schema.OPTIONAL_INT64_SCHEMA)
+      .field("ITEMID", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("UNITS", Schema.OPTIONAL_FLOAT64_SCHEMA)
+      .field("TAGS", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+      .field("ADDRESS", ADDRESS_SCHEMA)
+      .field("MISSING", Schema.OPTIONAL_STRING_SCHEMA)
+      .build();
+
+  @Mock
+  private Deserializer<GenericRow> fallback;
+  @Mock
+  private ProcessingLogger recordLogger;
+  @Mock
+  private GenericRow fallbackRow;
+
+  @Rule
+  public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private final SchemaRegistryClient schemaRegistryClient = spy(new MockSchemaRegistryClient());
+  private KsqlAvroDeserializer deserializer;
+
+  @Before
+  public void setUp() {
+    when(fallback.deserialize(anyString(), any())).thenReturn(fallbackRow);
+    deserializer = new KsqlAvroDeserializer(
+        schemaRegistryClient, SCHEMA, Optional.empty(), fallback, recordLogger);
+  }
+
+  @Test
+  public void shouldDecodeRowDirectly() {
+    // Given:
+    final byte[] bytes = serialize(givenOrder("item_1"));
+
+    // When:
+    final GenericRow row = deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    assertThat(row, is(new GenericRow(Arrays.asList(
+        1L,
+        "item_1",
+        1.5,
+        Arrays.asList("a", "b"),
+        new Struct(ADDRESS_SCHEMA).put("STREET", "Main St").put("ZIP", 94301L),
+        null))));
+    verify(fallback, never()).deserialize(anyString(), any());
+  }
+
+  @Test
+  public void shouldDecodeNullUnionBranch() {
+    // Given:
+    final byte[] bytes = serialize(givenOrder(null));
+
+    // When:
+    final GenericRow row = deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    assertThat(row.getColumns().get(1), is(nullValue()));
+  }
+
+  @Test
+  public void shouldOnlyFetchEachWriterSchemaOnce() throws Exception {
+    // Given:
+    final byte[] bytes = serialize(givenOrder("item_1"));
+
+    // When:
+    deserializer.deserialize(TOPIC, bytes);
+    deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    verify(schemaRegistryClient, times(1)).getBySubjectAndId(anyString(), anyInt());
+  }
+
+  @Test
+  public void shouldOnlyPopulateRequiredColumns() {
+    // Given:
+    deserializer = new KsqlAvroDeserializer(
+        schemaRegistryClient,
+        SCHEMA,
+        Optional.of(ImmutableSet.of("ITEMID")),
+        fallback,
+        recordLogger);
+    final byte[] bytes = serialize(givenOrder("item_1"));
+
+    // When:
+    final GenericRow row = deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    assertThat(row, is(new GenericRow(
+        Arrays.asList(null, "item_1", null, null, null, null))));
+  }
+
+  @Test
+  public void shouldReturnNullForNullBytes() {
+    assertThat(deserializer.deserialize(TOPIC, null), is(nullValue()));
+  }
+
+  @Test
+  public void shouldUseFallbackForUnsupportedWriterSchema() {
+    // Given:
+    final org.apache.avro.Schema unionSchema = new org.apache.avro.Schema.Parser().parse(
+        "{\"type\": \"record\", \"name\": \"order\", \"fields\": ["
+            + "{\"name\": \"itemId\", \"type\": [\"int\", \"string\"]}"
+            + "]}");
+    final GenericRecord record = new GenericData.Record(unionSchema);
+    record.put("itemId", 10);
+    final byte[] bytes = serialize(record);
+
+    // When:
+    final GenericRow row = deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    assertThat(row, is(sameInstance(fallbackRow)));
+  }
+
+  @Test
+  public void shouldUseFallbackForDataNotInWireFormat() {
+    // Given:
+    final byte[] bytes = "not avro".getBytes(StandardCharsets.UTF_8);
+
+    // When:
+    final GenericRow row = deserializer.deserialize(TOPIC, bytes);
+
+    // Then:
+    assertThat(row, is(sameInstance(fallbackRow)));
+  }
+
+  @Test
+  public void shouldLogAndThrowIfPayloadIsCorrupt() {
+    // Given:
+    final byte[] bytes = serialize(givenOrder("item_1"));
+    final byte[] truncated = Arrays.copyOf(bytes, 8);
+
+    try {
+      // When:
+      deserializer.deserialize(TOPIC, truncated);
+      fail("Expected deserialization to fail");
+    } catch (final SerializationException e) {
+      // Then:
+      assertThat(e.getMessage(), is(
+          "KsqlAvroDeserializer failed to deserialize data for topic: " + TOPIC));
+    }
+    verify(recordLogger).error(any());
+  }
+
+  private static GenericRecord givenOrder(final String itemId) {
+    final GenericRecord address = new GenericData.Record(ADDRESS_AVRO_SCHEMA);
+    address.put("street", "Main St");
+    address.put("zip", 94301);
+
+    final GenericRecord order = new GenericData.Record(AVRO_SCHEMA);
+    order.put("orderId", 1);
+    order.put("ignored", Collections.singletonMap("k", ByteBuffer.wrap(new byte[]{1})));
+    order.put("itemId", itemId);
+    order.put("units", 1.5f);
+    order.put("tags", Arrays.asList("a", "b"));
+    order.put("address", address);
+    return order;
+  }
+
+  private byte[] serialize(final GenericRecord record) {
+    final KafkaAvroSerializer serializer = new KafkaAvroSerializer(
+        schemaRegistryClient,
+        ImmutableMap.of(
+            AbstractKafkaAvroSerDeConfig.AUTO_REGISTER_SCHEMAS, true,
+            AbstractKafkaAvroSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, ""));
+    return serializer.serialize(TOPIC, record);
+  }
+}
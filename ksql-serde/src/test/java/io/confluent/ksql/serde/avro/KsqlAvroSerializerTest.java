@@ -0,0 +1,191 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.avro;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableMap;
+import io.confluent.connect.avro.AvroConverter;
+import io.confluent.connect.avro.AvroDataConfig;
+import io.confluent.kafka.schemaregistry.client.MockSchemaRegistryClient;
+import io.confluent.kafka.schemaregistry.client.SchemaRegistryClient;
+import io.confluent.kafka.serializers.AbstractKafkaAvroSerDeConfig;
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.ksql.GenericRow;
+import io.confluent.ksql.logging.processing.ProcessingLogger;
+import io.confluent.ksql.serde.connect.KsqlConnectSerializer;
+import io.confluent.ksql.util.KsqlConstants;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+import org.apache.avro.generic.GenericRecord;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serializer;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
+import org.apache.kafka.connect.errors.DataException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnit;
+import org.mockito.junit.MockitoRule;
+
+public class KsqlAvroSerializerTest {
+
+  private static final Schema ADDRESS_SCHEMA = SchemaBuilder.struct()
+      .field("STREET", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("ZIP", Schema.OPTIONAL_INT32_SCHEMA)
+      .optional()
+      .build();
+
+  private static final Schema SCHEMA = SchemaBuilder.struct()
+      .field("ORDERID", Schema.OPTIONAL_INT64_SCHEMA)
+      .field("ITEMID", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("UNITS", Schema.OPTIONAL_FLOAT64_SCHEMA)
+      .field("SHIPPED", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+      .field("TAGS", SchemaBuilder.array(Schema.OPTIONAL_STRING_SCHEMA).optional().build())
+      .field("PRICES", SchemaBuilder
+          .map(Schema.OPTIONAL_STRING_SCHEMA, Schema.OPTIONAL_FLOAT64_SCHEMA)
+          .optional()
+          .build())
+      .field("COUNTS", SchemaBuilder
+          .map(Schema.STRING_SCHEMA, Schema.OPTIONAL_INT64_SCHEMA)
+          .optional()
+          .build())
+      .field("ADDRESS", ADDRESS_SCHEMA)
+      .optional()
+      .build();
+
+  private static final GenericRow ROW = new GenericRow(Arrays.asList(
+      1L,
+      null,
+      1.5,
+      true,
+      Arrays.asList("a", null),
+      Collections.singletonMap("a", 10.0),
+      Collections.singletonMap("b", 2L),
+      new Struct(ADDRESS_SCHEMA).put("STREET", "Main St").put("ZIP", 94301)));
+
+  @Mock
+  private Serializer<GenericRow> fallback;
+  @Mock
+  private Deserializer<GenericRow> fallbackDeserializer;
+  @Mock
+  private ProcessingLogger recordLogger;
+
+  @Rule
+  public final MockitoRule mockitoRule = MockitoJUnit.rule();
+
+  private final SchemaRegistryClient schemaRegistryClient = spy(new MockSchemaRegistryClient());
+  private final AvroDataTranslator translator =
+      new AvroDataTranslator(SCHEMA, KsqlConstants.DEFAULT_AVRO_SCHEMA_FULL_NAME);
+  private KsqlAvroSerializer serializer;
+
+  @Before
+  public void setUp() {
+    serializer = new KsqlAvroSerializer(
+        schemaRegistryClient, translator.getAvroCompatibleSchema(), fallback);
+  }
+
+  @Test
+  public void shouldWriteWhatTheConnectPathWrites() {
+    // Given:
+    final Serializer<GenericRow> connectSerializer =
+        new KsqlConnectSerializer(translator, givenAvroConverter());
+
+    // When:
+    final byte[] bytes = serializer.serialize("direct", ROW);
+    final byte[] connectBytes = connectSerializer.serialize("connect", ROW);
+
+    // Then:
+    final GenericRecord record = deserialize("direct", bytes);
+    assertThat(record, is(deserialize("connect", connectBytes)));
+    verify(fallback, never()).serialize(anyString(), any());
+  }
+
+  @Test
+  public void shouldRegisterSchemaOncePerTopic() throws Exception {
+    // When:
+    serializer.serialize("topic", ROW);
+    serializer.serialize("topic", ROW);
+
+    // Then:
+    verify(schemaRegistryClient, times(1)).register(anyString(), any());
+  }
+
+  @Test
+  public void shouldRoundTripThroughDeserializer() {
+    // Given:
+    final KsqlAvroDeserializer deserializer = new KsqlAvroDeserializer(
+        schemaRegistryClient,
+        SCHEMA,
+        Optional.empty(),
+        fallbackDeserializer,
+        recordLogger);
+
+    // When:
+    final byte[] bytes = serializer.serialize("topic", ROW);
+
+    // Then:
+    assertThat(deserializer.deserialize("topic", bytes), is(ROW));
+  }
+
+  @Test
+  public void shouldReturnNullForNullRow() {
+    assertThat(serializer.serialize("topic", null), is(nullValue()));
+  }
+
+  @Test
+  public void shouldThrowDataExceptionOnIncompatibleValue() {
+    // Given:
+    final GenericRow row = new GenericRow(Arrays.asList(
+        1L, "item_1", "1.5", true, null, null, null, null));
+
+    try {
+      // When:
+      serializer.serialize("topic", row);
+      fail("Expected serialization to fail");
+    } catch (final DataException e) {
+      // Then: expected
+    }
+  }
+
+  private AvroConverter givenAvroConverter() {
+    final AvroConverter converter = new AvroConverter(schemaRegistryClient);
+    converter.configure(
+        ImmutableMap.of(
+            AbstractKafkaAvroSerDeConfig.SCHEMA_REGISTRY_URL_CONFIG, "",
+            AvroDataConfig.CONNECT_META_DATA_CONFIG, false),
+        false);
+    return converter;
+  }
+
+  private GenericRecord deserialize(final String topic, final byte[] bytes) {
+    return (GenericRecord) new KafkaAvroDeserializer(schemaRegistryClient)
+        .deserialize(topic, bytes);
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.serde.delimited;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.junit.Assert.assertThat;
+
+import io.confluent.ksql.util.KsqlException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.commons.csv.CSVFormat;
+import org.apache.commons.csv.CSVPrinter;
+import org.apache.kafka.connect.data.Field;
+import org.apache.kafka.connect.data.Schema;
+import org.apache.kafka.connect.data.SchemaBuilder;
+import org.junit.Test;
+
+public class DelimitedCodecTest {
+
+  private static final List<Object> TRICKY_VALUES = Arrays.asList(
+      "", " leading", "trailing ", "a,b", "a\"b", "\"quoted\"", "line\nbreak", "#hash",
+      "ünïcödé", "emoji 😀", -1L, Long.MAX_VALUE, Long.MIN_VALUE, 12, 10.5, true, null);
+
+  private static final Schema STRING_SCHEMA = SchemaBuilder.struct()
+      .field("F0", Schema.OPTIONAL_STRING_SCHEMA)
+      .field("F1", Schema.OPTIONAL_STRING_SCHEMA)
+      .build();
+
+  @Test
+  public void shouldEncodeLikeCommonsCsv() throws Exception {
+    for (final Object first : TRICKY_VALUES) {
+      for (final Object second : TRICKY_VALUES) {
+        // Given:
+        final List<Object> values = Arrays.asList(first, second);
+
+        // When:
+        final byte[] bytes = DelimitedCodec.DEFAULT.encode(values);
+
+        // Then:
+        assertThat(new String(bytes, StandardCharsets.UTF_8), equalTo(commonsCsv(values)));
+      }
+    }
+  }
+
+  @Test
+  public void shouldRoundTripStrings() {
+    for (final Object value : TRICKY_VALUES) {
+      // Given:
+      final String string = value == null || "".equals(value) ? null : value.toString();
+      final List<Object> values = Arrays.asList(string, string);
+
+      // When:
+      final List<Object> decoded = decode(STRING_SCHEMA, DelimitedCodec.DEFAULT.encode(values));
+
+      // Then:
+      assertThat(decoded, equalTo(values));
+    }
+  }
+
+  @Test
+  public void shouldDecodeIntegralColumnsInPlace() {
+    // Given:
+    final Schema schema = SchemaBuilder.struct()
+        .field("INT", Schema.OPTIONAL_INT32_SCHEMA)
+        .field("BIGINT", Schema.OPTIONAL_INT64_SCHEMA)
+        .field("DOUBLE", Schema.OPTIONAL_FLOAT64_SCHEMA)
+        .field("BOOLEAN", Schema.OPTIONAL_BOOLEAN_SCHEMA)
+        .build();
+
+    // When:
+    final List<Object> decoded =
+        decode(schema, "-2147483648,+9223372036854775807,1e3,TRUE\r\n".getBytes(
+            StandardCharsets.UTF_8));
+
+    // Then:
+    assertThat(decoded, equalTo(Arrays.asList(Integer.MIN_VALUE, Long.MAX_VALUE, 1000.0, true)));
+  }
+
+  @Test(expected = NumberFormatException.class)
+  public void shouldThrowOnIntOverflow() {
+    decode(
+        SchemaBuilder.struct().field("INT", Schema.OPTIONAL_INT32_SCHEMA).build(),
+        "2147483648".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void shouldSupportCustomDelimiterAndQuote() {
+    // Given:
+    final DelimitedCodec codec = new DelimitedCodec('|', '\'');
+    final List<Object> values = Arrays.asList("a|b", "it's");
+
+    // When:
+    final byte[] bytes = codec.encode(values);
+
+    // Then:
+    assertThat(new String(bytes, StandardCharsets.UTF_8), equalTo("'a|b'|'it''s'"));
+    assertThat(
+        codec.decode(bytes, STRING_SCHEMA.fields(), new boolean[]{true, true}),
+        equalTo(values));
+  }
+
+  @Test(expected = KsqlException.class)
+  public void shouldThrowOnUnterminatedQuote() {
+    decode(STRING_SCHEMA, "\"a,b".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = KsqlException.class)
+  public void shouldThrowOnEmptyRecord() {
+    decode(STRING_SCHEMA, "\r\n".getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static List<Object> decode(final Schema schema, final byte[] bytes) {
+    final List<Field> fields = schema.fields();
+    final boolean[] required = new boolean[fields.size()];
+    Arrays.fill(required, true);
+    return DelimitedCodec.DEFAULT.decode(bytes, fields, required);
+  }
+
+  private static String commonsCsv(final List<Object> values) throws Exception {
+    final StringWriter writer = new StringWriter();
+    new CSVPrinter(writer, CSVFormat.DEFAULT).printRecord(values);
+    final String result = writer.toString();
+    return result.substring(0, result.length() - 2);
+  }
+}
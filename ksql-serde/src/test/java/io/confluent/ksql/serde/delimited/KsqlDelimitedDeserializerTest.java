@@ -19,12 +19,14 @@ import static org.hamcrest.CoreMatchers.equalTo;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 
+import com.google.common.collect.ImmutableSet;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.logging.processing.ProcessingLogConfig;
 import io.confluent.ksql.logging.processing.ProcessingLogger;
 import io.confluent.ksql.serde.SerdeTestUtils;
 import io.confluent.ksql.serde.util.SerdeProcessingLogMessageFactory;
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
 import org.apache.kafka.common.errors.SerializationException;
@@ -77,6 +79,23 @@ public class KsqlDelimitedDeserializerTest {
     assertThat(genericRow.getColumns().get(3), equalTo(10.0));
   }
 
+  @Test
+  public void shouldNotConvertColumnsThatAreNotRequired() {
+    // Given:
+    final KsqlDelimitedDeserializer deserializer = new KsqlDelimitedDeserializer(
+        orderSchema,
+        recordLogger,
+        Optional.of(ImmutableSet.of("ORDERID", "ITEMID")));
+
+    // When:
+    final GenericRow genericRow = deserializer.deserialize(
+        "",
+        "not-a-long,1,item_1,10.0\r\n".getBytes(StandardCharsets.UTF_8));
+
+    // Then:
+    assertThat(genericRow, equalTo(new GenericRow(Arrays.asList(null, 1L, "item_1", null))));
+  }
+
   @Test
   public void shouldLogErrors() {
     Throwable cause = null;
@@ -23,6 +23,7 @@ import static org.junit.Assert.fail;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableSet;
 import io.confluent.ksql.GenericRow;
 import io.confluent.ksql.logging.processing.ProcessingLogConfig;
 import io.confluent.ksql.logging.processing.ProcessingLogger;
@@ -37,6 +38,7 @@ import java.util.Optional;
 import org.apache.kafka.common.errors.SerializationException;
 import org.apache.kafka.connect.data.Schema;
 import org.apache.kafka.connect.data.SchemaBuilder;
+import org.apache.kafka.connect.data.Struct;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
@@ -180,6 +182,103 @@ public class KsqlJsonDeserializerTest {
     assertThat(genericRow, equalTo(expected));
   }
 
+  @Test
+  public void shouldDeserializeNestedStructCaseInsensitivelyAndSkipUnknownFields() {
+    // Given:
+    final Schema itemSchema = SchemaBuilder.struct()
+        .field("ID", Schema.OPTIONAL_INT64_SCHEMA)
+        .field("NAME", Schema.OPTIONAL_STRING_SCHEMA)
+        .optional()
+        .build();
+    final Schema schema = SchemaBuilder.struct()
+        .field("ITEM", itemSchema)
+        .field("UNITS", Schema.OPTIONAL_INT32_SCHEMA)
+        .build();
+    final KsqlJsonDeserializer deserializer = new KsqlJsonDeserializer(
+        schema,
+        false,
+        recordLogger);
+    final byte[] data = ("{\"Unknown\":{\"a\":[1,{\"b\":2}]},"
+        + "\"item\":{\"Id\":5,\"extra\":[true],\"name\":\"Item_5\"},"
+        + "\"units\":\"7\"}").getBytes(StandardCharsets.UTF_8);
+
+    // When:
+    final GenericRow genericRow = deserializer.deserialize("", data);
+
+    // Then:
+    final Struct item = (Struct) genericRow.getColumns().get(0);
+    assertThat(item.get("ID"), equalTo(5L));
+    assertThat(item.get("NAME"), equalTo("Item_5"));
+    assertThat(genericRow.getColumns().get(1), equalTo(7));
+  }
+
+  @Test
+  public void shouldCoerceNumbersToColumnType() {
+    // Given:
+    final Schema schema = SchemaBuilder.struct()
+        .field("INTCOL", Schema.OPTIONAL_INT32_SCHEMA)
+        .field("DOUBLECOL", Schema.OPTIONAL_FLOAT64_SCHEMA)
+        .field("STRINGCOL", Schema.OPTIONAL_STRING_SCHEMA)
+        .build();
+    final KsqlJsonDeserializer deserializer = new KsqlJsonDeserializer(
+        schema,
+        false,
+        recordLogger);
+    final byte[] data = "{\"intcol\":1.9,\"doublecol\":3,\"stringcol\":[1,2.5]}"
+        .getBytes(StandardCharsets.UTF_8);
+
+    // When:
+    final GenericRow genericRow = deserializer.deserialize("", data);
+
+    // Then:
+    assertThat(genericRow, equalTo(new GenericRow(Arrays.asList(1, 3.0, "[1, 2.5]"))));
+  }
+
+  @Test
+  public void shouldOnlyDeserializeRequiredColumns() throws JsonProcessingException {
+    // Given:
+    final KsqlJsonDeserializer deserializer = new KsqlJsonDeserializer(
+        orderSchema,
+        false,
+        recordLogger,
+        Optional.of(ImmutableSet.of("ORDERID", "MAPCOL")));
+    final Map<String, Object> orderRow = new HashMap<>();
+    orderRow.put("ordertime", 1511897796092L);
+    orderRow.put("@orderid", 1L);
+    orderRow.put("itemid", "Item_1");
+    orderRow.put("orderunits", 10.0);
+    orderRow.put("arraycol", new Double[]{10.0, 20.0});
+    orderRow.put("mapcol", Collections.singletonMap("key1", 10.0));
+
+    // When:
+    final GenericRow genericRow =
+        deserializer.deserialize("", objectMapper.writeValueAsBytes(orderRow));
+
+    // Then:
+    assertThat(genericRow, equalTo(new GenericRow(Arrays.asList(
+        null, 1L, null, null, null, Collections.singletonMap("key1", 10.0)))));
+  }
+
+  @Test
+  public void shouldReturnNullForJsonNull() {
+    // When:
+    final GenericRow genericRow =
+        ksqlJsonDeserializer.deserialize("", "null".getBytes(StandardCharsets.UTF_8));
+
+    // Then:
+    assertThat(genericRow, is(nullValue()));
+  }
+
+  @Test(expected = SerializationException.class)
+  public void shouldThrowIfFieldNameIsOnlyAt() {
+    ksqlJsonDeserializer.deserialize("", "{\"@\":1}".getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test(expected = SerializationException.class)
+  public void shouldThrowIfNotJsonObject() {
+    ksqlJsonDeserializer.deserialize("", "[1,2]".getBytes(StandardCharsets.UTF_8));
+  }
+
   @Test
   public void shouldLogDeserializationErrors() {
     // When:
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 Confluent Inc.
+ *
+ * Licensed under the Confluent Community License (the "License"); you may not use
+ * this file except in compliance with the License.  You may obtain a copy of the
+ * License at
+ *
+ * http://www.confluent.io/confluent-community-license
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OF ANY KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations under the License.
+ */
+
+package io.confluent.ksql.function.udf;
+
+import java.util.Map;
+
+/**
+ * Optionally, implemented by a UDF class that can prepare for the arguments of a call that are
+ * literals, e.g. a format pattern, so that it doesn't need to look them up on every invocation.
+ *
+ * <p>KSQL creates a separate instance of the UDF class for each call in a query. Before the
+ * first invocation, it calls {@link #initConstantArgs} with the literal arguments of that call.
+ * Every later invocation of the instance is passed the same values for those arguments.
+ */
+public interface ConstantArgsAware {
+
+  /**
+   * Called once, when the query is built, before the first invocation.
+   *
+   * <p>Any failure should be left for the invocation to report, as it would have been without
+   * this method, rather than thrown.
+   *
+   * @param constantArgs the value of each argument of the call that is a non-null literal,
+   *                     keyed by the index of the argument.
+   */
+  void initConstantArgs(Map<Integer, Object> constantArgs);
+}